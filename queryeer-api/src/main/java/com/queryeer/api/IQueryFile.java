@@ -36,6 +36,15 @@
     /** Increment the row counter to let status etc. update */
     void incrementTotalRowCount();
 
+    /** Increment the row counter with provided count */
+    default void incrementTotalRowCount(int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            incrementTotalRowCount();
+        }
+    }
+
     /** Get the current selected output format for this file */
     IOutputFormatExtension getOutputFormat();
 
@@ -6,6 +6,7 @@
 import java.awt.Color;
 import java.io.Reader;
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
 import javax.swing.Action;
 import javax.swing.Icon;
@@ -20,11 +21,21 @@
      * that is needed for what this parser supports.
      *
      * <p>
-     * Thread can be interrupted when document gets dirty and a new session is scheduled so it's good to support {@link Thread#isInterrupted()} and cancel current session
+     * Parsers that can be aborted should implement {@link #parse(Reader, BooleanSupplier)}
      * </p>
      */
     void parse(Reader documentReader);
 
+    /**
+     * Parse with provided document reader. Same as {@link #parse(Reader)} but with a cancel check that returns true when the document got dirty again and a new session is scheduled. Parsers should
+     * poll the check at safe points and throw {@link java.util.concurrent.CancellationException} to abort the session. The check is used instead of interrupting the parse thread since an interrupt would close any
+     * interruptible channel the parser happens to use.
+     */
+    default void parse(Reader documentReader, BooleanSupplier cancelled)
+    {
+        parse(documentReader);
+    }
+
     /** Return the result from the paring done after {@link #parse(Reader)} is complete. */
     default List<ParseItem> getParseResult()
     {
@@ -0,0 +1,59 @@
+package com.queryeer.api.editor;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Cancel check of a parse session started by {@link ITextEditorDocumentParser#parse(java.io.Reader, BooleanSupplier)}. Token streams of parsers calls {@link #fetched()} and {@link #consumed()} to
+ * abort lexing and parsing of stale documents with a {@link CancellationException}.
+ *
+ * <p>
+ * This class does not depend on ANTLR since API classes are loaded by the core class loader while plugins bundle their own ANTLR runtime. Parsers wraps this in a token stream of their runtime.
+ * </p>
+ */
+public final class ParseCancellation
+{
+    /** Number of consumed tokens between cancel checks */
+    private static final int CHECK_INTERVAL = 256;
+    /** Cancel check, cleared when the parse is done since completions reads the token stream afterwards */
+    private volatile BooleanSupplier cancelled;
+    private int count;
+
+    public ParseCancellation(BooleanSupplier cancelled)
+    {
+        this.cancelled = requireNonNull(cancelled, "cancelled");
+    }
+
+    /** Stop checking for cancellation */
+    public void done()
+    {
+        cancelled = null;
+    }
+
+    /** Called before tokens are fetched from the lexer */
+    public void fetched()
+    {
+        check();
+    }
+
+    /** Called when a token is consumed by the parser. Cancellation is checked every {@value #CHECK_INTERVAL} token */
+    public void consumed()
+    {
+        if (++count % CHECK_INTERVAL == 0)
+        {
+            check();
+        }
+    }
+
+    private void check()
+    {
+        BooleanSupplier cancelled = this.cancelled;
+        if (cancelled != null
+                && cancelled.getAsBoolean())
+        {
+            throw new CancellationException("Parse aborted");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.queryeer.api.editor;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background warm up of parser grammars. The prediction caches of generated ANTLR parsers and the follow sets of the c3 completion core are static and shared between all editors, so parsing and
+ * collecting completion candidates of a representative corpus once lets the first opened editor skip the cold ATN simulation. Warm ups run one at a time on a low priority daemon thread. Disable
+ * with system property {@code noParserWarmup} to measure a cold start.
+ */
+public final class ParserWarmup
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParserWarmup.class);
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r ->
+    {
+        Thread thread = new Thread(r, "ParserWarmup-#" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private static final AtomicInteger PENDING = new AtomicInteger();
+
+    private ParserWarmup()
+    {
+    }
+
+    /**
+     * Submit a warm up of a grammar
+     *
+     * @param name Name of the grammar, used for logging
+     * @param warmUp Grammar specific warm up
+     */
+    public static void submit(String name, WarmUp warmUp)
+    {
+        requireNonNull(name, "name");
+        requireNonNull(warmUp, "warmUp");
+        if (System.getProperty("noParserWarmup") != null)
+        {
+            LOGGER.info("Parser warm up disabled, skipping {}", name);
+            return;
+        }
+        PENDING.incrementAndGet();
+        EXECUTOR.execute(() ->
+        {
+            long start = System.nanoTime();
+            try
+            {
+                int positions = warmUp.run();
+                LOGGER.info("Warmed up {} parser in {} ms ({} completion positions)", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), positions);
+            }
+            catch (Exception e)
+            {
+                LOGGER.warn("Error warming up {} parser", name, e);
+            }
+            finally
+            {
+                PENDING.decrementAndGet();
+            }
+        });
+    }
+
+    /** Returns true if all submitted warm ups have finished */
+    public static boolean isDone()
+    {
+        return PENDING.get() == 0;
+    }
+
+    /**
+     * Call provided collector at token indices evenly spread over the document.
+     *
+     * @param tokenCount Number of tokens in document
+     * @param maxPositions Max number of indices to visit
+     * @param collector Collector that is called with a token index. Returns false if the token was skipped, ie. a hidden token.
+     * @return Number of positions that was collected
+     */
+    public static int collectSample(int tokenCount, int maxPositions, IntPredicate collector)
+    {
+        int stride = Math.max(1, tokenCount / maxPositions);
+        int positions = 0;
+        for (int i = 0; i < tokenCount; i += stride)
+        {
+            if (collector.test(i))
+            {
+                positions++;
+            }
+        }
+        return positions;
+    }
+
+    /** Grammar specific warm up */
+    @FunctionalInterface
+    public interface WarmUp
+    {
+        /**
+         * Run warm up
+         *
+         * @return Number of positions where completion candidates were collected
+         */
+        int run() throws Exception;
+    }
+}
@@ -47,7 +47,8 @@ default IState cloneState(IQueryFile queryFile)
     }
 
     /**
-     * Method called before {@link #execute(IQueryFile, OutputWriter, ITextOutputComponent, String)} to let query engines perform and do validations etc. before actually doing a query
+     * Method called before {@link #execute(IQueryFile, OutputWriter, ITextOutputComponent, String)} to let query engines perform and do validations etc. before actually doing a query.
+     * Called on the EDT once per user initiated execution, not on each tick of an interval execution.
      */
     default boolean shouldExecute(IQueryFile queryFile)
     {
@@ -17,9 +17,51 @@ public interface QueryeerOutputWriter extends OutputWriter
     /** Init result with columns and meta data about current result. Ie. can be JDBC specifics like current database/cconnection or similar. */
     void initResult(String[] columns, Map<String, Object> resultMetaData);
 
+    /**
+     * Init result with columns, column types and meta data about current result.
+     *
+     * @param columnTypes Java types of the values that will be written for each column or null if unknown. Is a hint to let writers pre-allocate typed storage etc. Writers must still handle values
+     * of other types.
+     */
+    default void initResult(String[] columns, Class<?>[] columnTypes, Map<String, Object> resultMetaData)
+    {
+        initResult(columns, resultMetaData);
+    }
+
     @Override
     default void initResult(String[] columns)
     {
         initResult(columns, emptyMap());
     }
+
+    /**
+     * Write a batch of rows in column major form. Writers that can consume whole columns (ie. table output) override this to avoid the per cell call overhead, default implementation falls back to
+     * the row protocol.
+     *
+     * @param columns Column names of the batch. Same for all rows in the batch.
+     * @param values Column major values. values[column][row]
+     * @param rowCount Number of rows in batch. Arrays in values might be larger than this.
+     */
+    default void writeBatch(String[] columns, Object[][] values, int rowCount)
+    {
+        writeRows(this, columns, values, rowCount);
+    }
+
+    /** Adapter that writes a column major batch to provided writer using the row protocol. */
+    static void writeRows(OutputWriter writer, String[] columns, Object[][] values, int rowCount)
+    {
+        int columnCount = columns.length;
+        for (int row = 0; row < rowCount; row++)
+        {
+            writer.startRow();
+            writer.startObject();
+            for (int column = 0; column < columnCount; column++)
+            {
+                writer.writeFieldName(columns[column]);
+                writer.writeValue(values[column][row]);
+            }
+            writer.endObject();
+            writer.endRow();
+        }
+    }
 }
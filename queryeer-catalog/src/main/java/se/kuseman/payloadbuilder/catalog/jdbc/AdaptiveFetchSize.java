@@ -0,0 +1,243 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.apache.commons.lang3.time.DurationFormatUtils;
+
+/**
+ * Adaptive fetch size of a result set. Starts with a small fetch size for fast time to first row and doubles it each time a full fetch has been consumed and the driver had to wait for the server.
+ * Growth is capped by a byte budget per fetch based on the measured row width. Also collects fetch statistics.
+ */
+class AdaptiveFetchSize
+{
+    /** Target max bytes per fetch */
+    static final long FETCH_BYTES_BUDGET = 4 * 1024 * 1024;
+    /** Calls to {@link ResultSet#next()} blocking longer than this are considered a round trip to the server */
+    static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    /** Row width is sampled every n:th row */
+    private static final int SAMPLE_INTERVAL = 16;
+    private static final int DEFAULT_ROW_BYTES = 100;
+
+    private int initialFetchSize;
+    private final int maxFetchSize;
+    private final LongSupplier nanoTime;
+    private final long startNanos;
+    /** False if disabled by dialect or the driver doesn't support changing fetch size */
+    private boolean adaptive;
+    private int fetchSize;
+    private int rowsSinceAdjust;
+    private boolean waitedSinceAdjust;
+    private int adjustments;
+
+    private long rowCount;
+    private long roundTrips;
+    private long waitNanos;
+    private long firstRowNanos = -1;
+    private long sampledRows;
+    private long sampledBytes;
+
+    /**
+     * Create a fetch size.
+     *
+     * @param initialFetchSize Fetch size of the first round trip. If 0 the driver default is kept and only statistics are collected
+     * @param maxFetchSize Max fetch size
+     */
+    AdaptiveFetchSize(int initialFetchSize, int maxFetchSize)
+    {
+        this(initialFetchSize, maxFetchSize, System::nanoTime);
+    }
+
+    /** Create a fetch size with provided clock. Used in tests to simulate round trips. */
+    AdaptiveFetchSize(int initialFetchSize, int maxFetchSize, LongSupplier nanoTime)
+    {
+        this.initialFetchSize = Math.max(0, initialFetchSize);
+        this.maxFetchSize = Math.max(this.initialFetchSize, maxFetchSize);
+        this.nanoTime = nanoTime;
+        this.startNanos = nanoTime.getAsLong();
+    }
+
+    /** Apply initial fetch size to result set. Should be called before first {@link #next(ResultSet)} */
+    void init(ResultSet rs)
+    {
+        fetchSize = initialFetchSize;
+        adaptive = fetchSize > 0;
+        if (adaptive
+                && !setFetchSize(rs, fetchSize))
+        {
+            initialFetchSize = 0;
+            fetchSize = 0;
+        }
+    }
+
+    /** Move result set to next row. Measures wait time and adjusts fetch size when a full fetch has been consumed. */
+    boolean next(ResultSet rs) throws SQLException
+    {
+        long start = nanoTime.getAsLong();
+        boolean next = rs.next();
+        long wait = nanoTime.getAsLong() - start;
+        waitNanos += wait;
+        if (wait >= ROUND_TRIP_NANOS)
+        {
+            roundTrips++;
+            waitedSinceAdjust = true;
+        }
+        if (!next)
+        {
+            return false;
+        }
+        if (firstRowNanos < 0)
+        {
+            firstRowNanos = nanoTime.getAsLong() - startNanos;
+        }
+        rowCount++;
+        if (adaptive
+                && ++rowsSinceAdjust >= fetchSize)
+        {
+            adjust(rs);
+        }
+        return true;
+    }
+
+    /** Returns true if the current row should be sampled with {@link #sample(Object)} */
+    boolean isSampleRow()
+    {
+        return rowCount % SAMPLE_INTERVAL == 1;
+    }
+
+    /** Add the estimated size of a value of a sampled row. The first sampled value of a row must be preceded by {@link #isSampleRow()}. */
+    void sample(Object value)
+    {
+        sampledBytes += estimateSize(value);
+    }
+
+    /** Mark that all values of a sampled row has been added */
+    void endSample()
+    {
+        sampledRows++;
+    }
+
+    int getFetchSize()
+    {
+        return fetchSize;
+    }
+
+    long getRoundTrips()
+    {
+        return roundTrips;
+    }
+
+    int getAdjustments()
+    {
+        return adjustments;
+    }
+
+    long getAvgRowBytes()
+    {
+        return sampledRows > 0 ? sampledBytes / sampledRows
+                : 0;
+    }
+
+    /** Return a one line summary of the statistics */
+    String getStatistics()
+    {
+        StringBuilder sb = new StringBuilder("fetch size: ");
+        if (initialFetchSize == 0)
+        {
+            sb.append("driver default");
+        }
+        else
+        {
+            sb.append(initialFetchSize);
+            if (fetchSize != initialFetchSize)
+            {
+                sb.append(" -> ")
+                        .append(fetchSize);
+            }
+            sb.append(" (")
+                    .append(adjustments)
+                    .append(" adjustment(s))");
+        }
+        sb.append(", round trips: ~")
+                .append(roundTrips)
+                .append(", fetch wait: ")
+                .append(DurationFormatUtils.formatDurationHMS(TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+        if (firstRowNanos >= 0)
+        {
+            sb.append(", first row: ")
+                    .append(DurationFormatUtils.formatDurationHMS(TimeUnit.NANOSECONDS.toMillis(firstRowNanos)));
+        }
+        if (sampledRows > 0)
+        {
+            sb.append(", avg row: ~")
+                    .append(getAvgRowBytes())
+                    .append(" bytes");
+        }
+        return sb.toString();
+    }
+
+    private void adjust(ResultSet rs)
+    {
+        long rowBytes = sampledRows > 0 ? Math.max(1, sampledBytes / sampledRows)
+                : DEFAULT_ROW_BYTES;
+        int budget = (int) Math.max(1, Math.min(Integer.MAX_VALUE, FETCH_BYTES_BUDGET / rowBytes));
+        int newFetchSize = fetchSize;
+        if (waitedSinceAdjust)
+        {
+            // Driver had to go to the server for this fetch, grow to reduce the number of round trips
+            newFetchSize = Math.min(fetchSize * 2, maxFetchSize);
+        }
+        // Shrink if rows turned out to be wider than expected
+        newFetchSize = Math.min(newFetchSize, budget);
+        // .. but never below what we started with
+        newFetchSize = Math.max(newFetchSize, Math.min(initialFetchSize, budget));
+
+        rowsSinceAdjust = 0;
+        waitedSinceAdjust = false;
+        if (newFetchSize != fetchSize
+                && setFetchSize(rs, newFetchSize))
+        {
+            fetchSize = newFetchSize;
+            adjustments++;
+        }
+    }
+
+    private boolean setFetchSize(ResultSet rs, int fetchSize)
+    {
+        try
+        {
+            rs.setFetchSize(fetchSize);
+            return true;
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            // Driver does not support changing fetch size, keep what we have
+            adaptive = false;
+            return false;
+        }
+    }
+
+    static long estimateSize(Object value)
+    {
+        if (value == null)
+        {
+            return 1;
+        }
+        else if (value instanceof CharSequence cs)
+        {
+            return 2L * cs.length();
+        }
+        else if (value instanceof byte[] bytes)
+        {
+            return bytes.length;
+        }
+        else if (value instanceof Number
+                || value instanceof Boolean)
+        {
+            return 8;
+        }
+        return 16;
+    }
+}
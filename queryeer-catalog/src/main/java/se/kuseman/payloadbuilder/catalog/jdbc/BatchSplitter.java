@@ -0,0 +1,308 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import static java.util.Collections.singletonList;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/** Splits SQL scripts into batches on lines starting with the dialects batch delimiter (ie. GO) */
+class BatchSplitter
+{
+    private BatchSplitter()
+    {
+    }
+
+    /** Split query into batches. Batches are sub strings of the query, lines are not copied. */
+    static List<String> split(String query, String delimiter)
+    {
+        if (isBlank(delimiter))
+        {
+            return singletonList(query);
+        }
+
+        List<String> batches = new ArrayList<>();
+        int length = query.length();
+        int batchStart = 0;
+        int lineStart = 0;
+        while (lineStart < length)
+        {
+            int newLine = query.indexOf('\n', lineStart);
+            int lineEnd = newLine < 0 ? length
+                    : newLine + 1;
+            if (isDelimiter(query, lineStart, delimiter))
+            {
+                addBatch(batches, query.substring(batchStart, lineStart));
+                batchStart = lineEnd;
+            }
+            lineStart = lineEnd;
+        }
+        addBatch(batches, query.substring(batchStart, length));
+        return batches;
+    }
+
+    private static boolean isDelimiter(CharSequence line, int start, String delimiter)
+    {
+        int length = delimiter.length();
+        if (line.length() - start < length)
+        {
+            return false;
+        }
+        for (int i = 0; i < length; i++)
+        {
+            char a = line.charAt(start + i);
+            char b = delimiter.charAt(i);
+            if (a != b
+                    && Character.toUpperCase(a) != Character.toUpperCase(b))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addBatch(List<String> batches, String batch)
+    {
+        if (!isBlank(batch))
+        {
+            batches.add(batch);
+        }
+    }
+
+    /**
+     * Streaming reader of batches from a script file. Only one batch at a time is kept in memory. Batches before the start batch are skipped without being materialized. File is read as UTF-8.
+     */
+    static class ScriptReader implements Iterator<String>, Closeable
+    {
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final FileChannel channel;
+        private final Reader reader;
+        private final String delimiter;
+        private final long size;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int bufferPosition;
+        private int bufferLength;
+        private boolean eof;
+
+        private final StringBuilder line = new StringBuilder();
+        private final StringBuilder batch = new StringBuilder();
+        /** Byte offset of the read position */
+        private long offset;
+        /** Byte offset of the end of the last returned batch */
+        private long batchEndOffset;
+        /** 1-based index of the last returned batch */
+        private int batchIndex;
+        /** 1-based index of the last batch that has been executed to completion */
+        private int completedBatchIndex;
+        private String next;
+
+        /**
+         * Create a script reader
+         *
+         * @param file Script file
+         * @param delimiter Batch delimiter. If blank the whole script is a single batch
+         * @param startBatch 1-based index of the first batch to return
+         */
+        ScriptReader(Path file, String delimiter, int startBatch) throws IOException
+        {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+            this.reader = Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE);
+            this.delimiter = delimiter;
+            skipBom();
+            while (batchIndex < startBatch - 1
+                    && readBatch(false))
+            {
+                batchIndex++;
+                batchEndOffset = offset;
+            }
+            completedBatchIndex = batchIndex;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (next == null)
+            {
+                try
+                {
+                    if (readBatch(true))
+                    {
+                        next = batch.toString();
+                    }
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            String result = next;
+            next = null;
+            batch.setLength(0);
+            batchIndex++;
+            batchEndOffset = offset;
+            return result;
+        }
+
+        /** Return 1-based index of the last returned batch */
+        int getBatchIndex()
+        {
+            return batchIndex;
+        }
+
+        /** Mark the last returned batch as executed to completion */
+        void batchCompleted()
+        {
+            completedBatchIndex = batchIndex;
+        }
+
+        /**
+         * Return 1-based index of the batch to resume the script from. This is the last returned batch if it didn't complete otherwise the one after it. Returns 0 if all batches are completed.
+         */
+        int getResumeBatchIndex()
+        {
+            if (completedBatchIndex < batchIndex)
+            {
+                return batchIndex;
+            }
+            return hasNext() ? batchIndex + 1
+                    : 0;
+        }
+
+        /** Return byte offset of the end of the last returned batch */
+        long getOffset()
+        {
+            return batchEndOffset;
+        }
+
+        long getSize()
+        {
+            return size;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            reader.close();
+            channel.close();
+        }
+
+        /** Read next non blank batch. If collect is false the batch content is not kept. */
+        private boolean readBatch(boolean collect) throws IOException
+        {
+            boolean blank = true;
+            batch.setLength(0);
+            while (readLine())
+            {
+                if (!isBlank(delimiter)
+                        && isDelimiter(line, 0, delimiter))
+                {
+                    if (!blank)
+                    {
+                        return true;
+                    }
+                    continue;
+                }
+                blank = blank
+                        && isBlank(line);
+                if (collect)
+                {
+                    batch.append(line);
+                }
+            }
+            return !blank;
+        }
+
+        /** Read next line including line terminator into {@link #line}. Returns false if end of file is reached. */
+        private boolean readLine() throws IOException
+        {
+            line.setLength(0);
+            while (true)
+            {
+                if (bufferPosition >= bufferLength)
+                {
+                    if (!fill())
+                    {
+                        return line.length() > 0;
+                    }
+                }
+                int start = bufferPosition;
+                while (bufferPosition < bufferLength)
+                {
+                    char c = buffer[bufferPosition++];
+                    offset += utf8Length(c);
+                    if (c == '\n')
+                    {
+                        line.append(buffer, start, bufferPosition - start);
+                        return true;
+                    }
+                }
+                line.append(buffer, start, bufferPosition - start);
+            }
+        }
+
+        private boolean fill() throws IOException
+        {
+            if (eof)
+            {
+                return false;
+            }
+            int read = reader.read(buffer, 0, buffer.length);
+            if (read < 0)
+            {
+                eof = true;
+                return false;
+            }
+            bufferPosition = 0;
+            bufferLength = read;
+            return true;
+        }
+
+        private void skipBom() throws IOException
+        {
+            if (fill()
+                    && buffer[0] == '\uFEFF')
+            {
+                bufferPosition = 1;
+                offset = 3;
+            }
+        }
+
+        /** Number of UTF-8 bytes of a char. Surrogate pairs are 4 bytes in total, 2 per char. */
+        private static int utf8Length(char c)
+        {
+            if (c < 0x80)
+            {
+                return 1;
+            }
+            else if (c < 0x800
+                    || Character.isSurrogate(c))
+            {
+                return 2;
+            }
+            return 3;
+        }
+    }
+}
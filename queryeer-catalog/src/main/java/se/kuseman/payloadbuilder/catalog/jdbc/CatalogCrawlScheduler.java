@@ -0,0 +1,361 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import static java.util.Objects.requireNonNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.kuseman.payloadbuilder.catalog.jdbc.dialect.JdbcDialect;
+
+/**
+ * Scheduler of catalog crawls. Limits the number of concurrent crawls globally and per server, runs crawls of the focused query file before background crawls, deduplicates crawls of the same
+ * database and cancels focused crawls that are superseded by a focused crawl of another database on the same server.
+ */
+class CatalogCrawlScheduler
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CatalogCrawlScheduler.class);
+    static final int MAX_CONCURRENCY = 4;
+    /** Max concurrent crawls against a single server. Crawls are heavy catalog queries so keep them serial */
+    static final int MAX_CONCURRENCY_PER_SERVER = 1;
+
+    private final int maxConcurrencyPerServer;
+    /** Queued tasks in execution order */
+    private final TreeSet<Task> queue = new TreeSet<>(Comparator.comparing((Task t) -> t.priority)
+            .thenComparingLong(t -> t.sequence));
+    /** Queued and running tasks */
+    private final Map<TaskKey, Task> tasks = new HashMap<>();
+    private final Map<String, Integer> runningByServer = new HashMap<>();
+    private long sequence;
+
+    private long completed;
+    private long failed;
+    private long cancelled;
+    private long totalDurationMillis;
+    private long maxDurationMillis;
+    private long lastDurationMillis;
+    private long bytesFetched;
+
+    CatalogCrawlScheduler(int maxConcurrency, int maxConcurrencyPerServer)
+    {
+        this.maxConcurrencyPerServer = maxConcurrencyPerServer;
+        ThreadFactory threadFactory = BasicThreadFactory.builder()
+                .daemon(true)
+                .namingPattern("CatalogCrawlScheduler-#%d")
+                .build();
+        for (int i = 0; i < maxConcurrency; i++)
+        {
+            threadFactory.newThread(this::work)
+                    .start();
+        }
+    }
+
+    /**
+     * Schedule a crawl. If a crawl of the same database is already queued or running no new crawl is scheduled, a queued crawl is re-prioritized if provided priority is higher.
+     *
+     * @return True if a new crawl was scheduled
+     */
+    synchronized boolean schedule(IConnectionContext connectionContext, String database, Priority priority, Job job)
+    {
+        String server = connectionContext.getJdbcConnection()
+                .getJdbcURL();
+        TaskKey key = new TaskKey(server, database);
+
+        if (priority == Priority.FOCUSED)
+        {
+            supersede(key);
+        }
+
+        Task existing = tasks.get(key);
+        if (existing != null)
+        {
+            if (priority.compareTo(existing.priority) < 0
+                    && queue.remove(existing))
+            {
+                existing.priority = priority;
+                queue.add(existing);
+            }
+            existing.focused |= priority == Priority.FOCUSED;
+            return false;
+        }
+
+        Task task = new Task(key, priority, sequence++, new CancellableConnectionContext(connectionContext), job);
+        tasks.put(key, task);
+        queue.add(task);
+        notifyAll();
+        return true;
+    }
+
+    /** Return statistics of the scheduler */
+    synchronized Map<String, Object> getStatistics()
+    {
+        long finished = completed + failed;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("Queue Depth", queue.size());
+        result.put("Running", tasks.size() - queue.size());
+        result.put("Running By Server", new HashMap<>(runningByServer));
+        result.put("Completed", completed);
+        result.put("Failed", failed);
+        result.put("Cancelled", cancelled);
+        result.put("Avg Duration (ms)", finished > 0 ? totalDurationMillis / finished
+                : 0);
+        result.put("Max Duration (ms)", maxDurationMillis);
+        result.put("Last Duration (ms)", lastDurationMillis);
+        result.put("Estimated Bytes Fetched", bytesFetched);
+        List<String> queued = new ArrayList<>();
+        for (Task task : queue)
+        {
+            queued.add(task.priority + " " + task.key.database);
+        }
+        result.put("Queue", queued);
+        return result;
+    }
+
+    /** Cancel focused crawls on the same server as provided key that targets another database */
+    private void supersede(TaskKey key)
+    {
+        Iterator<Task> it = tasks.values()
+                .iterator();
+        while (it.hasNext())
+        {
+            Task task = it.next();
+            if (!task.focused
+                    || task.key.equals(key)
+                    || !task.key.server.equals(key.server))
+            {
+                continue;
+            }
+            if (queue.remove(task))
+            {
+                it.remove();
+                cancelled++;
+                done(task, null, true);
+            }
+            else
+            {
+                // Running, abort its connections. Task is removed by the worker
+                task.connectionContext.cancel();
+            }
+        }
+    }
+
+    private void work()
+    {
+        while (true)
+        {
+            Task task;
+            try
+            {
+                task = take();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread()
+                        .interrupt();
+                return;
+            }
+
+            long start = System.currentTimeMillis();
+            Throwable error = null;
+            long bytes = 0;
+            try
+            {
+                bytes = task.job.run(task.connectionContext);
+            }
+            catch (Throwable e)
+            {
+                error = e;
+            }
+            long duration = System.currentTimeMillis() - start;
+            boolean wasCancelled = task.connectionContext.cancelled;
+
+            synchronized (this)
+            {
+                tasks.remove(task.key);
+                runningByServer.computeIfPresent(task.key.server, (k, v) -> v > 1 ? v - 1
+                        : null);
+                if (wasCancelled)
+                {
+                    cancelled++;
+                }
+                else
+                {
+                    if (error != null)
+                    {
+                        failed++;
+                    }
+                    else
+                    {
+                        completed++;
+                        bytesFetched += bytes;
+                    }
+                    totalDurationMillis += duration;
+                    maxDurationMillis = Math.max(maxDurationMillis, duration);
+                    lastDurationMillis = duration;
+                }
+                notifyAll();
+            }
+            done(task, error, wasCancelled);
+        }
+    }
+
+    /** Take the first queued task whose server is below the concurrency limit */
+    private synchronized Task take() throws InterruptedException
+    {
+        while (true)
+        {
+            for (Task task : queue)
+            {
+                if (runningByServer.getOrDefault(task.key.server, 0) < maxConcurrencyPerServer)
+                {
+                    queue.remove(task);
+                    runningByServer.merge(task.key.server, 1, Integer::sum);
+                    return task;
+                }
+            }
+            wait();
+        }
+    }
+
+    private static void done(Task task, Throwable error, boolean cancelled)
+    {
+        try
+        {
+            task.job.done(error, cancelled);
+        }
+        catch (Throwable e)
+        {
+            LOGGER.error("Error completing crawl of {}", task.key.database, e);
+        }
+    }
+
+    /** Priority of a crawl. Ordered from highest to lowest */
+    enum Priority
+    {
+        /** Crawl of the database of the focused query file */
+        FOCUSED,
+        /** Crawl not related to the focused query file */
+        BACKGROUND
+    }
+
+    /** A crawl job */
+    interface Job
+    {
+        /**
+         * Run crawl. Connections must be created from provided context so they can be aborted on cancellation.
+         *
+         * @return Estimated number of bytes fetched
+         */
+        long run(IConnectionContext connectionContext) throws Exception;
+
+        /** Called when the crawl is finished, failed or cancelled. Error is null if crawl was successful or cancelled before started */
+        void done(Throwable error, boolean cancelled);
+    }
+
+    private record TaskKey(String server, String database)
+    {
+    }
+
+    private static class Task
+    {
+        private final TaskKey key;
+        private final long sequence;
+        private final CancellableConnectionContext connectionContext;
+        private final Job job;
+        private Priority priority;
+        /** True if this task has been requested by a focused query file */
+        private boolean focused;
+
+        Task(TaskKey key, Priority priority, long sequence, CancellableConnectionContext connectionContext, Job job)
+        {
+            this.key = key;
+            this.priority = priority;
+            this.focused = priority == Priority.FOCUSED;
+            this.sequence = sequence;
+            this.connectionContext = connectionContext;
+            this.job = requireNonNull(job, "job");
+        }
+    }
+
+    /** Connection context that tracks created connections so they can be aborted */
+    private static class CancellableConnectionContext implements IConnectionContext
+    {
+        private final IConnectionContext delegate;
+        private final List<Connection> connections = new ArrayList<>();
+        private volatile boolean cancelled;
+
+        CancellableConnectionContext(IConnectionContext delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getDatabase()
+        {
+            return delegate.getDatabase();
+        }
+
+        @Override
+        public JdbcDialect getJdbcDialect()
+        {
+            return delegate.getJdbcDialect();
+        }
+
+        @Override
+        public JdbcConnection getJdbcConnection()
+        {
+            return delegate.getJdbcConnection();
+        }
+
+        @Override
+        public Connection createConnection() throws SQLException
+        {
+            if (cancelled)
+            {
+                throw new SQLException("Crawl cancelled");
+            }
+            Connection connection = delegate.createConnection();
+            synchronized (connections)
+            {
+                connections.add(connection);
+            }
+            return connection;
+        }
+
+        void cancel()
+        {
+            cancelled = true;
+            List<Connection> toAbort;
+            synchronized (connections)
+            {
+                toAbort = new ArrayList<>(connections);
+            }
+            for (Connection connection : toAbort)
+            {
+                try
+                {
+                    if (!connection.isClosed())
+                    {
+                        connection.abort(Runnable::run);
+                    }
+                }
+                catch (SQLException | RuntimeException | AbstractMethodError e)
+                {
+                    LOGGER.debug("Error aborting crawl connection", e);
+                }
+            }
+        }
+    }
+}
@@ -1,35 +1,81 @@
 package se.kuseman.payloadbuilder.catalog.jdbc;
 
+import static java.util.Objects.requireNonNull;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+import java.io.File;
 import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
 
 import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.queryeer.api.IQueryFile;
 import com.queryeer.api.extensions.Inject;
+import com.queryeer.api.service.IConfig;
+import com.queryeer.api.service.IQueryFileProvider;
 
+import se.kuseman.payloadbuilder.catalog.jdbc.dialect.JdbcDialect;
 import se.kuseman.payloadbuilder.catalog.jdbc.model.Catalog;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Constraint;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.ForeignKey;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Index;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.ObjectName;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Routine;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.TableSource;
 
 /** Service that crawls and caches schema information */
 @Inject
 public class CatalogCrawlService
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(CatalogCrawlService.class);
-    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(BasicThreadFactory.builder()
+    /** Expire time of catalogs */
+    private static final Duration EXPIRE = Duration.ofMinutes(10);
+    /** Expire time of catalogs that supports delta crawls */
+    private static final Duration DELTA_EXPIRE = Duration.ofMinutes(2);
+    /** Interval of full crawls for catalogs that supports delta crawls. Safety net for changes not caught by the delta */
+    private static final Duration FULL_CRAWL_INTERVAL = Duration.ofHours(6);
+    /** Backoff after first failed crawl, doubled for each consecutive failure */
+    private static final Duration BACKOFF = Duration.ofSeconds(15);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(15);
+
+    private static final String SNAPSHOTS_FOLDER = "catalog-snapshots";
+    /** Reads snapshots outside of the crawl scheduler so a snapshot is not queued behind a running crawl of the same server */
+    private static final Executor SNAPSHOT_EXECUTOR = Executors.newSingleThreadExecutor(BasicThreadFactory.builder()
             .daemon(true)
-            .namingPattern("CatalogCrawlService-#%d")
+            .namingPattern("CatalogSnapshotReader-#%d")
             .build());
 
     private final Map<CacheKey, CacheEntry> cache = new ConcurrentHashMap<>();
+    private final CatalogSnapshotStore snapshotStore;
+    private final IQueryFileProvider queryFileProvider;
+    private final CatalogCrawlScheduler scheduler;
+    private final Executor snapshotExecutor;
+    private final LongSupplier clock;
+
+    public CatalogCrawlService(IConfig config, IQueryFileProvider queryFileProvider)
+    {
+        this(new CatalogSnapshotStore(new File(config.getConfigFileName(SNAPSHOTS_FOLDER)
+                .getParentFile(), SNAPSHOTS_FOLDER)), queryFileProvider, new CatalogCrawlScheduler(CatalogCrawlScheduler.MAX_CONCURRENCY, CatalogCrawlScheduler.MAX_CONCURRENCY_PER_SERVER),
+                SNAPSHOT_EXECUTOR, System::currentTimeMillis);
+    }
 
-    public CatalogCrawlService()
+    /** Used in tests */
+    CatalogCrawlService(CatalogSnapshotStore snapshotStore, IQueryFileProvider queryFileProvider, CatalogCrawlScheduler scheduler, Executor snapshotExecutor, LongSupplier clock)
     {
+        this.snapshotStore = requireNonNull(snapshotStore, "snapshotStore");
+        this.queryFileProvider = requireNonNull(queryFileProvider, "queryFileProvider");
+        this.scheduler = requireNonNull(scheduler, "scheduler");
+        this.snapshotExecutor = requireNonNull(snapshotExecutor, "snapshotExecutor");
+        this.clock = requireNonNull(clock, "clock");
     }
 
     /** Load catalog for provided */
@@ -46,47 +92,247 @@ public Catalog getCatalog(IConnectionContext connectionContext, String database)
         return cache.compute(key, (k, v) ->
         {
             boolean load = false;
+            boolean readSnapshot = false;
             if (v == null)
             {
                 v = new CacheEntry();
-                v.expireTime = System.currentTimeMillis() + Duration.ofMinutes(10)
-                        .toMillis();
                 load = true;
+                readSnapshot = true;
             }
-            else if (v.expired())
+            else if (v.expired(clock.getAsLong()))
             {
                 load = true;
             }
 
             CacheEntry entry = v;
             if (load
-                    && !entry.loading)
+                    && !entry.loading
+                    && clock.getAsLong() >= entry.retryTime)
             {
                 entry.loading = true;
-                EXECUTOR.execute(() ->
+                if (readSnapshot)
                 {
-                    try
-                    {
-                        entry.catalog = connectionContext.getJdbcDialect()
-                                .getCatalog(connectionContext, database);
-                        entry.expireTime = System.currentTimeMillis() + Duration.ofMinutes(10)
-                                .toMillis();
-                    }
-                    catch (Exception e)
-                    {
-                        LOGGER.error("Error crawling database {}", database, e);
-                    }
-                    finally
+                    // Serve the snapshot from last session while crawling, the crawl is scheduled when the snapshot is read
+                    snapshotExecutor.execute(() ->
                     {
-                        entry.loading = false;
-                    }
-                });
+                        try
+                        {
+                            readSnapshot(jdbcURL, database, entry);
+                        }
+                        finally
+                        {
+                            schedule(connectionContext, jdbcURL, database, entry);
+                        }
+                    });
+                }
+                else
+                {
+                    schedule(connectionContext, jdbcURL, database, entry);
+                }
             }
 
             return entry;
         }).catalog;
     }
 
+    /** Return statistics of catalog crawls */
+    public Map<String, Object> getStatistics()
+    {
+        return scheduler.getStatistics();
+    }
+
+    /** Schedule a crawl of provided entry */
+    private void schedule(IConnectionContext connectionContext, String jdbcURL, String database, CacheEntry entry)
+    {
+        boolean scheduled = scheduler.schedule(connectionContext, database, getPriority(jdbcURL, database), new CatalogCrawlScheduler.Job()
+        {
+            @Override
+            public long run(IConnectionContext context) throws Exception
+            {
+                return crawl(context, jdbcURL, database, entry);
+            }
+
+            @Override
+            public void done(Throwable error, boolean cancelled)
+            {
+                if (cancelled)
+                {
+                    // Crawl again on next request
+                    entry.expireTime = 0;
+                }
+                else if (error != null)
+                {
+                    // Expire time is left as is, retry time decides when to crawl again
+                    LOGGER.error("Error crawling database {}", database, error);
+                    long backoff = Math.min(BACKOFF.toMillis() << Math.min(entry.failures, 16), MAX_BACKOFF.toMillis());
+                    entry.failures++;
+                    entry.retryTime = clock.getAsLong() + backoff;
+                }
+                else
+                {
+                    entry.failures = 0;
+                    entry.retryTime = 0;
+                }
+                entry.loading = false;
+            }
+        });
+        if (!scheduled)
+        {
+            entry.loading = false;
+        }
+    }
+
+    /** Read snapshot from last session if the entry has not been crawled yet */
+    private void readSnapshot(String jdbcURL, String database, CacheEntry entry)
+    {
+        CatalogSnapshotStore.Snapshot snapshot = snapshotStore.read(jdbcURL, database);
+        if (snapshot != null
+                && entry.catalog == null)
+        {
+            entry.lastFullCrawl = snapshot.lastFullCrawl();
+            entry.catalog = snapshot.catalog();
+        }
+    }
+
+    /** Crawl catalog. Returns the estimated number of bytes fetched */
+    private long crawl(IConnectionContext connectionContext, String jdbcURL, String database, CacheEntry entry)
+    {
+        JdbcDialect dialect = connectionContext.getJdbcDialect();
+        Catalog previous = entry.catalog;
+        Catalog catalog = getCatalogDelta(dialect, connectionContext, database, entry);
+        if (catalog == null)
+        {
+            catalog = dialect.getCatalog(connectionContext, database);
+            entry.lastFullCrawl = clock.getAsLong();
+        }
+        entry.catalog = catalog;
+        if (catalog != null
+                && catalog != previous)
+        {
+            snapshotStore.write(jdbcURL, database, catalog, entry.lastFullCrawl);
+        }
+        entry.expireTime = clock.getAsLong() + (catalog != null
+                && catalog.getVersion() != null ? DELTA_EXPIRE
+                        : EXPIRE).toMillis();
+        return estimateFetchedBytes(catalog, previous);
+    }
+
+    /** Crawls of the database of the focused query file are prioritized over other crawls */
+    private CatalogCrawlScheduler.Priority getPriority(String jdbcURL, String database)
+    {
+        IQueryFile queryFile = queryFileProvider.getCurrentFile();
+        if (queryFile != null
+                && queryFile.getEngineState() instanceof IConnectionContext context
+                && context.getJdbcConnection() != null
+                && jdbcURL.equals(context.getJdbcConnection()
+                        .getJdbcURL())
+                && database.equalsIgnoreCase(context.getDatabase()))
+        {
+            return CatalogCrawlScheduler.Priority.FOCUSED;
+        }
+        return CatalogCrawlScheduler.Priority.BACKGROUND;
+    }
+
+    /** Estimate the number of bytes fetched by a crawl. Objects kept from previous catalog by a delta crawl are not counted. */
+    static long estimateFetchedBytes(Catalog catalog, Catalog previous)
+    {
+        if (catalog == null
+                || catalog == previous)
+        {
+            return 0;
+        }
+        Set<Object> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (previous != null)
+        {
+            kept.addAll(previous.getTableSources());
+            kept.addAll(previous.getRoutines());
+            kept.addAll(previous.getIndices());
+            kept.addAll(previous.getForeignKeys());
+            kept.addAll(previous.getConstraints());
+        }
+        long bytes = 0;
+        for (TableSource tableSource : catalog.getTableSources())
+        {
+            if (!kept.contains(tableSource))
+            {
+                bytes += size(tableSource) + tableSource.getColumns()
+                        .stream()
+                        .mapToLong(c -> size(c.getName()) + size(c.getType()) + size(c.getPrimaryKeyName()) + 13)
+                        .sum();
+            }
+        }
+        for (Routine routine : catalog.getRoutines())
+        {
+            if (!kept.contains(routine))
+            {
+                bytes += size(routine) + routine.getParameters()
+                        .stream()
+                        .mapToLong(p -> size(p.getName()) + size(p.getType()) + 14)
+                        .sum();
+            }
+        }
+        for (Index index : catalog.getIndices())
+        {
+            if (!kept.contains(index))
+            {
+                bytes += size(index.getObjectName()) + size(index.getIndexName()) + index.getColumns()
+                        .stream()
+                        .mapToLong(c -> size(c.getName()) + 1)
+                        .sum();
+            }
+        }
+        for (ForeignKey foreignKey : catalog.getForeignKeys())
+        {
+            if (!kept.contains(foreignKey))
+            {
+                bytes += size(foreignKey.getObjectName()) + foreignKey.getColumns()
+                        .stream()
+                        .mapToLong(c -> size(c.getConstrainedObjectName()) + size(c.getConstrainedColumnName()) + size(c.getReferencedObjectName()) + size(c.getReferencedColumnName()))
+                        .sum();
+            }
+        }
+        for (Constraint constraint : catalog.getConstraints())
+        {
+            if (!kept.contains(constraint))
+            {
+                bytes += size(constraint.getObjectName()) + size(constraint.getName()) + size(constraint.getColumnName()) + size(constraint.getDefinition());
+            }
+        }
+        return bytes;
+    }
+
+    private static long size(ObjectName name)
+    {
+        return size(name.getCatalog()) + size(name.getSchema()) + size(name.getName());
+    }
+
+    private static long size(String string)
+    {
+        return string != null ? 2L * string.length()
+                : 0;
+    }
+
+    /** Try to crawl changes since last crawl. Returns null if a full crawl is needed. */
+    private Catalog getCatalogDelta(JdbcDialect dialect, IConnectionContext connectionContext, String database, CacheEntry entry)
+    {
+        Catalog previous = entry.catalog;
+        if (previous == null
+                || previous.getVersion() == null
+                || clock.getAsLong() - entry.lastFullCrawl >= FULL_CRAWL_INTERVAL.toMillis())
+        {
+            return null;
+        }
+        try
+        {
+            return dialect.getCatalogDelta(connectionContext, database, previous);
+        }
+        catch (Exception e)
+        {
+            LOGGER.warn("Error delta crawling database {}, falling back to full crawl", database, e);
+            return null;
+        }
+    }
+
     private record CacheKey(String jdbcUrl, String database)
     {
     }
@@ -95,12 +341,15 @@ private record CacheKey(String jdbcUrl, String database)
     {
         private volatile Catalog catalog;
         private volatile boolean loading;
-        private long expireTime;
+        /** Time when catalog expires. Set when a crawl succeeds, 0 if not crawled yet */
+        private volatile long expireTime;
+        private volatile long lastFullCrawl;
+        private volatile long retryTime;
+        private int failures;
 
-        boolean expired()
+        boolean expired(long now)
         {
-            return expireTime > 0
-                    && System.currentTimeMillis() >= expireTime;
+            return now >= expireTime;
         }
     }
 }
@@ -0,0 +1,505 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Catalog;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Column;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Constraint;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.ForeignKey;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.ForeignKeyColumn;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Index;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.IndexColumn;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.ObjectName;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Routine;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.RoutineParameter;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.TableSource;
+
+/**
+ * Stores crawled catalogs on disk in a compact binary format so they can be served directly after a restart while a fresh crawl is performed in background.
+ *
+ * <pre>
+ * Format:
+ *   int     magic
+ *   int     format version
+ *   string  jdbc url, database, catalog version
+ *   long    last full crawl time
+ *   int     string table size, followed by the strings (int byte length, utf-8 bytes)
+ *   ...     catalog, all strings are int indices into the string table (-1 is null)
+ * </pre>
+ *
+ * Snapshots are memory mapped when read. Snapshots with another format version, larger than {@link #MAX_SNAPSHOT_BYTES} or older than {@link #MAX_AGE} are ignored.
+ */
+class CatalogSnapshotStore
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CatalogSnapshotStore.class);
+    private static final int MAGIC = 0x51434154;
+    /** Bump when the format changes. Older snapshots are then discarded */
+    static final int FORMAT_VERSION = 1;
+    static final long MAX_SNAPSHOT_BYTES = 64 * 1024 * 1024;
+    /** Max number of snapshots kept, the oldest ones are removed */
+    static final int MAX_SNAPSHOTS = 200;
+    static final Duration MAX_AGE = Duration.ofDays(30);
+    private static final String SUFFIX = ".catalog";
+
+    private final File folder;
+
+    CatalogSnapshotStore(File folder)
+    {
+        this.folder = requireNonNull(folder, "folder");
+    }
+
+    /** Read snapshot for provided jdbc url and database. Returns null if no valid snapshot exists. */
+    Snapshot read(String jdbcUrl, String database)
+    {
+        Path path = getPath(jdbcUrl, database);
+        if (!Files.exists(path))
+        {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size > MAX_SNAPSHOT_BYTES
+                    || Files.getLastModifiedTime(path)
+                            .toMillis() < System.currentTimeMillis() - MAX_AGE.toMillis())
+            {
+                delete(path);
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            Snapshot snapshot = new Reader(buffer).read(jdbcUrl, database);
+            if (snapshot == null)
+            {
+                delete(path);
+            }
+            return snapshot;
+        }
+        catch (IOException e)
+        {
+            // The file might be fine (locked, interrupted read etc.), keep it
+            LOGGER.warn("Error reading catalog snapshot {}", path, e);
+            return null;
+        }
+        catch (RuntimeException e)
+        {
+            LOGGER.warn("Corrupt catalog snapshot {}, discarding", path, e);
+            delete(path);
+            return null;
+        }
+    }
+
+    /** Write snapshot for provided jdbc url and database */
+    void write(String jdbcUrl, String database, Catalog catalog, long lastFullCrawl)
+    {
+        Path path = getPath(jdbcUrl, database);
+        Path tempPath = null;
+        try
+        {
+            byte[] bytes = new Writer().write(jdbcUrl, database, catalog, lastFullCrawl);
+            if (bytes.length > MAX_SNAPSHOT_BYTES)
+            {
+                LOGGER.info("Catalog snapshot for {} ({} bytes) exceeds max size, skipping", database, bytes.length);
+                delete(path);
+                return;
+            }
+
+            Files.createDirectories(folder.toPath());
+            tempPath = Files.createTempFile(folder.toPath(), "snapshot", ".tmp");
+            Files.write(tempPath, bytes);
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tempPath = null;
+            prune();
+        }
+        catch (Exception e)
+        {
+            // On some platforms a file cannot be replaced while it's still mapped, we will try again on next crawl
+            LOGGER.debug("Error writing catalog snapshot {}", path, e);
+        }
+        finally
+        {
+            if (tempPath != null)
+            {
+                delete(tempPath);
+            }
+        }
+    }
+
+    /** Remove the oldest snapshots when exceeding {@link #MAX_SNAPSHOTS} */
+    private void prune()
+    {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null
+                || files.length <= MAX_SNAPSHOTS)
+        {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - MAX_SNAPSHOTS; i++)
+        {
+            delete(files[i].toPath());
+        }
+    }
+
+    private Path getPath(String jdbcUrl, String database)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((jdbcUrl + "\0" + database).getBytes(StandardCharsets.UTF_8));
+            return new File(folder, HexFormat.of()
+                    .formatHex(hash, 0, 16) + SUFFIX).toPath();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void delete(Path path)
+    {
+        try
+        {
+            Files.deleteIfExists(path);
+        }
+        catch (IOException e)
+        {
+            LOGGER.debug("Could not delete {}", path, e);
+        }
+    }
+
+    /** A read snapshot */
+    record Snapshot(Catalog catalog, long lastFullCrawl)
+    {
+    }
+
+    /** Writer of a snapshot */
+    private static class Writer
+    {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        byte[] write(String jdbcUrl, String database, Catalog catalog, long lastFullCrawl) throws IOException
+        {
+            writeCatalog(catalog);
+            out.flush();
+            byte[] body = bytes.toByteArray();
+
+            ByteArrayOutputStream result = new ByteArrayOutputStream(body.length + strings.size() * 16 + 256);
+            DataOutputStream header = new DataOutputStream(result);
+            header.writeInt(MAGIC);
+            header.writeInt(FORMAT_VERSION);
+            writeRaw(header, jdbcUrl);
+            writeRaw(header, database);
+            writeRaw(header, catalog.getVersion());
+            header.writeLong(lastFullCrawl);
+            header.writeInt(strings.size());
+            for (String string : strings.keySet())
+            {
+                writeRaw(header, string);
+            }
+            header.write(body);
+            header.flush();
+            return result.toByteArray();
+        }
+
+        private void writeCatalog(Catalog catalog) throws IOException
+        {
+            writeString(catalog.getName());
+
+            out.writeInt(catalog.getTableSources()
+                    .size());
+            for (TableSource tableSource : catalog.getTableSources())
+            {
+                writeObjectName(tableSource);
+                writeString(tableSource.getType()
+                        .name());
+                out.writeInt(tableSource.getColumns()
+                        .size());
+                for (Column column : tableSource.getColumns())
+                {
+                    writeString(column.getName());
+                    writeString(column.getType());
+                    out.writeInt(column.getMaxLength());
+                    out.writeInt(column.getPrecision());
+                    out.writeInt(column.getScale());
+                    out.writeBoolean(column.isNullable());
+                    writeString(column.getPrimaryKeyName());
+                }
+            }
+
+            out.writeInt(catalog.getRoutines()
+                    .size());
+            for (Routine routine : catalog.getRoutines())
+            {
+                writeObjectName(routine);
+                writeString(routine.getType()
+                        .name());
+                out.writeInt(routine.getParameters()
+                        .size());
+                for (RoutineParameter parameter : routine.getParameters())
+                {
+                    writeString(parameter.getName());
+                    writeString(parameter.getType());
+                    out.writeInt(parameter.getMaxLength());
+                    out.writeInt(parameter.getPrecision());
+                    out.writeInt(parameter.getScale());
+                    out.writeBoolean(parameter.isNullable());
+                    out.writeBoolean(parameter.isOutput());
+                }
+            }
+
+            out.writeInt(catalog.getIndices()
+                    .size());
+            for (Index index : catalog.getIndices())
+            {
+                writeObjectName(index.getObjectName());
+                writeString(index.getIndexName());
+                out.writeBoolean(index.isUnique());
+                out.writeInt(index.getColumns()
+                        .size());
+                for (IndexColumn column : index.getColumns())
+                {
+                    writeString(column.getName());
+                    out.writeBoolean(column.isAscending());
+                }
+            }
+
+            out.writeInt(catalog.getForeignKeys()
+                    .size());
+            for (ForeignKey foreignKey : catalog.getForeignKeys())
+            {
+                writeObjectName(foreignKey.getObjectName());
+                out.writeInt(foreignKey.getColumns()
+                        .size());
+                for (ForeignKeyColumn column : foreignKey.getColumns())
+                {
+                    writeObjectName(column.getConstrainedObjectName());
+                    writeString(column.getConstrainedColumnName());
+                    writeObjectName(column.getReferencedObjectName());
+                    writeString(column.getReferencedColumnName());
+                }
+            }
+
+            out.writeInt(catalog.getConstraints()
+                    .size());
+            for (Constraint constraint : catalog.getConstraints())
+            {
+                writeObjectName(constraint.getObjectName());
+                writeString(constraint.getName());
+                writeString(constraint.getType()
+                        .name());
+                writeString(constraint.getColumnName());
+                writeString(constraint.getDefinition());
+            }
+        }
+
+        private void writeObjectName(ObjectName name) throws IOException
+        {
+            writeString(name.getCatalog());
+            writeString(name.getSchema());
+            writeString(name.getName());
+        }
+
+        private void writeString(String string) throws IOException
+        {
+            if (string == null)
+            {
+                out.writeInt(-1);
+                return;
+            }
+            out.writeInt(strings.computeIfAbsent(string, k -> strings.size()));
+        }
+
+        private static void writeRaw(DataOutputStream out, String string) throws IOException
+        {
+            if (string == null)
+            {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /** Reader of a snapshot */
+    private static class Reader
+    {
+        private final ByteBuffer buffer;
+        private String[] strings;
+
+        Reader(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        Snapshot read(String jdbcUrl, String database)
+        {
+            if (buffer.remaining() < 8
+                    || buffer.getInt() != MAGIC
+                    || buffer.getInt() != FORMAT_VERSION)
+            {
+                return null;
+            }
+            // Guard against hash collisions
+            if (!Objects.equals(jdbcUrl, readRaw())
+                    || !Objects.equals(database, readRaw()))
+            {
+                return null;
+            }
+            String version = readRaw();
+            long lastFullCrawl = buffer.getLong();
+            strings = new String[readCount()];
+            for (int i = 0; i < strings.length; i++)
+            {
+                strings[i] = readRaw();
+            }
+
+            String name = readString();
+
+            int count = readCount();
+            List<TableSource> tableSources = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+            {
+                String catalog = readString();
+                String schema = readString();
+                String objectName = readString();
+                TableSource.Type type = TableSource.Type.valueOf(readString());
+                int columnCount = readCount();
+                List<Column> columns = new ArrayList<>(columnCount);
+                for (int j = 0; j < columnCount; j++)
+                {
+                    columns.add(new Column(readString(), readString(), buffer.getInt(), buffer.getInt(), buffer.getInt(), readBoolean(), readString()));
+                }
+                tableSources.add(new TableSource(catalog, schema, objectName, type, columns));
+            }
+
+            count = readCount();
+            List<Routine> routines = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+            {
+                String catalog = readString();
+                String schema = readString();
+                String objectName = readString();
+                Routine.Type type = Routine.Type.valueOf(readString());
+                int parameterCount = readCount();
+                List<RoutineParameter> parameters = new ArrayList<>(parameterCount);
+                for (int j = 0; j < parameterCount; j++)
+                {
+                    parameters.add(new RoutineParameter(readString(), readString(), buffer.getInt(), buffer.getInt(), buffer.getInt(), readBoolean(), readBoolean()));
+                }
+                routines.add(new Routine(catalog, schema, objectName, type, parameters));
+            }
+
+            count = readCount();
+            List<Index> indices = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+            {
+                ObjectName objectName = readObjectName();
+                String indexName = readString();
+                boolean unique = readBoolean();
+                int columnCount = readCount();
+                List<IndexColumn> columns = new ArrayList<>(columnCount);
+                for (int j = 0; j < columnCount; j++)
+                {
+                    columns.add(new IndexColumn(readString(), readBoolean()));
+                }
+                indices.add(new Index(objectName, indexName, unique, columns));
+            }
+
+            count = readCount();
+            List<ForeignKey> foreignKeys = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+            {
+                ObjectName objectName = readObjectName();
+                int columnCount = readCount();
+                List<ForeignKeyColumn> columns = new ArrayList<>(columnCount);
+                for (int j = 0; j < columnCount; j++)
+                {
+                    columns.add(new ForeignKeyColumn(readObjectName(), readString(), readObjectName(), readString()));
+                }
+                foreignKeys.add(new ForeignKey(objectName, columns));
+            }
+
+            count = readCount();
+            List<Constraint> constraints = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+            {
+                constraints.add(new Constraint(readObjectName(), readString(), Constraint.Type.valueOf(readString()), readString(), readString()));
+            }
+
+            return new Snapshot(new Catalog(name, tableSources, routines, indices, foreignKeys, constraints, version), lastFullCrawl);
+        }
+
+        private ObjectName readObjectName()
+        {
+            return new ObjectName(readString(), readString(), readString());
+        }
+
+        private boolean readBoolean()
+        {
+            return buffer.get() != 0;
+        }
+
+        private int readCount()
+        {
+            int count = buffer.getInt();
+            // A corrupt count would otherwise allocate huge lists
+            if (count < 0
+                    || count > buffer.remaining())
+            {
+                throw new IllegalStateException("Corrupt snapshot, invalid count: " + count);
+            }
+            return count;
+        }
+
+        private String readString()
+        {
+            int index = buffer.getInt();
+            return index < 0 ? null
+                    : strings[index];
+        }
+
+        private String readRaw()
+        {
+            int length = buffer.getInt();
+            if (length < 0)
+            {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -37,9 +37,15 @@ class ConnectionContext implements IConnectionContext, Closeable
         this.database = database;
     }
 
-    /** Create a new connection. */
+    /** Borrow a pooled connection. Closing the connection returns it to the pool. */
     @Override
     public Connection createConnection() throws SQLException
+    {
+        return ConnectionPool.borrow(jdbcConnection, jdbcDialect);
+    }
+
+    /** Create a new physical connection. Used for the session connection since that one carries state across executions. */
+    private Connection createSessionConnection() throws SQLException
     {
         String password = jdbcConnection.getRuntimePassword() != null ? new String(jdbcConnection.getRuntimePassword())
                 : "";
@@ -67,7 +73,7 @@ Connection getConnection() throws SQLException
         // Create a new connection if needed
         if (!isValid)
         {
-            connection = createConnection();
+            connection = createSessionConnection();
             sessionId = jdbcDialect.getSessionId(connection);
             if (database == null)
             {
@@ -0,0 +1,603 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.kuseman.payloadbuilder.catalog.jdbc.dialect.JdbcDialect;
+
+/**
+ * Bounded pool of physical connections per {@link JdbcConnection}. Used by background subsystems (catalog crawl, completions, tree nodes, monitor etc.) that only needs a connection for a short
+ * while, this to avoid paying for a new login on each operation. Query file, MCP and import connections are not pooled since they carry session state.
+ *
+ * <pre>
+ * Borrowed connections are returned when closed. Catalog, schema and auto commit is restored on return along with dialect specific session state.
+ * Idle connections are validated before being handed out and evicted after a timeout or max life time.
+ * Connections that are borrowed for long are logged as possible leaks together with the borrowing stack.
+ * </pre>
+ */
+class ConnectionPool
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPool.class);
+    static final int MAX_SIZE = 4;
+    static final long BORROW_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+    static final long VALIDATION_INTERVAL_MS = TimeUnit.SECONDS.toMillis(30);
+    static final long IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+    static final long MAX_LIFETIME_MS = TimeUnit.MINUTES.toMillis(30);
+    static final long LEAK_THRESHOLD_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final Map<JdbcConnection, ConnectionPool> POOLS = new IdentityHashMap<>();
+    private static final ScheduledExecutorService HOUSEKEEPER = Executors.newSingleThreadScheduledExecutor(BasicThreadFactory.builder()
+            .daemon(true)
+            .namingPattern("ConnectionPool-%d")
+            .build());
+
+    static
+    {
+        HOUSEKEEPER.scheduleWithFixedDelay(ConnectionPool::housekeep, 30, 30, TimeUnit.SECONDS);
+    }
+
+    private final JdbcConnection jdbcConnection;
+    private final JdbcDialect jdbcDialect;
+    private final Limits limits;
+    /** Clock in millis used for age of connections */
+    private final LongSupplier clock;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = Collections.newSetFromMap(new IdentityHashMap<>());
+    /** Number of physical connections (idle, borrowed and being created) */
+    private int size;
+    /** Identity of the credentials the pooled connections was created with */
+    private String credentialsKey;
+    /** Incremented when credentials changes, connections of an older generation is closed on return */
+    private int generation;
+    /** Set when the jdbc connection is removed, all connections are closed on return */
+    private boolean closed;
+
+    private long createCount;
+    private long borrowCount;
+    private long reuseCount;
+    private long timeoutCount;
+    private long validationFailureCount;
+    private long evictionCount;
+    private long leakCount;
+    private long waitNanos;
+
+    private ConnectionPool(JdbcConnection jdbcConnection, JdbcDialect jdbcDialect)
+    {
+        this(jdbcConnection, jdbcDialect, Limits.DEFAULT, System::currentTimeMillis);
+    }
+
+    /** Create a pool that is not registered. Used in tests. */
+    ConnectionPool(JdbcConnection jdbcConnection, JdbcDialect jdbcDialect, Limits limits, LongSupplier clock)
+    {
+        this.jdbcConnection = jdbcConnection;
+        this.jdbcDialect = jdbcDialect;
+        this.limits = requireNonNull(limits, "limits");
+        this.clock = requireNonNull(clock, "clock");
+    }
+
+    /** Borrow a connection for provided jdbc connection. Closing the returned connection returns it to the pool. */
+    static Connection borrow(JdbcConnection jdbcConnection, JdbcDialect jdbcDialect) throws SQLException
+    {
+        requireNonNull(jdbcConnection, "jdbcConnection");
+        requireNonNull(jdbcDialect, "jdbcDialect");
+        ConnectionPool pool;
+        synchronized (POOLS)
+        {
+            pool = POOLS.computeIfAbsent(jdbcConnection, k -> new ConnectionPool(jdbcConnection, jdbcDialect));
+        }
+        return pool.borrow();
+    }
+
+    /** Return statistics of all pools */
+    static List<PoolStats> getStats()
+    {
+        List<ConnectionPool> pools;
+        synchronized (POOLS)
+        {
+            pools = new ArrayList<>(POOLS.values());
+        }
+        return pools.stream()
+                .map(ConnectionPool::stats)
+                .toList();
+    }
+
+    /** Return statistics of the pool for provided connection. Returns null if connection has no pool. */
+    static PoolStats getStats(JdbcConnection jdbcConnection)
+    {
+        ConnectionPool pool;
+        synchronized (POOLS)
+        {
+            pool = POOLS.get(jdbcConnection);
+        }
+        return pool != null ? pool.stats()
+                : null;
+    }
+
+    /** Close all idle connections of provided jdbc connection. Borrowed connections are closed when returned. */
+    static void evict(JdbcConnection jdbcConnection)
+    {
+        ConnectionPool pool;
+        synchronized (POOLS)
+        {
+            pool = POOLS.get(jdbcConnection);
+        }
+        if (pool != null)
+        {
+            pool.evictAll();
+        }
+    }
+
+    /**
+     * Close and remove the pools of all jdbc connections that are not in provided collection. Called when connections are edited or deleted since edited connections are replaced by new
+     * instances.
+     */
+    static void retain(Collection<JdbcConnection> jdbcConnections)
+    {
+        Set<JdbcConnection> keep = Collections.newSetFromMap(new IdentityHashMap<>());
+        keep.addAll(jdbcConnections);
+        List<ConnectionPool> removed = new ArrayList<>();
+        synchronized (POOLS)
+        {
+            POOLS.values()
+                    .removeIf(pool ->
+                    {
+                        if (!keep.contains(pool.jdbcConnection))
+                        {
+                            removed.add(pool);
+                            return true;
+                        }
+                        return false;
+                    });
+        }
+        removed.forEach(ConnectionPool::close);
+    }
+
+    /** Close pool. Idle connections are closed directly and borrowed connections when returned. */
+    void close()
+    {
+        synchronized (this)
+        {
+            closed = true;
+        }
+        evictAll();
+    }
+
+    Connection borrow() throws SQLException
+    {
+        long start = System.nanoTime();
+        // Real time since this is the time we block
+        long deadline = System.currentTimeMillis() + limits.borrowTimeoutMs();
+        while (true)
+        {
+            PooledConnection candidate = null;
+            boolean create = false;
+            int currentGeneration;
+            synchronized (this)
+            {
+                checkCredentials();
+                currentGeneration = generation;
+                while (candidate == null
+                        && !create)
+                {
+                    candidate = idle.pollFirst();
+                    if (candidate == null)
+                    {
+                        if (size < limits.maxSize())
+                        {
+                            size++;
+                            create = true;
+                        }
+                        else
+                        {
+                            long remaining = deadline - System.currentTimeMillis();
+                            if (remaining <= 0)
+                            {
+                                timeoutCount++;
+                                throw new SQLException("Timeout waiting for a pooled connection to " + jdbcConnection.getName() + ", all " + limits.maxSize() + " connections are in use");
+                            }
+                            try
+                            {
+                                wait(remaining);
+                            }
+                            catch (InterruptedException e)
+                            {
+                                Thread.currentThread()
+                                        .interrupt();
+                                throw new SQLException("Interrupted while waiting for a pooled connection", e);
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (create)
+            {
+                Connection physical;
+                try
+                {
+                    String password = jdbcConnection.getRuntimePassword() != null ? new String(jdbcConnection.getRuntimePassword())
+                            : "";
+                    physical = jdbcDialect.createConnection(jdbcConnection.getJdbcURL(), jdbcConnection.getUsername(), password, false);
+                }
+                catch (SQLException | RuntimeException e)
+                {
+                    synchronized (this)
+                    {
+                        size--;
+                        notifyAll();
+                    }
+                    throw e;
+                }
+                candidate = new PooledConnection(physical, currentGeneration);
+                synchronized (this)
+                {
+                    createCount++;
+                }
+            }
+            else if (clock.getAsLong() - candidate.lastUsed >= limits.validationIntervalMs()
+                    && !isValid(candidate))
+            {
+                synchronized (this)
+                {
+                    validationFailureCount++;
+                }
+                discard(candidate);
+                continue;
+            }
+            else
+            {
+                synchronized (this)
+                {
+                    reuseCount++;
+                }
+            }
+
+            candidate.borrowTime = clock.getAsLong();
+            candidate.borrowStack = new Exception("Connection borrowed here");
+            candidate.leakReported = false;
+            synchronized (this)
+            {
+                borrowCount++;
+                waitNanos += System.nanoTime() - start;
+                borrowed.add(candidate);
+            }
+            return candidate.newHandle();
+        }
+    }
+
+    private void giveBack(PooledConnection connection)
+    {
+        boolean open;
+        synchronized (this)
+        {
+            borrowed.remove(connection);
+            open = !closed
+                    && connection.generation == generation;
+        }
+
+        long now = clock.getAsLong();
+        boolean keep = open
+                && now - connection.created < limits.maxLifetimeMs()
+                && reset(connection);
+        if (!keep)
+        {
+            discard(connection);
+            return;
+        }
+        connection.lastUsed = now;
+        synchronized (this)
+        {
+            idle.addFirst(connection);
+            notifyAll();
+        }
+    }
+
+    /** Restore session state changed by the borrower. Returns false if the connection should not be reused. */
+    private boolean reset(PooledConnection connection)
+    {
+        Connection physical = connection.physical;
+        try
+        {
+            if (physical.isClosed())
+            {
+                return false;
+            }
+            if (!physical.getAutoCommit())
+            {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (!Objects.equals(physical.getCatalog(), connection.catalog))
+            {
+                physical.setCatalog(connection.catalog);
+            }
+            if (!Objects.equals(physical.getSchema(), connection.schema))
+            {
+                physical.setSchema(connection.schema);
+            }
+            if (!jdbcDialect.resetPooledConnection(physical))
+            {
+                return false;
+            }
+            physical.clearWarnings();
+            return true;
+        }
+        catch (SQLException | RuntimeException | AbstractMethodError e)
+        {
+            LOGGER.debug("Error resetting pooled connection to {}", jdbcConnection.getName(), e);
+            return false;
+        }
+    }
+
+    private boolean isValid(PooledConnection connection)
+    {
+        try
+        {
+            return jdbcDialect.isValid(connection.physical);
+        }
+        catch (Exception e)
+        {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection connection)
+    {
+        JdbcUtils.closeQuiet(connection.physical);
+        synchronized (this)
+        {
+            size--;
+            notifyAll();
+        }
+    }
+
+    /** Evict all idle connections if the credentials has changed since they where created */
+    private void checkCredentials()
+    {
+        char[] password = jdbcConnection.getRuntimePassword();
+        String key = jdbcConnection.getJdbcURL() + "|" + jdbcConnection.getUsername() + "|" + (password != null ? Arrays.hashCode(password)
+                : 0);
+        if (credentialsKey != null
+                && !credentialsKey.equals(key))
+        {
+            evictAll();
+        }
+        credentialsKey = key;
+    }
+
+    private void evictAll()
+    {
+        List<PooledConnection> connections;
+        synchronized (this)
+        {
+            generation++;
+            connections = new ArrayList<>(idle);
+            idle.clear();
+            evictionCount += connections.size();
+        }
+        connections.forEach(this::discard);
+    }
+
+    private static void housekeep()
+    {
+        List<ConnectionPool> pools;
+        synchronized (POOLS)
+        {
+            pools = new ArrayList<>(POOLS.values());
+        }
+        for (ConnectionPool pool : pools)
+        {
+            try
+            {
+                pool.evictExpired();
+                pool.detectLeaks();
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.error("Error maintaining connection pool", e);
+            }
+        }
+    }
+
+    void evictExpired()
+    {
+        long now = clock.getAsLong();
+        List<PooledConnection> expired = new ArrayList<>();
+        synchronized (this)
+        {
+            idle.removeIf(c ->
+            {
+                if (now - c.lastUsed >= limits.idleTimeoutMs()
+                        || now - c.created >= limits.maxLifetimeMs())
+                {
+                    expired.add(c);
+                    return true;
+                }
+                return false;
+            });
+            evictionCount += expired.size();
+        }
+        expired.forEach(this::discard);
+    }
+
+    void detectLeaks()
+    {
+        long now = clock.getAsLong();
+        List<PooledConnection> leaks = new ArrayList<>();
+        synchronized (this)
+        {
+            for (PooledConnection connection : borrowed)
+            {
+                if (!connection.leakReported
+                        && now - connection.borrowTime >= limits.leakThresholdMs())
+                {
+                    connection.leakReported = true;
+                    leakCount++;
+                    leaks.add(connection);
+                }
+            }
+        }
+        for (PooledConnection connection : leaks)
+        {
+            LOGGER.warn("Pooled connection to {} has been borrowed for {} seconds, possible leak", jdbcConnection.getName(), (now - connection.borrowTime) / 1000, connection.borrowStack);
+        }
+    }
+
+    synchronized PoolStats stats()
+    {
+        return new PoolStats(jdbcConnection.getName(), limits.maxSize(), size, idle.size(), borrowed.size(), createCount, borrowCount, reuseCount, timeoutCount, validationFailureCount, evictionCount, leakCount,
+                borrowCount > 0 ? TimeUnit.NANOSECONDS.toMicros(waitNanos / borrowCount)
+                        : 0);
+    }
+
+    /** Limits of a pool */
+    record Limits(int maxSize, long borrowTimeoutMs, long validationIntervalMs, long idleTimeoutMs, long maxLifetimeMs, long leakThresholdMs)
+    {
+        static final Limits DEFAULT = new Limits(MAX_SIZE, BORROW_TIMEOUT_MS, VALIDATION_INTERVAL_MS, IDLE_TIMEOUT_MS, MAX_LIFETIME_MS, LEAK_THRESHOLD_MS);
+    }
+
+    /** Statistics of a pool */
+    record PoolStats(String name, int maxSize, int size, int idle, int borrowed, long created, long borrows, long reused, long timeouts, long validationFailures, long evictions, long leaks,
+            long avgWaitMicros)
+    {
+        /** Return stats as a map suitable for presentation */
+        Map<String, Object> toMap()
+        {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("Connection", name);
+            result.put("Max Size", maxSize);
+            result.put("Size", size);
+            result.put("Idle", idle);
+            result.put("Borrowed", borrowed);
+            result.put("Created", created);
+            result.put("Borrows", borrows);
+            result.put("Reused", reused);
+            result.put("Timeouts", timeouts);
+            result.put("Validation Failures", validationFailures);
+            result.put("Evictions", evictions);
+            result.put("Possible Leaks", leaks);
+            result.put("Avg Wait (us)", avgWaitMicros);
+            return result;
+        }
+    }
+
+    /** A physical connection of the pool */
+    private class PooledConnection
+    {
+        private final Connection physical;
+        private final int generation;
+        private final long created = clock.getAsLong();
+        private final String catalog;
+        private final String schema;
+        private volatile long lastUsed = created;
+        private volatile long borrowTime;
+        private volatile Exception borrowStack;
+        private volatile boolean leakReported;
+
+        PooledConnection(Connection physical, int generation)
+        {
+            this.physical = physical;
+            this.generation = generation;
+            this.catalog = getQuiet(physical::getCatalog);
+            this.schema = getQuiet(physical::getSchema);
+        }
+
+        /** Create a new handle for a borrower. Closing the handle returns the connection to the pool. */
+        Connection newHandle()
+        {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler()
+            {
+                /** Atomic since a handle might be used and closed from different threads */
+                private final AtomicBoolean returned = new AtomicBoolean();
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                {
+                    String name = method.getName();
+                    if ("close".equals(name))
+                    {
+                        if (returned.compareAndSet(false, true))
+                        {
+                            giveBack(PooledConnection.this);
+                        }
+                        return null;
+                    }
+                    else if ("isClosed".equals(name))
+                    {
+                        return returned.get()
+                                || physical.isClosed();
+                    }
+                    else if ("equals".equals(name))
+                    {
+                        return proxy == args[0];
+                    }
+                    else if ("hashCode".equals(name))
+                    {
+                        return System.identityHashCode(proxy);
+                    }
+                    else if ("toString".equals(name))
+                    {
+                        return "Pooled " + physical;
+                    }
+                    if (returned.get())
+                    {
+                        throw new SQLException("Connection is closed");
+                    }
+                    try
+                    {
+                        return method.invoke(physical, args);
+                    }
+                    catch (InvocationTargetException e)
+                    {
+                        throw e.getCause();
+                    }
+                }
+            });
+        }
+    }
+
+    private static String getQuiet(SqlSupplier supplier)
+    {
+        try
+        {
+            return supplier.get();
+        }
+        catch (SQLException | RuntimeException | AbstractMethodError e)
+        {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlSupplier
+    {
+        String get() throws SQLException;
+    }
+}
@@ -2,6 +2,8 @@
 
 import static java.util.Objects.requireNonNull;
 
+import java.nio.file.Path;
+
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
@@ -14,6 +16,8 @@
     private final JdbcDialect jdbcDialect;
     private final String database;
     private final String query;
+    private final Path scriptFile;
+    private final int startBatch;
 
     /** Context used when a query should be executed in the current query files context with it's connection etc. If query is null then the current editors text will be used. */
     public ExecuteQueryContext(String query)
@@ -22,6 +26,19 @@ public ExecuteQueryContext(String query)
         this.jdbcDialect = null;
         this.database = null;
         this.query = query;
+        this.scriptFile = null;
+        this.startBatch = 0;
+    }
+
+    /** Context used when a script file should be streamed from disk and executed in the current query files context. Batches before start batch (1-based) are skipped. */
+    ExecuteQueryContext(Path scriptFile, int startBatch)
+    {
+        this.jdbcConnection = null;
+        this.jdbcDialect = null;
+        this.database = null;
+        this.query = null;
+        this.scriptFile = requireNonNull(scriptFile);
+        this.startBatch = startBatch;
     }
 
     /** Context used when a query should be executed for a new connection/database/query combination */
@@ -31,6 +48,8 @@ public ExecuteQueryContext(JdbcConnection jdbcConnection, JdbcDialect jdbcDialec
         this.jdbcDialect = requireNonNull(jdbcDialect);
         this.database = requireNonNull(database);
         this.query = requireNonNull(query);
+        this.scriptFile = null;
+        this.startBatch = 0;
     }
 
     JdbcConnection getJdbcConnection()
@@ -53,6 +72,16 @@ String getQuery()
         return query;
     }
 
+    Path getScriptFile()
+    {
+        return scriptFile;
+    }
+
+    int getStartBatch()
+    {
+        return startBatch;
+    }
+
     @Override
     public String toString()
     {
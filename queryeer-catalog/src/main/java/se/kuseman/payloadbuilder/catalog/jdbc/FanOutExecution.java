@@ -0,0 +1,632 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.time.DurationFormatUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.queryeer.api.editor.TextSelection;
+import com.queryeer.api.extensions.output.QueryeerOutputWriter;
+import com.queryeer.api.extensions.output.text.ITextOutputComponent;
+
+import se.kuseman.payloadbuilder.api.OutputWriter;
+import se.kuseman.payloadbuilder.api.utils.MapUtils;
+import se.kuseman.payloadbuilder.catalog.jdbc.dialect.JdbcDialect;
+import se.kuseman.payloadbuilder.catalog.jdbc.dialect.JdbcDialectProvider;
+
+/**
+ * Execution of a query against multiple targets (connection and database) concurrently. Each target runs on it's own connection. Results are either merged into a single result with a connection
+ * and database column or written as separate results per target.
+ *
+ * <pre>
+ * Merged mode:
+ *   The first result of each target is streamed into the merged result as it's read.
+ *   Following results, and results whose columns doesn't match the merged result, are written separately when all targets are done.
+ * Separate mode:
+ *   Results of a target are written when the target is done, this to not interleave results of different targets.
+ * </pre>
+ *
+ * Results that are written later are buffered in memory up to {@link #MAX_BUFFERED_BATCHES} batches per result, following batches are spilled to a temp file. Rows are fetched with an
+ * {@link AdaptiveFetchSize} and in preview mode each result is limited like a regular execution.
+ */
+class FanOutExecution
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FanOutExecution.class);
+    /** Max number of targets executing at the same time */
+    static final int MAX_PARALLELISM = 8;
+    static final String CONNECTION_COLUMN = "Connection";
+    static final String DATABASE_COLUMN = "Database";
+    /** Max number of batches per buffered result that is kept in memory */
+    static final int MAX_BUFFERED_BATCHES = 16;
+
+    private final JdbcQueryEngine queryEngine;
+    private final JdbcDialectProvider dialectProvider;
+    private final List<Target> targets;
+    private final boolean merge;
+    /** Max number of rows per result. 0 for all rows */
+    private final int maxRows;
+    private final List<ConnectionContext> running = new CopyOnWriteArrayList<>();
+    private volatile boolean abort;
+
+    /** Guards the writer and text output */
+    private final Object lock = new Object();
+    private OutputWriter writer;
+    private ITextOutputComponent textOutput;
+    private String[] mergedColumns;
+    private Class<?>[] mergedColumnTypes;
+    private final AtomicInteger completed = new AtomicInteger();
+
+    FanOutExecution(JdbcQueryEngine queryEngine, JdbcDialectProvider dialectProvider, List<Target> targets, boolean merge, int maxRows)
+    {
+        this.queryEngine = requireNonNull(queryEngine, "queryEngine");
+        this.dialectProvider = requireNonNull(dialectProvider, "dialectProvider");
+        this.targets = List.copyOf(requireNonNull(targets, "targets"));
+        this.merge = merge;
+        this.maxRows = maxRows;
+    }
+
+    /** Execute query against all targets. Blocks until all targets are done or aborted. */
+    void execute(String queryText, OutputWriter writer, ITextOutputComponent textOutput) throws InterruptedException
+    {
+        this.writer = requireNonNull(writer, "writer");
+        this.textOutput = requireNonNull(textOutput, "textOutput");
+
+        long start = System.nanoTime();
+        int parallelism = Math.min(MAX_PARALLELISM, targets.size());
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, BasicThreadFactory.builder()
+                .daemon(true)
+                .namingPattern("JdbcFanOut-%d")
+                .build());
+        List<TargetResult> results;
+        try
+        {
+            textOutput.getTextWriter()
+                    .println("Executing against " + targets.size() + " target(s), " + parallelism + " at a time");
+
+            List<Callable<TargetResult>> tasks = new ArrayList<>(targets.size());
+            for (Target target : targets)
+            {
+                tasks.add(() -> execute(target, queryText));
+            }
+            results = new ArrayList<>(targets.size());
+            for (var future : executor.invokeAll(tasks))
+            {
+                try
+                {
+                    results.add(future.get());
+                }
+                catch (Exception e)
+                {
+                    // Errors are handled per target
+                    LOGGER.error("Error executing fan out target", e);
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        synchronized (lock)
+        {
+            if (mergedColumns != null)
+            {
+                writer.endResult();
+            }
+            // Results that didn't fit the merged result
+            if (merge)
+            {
+                for (TargetResult result : results)
+                {
+                    write(result);
+                }
+            }
+
+            long failed = results.stream()
+                    .filter(r -> !r.errors.isEmpty())
+                    .count();
+            long rowCount = results.stream()
+                    .mapToLong(r -> r.rowCount)
+                    .sum();
+            textOutput.getTextWriter()
+                    .println("%sFan out %s: %d target(s), %d failed, %d row(s), execution time: %s".formatted(System.lineSeparator(), abort ? "aborted"
+                            : "completed", targets.size(), failed, rowCount, DurationFormatUtils.formatDurationHMS(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))));
+        }
+    }
+
+    /** Abort all targets */
+    void abort()
+    {
+        abort = true;
+        for (ConnectionContext context : running)
+        {
+            context.abort();
+        }
+    }
+
+    boolean isAbort()
+    {
+        return abort;
+    }
+
+    private TargetResult execute(Target target, String queryText)
+    {
+        TargetResult result = new TargetResult(target);
+        JdbcConnection jdbcConnection = target.connection();
+        if (abort)
+        {
+            result.errors.add("Aborted");
+            completed(result);
+            return result;
+        }
+        else if (!jdbcConnection.hasCredentials())
+        {
+            result.errors.add("Connection has no credentials, connect to it in the tree first");
+            completed(result);
+            return result;
+        }
+
+        long start = System.nanoTime();
+        JdbcDialect dialect = dialectProvider.getDialect(jdbcConnection.getJdbcURL());
+        ConnectionContext context = new ConnectionContext(jdbcConnection, dialect, target.database());
+        running.add(context);
+        // Abort might have been called before we where added
+        if (abort)
+        {
+            context.abort();
+        }
+        StringWriter messages = new StringWriter();
+        try
+        {
+            Connection connection = context.getConnection();
+            try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
+            {
+                context.setCurrentStatement(statement);
+                JdbcQueryEngine.setInitialFetchSize(statement, dialect);
+                for (String batch : JdbcQueryEngine.getBatches(dialect, queryText))
+                {
+                    boolean first = true;
+                    while (!context.isAbort())
+                    {
+                        try (ResultSet rs = JdbcUtils.getNextResultSet(e -> result.errors.add(e.getMessage()), messages, statement, batch, first))
+                        {
+                            first = false;
+                            if (rs == null)
+                            {
+                                break;
+                            }
+                            if (read(result, context, dialect, rs))
+                            {
+                                // Same as a regular preview, remaining rows and results of the batch are skipped
+                                result.previewLimitReached = true;
+                                JdbcQueryEngine.cancelPreview(statement, rs);
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            if (!context.isAbort())
+            {
+                result.errors.add(e.getMessage());
+            }
+        }
+        finally
+        {
+            running.remove(context);
+            IOUtils.closeQuietly(context);
+        }
+
+        result.messages = messages.toString();
+        result.nanos = System.nanoTime() - start;
+        completed(result);
+        return result;
+    }
+
+    /** Read result set. Returns true if the result has more rows than max rows. */
+    private boolean read(TargetResult result, ConnectionContext context, JdbcDialect dialect, ResultSet rs) throws Exception
+    {
+        Pair<int[], String[]> pair = queryEngine.getColumnsMeta(rs);
+        int[] sqlTypes = pair.getKey();
+        String[] columns = pair.getValue();
+        int count = columns.length;
+        Class<?>[] columnTypes = new Class<?>[count];
+        for (int i = 0; i < count; i++)
+        {
+            columnTypes[i] = dialect.getJdbcValueType(sqlTypes[i]);
+        }
+
+        // Only the first result of a target is streamed into the merged result
+        boolean streamToMerged = merge
+                && result.resultCount == 0
+                && initMerged(columns, columnTypes);
+        result.resultCount++;
+        BufferedResult buffered = streamToMerged ? null
+                : new BufferedResult(columns, columnTypes);
+        if (buffered != null)
+        {
+            result.buffered.add(buffered);
+        }
+
+        AdaptiveFetchSize fetchSize = new AdaptiveFetchSize(dialect.getInitialFetchSize(), dialect.getMaxFetchSize());
+        fetchSize.init(rs);
+        boolean truncated = false;
+        int resultRowCount = 0;
+        Object[][] batch = null;
+        int batchRowCount = 0;
+        while (fetchSize.next(rs))
+        {
+            if (context.isAbort())
+            {
+                break;
+            }
+            if (maxRows > 0
+                    && resultRowCount >= maxRows)
+            {
+                truncated = true;
+                break;
+            }
+            if (batch == null)
+            {
+                batch = new Object[count][JdbcQueryEngine.BATCH_SIZE];
+            }
+            boolean sample = fetchSize.isSampleRow();
+            for (int i = 0; i < count; i++)
+            {
+                Object value = dialect.getJdbcValue(rs, i + 1, sqlTypes[i]);
+                batch[i][batchRowCount] = value;
+                if (sample)
+                {
+                    fetchSize.sample(value);
+                }
+            }
+            if (sample)
+            {
+                fetchSize.endSample();
+            }
+            batchRowCount++;
+            resultRowCount++;
+            result.rowCount++;
+            if (batchRowCount == JdbcQueryEngine.BATCH_SIZE)
+            {
+                if (streamToMerged)
+                {
+                    writeMerged(result.target, batch, batchRowCount);
+                }
+                else
+                {
+                    buffered.add(batch, batchRowCount);
+                }
+                batch = null;
+                batchRowCount = 0;
+            }
+        }
+        if (batchRowCount > 0)
+        {
+            if (streamToMerged)
+            {
+                writeMerged(result.target, batch, batchRowCount);
+            }
+            else
+            {
+                buffered.add(batch, batchRowCount);
+            }
+        }
+        return truncated;
+    }
+
+    /** Init the merged result if not already done. Returns false if provided columns doesn't match the merged result */
+    private boolean initMerged(String[] columns, Class<?>[] columnTypes)
+    {
+        synchronized (lock)
+        {
+            if (mergedColumns == null)
+            {
+                String[] merged = new String[columns.length + 2];
+                Class<?>[] mergedTypes = new Class<?>[columns.length + 2];
+                merged[0] = CONNECTION_COLUMN;
+                merged[1] = DATABASE_COLUMN;
+                mergedTypes[0] = String.class;
+                mergedTypes[1] = String.class;
+                System.arraycopy(columns, 0, merged, 2, columns.length);
+                System.arraycopy(columnTypes, 0, mergedTypes, 2, columns.length);
+                if (writer instanceof QueryeerOutputWriter qwriter)
+                {
+                    qwriter.initResult(merged, mergedTypes, Map.of());
+                }
+                else
+                {
+                    writer.initResult(merged);
+                }
+                mergedColumns = merged;
+                mergedColumnTypes = mergedTypes;
+                return true;
+            }
+            if (mergedColumns.length != columns.length + 2)
+            {
+                return false;
+            }
+            for (int i = 0; i < columns.length; i++)
+            {
+                if (!mergedColumns[i + 2].equalsIgnoreCase(columns[i])
+                        || !Objects.equals(mergedColumnTypes[i + 2], columnTypes[i]))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private void writeMerged(Target target, Object[][] batch, int rowCount)
+    {
+        // Column major so the value columns can be reused as is
+        Object[][] values = new Object[batch.length + 2][];
+        values[0] = new Object[rowCount];
+        values[1] = new Object[rowCount];
+        Arrays.fill(values[0], target.connection()
+                .getName());
+        Arrays.fill(values[1], target.database());
+        System.arraycopy(batch, 0, values, 2, batch.length);
+        synchronized (lock)
+        {
+            writeBatch(mergedColumns, values, rowCount);
+        }
+    }
+
+    private void completed(TargetResult result)
+    {
+        synchronized (lock)
+        {
+            PrintWriter textWriter = textOutput.getTextWriter();
+            textWriter.println("%s[%d/%d] %s: %d row(s), execution time: %s".formatted(System.lineSeparator(), completed.incrementAndGet(), targets.size(), result.target, result.rowCount,
+                    DurationFormatUtils.formatDurationHMS(TimeUnit.NANOSECONDS.toMillis(result.nanos))));
+            if (!result.messages.isBlank())
+            {
+                textWriter.print(result.messages);
+            }
+            for (String error : result.errors)
+            {
+                textOutput.appendWarning(result.target + ": " + error, TextSelection.EMPTY);
+            }
+            if (result.previewLimitReached)
+            {
+                textOutput.appendWarning(result.target + ": Preview limit of " + maxRows + " rows reached, remaining rows and results of the batch was not fetched", TextSelection.EMPTY);
+            }
+            // Merged result is open, separate results are written when all targets are done
+            if (!merge)
+            {
+                write(result);
+            }
+        }
+    }
+
+    /** Write buffered results of a target. Lock must be held */
+    private void write(TargetResult result)
+    {
+        for (BufferedResult buffered : result.buffered)
+        {
+            try
+            {
+                write(result, buffered);
+            }
+            catch (Exception e)
+            {
+                textOutput.appendWarning(result.target + ": Error writing result: " + e.getMessage(), TextSelection.EMPTY);
+            }
+            finally
+            {
+                buffered.close();
+            }
+        }
+        result.buffered.clear();
+    }
+
+    private void write(TargetResult result, BufferedResult buffered) throws IOException, ClassNotFoundException
+    {
+        if (writer instanceof QueryeerOutputWriter qwriter)
+        {
+            //@formatter:off
+            Map<String, Object> metaData = MapUtils.ofEntries(true,
+                    MapUtils.entry(CONNECTION_COLUMN, result.target.connection().getName()),
+                    MapUtils.entry(DATABASE_COLUMN, result.target.database()));
+            //@formatter:on
+            qwriter.initResult(buffered.columns, buffered.columnTypes, metaData);
+        }
+        else
+        {
+            writer.initResult(buffered.columns);
+        }
+        try
+        {
+            buffered.read(this::writeBatch);
+        }
+        finally
+        {
+            writer.endResult();
+        }
+    }
+
+    private void writeBatch(String[] columns, Object[][] values, int rowCount)
+    {
+        if (writer instanceof QueryeerOutputWriter qwriter)
+        {
+            qwriter.writeBatch(columns, values, rowCount);
+        }
+        else
+        {
+            QueryeerOutputWriter.writeRows(writer, columns, values, rowCount);
+        }
+    }
+
+    /** A target of the execution */
+    record Target(JdbcConnection connection, String database)
+    {
+        Target
+        {
+            requireNonNull(connection, "connection");
+        }
+
+        @Override
+        public String toString()
+        {
+            return connection.getName() + " / " + database;
+        }
+    }
+
+    /** Result of a target */
+    private static class TargetResult
+    {
+        private final Target target;
+        private final List<String> errors = new CopyOnWriteArrayList<>();
+        private final List<BufferedResult> buffered = new ArrayList<>();
+        private String messages = "";
+        private boolean previewLimitReached;
+        private int resultCount;
+        private long rowCount;
+        private long nanos;
+
+        TargetResult(Target target)
+        {
+            this.target = target;
+        }
+    }
+
+    /** A result that is written when the target or whole execution is done. Batches after the first {@link #MAX_BUFFERED_BATCHES} are spilled to a temp file */
+    static class BufferedResult implements Closeable
+    {
+        private final String[] columns;
+        private final Class<?>[] columnTypes;
+        private final List<Object[][]> batches = new ArrayList<>();
+        private final List<Integer> rowCounts = new ArrayList<>();
+        private Path spillFile;
+        private ObjectOutputStream spill;
+        private int spilledBatches;
+
+        BufferedResult(String[] columns, Class<?>[] columnTypes)
+        {
+            this.columns = columns;
+            this.columnTypes = columnTypes;
+        }
+
+        void add(Object[][] batch, int rowCount) throws IOException
+        {
+            if (batches.size() < MAX_BUFFERED_BATCHES)
+            {
+                batches.add(batch);
+                rowCounts.add(rowCount);
+                return;
+            }
+            if (spill == null)
+            {
+                spillFile = Files.createTempFile("queryeer-fanout-", ".spill");
+                spill = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile)));
+            }
+            spill.writeInt(rowCount);
+            for (Object[] column : batch)
+            {
+                for (int i = 0; i < rowCount; i++)
+                {
+                    Object value = column[i];
+                    // Driver specific values without a serial form are written as strings
+                    spill.writeObject(value == null
+                            || value instanceof Serializable ? value
+                                    : String.valueOf(value));
+                }
+            }
+            // Don't keep references to written values
+            spill.reset();
+            spilledBatches++;
+        }
+
+        /** Read all batches in order, in memory ones first followed by the spilled ones, and pass them to provided consumer */
+        void read(BatchConsumer consumer) throws IOException, ClassNotFoundException
+        {
+            for (int i = 0; i < batches.size(); i++)
+            {
+                consumer.accept(columns, batches.get(i), rowCounts.get(i));
+            }
+            if (spill == null)
+            {
+                return;
+            }
+            spill.close();
+            try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(spillFile))))
+            {
+                for (int b = 0; b < spilledBatches; b++)
+                {
+                    int rowCount = in.readInt();
+                    // Writers might keep the value arrays so a new batch is needed each time
+                    Object[][] batch = new Object[columns.length][rowCount];
+                    for (Object[] column : batch)
+                    {
+                        for (int i = 0; i < rowCount; i++)
+                        {
+                            column[i] = in.readObject();
+                        }
+                    }
+                    consumer.accept(columns, batch, rowCount);
+                }
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            if (spill == null)
+            {
+                return;
+            }
+            try
+            {
+                spill.close();
+                Files.deleteIfExists(spillFile);
+            }
+            catch (IOException e)
+            {
+                LOGGER.debug("Could not delete fan out spill file {}", spillFile, e);
+            }
+            spill = null;
+        }
+    }
+
+    /** Consumer of a batch */
+    @FunctionalInterface
+    interface BatchConsumer
+    {
+        void accept(String[] columns, Object[][] values, int rowCount);
+    }
+}
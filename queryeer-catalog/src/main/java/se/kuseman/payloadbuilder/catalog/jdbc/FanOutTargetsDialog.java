@@ -0,0 +1,215 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Frame;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.swing.BorderFactory;
+import javax.swing.Box;
+import javax.swing.BoxLayout;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+
+import com.queryeer.api.component.ADocumentListenerAdapter;
+import com.queryeer.api.component.AnimatedIcon;
+import com.queryeer.api.component.DialogUtils.ADialog;
+
+/** Dialog for selecting the fan out targets of a query file. Only connections that are connected are listed. */
+class FanOutTargetsDialog extends ADialog
+{
+    private final JdbcConnectionsModel connectionsModel;
+    private final List<FanOutExecution.Target> allTargets = new ArrayList<>();
+    private final Set<FanOutExecution.Target> selectedTargets;
+    private final Map<FanOutExecution.Target, JCheckBox> checkboxByTarget = new LinkedHashMap<>();
+
+    private JTextField filterField;
+    private JPanel listPanel;
+    private JCheckBox mergeCheckBox;
+    private boolean accepted;
+
+    FanOutTargetsDialog(JdbcConnectionsModel connectionsModel, List<FanOutExecution.Target> selectedTargets, boolean merge)
+    {
+        super((Frame) null, "Fan Out Targets", true);
+        this.connectionsModel = connectionsModel;
+        this.selectedTargets = new HashSet<>(selectedTargets);
+        initUI(merge);
+        loadTargets();
+    }
+
+    /** Show dialog. Returns true if the selection was accepted */
+    boolean showDialog()
+    {
+        setLocationRelativeTo(null);
+        setVisible(true);
+        return accepted;
+    }
+
+    List<FanOutExecution.Target> getSelectedTargets()
+    {
+        List<FanOutExecution.Target> result = new ArrayList<>();
+        for (FanOutExecution.Target target : allTargets)
+        {
+            if (selectedTargets.contains(target))
+            {
+                result.add(target);
+            }
+        }
+        return result;
+    }
+
+    boolean isMerge()
+    {
+        return mergeCheckBox.isSelected();
+    }
+
+    private void initUI(boolean merge)
+    {
+        setPreferredSize(new Dimension(450, 600));
+
+        JPanel filterRow = new JPanel(new BorderLayout(6, 0));
+        filterRow.setBorder(BorderFactory.createEmptyBorder(6, 6, 4, 6));
+        filterField = new JTextField();
+        filterField.getDocument()
+                .addDocumentListener(new ADocumentListenerAdapter()
+                {
+                    @Override
+                    protected void update()
+                    {
+                        rebuildList();
+                    }
+                });
+        filterRow.add(new JLabel("Filter:"), BorderLayout.WEST);
+        filterRow.add(filterField, BorderLayout.CENTER);
+
+        listPanel = new JPanel();
+        listPanel.setLayout(new BoxLayout(listPanel, BoxLayout.Y_AXIS));
+        JPanel loading = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 8));
+        loading.add(new JLabel(AnimatedIcon.createSmallSpinner()));
+        loading.add(new JLabel("Loading databases…"));
+        listPanel.add(loading);
+
+        JButton selectAll = new JButton("Select All");
+        selectAll.addActionListener(e -> setVisibleChecked(true));
+        JButton deselectAll = new JButton("Deselect All");
+        deselectAll.addActionListener(e -> setVisibleChecked(false));
+        mergeCheckBox = new JCheckBox("Merge Results", merge);
+        mergeCheckBox.setToolTipText("Merge results of all targets into one result with " + FanOutExecution.CONNECTION_COLUMN + " and " + FanOutExecution.DATABASE_COLUMN + " columns");
+        JPanel selectionButtons = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 2));
+        selectionButtons.add(selectAll);
+        selectionButtons.add(deselectAll);
+        selectionButtons.add(mergeCheckBox);
+
+        JButton okButton = new JButton("OK");
+        okButton.addActionListener(e ->
+        {
+            accepted = true;
+            dispose();
+        });
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> dispose());
+        JPanel actionButtons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 4, 2));
+        actionButtons.add(cancelButton);
+        actionButtons.add(okButton);
+
+        JPanel buttonRow = new JPanel(new BorderLayout());
+        buttonRow.setBorder(BorderFactory.createEmptyBorder(2, 4, 4, 4));
+        buttonRow.add(selectionButtons, BorderLayout.NORTH);
+        buttonRow.add(actionButtons, BorderLayout.SOUTH);
+
+        getContentPane().setLayout(new BorderLayout());
+        getContentPane().add(filterRow, BorderLayout.NORTH);
+        getContentPane().add(new JScrollPane(listPanel), BorderLayout.CENTER);
+        getContentPane().add(buttonRow, BorderLayout.SOUTH);
+        pack();
+    }
+
+    private void loadTargets()
+    {
+        List<JdbcConnection> connections = connectionsModel.getConnections()
+                .stream()
+                .filter(c -> c.isEnabled()
+                        && c.hasCredentials())
+                .toList();
+        JdbcQueryEngine.EXECUTOR.execute(() ->
+        {
+            List<FanOutExecution.Target> targets = new ArrayList<>();
+            for (JdbcConnection connection : connections)
+            {
+                for (String database : connectionsModel.getDatabases(connection, false, false, false))
+                {
+                    targets.add(new FanOutExecution.Target(connection, database));
+                }
+            }
+            SwingUtilities.invokeLater(() ->
+            {
+                allTargets.addAll(targets);
+                rebuildList();
+            });
+        });
+    }
+
+    private void rebuildList()
+    {
+        checkboxByTarget.clear();
+        listPanel.removeAll();
+
+        String lowerFilter = filterField.getText()
+                .trim()
+                .toLowerCase();
+        for (FanOutExecution.Target target : allTargets)
+        {
+            String label = target.toString();
+            if (!lowerFilter.isEmpty()
+                    && !label.toLowerCase()
+                            .contains(lowerFilter))
+            {
+                continue;
+            }
+
+            JCheckBox cb = new JCheckBox(label);
+            cb.setSelected(selectedTargets.contains(target));
+            cb.addItemListener(e ->
+            {
+                if (cb.isSelected())
+                {
+                    selectedTargets.add(target);
+                }
+                else
+                {
+                    selectedTargets.remove(target);
+                }
+            });
+            checkboxByTarget.put(target, cb);
+
+            JPanel row = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 1));
+            row.add(cb);
+            row.setMaximumSize(new Dimension(Integer.MAX_VALUE, row.getPreferredSize().height));
+            listPanel.add(row);
+        }
+        if (allTargets.isEmpty())
+        {
+            listPanel.add(new JLabel(" No connected connections found. Connect to connections in the tree first."));
+        }
+        listPanel.add(Box.createVerticalGlue());
+        listPanel.revalidate();
+        listPanel.repaint();
+    }
+
+    private void setVisibleChecked(boolean checked)
+    {
+        checkboxByTarget.values()
+                .forEach(cb -> cb.setSelected(checked));
+    }
+}
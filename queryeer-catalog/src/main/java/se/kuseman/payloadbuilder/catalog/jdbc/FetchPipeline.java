@@ -0,0 +1,341 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+import com.queryeer.api.extensions.output.QueryeerOutputWriter;
+
+/**
+ * Pipeline that decouples fetching rows of a result set from writing them to the output. The fetching thread fills column major batches that are written by a consumer thread. Batches are recycled
+ * through a fixed number of slots, when all slots are in use the fetching thread blocks until the consumer has caught up.
+ *
+ * <p>
+ * A batch is published when it is full or when its first row is older than the max batch time. Since the fetching thread might be blocked in {@link java.sql.ResultSet#next()} for a long time the
+ * consumer also takes a partially filled batch that has passed the max batch time, so rows of slow streaming results are shown without waiting for the next row.
+ * </p>
+ *
+ * <pre>
+ * Usage (fetching thread):
+ *   pipeline.append((values, row) -&gt; ... fill row);
+ *   ...
+ *   pipeline.finish();
+ * </pre>
+ */
+class FetchPipeline implements AutoCloseable
+{
+    static final int DEFAULT_CAPACITY = 4;
+    /** Interval that blocked threads checks abort and failure of the other side */
+    private static final long POLL_MILLIS = 100;
+    private static final Batch END = new Batch(null);
+
+    private final QueryeerOutputWriter writer;
+    private final String[] columns;
+    private final int batchSize;
+    private final long maxBatchNanos;
+    private final BooleanSupplier abort;
+    private final BlockingQueue<Batch> free;
+    private final BlockingQueue<Batch> full;
+    private final Future<?> consumer;
+    private volatile boolean cancelled;
+    private boolean finished;
+
+    /** Guards the batch being filled since the consumer might take it */
+    private final Object lock = new Object();
+    /** Batch being filled by the fetching thread */
+    private Batch current;
+    private long currentStart;
+
+    private long producerWaitNanos;
+    private volatile long consumerWaitNanos;
+
+    /**
+     * Create and start a pipeline
+     *
+     * @param writer Writer that batches are written to
+     * @param columns Columns of the result
+     * @param batchSize Max rows of a batch
+     * @param maxBatchNanos Max time a row is buffered before its batch is written
+     * @param capacity Number of batches that can be in flight
+     * @param abort Supplier that returns true if the query is aborted
+     * @param executor Executor that runs the consumer
+     */
+    FetchPipeline(QueryeerOutputWriter writer, String[] columns, int batchSize, long maxBatchNanos, int capacity, BooleanSupplier abort, ExecutorService executor)
+    {
+        this.writer = requireNonNull(writer, "writer");
+        this.columns = requireNonNull(columns, "columns");
+        this.batchSize = batchSize;
+        this.maxBatchNanos = maxBatchNanos;
+        this.abort = requireNonNull(abort, "abort");
+        this.free = new ArrayBlockingQueue<>(capacity);
+        // One extra slot for the end marker
+        this.full = new ArrayBlockingQueue<>(capacity + 1);
+        for (int i = 0; i < capacity; i++)
+        {
+            free.add(new Batch(new Object[columns.length][batchSize]));
+        }
+        this.consumer = executor.submit(this::consume);
+    }
+
+    /**
+     * Append a row to the batch being filled. Blocks until the consumer has returned a batch if all slots are in use. The filler is called while the consumer is prevented from taking the batch.
+     */
+    void append(RowFiller filler) throws Exception
+    {
+        while (true)
+        {
+            synchronized (lock)
+            {
+                // The consumer might have taken the batch since last row
+                if (current != null)
+                {
+                    filler.fill(current.values, current.rowCount);
+                    current.rowCount++;
+                    if (current.rowCount == batchSize
+                            || System.nanoTime() - currentStart >= maxBatchNanos)
+                    {
+                        publish();
+                    }
+                    return;
+                }
+            }
+            // Only this thread sets current so it's safe to acquire outside of the lock
+            Batch batch = acquire();
+            synchronized (lock)
+            {
+                current = batch;
+                currentStart = System.nanoTime();
+            }
+        }
+    }
+
+    /** Acquire a free batch to fill. Blocks until the consumer has returned a batch. */
+    private Batch acquire() throws Exception
+    {
+        long start = System.nanoTime();
+        try
+        {
+            while (true)
+            {
+                checkConsumer();
+                if (abort.getAsBoolean())
+                {
+                    throw new CancellationException("Query aborted");
+                }
+                Batch batch = free.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (batch != null)
+                {
+                    return batch;
+                }
+            }
+        }
+        finally
+        {
+            producerWaitNanos += System.nanoTime() - start;
+        }
+    }
+
+    /** Publish the current batch. Must be called with lock held. */
+    private void publish()
+    {
+        // Cannot fail since there are never more batches than slots
+        full.add(current);
+        current = null;
+    }
+
+    /** Publish remaining rows, mark that all batches are published and wait for the consumer to write them. */
+    void finish() throws Exception
+    {
+        synchronized (lock)
+        {
+            if (current != null
+                    && current.rowCount > 0)
+            {
+                publish();
+            }
+        }
+        finished = true;
+        full.put(END);
+        while (true)
+        {
+            try
+            {
+                consumer.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                return;
+            }
+            catch (TimeoutException e)
+            {
+                if (abort.getAsBoolean())
+                {
+                    close();
+                    return;
+                }
+            }
+            catch (ExecutionException e)
+            {
+                throw rethrow(e.getCause());
+            }
+        }
+    }
+
+    /** Time the fetching thread was blocked waiting for a free batch */
+    long getProducerWaitNanos()
+    {
+        return producerWaitNanos;
+    }
+
+    /** Time the consumer was idle waiting for a filled batch */
+    long getConsumerWaitNanos()
+    {
+        return consumerWaitNanos;
+    }
+
+    /** Stop the consumer without writing remaining batches. No-op if the pipeline is finished. */
+    @Override
+    public void close()
+    {
+        if (consumer.isDone())
+        {
+            return;
+        }
+        cancelled = true;
+        full.clear();
+        if (!finished)
+        {
+            full.offer(END);
+        }
+        try
+        {
+            consumer.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread()
+                    .interrupt();
+        }
+        catch (ExecutionException | CancellationException e)
+        {
+            // Consumer errors are reported from acquire/finish
+        }
+    }
+
+    private void consume()
+    {
+        long pollNanos = Math.max(1, Math.min(TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS), maxBatchNanos));
+        while (true)
+        {
+            Batch batch;
+            long start = System.nanoTime();
+            try
+            {
+                batch = full.poll(pollNanos, TimeUnit.NANOSECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread()
+                        .interrupt();
+                return;
+            }
+            consumerWaitNanos += System.nanoTime() - start;
+            if (batch == END
+                    || cancelled
+                    || abort.getAsBoolean())
+            {
+                return;
+            }
+            if (batch == null)
+            {
+                batch = takeStale();
+                if (batch == null)
+                {
+                    continue;
+                }
+            }
+
+            writer.writeBatch(columns, batch.values, batch.rowCount);
+            // Release references so values can be collected while the slot is idle
+            for (Object[] column : batch.values)
+            {
+                Arrays.fill(column, 0, batch.rowCount, null);
+            }
+            batch.rowCount = 0;
+            free.add(batch);
+        }
+    }
+
+    /** Take the batch being filled if its first row has passed the max batch time. The fetching thread is then most likely blocked waiting for the next row. */
+    private Batch takeStale()
+    {
+        synchronized (lock)
+        {
+            // Published batches must be written first to keep the row order
+            if (current == null
+                    || current.rowCount == 0
+                    || !full.isEmpty()
+                    || System.nanoTime() - currentStart < maxBatchNanos)
+            {
+                return null;
+            }
+            Batch batch = current;
+            current = null;
+            return batch;
+        }
+    }
+
+    private void checkConsumer() throws Exception
+    {
+        if (consumer.isDone()
+                && !cancelled)
+        {
+            try
+            {
+                consumer.get();
+            }
+            catch (ExecutionException e)
+            {
+                throw rethrow(e.getCause());
+            }
+            if (!abort.getAsBoolean())
+            {
+                throw new IllegalStateException("Result consumer stopped unexpectedly");
+            }
+        }
+    }
+
+    private static Exception rethrow(Throwable e)
+    {
+        if (e instanceof Error err)
+        {
+            throw err;
+        }
+        return (Exception) e;
+    }
+
+    /** Fills the values of a row in a column major batch */
+    @FunctionalInterface
+    interface RowFiller
+    {
+        void fill(Object[][] values, int row) throws Exception;
+    }
+
+    /** A slot of the pipeline */
+    private static class Batch
+    {
+        private final Object[][] values;
+        private int rowCount;
+
+        Batch(Object[][] values)
+        {
+            this.values = values;
+        }
+    }
+}
@@ -17,6 +17,6 @@
     /** Get the connection definition */
     JdbcConnection getJdbcConnection();
 
-    /** Create a new {@link Connection} from this context. */
+    /** Create a {@link Connection} from this context. The connection might be pooled so any session state changed must be considered reset when closed. */
     Connection createConnection() throws SQLException;
 }
@@ -7,7 +7,10 @@
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import com.queryeer.api.extensions.payloadbuilder.ICompletionProvider;
 
@@ -25,6 +28,8 @@ class JdbcCompletionProvider implements ICompletionProvider
     private final JdbcConnectionsModel model;
     private final CatalogCrawlService crawlService;
     private final JdbcDialectProvider dialectProvider;
+    /** Table meta built from a catalog. Catalogs are immutable so meta is reused until the catalog is refreshed */
+    private final Map<Catalog, List<TableMeta>> tableMetaByCatalog = Collections.synchronizedMap(new WeakHashMap<>());
 
     JdbcCompletionProvider(JdbcConnectionsModel model, CatalogCrawlService crawlService, JdbcDialectProvider dialectProvider)
     {
@@ -104,7 +109,11 @@ public Connection createConnection() throws SQLException
         {
             return emptyList();
         }
+        return tableMetaByCatalog.computeIfAbsent(catalog, JdbcCompletionProvider::getTableMeta);
+    }
 
+    private static List<TableMeta> getTableMeta(Catalog catalog)
+    {
         List<TableMeta> result = new ArrayList<>(catalog.getTableSources()
                 .size());
         for (TableSource tableSource : catalog.getTableSources())
@@ -99,6 +99,8 @@ void setConnections(List<JdbcConnection> connections)
     {
         this.connections.clear();
         this.connections.addAll(connections);
+        // Edited connections are new instances, close pools of the replaced and deleted ones
+        ConnectionPool.retain(this.connections);
         fireContentsChanged(this, 0, getSize() - 1);
     }
 
@@ -183,7 +185,8 @@ public boolean validate(String username, char[] password)
             {
                 prevRuntimePassword.set(connection.getRuntimePassword());
                 connection.setRuntimePassword(password);
-                try (java.sql.Connection con = createConnection(connection))
+                // Validate credentials with a new physical connection, a pooled one might be created with the previous credentials
+                try (java.sql.Connection con = createConnection(connection, false, false))
                 {
                     return true;
                 }
@@ -266,21 +269,31 @@ boolean prepare(JdbcConnection connection, boolean silent)
         return true;
     }
 
+    /** Borrow a pooled connection for provided JdbcConnection. Closing the connection returns it to the pool. */
     java.sql.Connection createConnection(JdbcConnection connection) throws SQLException
     {
-        return createConnection(connection, false);
+        return createConnection(connection, false, true);
     }
 
     /**
-     * Create connection for provided JdbcConnection.
+     * Create a new physical connection for provided JdbcConnection.
      *
      * @param importMode If this connection is intended to be used when importing data and the dialect supports special options to make that faster this can be set to true.
      */
     java.sql.Connection createConnection(JdbcConnection connection, boolean importMode) throws SQLException
+    {
+        return createConnection(connection, importMode, false);
+    }
+
+    private java.sql.Connection createConnection(JdbcConnection connection, boolean importMode, boolean pooled) throws SQLException
     {
         JdbcDialect jdbcDialect = dialectProvider.getDialect(connection.getJdbcURL());
         try
         {
+            if (pooled)
+            {
+                return ConnectionPool.borrow(connection, jdbcDialect);
+            }
             String password = connection.getRuntimePassword() != null ? new String(connection.getRuntimePassword())
                     : "";
             return jdbcDialect.createConnection(connection.getJdbcURL(), connection.getUsername(), password, importMode);
@@ -317,17 +330,14 @@ List<String> getDatabases(JdbcConnection connection, boolean forceReload, boolea
                 return databases;
             }
 
-            char[] runtimePassword = connection.getRuntimePassword();
             if (!connection.hasCredentials())
             {
                 return emptyList();
             }
 
-            String password = runtimePassword == null ? ""
-                    : new String(runtimePassword);
             JdbcDialect dialect = dialectProvider.getDialect(connection.getJdbcURL());
             setEnableRealod(false);
-            try (java.sql.Connection sqlConnection = dialect.createConnection(connection.getJdbcURL(), connection.getUsername(), password, false))
+            try (java.sql.Connection sqlConnection = ConnectionPool.borrow(connection, dialect))
             {
                 List<String> loadedDatabases = new ArrayList<>();
                 if (dialect.usesSchemaAsDatabase())
@@ -28,6 +28,7 @@
 import com.queryeer.api.component.AnimatedIcon;
 import com.queryeer.api.component.DialogUtils.ADialog;
 import com.queryeer.api.component.IDialogFactory;
+import com.queryeer.api.component.IDialogFactory.Format;
 import com.queryeer.api.component.QueryeerTree.RegularNode;
 import com.queryeer.api.extensions.visualization.graph.Graph;
 import com.queryeer.api.service.IEventBus;
@@ -198,9 +199,9 @@ public List<Action> getContextMenuActions()
             }
             if (jdbcDialect.getMonitorExtension() != null)
             {
-                return asList(newQuery, serverMonitor);
+                return asList(newQuery, serverMonitor, poolStatistics, crawlStatistics);
             }
-            return asList(newQuery);
+            return asList(newQuery, poolStatistics, crawlStatistics);
         }
 
         @Override
@@ -261,6 +262,27 @@ public void windowClosed(WindowEvent ev)
                 dialog.setVisible(true);
             }
         };
+
+        private Action poolStatistics = new AbstractAction("Show Connection Pool Statistics ...")
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                ConnectionPool.PoolStats stats = ConnectionPool.getStats(connection);
+                Object value = stats != null ? stats.toMap()
+                        : "No pooled connections has been created";
+                dialogFactory.showValueDialog(connection.getName() + " — Connection Pool", value, Format.JSON);
+            }
+        };
+
+        private Action crawlStatistics = new AbstractAction("Show Catalog Crawl Statistics ...")
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                dialogFactory.showValueDialog("Catalog Crawls", crawlService.getStatistics(), Format.JSON);
+            }
+        };
     }
 
     /** Node representing a collection of databases */
@@ -530,7 +530,7 @@ protected GenerateCreateTableResult doInBackground() throws Exception
                     try
                     {
                         firePropertyChange(PROGRESS_TEXT, "", "Generating Create Table Statement");
-                        try (Connection connection = connectionsModel.createConnection(jdbcConnection))
+                        try (Connection connection = connectionsModel.createConnection(jdbcConnection, false))
                         {
                             String createTable = generateCreateTableStatement(connection, tv);
                             result.set(new GenerateCreateTableResult(createTable, null));
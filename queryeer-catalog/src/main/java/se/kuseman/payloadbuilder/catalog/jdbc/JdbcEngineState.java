@@ -7,6 +7,7 @@
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -17,6 +18,7 @@
 import com.queryeer.api.extensions.engine.IQueryEngine;
 import com.queryeer.api.extensions.engine.IQueryEngine.IState;
 
+import se.kuseman.payloadbuilder.catalog.jdbc.dialect.IParserProfiler;
 import se.kuseman.payloadbuilder.catalog.jdbc.dialect.JdbcDialect;
 
 /** JDBC engine state holding connection and query plan configuration for a query file. */
@@ -30,6 +32,19 @@ class JdbcEngineState implements IJdbcEngineState
 
     boolean includeQueryPlan;
     boolean estimateQueryPlan;
+    /** Only fetch the first {@link JdbcQueryEngine#PREVIEW_ROWS} rows of each result */
+    boolean preview;
+    /** Targets to execute query against instead of the connection context. Empty if not fanning out */
+    List<FanOutExecution.Target> fanOutTargets = List.of();
+    /** Merge results of the fan out targets into one result */
+    boolean fanOutMerge = true;
+    /** Current running fan out execution */
+    volatile FanOutExecution fanOutExecution;
+    /** Script file and 1-based batch of the last failed execute script from disk. Used to resume the script */
+    Path failedScriptFile;
+    int failedScriptBatch;
+    /** Collect decision profiling of the document parser */
+    boolean profileParser;
 
     JdbcEngineState(IQueryEngine queeryEngine)
     {
@@ -77,7 +92,10 @@ void resetParser()
         {
             documentParser.currentParser = connectionContext.getJdbcDialect()
                     .getParser(this);
-
+            if (documentParser.currentParser instanceof IParserProfiler profiler)
+            {
+                profiler.setProfiling(profileParser);
+            }
         }
     }
 
@@ -69,7 +69,8 @@ else if (isBlank(database))
         JdbcDialect dialect = queryEngine.dialectProvider.getDialect(connection.getJdbcURL());
         ParsedQuery parsedQuery = NamedParameterParser.parse(query, parameters);
 
-        try (Connection con = connectionsModel.createConnection(connection); PreparedStatement stm = con.prepareStatement(parsedQuery.query()))
+        // Arbitrary SQL can leave session state behind (open transactions, temp tables) so use a physical connection
+        try (Connection con = connectionsModel.createConnection(connection, false); PreparedStatement stm = con.prepareStatement(parsedQuery.query()))
         {
             if (dialect.usesSchemaAsDatabase())
             {
@@ -1,18 +1,19 @@
 package se.kuseman.payloadbuilder.catalog.jdbc;
 
 import static java.util.Collections.emptyList;
-import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.groupingBy;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.Strings.CI;
 
 import java.awt.Component;
+import java.io.PrintWriter;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
@@ -20,6 +21,7 @@
 import java.util.concurrent.TimeUnit;
 
 import javax.swing.Icon;
+import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 
 import org.apache.commons.io.IOUtils;
@@ -64,6 +66,12 @@ class JdbcQueryEngine implements IQueryEngine
     private static final Logger LOGGER = LoggerFactory.getLogger(JdbcQueryEngine.class);
     private static final String QUERY_NOT_CONNECTED_MESSAGE = "Query file is not connected to any data source. Right click or CTRL/META-hoover + left click on a connection or database in tree.";
     static final String TEXT_SQL = "text/sql";
+    /** Max number of rows in a batch written to {@link QueryeerOutputWriter#writeBatch(String[], Object[][], int)} */
+    static final int BATCH_SIZE = 512;
+    /** Max time a row is buffered in a batch before the batch is written, also when fetching of next row blocks. Keeps slow streaming results responsive. */
+    private static final long BATCH_MAX_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    /** Number of rows fetched per result when executing in preview mode */
+    static final int PREVIEW_ROWS = 1000;
     static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(BasicThreadFactory.builder()
             .daemon(true)
             .namingPattern("JdbcQueryEngine#-%d")
@@ -152,7 +160,7 @@ public IState createState()
     public IEditor createEditor(IState state, String filename)
     {
         JdbcEngineState engineState = (JdbcEngineState) state;
-        JdbcTextEditorKit editorKit = new JdbcTextEditorKit(engineState, icons.getIconFactory(), eventBus);
+        JdbcTextEditorKit editorKit = new JdbcTextEditorKit(engineState, icons.getIconFactory(), eventBus, connectionsModel, dialogFactory);
         return editorFactory.createTextEditor(engineState, editorKit);
     }
 
@@ -170,8 +178,18 @@ public IState cloneState(IQueryFile queryFile)
     @Override
     public boolean shouldExecute(IQueryFile queryFile)
     {
-        // TODO: confirm multi db query
-        return true;
+        JdbcEngineState engineState = queryFile.getEngineState();
+        if (engineState == null
+                || engineState.fanOutTargets.isEmpty())
+        {
+            return true;
+        }
+
+        // Confirm multi db query
+        int result = JOptionPane.showConfirmDialog(queryFile.getEditor()
+                .getComponent(), "Execute query against " + engineState.fanOutTargets.size() + " fan out target(s)?", "Fan Out Execution", JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.QUESTION_MESSAGE);
+        return result == JOptionPane.OK_OPTION;
     }
 
     @Override
@@ -184,6 +202,8 @@ public void execute(IQueryFile queryFile, OutputWriter writer, Object query) thr
             JdbcDialect jdbcDialect = connectionContext != null ? connectionContext.getJdbcDialect()
                     : null;
             String queryText = "";
+            Path scriptFile = null;
+            int startBatch = 0;
             boolean temporaryState = false;
             ITextOutputComponent textOutput = queryFile.getOutputComponent(ITextOutputComponent.class);
 
@@ -191,7 +211,10 @@ public void execute(IQueryFile queryFile, OutputWriter writer, Object query) thr
             if (query instanceof ExecuteQueryContext ctx)
             {
                 queryText = ctx.getQuery();
-                if (queryText == null)
+                scriptFile = ctx.getScriptFile();
+                startBatch = ctx.getStartBatch();
+                if (queryText == null
+                        && scriptFile == null)
                 {
                     queryText = String.valueOf(queryFile.getEditor()
                             .getValue(false));
@@ -210,6 +233,25 @@ public void execute(IQueryFile queryFile, OutputWriter writer, Object query) thr
                 queryText = String.valueOf(query);
             }
 
+            // Fan out execution
+            if (!temporaryState
+                    && scriptFile == null
+                    && !engineState.fanOutTargets.isEmpty())
+            {
+                FanOutExecution execution = new FanOutExecution(this, dialectProvider, engineState.fanOutTargets, engineState.fanOutMerge, engineState.preview ? PREVIEW_ROWS
+                        : 0);
+                engineState.fanOutExecution = execution;
+                try
+                {
+                    execution.execute(queryText, writer, textOutput);
+                }
+                finally
+                {
+                    engineState.fanOutExecution = null;
+                }
+                return;
+            }
+
             // No state present, print warning
             if (connectionContext == null)
             {
@@ -225,7 +267,44 @@ public void execute(IQueryFile queryFile, OutputWriter writer, Object query) thr
                 return;
             }
 
-            executeInternal(queryFile, engineState, textOutput, writer, jdbcDialect, queryText, connectionContext, temporaryState);
+            if (scriptFile != null)
+            {
+                executeScript(queryFile, engineState, textOutput, writer, jdbcDialect, scriptFile, startBatch, connectionContext);
+                return;
+            }
+
+            executeInternal(queryFile, engineState, textOutput, writer, jdbcDialect, getBatches(jdbcDialect, queryText).iterator(), connectionContext, temporaryState, null);
+        }
+    }
+
+    /** Execute a script by streaming its batches from disk. Execution stops at the first failing batch which can be resumed on next execution. */
+    private void executeScript(IQueryFile queryFile, JdbcEngineState engineState, ITextOutputComponent textOutput, OutputWriter writer, JdbcDialect jdbcDialect, Path scriptFile, int startBatch,
+            ConnectionContext state) throws Exception
+    {
+        PrintWriter printer = textOutput.getTextWriter();
+        try (BatchSplitter.ScriptReader reader = new BatchSplitter.ScriptReader(scriptFile, jdbcDialect.getBatchDelimiter(), startBatch))
+        {
+            printer.println("Executing script: " + scriptFile + (startBatch > 1 ? " from batch " + startBatch
+                    : ""));
+            engineState.failedScriptFile = null;
+            int failedBatch = executeInternal(queryFile, engineState, textOutput, writer, jdbcDialect, reader, state, false, reader);
+            // Make an aborted script resumable from the batch that was executing or the next one if the abort came after it completed
+            if (failedBatch == 0
+                    && state.isAbort())
+            {
+                failedBatch = reader.getResumeBatchIndex();
+            }
+
+            if (failedBatch > 0)
+            {
+                engineState.failedScriptFile = scriptFile.toAbsolutePath();
+                engineState.failedScriptBatch = failedBatch;
+                textOutput.appendWarning("Script stopped at batch " + failedBatch + ". Execute the script again to resume from that batch.", TextSelection.EMPTY);
+            }
+            else
+            {
+                printer.println("Script completed, " + reader.getBatchIndex() + " batch(es) executed");
+            }
         }
     }
 
@@ -233,8 +312,16 @@ public void execute(IQueryFile queryFile, OutputWriter writer, Object query) thr
     public void abortQuery(IQueryFile queryFile)
     {
         JdbcEngineState state = queryFile.getEngineState();
-        if (state != null
-                && state.connectionContext != null)
+        if (state == null)
+        {
+            return;
+        }
+        FanOutExecution fanOutExecution = state.fanOutExecution;
+        if (fanOutExecution != null)
+        {
+            fanOutExecution.abort();
+        }
+        if (state.connectionContext != null)
         {
             state.connectionContext.abort();
         }
@@ -304,16 +391,11 @@ public List<IAIContextItem> getAIContextItems(IQueryFile queryFile)
         }
 
         List<IAIContextItem> items = new ArrayList<>();
-        Map<ObjectName, List<Index>> indicesByObject = catalog.getIndices()
-                .stream()
-                .collect(groupingBy(Index::getObjectName));
-
         List<ObjectName> referencedNames = getReferencedNamesFromQuery(queryFile, engineState);
 
         for (TableSource ts : catalog.getTableSources())
         {
-            // NOTE! TableSource adds stuff in it's equals so we need to construct a new object name here
-            List<Index> indices = indicesByObject.getOrDefault(new ObjectName(ts.getCatalog(), ts.getSchema(), ts.getName()), emptyList());
+            List<Index> indices = catalog.getIndices(ts);
             boolean defaultSelected = matchesAny(ts, referencedNames);
             items.add(new JdbcAITableSourceContextItem(ts, indices, defaultSelected));
         }
@@ -358,21 +440,28 @@ private static boolean matchesAny(TableSource ts, List<ObjectName> referencedNam
         return false;
     }
 
+    /**
+     * Execute batches.
+     *
+     * @param script Script reader when executing a script from disk. Execution is then stopped on first failing batch
+     * @return Index of the failed script batch or 0 if all batches succeeded
+     */
     //@formatter:off
-    private void executeInternal(
+    private int executeInternal(
             IQueryFile queryFile,
             JdbcEngineState engineState,
             ITextOutputComponent textOutput,
             OutputWriter writer,
             JdbcDialect jdbcDialect,
-            String queryText,
+            Iterator<String> batches,
             ConnectionContext state,
-            boolean temporaryState) throws Exception
+            boolean temporaryState,
+            BatchSplitter.ScriptReader script) throws Exception
     {
         //@formatter:on
 
         MutableBoolean sqlError = new MutableBoolean(false);
-        List<String> batches = getBatches(jdbcDialect, queryText);
+        MutableBoolean batchError = new MutableBoolean(false);
         try
         {
             // Reset the query before execution to reset abort flag etc.
@@ -385,19 +474,28 @@ private void executeInternal(
             {
                 quickProperties.setStatus(queryFile, state);
             }
+            int maxRows = engineState.preview ? PREVIEW_ROWS
+                    : 0;
             try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
             {
                 state.setCurrentStatement(statement);
-                for (String batch : batches)
+                setInitialFetchSize(statement, jdbcDialect);
+                while (batches.hasNext()
+                        && !state.isAbort())
                 {
+                    String batch = batches.next();
+                    batchError.setFalse();
                     boolean first = true;
+                    boolean previewLimitReached = false;
                     while (true)
                     {
                         int rowCount = 0;
+                        AdaptiveFetchSize fetchSize = null;
                         long time = System.nanoTime();
                         try (ResultSet rs = JdbcUtils.getNextResultSet(e ->
                         {
                             sqlError.setTrue();
+                            batchError.setTrue();
                             if (!jdbcDialect.handleSQLException(queryFile, textOutput, e))
                             {
                                 textOutput.appendWarning(e.getMessage(), TextSelection.EMPTY);
@@ -411,7 +509,16 @@ private void executeInternal(
                                 break;
                             }
 
-                            rowCount += writeResultSet(queryFile, connection, engineState, state, rs, writer);
+                            fetchSize = new AdaptiveFetchSize(jdbcDialect.getInitialFetchSize(), jdbcDialect.getMaxFetchSize());
+                            MutableBoolean truncated = new MutableBoolean(false);
+                            rowCount += writeResultSet(queryFile, connection, engineState, state, rs, writer, fetchSize, maxRows, truncated);
+                            // Only a result with more rows than the limit stops the batch, a result with exactly max rows is complete
+                            if (truncated.isTrue())
+                            {
+                                // Cancel the statement before closing the result set to avoid that the driver drains the remaining rows
+                                previewLimitReached = true;
+                                cancelPreview(statement, rs);
+                            }
                         }
 
                         if (!state.isAbort())
@@ -422,17 +529,42 @@ private void executeInternal(
                                             .getName(), state.getDatabase()));
                             textOutput.getTextWriter()
                                     .println(output);
+                            if (fetchSize != null)
+                            {
+                                textOutput.getTextWriter()
+                                        .println(fetchSize.getStatistics());
+                            }
+                        }
+
+                        if (previewLimitReached)
+                        {
+                            textOutput.appendWarning("Preview limit of " + maxRows + " rows reached, remaining rows and results of the batch was not fetched", TextSelection.EMPTY);
+                            break;
+                        }
+                    }
+
+                    if (script != null)
+                    {
+                        if (batchError.isTrue())
+                        {
+                            return script.getBatchIndex();
                         }
+                        script.batchCompleted();
+                        long size = script.getSize();
+                        textOutput.getTextWriter()
+                                .println("Batch %d done, %d / %d bytes (%d%%)".formatted(script.getBatchIndex(), script.getOffset(), size, size > 0 ? script.getOffset() * 100 / size
+                                        : 100));
                     }
                 }
             }
+            return 0;
         }
         catch (Exception e)
         {
             // Don't show errors if the query was aborted
             if (state.isAbort())
             {
-                return;
+                return 0;
             }
 
             if (e instanceof SQLException sqle)
@@ -440,7 +572,8 @@ private void executeInternal(
                 sqlError.setTrue();
                 if (jdbcDialect.handleSQLException(queryFile, textOutput, sqle))
                 {
-                    return;
+                    return script != null ? script.getResumeBatchIndex()
+                            : 0;
                 }
             }
 
@@ -477,7 +610,55 @@ private void executeInternal(
         }
     }
 
-    private int writeResultSet(IQueryFile queryFile, Connection connection, JdbcEngineState engineState, ConnectionContext state, ResultSet rs, OutputWriter writer) throws Exception
+    static void setInitialFetchSize(Statement statement, JdbcDialect jdbcDialect)
+    {
+        int fetchSize = jdbcDialect.getInitialFetchSize();
+        if (fetchSize <= 0)
+        {
+            return;
+        }
+        try
+        {
+            // The first round trip is performed on execute so the initial fetch size must be set on the statement
+            statement.setFetchSize(fetchSize);
+        }
+        catch (SQLException e)
+        {
+            LOGGER.debug("Could not set fetch size on statement", e);
+        }
+    }
+
+    /** Cancel statement of a result set that reached the preview limit */
+    static void cancelPreview(Statement statement, ResultSet rs)
+    {
+        try
+        {
+            statement.cancel();
+        }
+        catch (SQLException e)
+        {
+            LOGGER.debug("Could not cancel statement", e);
+        }
+        try
+        {
+            rs.close();
+        }
+        catch (SQLException e)
+        {
+            // A cancelled statement might throw on close
+            LOGGER.debug("Error closing cancelled result set", e);
+        }
+    }
+
+    /**
+     * Write result set to writer
+     *
+     * @param fetchSize Fetch size that is adapted while reading rows
+     * @param maxRows Max number of rows to write. 0 for all rows
+     * @param truncated Set to true if the result set has more rows than max rows. One row past the limit is read to tell a truncated result from one with exactly max rows.
+     */
+    private int writeResultSet(IQueryFile queryFile, Connection connection, JdbcEngineState engineState, ConnectionContext state, ResultSet rs, OutputWriter writer, AdaptiveFetchSize fetchSize,
+            int maxRows, MutableBoolean truncated) throws Exception
     {
         JdbcDialect jdbcDialect = state.getJdbcDialect();
         JdbcConnection jdbcConnection = state.getJdbcConnection();
@@ -486,6 +667,7 @@ private int writeResultSet(IQueryFile queryFile, Connection connection, JdbcEngi
         Pair<int[], String[]> pair = getColumnsMeta(rs);
         int[] sqlTypes = pair.getKey();
         String[] columns = pair.getValue();
+        int count = columns.length;
 
         if (writer instanceof QueryeerOutputWriter qwriter)
         {
@@ -497,93 +679,128 @@ private int writeResultSet(IQueryFile queryFile, Connection connection, JdbcEngi
                     );
             //@formatter:on
 
-            qwriter.initResult(columns, metaData);
+            Class<?>[] columnTypes = new Class<?>[count];
+            for (int i = 0; i < count; i++)
+            {
+                columnTypes[i] = jdbcDialect.getJdbcValueType(sqlTypes[i]);
+            }
+
+            qwriter.initResult(columns, columnTypes, metaData);
         }
         else
         {
             writer.initResult(columns);
         }
-        int count = columns.length;
         boolean first = true;
 
-        while (rs.next())
+        // Queryeer writers get rows in column major batches that are written on a separate thread
+        // to let fetching from the network overlap with ingestion in the output
+        QueryeerOutputWriter batchWriter = writer instanceof QueryeerOutputWriter qw ? qw
+                : null;
+        FetchPipeline pipeline = null;
+        FetchPipeline.RowFiller filler = (values, row) ->
         {
-            if (state != null
-                    && state.isAbort())
-            {
-                LOGGER.debug("Aborting query due to abort in state");
-                break;
-            }
-
-            if (first)
+            boolean sample = fetchSize.isSampleRow();
+            for (int i = 0; i < count; i++)
             {
-                if (!jdbcDialect.processResultSet(queryFile, engineState, rs))
+                Object value = jdbcDialect.getJdbcValue(rs, i + 1, sqlTypes[i]);
+                values[i][row] = value;
+                if (sample)
                 {
-                    LOGGER.debug("Aborting query due to jdbcDialect#processResultSet returned false");
-                    return 0;
+                    fetchSize.sample(value);
                 }
-                first = false;
             }
-
-            writer.startRow();
-
-            writer.startObject();
-            for (int i = 0; i < count; i++)
+            if (sample)
             {
-                writer.writeFieldName(columns[i]);
-                writer.writeValue(jdbcDialect.getJdbcValue(rs, i + 1, sqlTypes[i]));
+                fetchSize.endSample();
             }
-            writer.endObject();
+        };
 
-            writer.endRow();
-
-            rowCount++;
-        }
+        try
+        {
+            fetchSize.init(rs);
+            while (fetchSize.next(rs))
+            {
+                if (state != null
+                        && state.isAbort())
+                {
+                    LOGGER.debug("Aborting query due to abort in state");
+                    break;
+                }
+                if (maxRows > 0
+                        && rowCount >= maxRows)
+                {
+                    truncated.setTrue();
+                    break;
+                }
 
-        writer.endResult();
+                if (first)
+                {
+                    if (!jdbcDialect.processResultSet(queryFile, engineState, rs))
+                    {
+                        LOGGER.debug("Aborting query due to jdbcDialect#processResultSet returned false");
+                        return 0;
+                    }
+                    first = false;
+                }
 
-        return rowCount;
-    }
+                rowCount++;
 
-    private List<String> getBatches(JdbcDialect dialect, String query)
-    {
-        String delimiter = dialect.getBatchDelimiter();
-        if (isBlank(delimiter))
-        {
-            return singletonList(query);
-        }
+                if (batchWriter != null)
+                {
+                    if (pipeline == null)
+                    {
+                        pipeline = new FetchPipeline(batchWriter, columns, BATCH_SIZE, BATCH_MAX_NANOS, FetchPipeline.DEFAULT_CAPACITY, state::isAbort, EXECUTOR);
+                    }
+                    // Blocks when the output is behind
+                    pipeline.append(filler);
+                    continue;
+                }
 
-        String[] lines = query.split("\\r?\\n");
-        int count = lines.length;
-        List<String> batches = new ArrayList<>();
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < count; i++)
-        {
-            String line = lines[i];
+                writer.startRow();
 
-            // Batch delimiter found, add previous batch to result and start over
-            if (CI.startsWith(line, delimiter))
-            {
-                if (sb.length() > 0)
+                writer.startObject();
+                boolean sample = fetchSize.isSampleRow();
+                for (int i = 0; i < count; i++)
                 {
-                    batches.add(sb.toString());
+                    Object value = jdbcDialect.getJdbcValue(rs, i + 1, sqlTypes[i]);
+                    writer.writeFieldName(columns[i]);
+                    writer.writeValue(value);
+                    if (sample)
+                    {
+                        fetchSize.sample(value);
+                    }
+                }
+                if (sample)
+                {
+                    fetchSize.endSample();
                 }
+                writer.endObject();
 
-                sb.setLength(0);
-                continue;
+                writer.endRow();
             }
 
-            sb.append(line)
-                    .append(System.lineSeparator());
+            if (pipeline != null)
+            {
+                pipeline.finish();
+            }
         }
-
-        // Add last batch
-        if (sb.length() > 0)
+        finally
         {
-            batches.add(sb.toString());
+            if (pipeline != null)
+            {
+                pipeline.close();
+            }
         }
 
-        return batches;
+        writer.endResult();
+
+        return rowCount;
+    }
+
+    static List<String> getBatches(JdbcDialect dialect, String query)
+    {
+        return BatchSplitter.split(query, dialect.getBatchDelimiter());
     }
 
     Pair<int[], String[]> getColumnsMeta(ResultSet rs) throws SQLException
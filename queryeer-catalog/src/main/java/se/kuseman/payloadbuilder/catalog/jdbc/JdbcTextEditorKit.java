@@ -3,11 +3,17 @@
 import static java.util.Objects.requireNonNull;
 
 import java.awt.event.ActionEvent;
+import java.nio.file.Path;
 import java.util.List;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
+import com.queryeer.api.component.IDialogFactory;
+import com.queryeer.api.component.IDialogFactory.Format;
 import com.queryeer.api.editor.ITextEditorDocumentParser;
 import com.queryeer.api.editor.ITextEditorKit;
 import com.queryeer.api.event.ExecuteQueryEvent;
@@ -16,19 +22,33 @@
 import com.queryeer.api.service.IIconFactory;
 import com.queryeer.api.service.IIconFactory.Provider;
 
+import se.kuseman.payloadbuilder.catalog.jdbc.dialect.IParserProfiler;
+
 /** Text editor kit for jdbc query engines */
 class JdbcTextEditorKit implements ITextEditorKit
 {
     private final JdbcEngineState state;
     private final Action showEstimatedQueryPlanAction;
     private final Action includeQueryPlanAction;
+    private final Action previewAction;
+    private final Action fanOutAction;
+    private final Action scriptAction;
+    private final Action profileParserAction;
     private final IEventBus eventBus;
+    private final JdbcConnectionsModel connectionsModel;
+    private final IDialogFactory dialogFactory;
 
-    JdbcTextEditorKit(JdbcEngineState state, IIconFactory iconFactory, IEventBus eventBus)
+    JdbcTextEditorKit(JdbcEngineState state, IIconFactory iconFactory, IEventBus eventBus, JdbcConnectionsModel connectionsModel, IDialogFactory dialogFactory)
     {
         this.state = requireNonNull(state);
+        this.connectionsModel = requireNonNull(connectionsModel);
+        this.dialogFactory = requireNonNull(dialogFactory);
         this.showEstimatedQueryPlanAction = createShowEstimatedQueryPlanAction(iconFactory);
         this.includeQueryPlanAction = createIncludeQueryPlanAction(iconFactory);
+        this.previewAction = createPreviewAction(iconFactory);
+        this.fanOutAction = createFanOutAction(iconFactory);
+        this.scriptAction = createScriptAction(iconFactory);
+        this.profileParserAction = createProfileParserAction(iconFactory);
         this.eventBus = requireNonNull(eventBus);
 
         state.addChangeListener(this::updateActionStatuses);
@@ -45,6 +65,10 @@ void updateActionStatuses()
                 && state.connectionContext.getJdbcDialect()
                         .supportsShowEstimatedQueryPlanAction() ? true
                                 : false);
+
+        previewAction.setEnabled(state.connectionContext != null);
+        scriptAction.setEnabled(state.connectionContext != null);
+        profileParserAction.setEnabled(state.documentParser.currentParser instanceof IParserProfiler);
     }
 
     private Action createShowEstimatedQueryPlanAction(IIconFactory iconFactory)
@@ -94,6 +118,144 @@ public void actionPerformed(ActionEvent e)
         };
     }
 
+    private Action createPreviewAction(IIconFactory iconFactory)
+    {
+        return new AbstractAction("", iconFactory.getIcon(Provider.FONTAWESOME, "EYE"))
+        {
+            {
+                {
+                    putValue(com.queryeer.api.action.Constants.ACTION_SHOW_IN_TOOLBAR, true);
+                    putValue(com.queryeer.api.action.Constants.ACTION_TOGGLE, true);
+                    putValue(com.queryeer.api.action.Constants.ACTION_ORDER, 9);
+                    putValue(Action.SHORT_DESCRIPTION, "Preview (Fetch First " + JdbcQueryEngine.PREVIEW_ROWS + " Rows Only)");
+
+                    setEnabled(false);
+                }
+            }
+
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                state.preview = !state.preview;
+            }
+        };
+    }
+
+    private Action createFanOutAction(IIconFactory iconFactory)
+    {
+        return new AbstractAction("", iconFactory.getIcon(Provider.FONTAWESOME, "SITEMAP"))
+        {
+            {
+                {
+                    putValue(com.queryeer.api.action.Constants.ACTION_SHOW_IN_TOOLBAR, true);
+                    putValue(com.queryeer.api.action.Constants.ACTION_ORDER, 9);
+                    putValue(Action.SHORT_DESCRIPTION, "Fan Out (Execute Against Multiple Databases) ...");
+                }
+            }
+
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                FanOutTargetsDialog dialog = new FanOutTargetsDialog(connectionsModel, state.fanOutTargets, state.fanOutMerge);
+                if (dialog.showDialog())
+                {
+                    state.fanOutTargets = dialog.getSelectedTargets();
+                    state.fanOutMerge = dialog.isMerge();
+                    putValue(Action.SHORT_DESCRIPTION, state.fanOutTargets.isEmpty() ? "Fan Out (Execute Against Multiple Databases) ..."
+                            : "Fan Out: " + state.fanOutTargets.size() + " Target(s) ...");
+                }
+            }
+        };
+    }
+
+    private Action createScriptAction(IIconFactory iconFactory)
+    {
+        return new AbstractAction("", iconFactory.getIcon(Provider.FONTAWESOME, "FILE_CODE_O"))
+        {
+            {
+                {
+                    putValue(com.queryeer.api.action.Constants.ACTION_SHOW_IN_TOOLBAR, true);
+                    putValue(com.queryeer.api.action.Constants.ACTION_ORDER, 9);
+                    putValue(Action.SHORT_DESCRIPTION, "Execute Script From Disk ...");
+
+                    setEnabled(false);
+                }
+            }
+
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                JFileChooser fileChooser = new JFileChooser();
+                fileChooser.setDialogType(JFileChooser.OPEN_DIALOG);
+                fileChooser.setDialogTitle("Select Script");
+                fileChooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+                fileChooser.setMultiSelectionEnabled(false);
+                fileChooser.setFileFilter(new FileNameExtensionFilter("SQL Files", "sql"));
+                if (state.failedScriptFile != null)
+                {
+                    fileChooser.setSelectedFile(state.failedScriptFile.toFile());
+                }
+                if (fileChooser.showOpenDialog(null) != JFileChooser.APPROVE_OPTION)
+                {
+                    return;
+                }
+
+                Path script = fileChooser.getSelectedFile()
+                        .toPath()
+                        .toAbsolutePath();
+                int startBatch = 1;
+                if (script.equals(state.failedScriptFile))
+                {
+                    int result = JOptionPane.showConfirmDialog(null, "Last execution of this script stopped at batch " + state.failedScriptBatch + ". Resume from that batch?", "Resume Script",
+                            JOptionPane.YES_NO_CANCEL_OPTION);
+                    if (result == JOptionPane.CANCEL_OPTION
+                            || result == JOptionPane.CLOSED_OPTION)
+                    {
+                        return;
+                    }
+                    else if (result == JOptionPane.YES_OPTION)
+                    {
+                        startBatch = state.failedScriptBatch;
+                    }
+                }
+
+                eventBus.publish(new ExecuteQueryEvent(OutputType.TABLE, new ExecuteQueryContext(script, startBatch)));
+            }
+        };
+    }
+
+    private Action createProfileParserAction(IIconFactory iconFactory)
+    {
+        return new AbstractAction("", iconFactory.getIcon(Provider.FONTAWESOME, "TACHOMETER"))
+        {
+            {
+                {
+                    putValue(com.queryeer.api.action.Constants.ACTION_SHOW_IN_TOOLBAR, true);
+                    putValue(com.queryeer.api.action.Constants.ACTION_TOGGLE, true);
+                    putValue(com.queryeer.api.action.Constants.ACTION_ORDER, 9);
+                    putValue(Action.SHORT_DESCRIPTION, "Profile Parser Decisions (Debug)");
+
+                    setEnabled(false);
+                }
+            }
+
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                state.profileParser = !state.profileParser;
+                if (!(state.documentParser.currentParser instanceof IParserProfiler profiler))
+                {
+                    return;
+                }
+                if (!state.profileParser)
+                {
+                    dialogFactory.showValueDialog("Parser Statistics", profiler.getParseStatistics(), Format.JSON);
+                }
+                profiler.setProfiling(state.profileParser);
+            }
+        };
+    }
+
     @Override
     public String getSyntaxMimeType()
     {
@@ -103,7 +265,7 @@ public String getSyntaxMimeType()
     @Override
     public List<Action> getActions()
     {
-        return List.of(includeQueryPlanAction, showEstimatedQueryPlanAction);
+        return List.of(includeQueryPlanAction, showEstimatedQueryPlanAction, previewAction, fanOutAction, scriptAction, profileParserAction);
     }
 
     @Override
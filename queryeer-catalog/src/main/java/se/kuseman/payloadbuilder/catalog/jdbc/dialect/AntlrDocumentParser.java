@@ -10,19 +10,28 @@
 import java.awt.event.ActionEvent;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.Icon;
 
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
@@ -32,7 +41,9 @@
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ErrorNode;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
@@ -42,6 +53,7 @@
 import org.slf4j.LoggerFactory;
 
 import com.queryeer.api.editor.ITextEditorDocumentParser;
+import com.queryeer.api.editor.ParserWarmup;
 import com.queryeer.api.event.ExecuteQueryEvent;
 import com.queryeer.api.extensions.output.table.TableTransferable;
 import com.queryeer.api.service.IEventBus;
@@ -69,7 +81,7 @@
 import se.kuseman.payloadbuilder.catalog.jdbc.model.TableSource;
 
 /** Parser for antlr based database implementations */
-abstract class AntlrDocumentParser<T extends ParserRuleContext> implements ITextEditorDocumentParser
+abstract class AntlrDocumentParser<T extends ParserRuleContext> implements ITextEditorDocumentParser, IParserProfiler
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(AntlrDocumentParser.class);
     private static final String TABLE_TEMPLATE = Common.readResource("/se/kuseman/payloadbuilder/catalog/jdbc/templates/Table.html");
@@ -77,6 +89,10 @@
     protected static final String FOREIGN_KEYS = "foreignKeys";
     protected static final String CONSTRAINTS = "constraints";
     protected static final String TABLE = "table";
+    /** Max number of token positions to collect completion candidates at during warm up */
+    private static final int MAX_WARMUP_POSITIONS = 400;
+    /** Set when the first completion of the session is done */
+    private static final AtomicBoolean FIRST_COMPLETION = new AtomicBoolean();
     private final IEventBus eventBus;
     private final QueryActionsConfigurable queryActionsConfigurable;
     protected final CatalogCrawlService crawlService;
@@ -127,6 +143,14 @@
      */
     protected final List<ParserRuleContext> statementContexts = new ArrayList<>();
 
+    /** Tokens of the last full parse. Used to find the changed statements on next parse. Null if next parse must be a full parse */
+    private List<Token> previousTokens;
+    /** Syntax errors reported by the parser on last parse */
+    private List<ParseItem> syntaxErrors = new ArrayList<>();
+    private final ParserStatistics statistics = new ParserStatistics();
+    /** Collect decision profiling of the parser. Set from EDT read on the parse thread */
+    private volatile boolean profiling;
+
     protected abstract Lexer createLexer(CharStream charStream);
 
     protected abstract Parser createParser(TokenStream tokenStream);
@@ -136,7 +160,13 @@
     @Override
     public void parse(Reader documentReader)
     {
-        parseInternal(documentReader, true);
+        parseInternal(documentReader, true, () -> false);
+    }
+
+    @Override
+    public void parse(Reader documentReader, BooleanSupplier cancelled)
+    {
+        parseInternal(documentReader, true, cancelled);
     }
 
     /**
@@ -145,41 +175,97 @@ public void parse(Reader documentReader)
      */
     void parseLight(Reader documentReader)
     {
-        parseInternal(documentReader, false);
+        parseInternal(documentReader, false, () -> false);
     }
 
-    private void parseInternal(Reader documentReader, boolean full)
+    /**
+     * Parse provided document and collect completion candidates at a sample of its tokens. Fills the grammar level prediction and follow set caches that are shared between all parser instances.
+     *
+     * @return Number of positions where candidates were collected
+     */
+    int warmUp(String document)
+    {
+        parseLight(new StringReader(document));
+        statementContexts.clear();
+        if (getStatementRuleIndex() >= 0)
+        {
+            collectStatementContexts(context);
+        }
+        CodeCompletionCore warmupCore = new CodeCompletionCore(parser, getCodeCompleteRuleIndices(), Set.of());
+        List<? extends Token> tokens = ((CommonTokenStream) parser.getInputStream()).getTokens();
+        return ParserWarmup.collectSample(tokens.size(), MAX_WARMUP_POSITIONS, i ->
+        {
+            Token token = tokens.get(i);
+            if (token.getChannel() != Token.DEFAULT_CHANNEL
+                    || token.getType() == Token.EOF)
+            {
+                return false;
+            }
+            warmupCore.collectCandidates(i, findNearestPrecedingStatementCtx(token.getStartIndex()));
+            return true;
+        });
+    }
+
+    private void parseInternal(Reader documentReader, boolean full, BooleanSupplier cancelled)
     {
         parseResult.clear();
+        Parser previousParser = parser;
         try
         {
             CharStream charStream = CharStreams.fromReader(documentReader);
             Lexer lexer = createLexer(charStream);
             lexer.removeErrorListeners();
+            lexer.addErrorListener(new AntlrErrorListener(parseResult));
 
-            AntlrErrorListener errorListener = new AntlrErrorListener(parseResult);
-            lexer.addErrorListener(errorListener);
-
-            TokenStream tokenStream = new CommonTokenStream(lexer);
+            CancellableTokenStream tokenStream = new CancellableTokenStream(lexer, cancelled);
+            // Lex the whole document up front, lexing is cheap compared to parsing and the tokens are needed to find changed statements
+            tokenStream.fill();
 
             parser = createParser(tokenStream);
+            if (profiling)
+            {
+                parser.setProfile(true);
+            }
 
             parser.removeErrorListeners();
-            parser.addErrorListener(errorListener);
-
-            parser.setErrorHandler(new DefaultErrorStrategy()
-            {
-                @Override
-                protected Token singleTokenDeletion(Parser recognizer)
-                {
-                    return null;
-                }
 
-            });
+            parser.setErrorHandler(new RecoveringErrorStrategy());
 
             // TODO: index sql-clauses intervals
 
-            context = parse(parser);
+            long start = System.nanoTime();
+            StatementReparser.Result reparse = full ? tryReparse(tokenStream)
+                    : null;
+            if (reparse != null)
+            {
+                // Root is a copy of the previous root so it has the same type. Published together with the rest of the
+                // parse state by the parse generation below
+                @SuppressWarnings("unchecked")
+                T root = (T) reparse.root();
+                context = root;
+                syntaxErrors = StatementReparser.shift(syntaxErrors, reparse);
+            }
+            else
+            {
+                // The document is most likely still invalid while the user is typing so skip the SLL stage if last parse had errors
+                boolean sll = syntaxErrors.isEmpty();
+                List<ParseItem> errors = new ArrayList<>();
+                parser.reset();
+                parser.addErrorListener(new AntlrErrorListener(errors));
+                context = sll ? parseTwoStage(parser, this::parse)
+                        : parse(parser);
+                syntaxErrors = errors;
+            }
+            statistics.parsed(reparse != null, System.nanoTime() - start);
+            tokenStream.done();
+            if (profiling)
+            {
+                statistics.profiled(parser);
+            }
+            parseResult.addAll(syntaxErrors);
+            previousTokens = full ? tokenStream.getTokens()
+                    : null;
+
             if (full)
             {
                 // Reuse the CodeCompletionCore instance across re-parses to avoid reallocating
@@ -205,12 +291,104 @@ protected Token singleTokenDeletion(Parser recognizer)
                 parseGeneration++;
             }
         }
+        catch (CancellationException e)
+        {
+            // Aborted before the tree was touched, the tree, tokens and errors of the last parse still matches
+            // so keep them to let next parse be incremental
+            parser = previousParser;
+            statistics.aborted();
+            throw e;
+        }
         catch (IOException e)
         {
             throw new RuntimeException(e);
         }
     }
 
+    /** Re-parse only the statements touched since the previous parse. Returns null if a full parse is needed */
+    private StatementReparser.Result tryReparse(CommonTokenStream tokenStream)
+    {
+        if (previousTokens == null
+                || context == null
+                || getStatementRuleIndex() < 0
+                || statementContexts.isEmpty())
+        {
+            return null;
+        }
+        try
+        {
+            return StatementReparser.reparse(context, statementContexts, previousTokens, tokenStream, parser, p -> parseTwoStage(p, this::parseStatement));
+        }
+        catch (CancellationException e)
+        {
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            // Previous tree is never modified so a full parse can take over
+            LOGGER.debug("Error re-parsing statements, falling back to a full parse", e);
+            return null;
+        }
+    }
+
+    /**
+     * Parse provided rule from the parsers current position in two stages. First with SLL prediction and a bailing error strategy which is fast and succeeds for most valid input. If that fails the
+     * input is rewound and the rule is parsed again with full LL prediction and error recovery to get correct syntax errors.
+     */
+    private <R> R parseTwoStage(Parser parser, Function<Parser, R> rule)
+    {
+        TokenStream input = parser.getInputStream();
+        int index = input.index();
+        List<ANTLRErrorListener> listeners = new ArrayList<>(parser.getErrorListeners());
+        // Bail strategy reports the error before bailing, syntax errors are reported by the LL stage
+        parser.removeErrorListeners();
+        parser.getInterpreter()
+                .setPredictionMode(PredictionMode.SLL);
+        parser.setErrorHandler(new BailErrorStrategy());
+        try
+        {
+            R result = rule.apply(parser);
+            statistics.predicted(true);
+            return result;
+        }
+        catch (ParseCancellationException e)
+        {
+            statistics.predicted(false);
+        }
+        finally
+        {
+            listeners.forEach(parser::addErrorListener);
+            parser.getInterpreter()
+                    .setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(new RecoveringErrorStrategy());
+        }
+        parser.reset();
+        input.seek(index);
+        return rule.apply(parser);
+    }
+
+    @Override
+    public void setProfiling(boolean profiling)
+    {
+        if (profiling)
+        {
+            statistics.clearProfile();
+        }
+        this.profiling = profiling;
+    }
+
+    @Override
+    public boolean isProfiling()
+    {
+        return profiling;
+    }
+
+    @Override
+    public Map<String, Object> getParseStatistics()
+    {
+        return statistics.getStatistics();
+    }
+
     @Override
     public List<ParseItem> getParseResult()
     {
@@ -359,6 +537,15 @@ protected int getStatementRuleIndex()
         return -1;
     }
 
+    /**
+     * Parse a single statement with the rule of {@link #getStatementRuleIndex()} from the parsers current position. Enables incremental parsing where only the statements touched by an edit are
+     * re-parsed. Return {@code null} (default) to always do a full parse.
+     */
+    protected ParserRuleContext parseStatement(Parser parser)
+    {
+        return null;
+    }
+
     /**
      * Returns the ANTLR token type used as an explicit statement separator (e.g. SEMI), or {@code -1} if the grammar has no separator token. Used by {@link #findStatementContextByTokenScan}.
      */
@@ -566,8 +753,12 @@ protected final CompletionResult suggestFkJoinConditions(JoinOnContext joinCtx,
                 .filter(ta -> !ta.equals(rhs))
                 .collect(Collectors.toList());
 
+        // Only foreign keys where the rhs table is the constrained or referenced table can match
+        Set<ForeignKey> candidates = new LinkedHashSet<>(catalog.getForeignKeys(rhs.objectName()));
+        candidates.addAll(catalog.getReferencingForeignKeys(rhs.objectName()));
+
         List<CompletionItem> items = new ArrayList<>();
-        for (ForeignKey fk : catalog.getForeignKeys())
+        for (ForeignKey fk : candidates)
         {
             if (fk.getColumns()
                     .isEmpty())
@@ -814,6 +1005,24 @@ else if (isTableSourceContext(tokenOffset.tree())
 
     @Override
     public CompletionResult getCompletionItems(int offset)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            return getCompletionItemsInternal(offset);
+        }
+        finally
+        {
+            long nanos = System.nanoTime() - start;
+            statistics.completed(nanos);
+            if (FIRST_COMPLETION.compareAndSet(false, true))
+            {
+                LOGGER.info("Time to first completion: {} ms (parser warm up done: {})", TimeUnit.NANOSECONDS.toMillis(nanos), ParserWarmup.isDone());
+            }
+        }
+    }
+
+    private CompletionResult getCompletionItemsInternal(int offset)
     {
         // Cache findTokenFromOffset: the parse tree is stable for the lifetime of a parse generation,
         // so for the same (generation, offset) pair the result is deterministic. The full-tree DFS
@@ -1389,14 +1598,8 @@ public SignatureHint getSignatureHint(int offset)
             return null;
         }
 
-        final String schemaFinal = schema;
-        Routine routine = catalog.getRoutines()
+        Routine routine = catalog.findRoutines(schema, functionName)
                 .stream()
-                .filter(r -> r.getName()
-                        .equalsIgnoreCase(functionName)
-                        && (schemaFinal == null
-                                || r.getSchema()
-                                        .equalsIgnoreCase(schemaFinal)))
                 .findFirst()
                 .orElse(null);
 
@@ -1471,4 +1674,14 @@ record TableAlias(String alias, ObjectName objectName, List<String> extendedColu
         CHANGETABLE,
         BUILTIN
     }
+
+    /** Error strategy with error recovery that skips single token deletion */
+    private static class RecoveringErrorStrategy extends DefaultErrorStrategy
+    {
+        @Override
+        protected Token singleTokenDeletion(Parser recognizer)
+        {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,40 @@
+package se.kuseman.payloadbuilder.catalog.jdbc.dialect;
+
+import java.util.function.BooleanSupplier;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.TokenSource;
+
+import com.queryeer.api.editor.ParseCancellation;
+
+/** Token stream that aborts lexing and parsing with the {@link ParseCancellation} of a parse session */
+class CancellableTokenStream extends CommonTokenStream
+{
+    private final ParseCancellation cancellation;
+
+    CancellableTokenStream(TokenSource tokenSource, BooleanSupplier cancelled)
+    {
+        super(tokenSource);
+        this.cancellation = new ParseCancellation(cancelled);
+    }
+
+    /** Stop checking for cancellation */
+    void done()
+    {
+        cancellation.done();
+    }
+
+    @Override
+    protected int fetch(int n)
+    {
+        cancellation.fetched();
+        return super.fetch(n);
+    }
+
+    @Override
+    public void consume()
+    {
+        cancellation.consumed();
+        super.consume();
+    }
+}
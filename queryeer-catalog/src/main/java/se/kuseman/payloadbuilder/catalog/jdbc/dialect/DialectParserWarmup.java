@@ -0,0 +1,85 @@
+package se.kuseman.payloadbuilder.catalog.jdbc.dialect;
+
+import static java.util.Objects.requireNonNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import com.queryeer.api.editor.ITextEditorDocumentParser;
+import com.queryeer.api.editor.ParserWarmup;
+
+import se.kuseman.payloadbuilder.catalog.Common;
+import se.kuseman.payloadbuilder.catalog.jdbc.IConnectionContext;
+import se.kuseman.payloadbuilder.catalog.jdbc.JdbcConnection;
+
+/** Warms up the dialect grammars in the background at plugin load, see {@link ParserWarmup} */
+class DialectParserWarmup
+{
+    private DialectParserWarmup()
+    {
+    }
+
+    /** Submit warm up of provided grammars */
+    static void start(List<Grammar> grammars)
+    {
+        for (Grammar grammar : grammars)
+        {
+            ParserWarmup.submit(grammar.name, () ->
+            {
+                ITextEditorDocumentParser parser = grammar.dialect.getParser(new WarmupConnectionContext(grammar.dialect));
+                if (!(parser instanceof AntlrDocumentParser<?> antlrParser))
+                {
+                    return 0;
+                }
+                return antlrParser.warmUp(Common.readResource(grammar.corpusResource));
+            });
+        }
+    }
+
+    /** A grammar to warm up */
+    record Grammar(String name, String corpusResource, JdbcDialect dialect)
+    {
+        Grammar
+        {
+            requireNonNull(name, "name");
+            requireNonNull(corpusResource, "corpusResource");
+            requireNonNull(dialect, "dialect");
+        }
+    }
+
+    /** Connection context used during warm up. Has no connection so nothing is crawled */
+    private static class WarmupConnectionContext implements IConnectionContext
+    {
+        private final JdbcDialect dialect;
+
+        WarmupConnectionContext(JdbcDialect dialect)
+        {
+            this.dialect = dialect;
+        }
+
+        @Override
+        public String getDatabase()
+        {
+            return "";
+        }
+
+        @Override
+        public JdbcDialect getJdbcDialect()
+        {
+            return dialect;
+        }
+
+        @Override
+        public JdbcConnection getJdbcConnection()
+        {
+            return null;
+        }
+
+        @Override
+        public Connection createConnection() throws SQLException
+        {
+            throw new SQLException("No connection during parser warm up");
+        }
+    }
+}
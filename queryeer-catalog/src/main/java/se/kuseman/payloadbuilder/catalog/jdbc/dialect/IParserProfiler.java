@@ -0,0 +1,16 @@
+package se.kuseman.payloadbuilder.catalog.jdbc.dialect;
+
+import java.util.Map;
+
+/** Definition of a document parser that collects parse statistics and optionally ANTLR decision profiling */
+public interface IParserProfiler
+{
+    /** Enable/disable decision profiling. Profiling slows down parsing considerably and should only be used for debugging the grammar */
+    void setProfiling(boolean profiling);
+
+    /** Return true if decision profiling is enabled */
+    boolean isProfiling();
+
+    /** Return parse statistics along with the worst decisions if profiling is enabled */
+    Map<String, Object> getParseStatistics();
+}
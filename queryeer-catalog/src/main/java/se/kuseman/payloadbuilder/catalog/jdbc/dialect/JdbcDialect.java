@@ -78,6 +78,15 @@ default boolean isValid(Connection connection) throws SQLException
                 && connection.isValid(1);
     }
 
+    /**
+     * Restore server side session state of a pooled connection before it is handed to the next borrower. Called after the pool has rolled back any JDBC transaction and restored catalog and
+     * schema. Return false if the session cannot be restored and the connection should be discarded instead.
+     */
+    default boolean resetPooledConnection(Connection connection) throws SQLException
+    {
+        return true;
+    }
+
     /**
      * Create connection with provided url and credentials.
      *
@@ -182,6 +191,15 @@ default Catalog getCatalog(IConnectionContext connectionContext, String database
         return null;
     }
 
+    /**
+     * Return catalog meta data for provided database by applying changes since provided previous catalog. Returns previous if nothing has changed and null if delta is not supported in which case a
+     * full {@link #getCatalog(IConnectionContext, String)} is performed.
+     */
+    default Catalog getCatalogDelta(IConnectionContext connectionContext, String database, Catalog previous)
+    {
+        return null;
+    }
+
     /** Called before query execution to let dialect perform init. operations like include query plans etc. */
     default void beforeExecuteQuery(Connection connection, IJdbcEngineState engineState) throws SQLException
     {
@@ -198,6 +216,22 @@ default boolean processResultSet(IQueryFile queryFile, IJdbcEngineState engineSt
         return true;
     }
 
+    /**
+     * Returns the fetch size used for the first round trip of a query result. The fetch size then grows adaptively up to {@link #getMaxFetchSize()}. Return 0 to keep the drivers default fetch size.
+     */
+    default int getInitialFetchSize()
+    {
+        return 100;
+    }
+
+    /**
+     * Returns the max fetch size of a query result.
+     */
+    default int getMaxFetchSize()
+    {
+        return 10_000;
+    }
+
     /**
      * Returns true if this database supports show estimated query plan action.
      */
@@ -222,6 +256,24 @@ default IServerMonitorExtension getMonitorExtension()
         return null;
     }
 
+    /**
+     * Returns the java type of the values returned by {@link #getJdbcValue(ResultSet, int, int)} for provided jdbc type. Used as a hint for outputs to allocate typed storage.
+     *
+     * @return Type or null if unknown
+     */
+    default Class<?> getJdbcValueType(int jdbcType)
+    {
+        return switch (jdbcType)
+        {
+            case java.sql.Types.INTEGER -> Integer.class;
+            case java.sql.Types.BIGINT -> Long.class;
+            case java.sql.Types.DOUBLE, java.sql.Types.FLOAT -> Double.class;
+            case java.sql.Types.BIT, java.sql.Types.BOOLEAN -> Boolean.class;
+            case java.sql.Types.TIMESTAMP -> java.sql.Timestamp.class;
+            default -> null;
+        };
+    }
+
     /**
      * Returns a value for a result set ordinal.
      */
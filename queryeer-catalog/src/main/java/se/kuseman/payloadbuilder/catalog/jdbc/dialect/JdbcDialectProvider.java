@@ -2,6 +2,8 @@
 
 import static org.apache.commons.lang3.Strings.CI;
 
+import java.util.List;
+
 import com.queryeer.api.extensions.Inject;
 import com.queryeer.api.extensions.output.queryplan.IQueryPlanOutputExtension;
 import com.queryeer.api.service.IEventBus;
@@ -24,6 +26,8 @@ public JdbcDialectProvider(CatalogCrawlService crawlService, IEventBus eventBus,
         sqlServer = new SqlServerJdbcDialect(crawlService, eventBus, icons, queryActionsConfigurable, templateService, queryPlanOutputExtension, treeConfig);
         jdbc = new BaseDialect(icons, crawlService, eventBus, queryActionsConfigurable, templateService, treeConfig);
         oracle = new OracleJdbcDialect(icons, crawlService, eventBus, queryActionsConfigurable, templateService, treeConfig);
+        DialectParserWarmup.start(List.of(new DialectParserWarmup.Grammar("T-SQL", "/se/kuseman/payloadbuilder/catalog/jdbc/dialect/WARMUP_TSQL.sql", sqlServer),
+                new DialectParserWarmup.Grammar("Presto", "/se/kuseman/payloadbuilder/catalog/jdbc/dialect/WARMUP_PRESTO.sql", jdbc)));
     }
 
     /** Return a {@link JdbcDialect} from provided {@link SqlDialect} */
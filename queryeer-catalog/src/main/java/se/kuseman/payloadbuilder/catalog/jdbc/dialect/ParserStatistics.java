@@ -0,0 +1,175 @@
+package se.kuseman.payloadbuilder.catalog.jdbc.dialect;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+import org.antlr.v4.runtime.atn.ParseInfo;
+
+/** Statistics of a document parser. Counts parses per prediction stage, times completions and aggregates ANTLR decision profiling across parses */
+class ParserStatistics
+{
+    /** Number of decisions to include in report */
+    private static final int TOP_DECISIONS = 25;
+
+    private long fullParses;
+    private long incrementalParses;
+    private long sllParses;
+    private long llFallbacks;
+    private long aborted;
+    private long totalParseNanos;
+    private long maxParseNanos;
+    private long lastParseNanos;
+    private long completions;
+    private long firstCompletionNanos;
+    private long maxCompletionNanos;
+    private long lastCompletionNanos;
+    private final Map<Integer, Decision> decisions = new HashMap<>();
+
+    synchronized void parsed(boolean incremental, long nanos)
+    {
+        if (incremental)
+        {
+            incrementalParses++;
+        }
+        else
+        {
+            fullParses++;
+        }
+        totalParseNanos += nanos;
+        maxParseNanos = Math.max(maxParseNanos, nanos);
+        lastParseNanos = nanos;
+    }
+
+    synchronized void completed(long nanos)
+    {
+        if (completions == 0)
+        {
+            firstCompletionNanos = nanos;
+        }
+        completions++;
+        maxCompletionNanos = Math.max(maxCompletionNanos, nanos);
+        lastCompletionNanos = nanos;
+    }
+
+    synchronized void aborted()
+    {
+        aborted++;
+    }
+
+    /** Called when a rule invocation was parsed with SLL prediction or needed to fall back to LL */
+    synchronized void predicted(boolean sll)
+    {
+        if (sll)
+        {
+            sllParses++;
+        }
+        else
+        {
+            llFallbacks++;
+        }
+    }
+
+    /** Aggregate decision info of a profiling parser */
+    synchronized void profiled(Parser parser)
+    {
+        ParseInfo parseInfo = parser.getParseInfo();
+        if (parseInfo == null)
+        {
+            return;
+        }
+        String[] ruleNames = parser.getRuleNames();
+        for (DecisionInfo info : parseInfo.getDecisionInfo())
+        {
+            if (info.invocations == 0)
+            {
+                continue;
+            }
+            Decision decision = decisions.computeIfAbsent(info.decision, k -> new Decision(ruleNames[parser.getATN()
+                    .getDecisionState(k).ruleIndex]));
+            decision.invocations += info.invocations;
+            decision.timeInPrediction += info.timeInPrediction;
+            decision.sllTotalLook += info.SLL_TotalLook;
+            decision.sllMaxLook = Math.max(decision.sllMaxLook, info.SLL_MaxLook);
+            decision.llFallback += info.LL_Fallback;
+            decision.llTotalLook += info.LL_TotalLook;
+            decision.llMaxLook = Math.max(decision.llMaxLook, info.LL_MaxLook);
+            decision.ambiguities += info.ambiguities.size();
+            decision.errors += info.errors.size();
+        }
+    }
+
+    synchronized void clearProfile()
+    {
+        decisions.clear();
+    }
+
+    synchronized Map<String, Object> getStatistics()
+    {
+        long parses = fullParses + incrementalParses;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("Full Parses", fullParses);
+        result.put("Incremental Parses", incrementalParses);
+        result.put("SLL Parses", sllParses);
+        result.put("LL Fallbacks", llFallbacks);
+        result.put("Aborted", aborted);
+        result.put("Avg Parse (ms)", parses > 0 ? totalParseNanos / parses / 1_000_000
+                : 0);
+        result.put("Max Parse (ms)", maxParseNanos / 1_000_000);
+        result.put("Last Parse (ms)", lastParseNanos / 1_000_000);
+        result.put("Completions", completions);
+        result.put("First Completion (ms)", firstCompletionNanos / 1_000_000);
+        result.put("Max Completion (ms)", maxCompletionNanos / 1_000_000);
+        result.put("Last Completion (ms)", lastCompletionNanos / 1_000_000);
+        if (!decisions.isEmpty())
+        {
+            List<Map.Entry<Integer, Decision>> entries = new ArrayList<>(decisions.entrySet());
+            entries.sort(Comparator.comparingLong((Map.Entry<Integer, Decision> e) -> e.getValue().timeInPrediction)
+                    .reversed());
+            List<Map<String, Object>> worst = new ArrayList<>(TOP_DECISIONS);
+            for (Map.Entry<Integer, Decision> entry : entries.subList(0, Math.min(TOP_DECISIONS, entries.size())))
+            {
+                Decision decision = entry.getValue();
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("Decision", entry.getKey());
+                item.put("Rule", decision.rule);
+                item.put("Invocations", decision.invocations);
+                item.put("Time In Prediction (ms)", decision.timeInPrediction / 1_000_000);
+                item.put("SLL Total Look", decision.sllTotalLook);
+                item.put("SLL Max Look", decision.sllMaxLook);
+                item.put("LL Fallback", decision.llFallback);
+                item.put("LL Total Look", decision.llTotalLook);
+                item.put("LL Max Look", decision.llMaxLook);
+                item.put("Ambiguities", decision.ambiguities);
+                item.put("Errors", decision.errors);
+                worst.add(item);
+            }
+            result.put("Decisions", worst);
+        }
+        return result;
+    }
+
+    private static class Decision
+    {
+        private final String rule;
+        private long invocations;
+        private long timeInPrediction;
+        private long sllTotalLook;
+        private long sllMaxLook;
+        private long llFallback;
+        private long llTotalLook;
+        private long llMaxLook;
+        private long ambiguities;
+        private long errors;
+
+        Decision(String rule)
+        {
+            this.rule = rule;
+        }
+    }
+}
@@ -135,17 +135,12 @@ protected Map<String, Object> getTableSourceTooltipModel(ObjectName name)
             return null;
         }
 
-        TableSource table = catalog.getTableSources()
-                .stream()
-                .filter(t -> name.getName()
-                        .equalsIgnoreCase(t.getName()))
-                .findAny()
-                .orElse(null);
-        if (table == null)
+        List<TableSource> tables = catalog.findTableSources(null, name.getName());
+        if (tables.isEmpty())
         {
             return null;
         }
 
-        return Map.of(TABLE, table);
+        return Map.of(TABLE, tables.get(0));
     }
 }
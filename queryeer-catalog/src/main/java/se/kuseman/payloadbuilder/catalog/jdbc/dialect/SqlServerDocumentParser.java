@@ -4,7 +4,6 @@
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang3.StringUtils.isBlank;
-import static org.apache.commons.lang3.Strings.CI;
 
 import java.awt.Color;
 import java.util.ArrayDeque;
@@ -17,7 +16,6 @@
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.function.Predicate;
 
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
@@ -257,6 +255,12 @@ private static SignatureParam p(String name, String type)
     private int cachedMiniParseCaretOffset = -1;
     private ParseTree cachedMiniParseResult = null;
 
+    // Completion items built from a catalog. Catalogs are immutable so items are reused until the catalog is refreshed.
+    private Catalog cachedTableSourceItemsCatalog;
+    private List<CompletionItem> cachedTableSourceItems;
+    private Catalog cachedProcedureItemsCatalog;
+    private List<CompletionItem> cachedProcedureItems;
+
     SqlServerDocumentParser(Icons icons, IEventBus eventBus, QueryActionsConfigurable queryActionsConfigurable, CatalogCrawlService catalogCrawler, IConnectionContext connectionContext,
             ITemplateService templateService)
     {
@@ -287,6 +291,12 @@ protected int getStatementRuleIndex()
         return TSqlParser.RULE_sql_clauses;
     }
 
+    @Override
+    protected ParserRuleContext parseStatement(Parser parser)
+    {
+        return ((TSqlParser) parser).sql_clauses();
+    }
+
     @Override
     protected int getStatementSeparatorTokenType()
     {
@@ -503,35 +513,16 @@ protected Map<String, Object> getTableSourceTooltipModel(ObjectName name)
             return null;
         }
 
-        Predicate<ObjectName> objectNameFilter = t -> (isBlank(name.getSchema())
-                || name.getSchema()
-                        .equalsIgnoreCase(t.getSchema()))
-                && t.getName()
-                        .equalsIgnoreCase(name.getName());
-
-        TableSource table = catalog.getTableSources()
-                .stream()
-                .filter(objectNameFilter)
-                .findAny()
-                .orElse(null);
-
-        if (table == null)
+        List<TableSource> tables = catalog.findTableSources(name.getSchema(), name.getName());
+        if (tables.isEmpty())
         {
             return null;
         }
 
-        List<Constraint> constraints = catalog.getConstraints()
-                .stream()
-                .filter(c -> objectNameFilter.test(c.getObjectName()))
-                .collect(toList());
-        List<ForeignKey> foreignKeys = catalog.getForeignKeys()
-                .stream()
-                .filter(fk -> objectNameFilter.test(fk.getObjectName()))
-                .collect(toList());
-        List<Index> indices = catalog.getIndices()
-                .stream()
-                .filter(i -> objectNameFilter.test(i.getObjectName()))
-                .collect(toList());
+        TableSource table = tables.get(0);
+        List<Constraint> constraints = catalog.getConstraints(table);
+        List<ForeignKey> foreignKeys = catalog.getForeignKeys(table);
+        List<Index> indices = catalog.getIndices(table);
 
         return Map.of(TABLE, table, CONSTRAINTS, constraints, FOREIGN_KEYS, foreignKeys, INDICES, indices);
     }
@@ -908,12 +899,9 @@ private CompletionResult suggestProcedureParameters(Execute_bodyContext execBody
         String name = procRef.getValue()
                 .getName();
 
-        Routine routine = catalog.getRoutines()
+        Routine routine = catalog.findRoutines(schema, name)
                 .stream()
-                .filter(r -> r.getType() == Routine.Type.PROCEDURE
-                        && CI.equals(r.getName(), name)
-                        && (isBlank(schema)
-                                || CI.equals(r.getSchema(), schema)))
+                .filter(r -> r.getType() == Routine.Type.PROCEDURE)
                 .findFirst()
                 .orElse(null);
 
@@ -1149,18 +1137,8 @@ protected CompletionResult suggestColumns(ParseTree node)
                 String name = ta.objectName()
                         .getName();
 
-                for (TableSource ts : catalog.getTableSources())
+                for (TableSource ts : catalog.findTableSources(schema, name))
                 {
-                    if (!isBlank(schema)
-                            && !CI.equals(schema, ts.getSchema()))
-                    {
-                        continue;
-                    }
-                    else if (!CI.equals(name, ts.getName()))
-                    {
-                        continue;
-                    }
-
                     for (Column c : ts.getColumns())
                     {
                         if (onlyPrimaryKey
@@ -1253,10 +1231,15 @@ protected CompletionResult suggestTableSources()
         boolean partialResult = false;
         if (catalog != null)
         {
-            result.addAll(catalog.getTableSources()
-                    .stream()
-                    .map(ts -> new CompletionItem(List.of(ts.getSchema(), ts.getName()), ts.getSchema() + "." + ts.getName(), null, null, icons.table, 0))
-                    .collect(toList()));
+            if (cachedTableSourceItemsCatalog != catalog)
+            {
+                cachedTableSourceItems = catalog.getTableSources()
+                        .stream()
+                        .map(ts -> new CompletionItem(List.of(ts.getSchema(), ts.getName()), ts.getSchema() + "." + ts.getName(), null, null, icons.table, 0))
+                        .collect(toList());
+                cachedTableSourceItemsCatalog = catalog;
+            }
+            result.addAll(cachedTableSourceItems);
         }
         else
         {
@@ -1395,11 +1378,16 @@ protected CompletionResult getC3CompletionItems(CandidatesCollection candidates,
             {
                 return null;
             }
-            return new CompletionResult(catalog.getRoutines()
-                    .stream()
-                    .filter(r -> r.getType() == Routine.Type.PROCEDURE)
-                    .map(r -> new CompletionItem(List.of(r.getSchema(), r.getName()), r.getSchema() + "." + r.getName(), null, null, icons.wpformsIcon, 0))
-                    .collect(toList()), false);
+            if (cachedProcedureItemsCatalog != catalog)
+            {
+                cachedProcedureItems = catalog.getRoutines()
+                        .stream()
+                        .filter(r -> r.getType() == Routine.Type.PROCEDURE)
+                        .map(r -> new CompletionItem(List.of(r.getSchema(), r.getName()), r.getSchema() + "." + r.getName(), null, null, icons.wpformsIcon, 0))
+                        .collect(toList());
+                cachedProcedureItemsCatalog = catalog;
+            }
+            return new CompletionResult(cachedProcedureItems, false);
         }
         if (candidates.rules.containsKey(TSqlParser.RULE_expression)
                 || candidates.rules.containsKey(TSqlParser.RULE_search_condition)
@@ -1833,12 +1821,8 @@ else if (ctx.server == null)
                 Catalog catalog = crawlService.getCatalog(connectionContext, database);
 
                 if (catalog != null
-                        && catalog.getTableSources()
-                                .stream()
-                                .noneMatch(t -> ("".equals(schema)
-                                        || schema.equalsIgnoreCase(t.getSchema()))
-                                        && t.getName()
-                                                .equalsIgnoreCase(table)))
+                        && catalog.findTableSources(schema, table)
+                                .isEmpty())
                 {
                     parseResult.add(new ParseItem("Missing table '" + table + "'", line, start, length, null, ParseItem.Level.ERROR));
                 }
@@ -12,8 +12,10 @@
 import java.sql.Statement;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.BiFunction;
 
 import org.apache.commons.lang3.time.DurationFormatUtils;
@@ -53,7 +55,22 @@
 class SqlServerJdbcDialect implements JdbcDialect
 {
     private static final String META_DATA_QUERY = Common.readResource("/se/kuseman/payloadbuilder/catalog/jdbc/dialect/SQL_SERVER_CATALOG_QUERY.sql");
+    private static final String META_DATA_DELTA_QUERY = Common.readResource("/se/kuseman/payloadbuilder/catalog/jdbc/dialect/SQL_SERVER_CATALOG_DELTA_QUERY.sql");
+    /** Version of the catalog. Last modification time of the user objects along with the object count to detect drops */
+    private static final String CATALOG_VERSION_QUERY = "SELECT ISNULL(CONVERT(VARCHAR(23), MAX(modify_date), 126), '') + '|' + CAST(COUNT(*) AS VARCHAR(20)) FROM sys.objects";
 
+    /** Rolls back open server side transactions and restores session options of a pooled connection */
+    //@formatter:off
+    private static final String RESET_POOLED_CONNECTION =
+        "IF @@TRANCOUNT > 0 ROLLBACK TRAN; " +
+        "SET IMPLICIT_TRANSACTIONS OFF; " +
+        "SET XACT_ABORT OFF; " +
+        "SET NOCOUNT OFF; " +
+        "SET TRANSACTION ISOLATION LEVEL READ COMMITTED; " +
+        "SET STATISTICS XML OFF; " +
+        "SET STATISTICS IO OFF; " +
+        "SET STATISTICS TIME OFF";
+    //@formatter:on
     static final String NAME = "sqlserver";
     private static final Logger LOGGER = LoggerFactory.getLogger(SqlServerJdbcDialect.class);
     private final CatalogCrawlService crawlerService;
@@ -119,6 +136,18 @@ public String getSessionId(Connection connection)
         return "";
     }
 
+    @Override
+    public boolean resetPooledConnection(Connection connection) throws SQLException
+    {
+        // An explicit BEGIN TRAN is not visible to JDBC when auto commit is on so roll back on the server and restore the session options
+        // that are commonly changed. Temp tables cannot be detected reliably so borrowers that run arbitrary SQL should use a physical connection.
+        try (Statement stm = connection.createStatement())
+        {
+            stm.execute(RESET_POOLED_CONNECTION);
+        }
+        return true;
+    }
+
     @Override
     public boolean handleSQLException(IQueryFile queryFile, ITextOutputComponent textOutput, SQLException e)
     {
@@ -187,125 +216,68 @@ public Map<String, String> getRoutineBodies(IConnectionContext connectionContext
     @Override
     public Catalog getCatalog(IConnectionContext connectionContext, String database)
     {
-        try (Connection con = connectionContext.createConnection(); PreparedStatement stm = con.prepareStatement(META_DATA_QUERY))
+        try (Connection con = connectionContext.createConnection())
         {
             // CSOFF
             LOGGER.info("Fetching catalog metadata for: " + database);
             long time = System.currentTimeMillis();
             // CSON
             con.setCatalog(database);
-            stm.execute();
+            String version = getCatalogVersion(con);
+            try (PreparedStatement stm = con.prepareStatement(META_DATA_QUERY))
+            {
+                stm.execute();
+                Catalog catalog = readCatalog(stm, database, version);
+                LOGGER.info("Fetched metadata for " + database + " in: " + DurationFormatUtils.formatDurationHMS(System.currentTimeMillis() - time));
+                return catalog;
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
 
-            // CSOFF
-            //@formatter:off
-            List<TableSource> tableSources = map(stm,
-              rs -> new TableSource(
-                      rs.getString("objectCatalog"),
-                      rs.getString("objectSchema"),
-                      rs.getString("objectName"),
-                      tableSourceTypeFrom(rs.getString("objectType")),
-                      emptyList())
-            , rs -> 
-                    new Column(
-                      rs.getString("columnName"),
-                      rs.getString("columnType"),
-                      rs.getInt("columnMaxLength"),
-                      rs.getInt("columnPrecision"),
-                      rs.getInt("columnScale"),
-                      rs.getBoolean("columnNullable"),
-                      rs.getString("primaryKeyName"))
-            , (p, c) -> new TableSource(p.getCatalog(), p.getSchema(), p.getName(), p.getType(), c));
-            //@formatter:on
-
-            stm.getMoreResults();
-
-            //@formatter:off
-            List<Routine> routines = map(stm,
-              rs -> new Routine(
-                      rs.getString("objectCatalog"),
-                      rs.getString("objectSchema"),
-                      rs.getString("objectName"),
-                      "P".equalsIgnoreCase(rs.getString("objectType")) ? Routine.Type.PROCEDURE
-                              : Routine.Type.FUNCTION,
-                      emptyList())
-            , rs -> 
-                    new RoutineParameter(
-                      rs.getString("parameterName"),
-                      rs.getString("parameterType"),
-                      rs.getInt("parameterMaxLength"),
-                      rs.getInt("parameterPrecision"),
-                      rs.getInt("parameterScale"),
-                      rs.getBoolean("parameterNullable"),
-                      rs.getBoolean("parameterOutput"))
-            , (p, c) -> new Routine(p.getCatalog(), p.getSchema(), p.getName(), p.getType(), c));
-            //@formatter:on
-
-            stm.getMoreResults();
-
-            //@formatter:off
-            List<Index> indices = map(stm,
-              rs -> new Index(
-                      new ObjectName(
-                          rs.getString("objectCatalog"),
-                          rs.getString("objectSchema"),
-                          rs.getString("objectName")),
-                      rs.getString("indexName"),
-                      rs.getBoolean("indexIsUnique"),
-                      emptyList())
-            , rs -> 
-                    new IndexColumn(
-                      rs.getString("columnName"),
-                      rs.getBoolean("columnDescending"))
-            , (p, c) -> new Index(p.getObjectName(), p.getIndexName(), p.isUnique(), c));
-            //@formatter:on
-
-            stm.getMoreResults();
-
-            //@formatter:off
-            List<ForeignKey> foreignKeys = map(stm,
-              rs -> new ForeignKey(
-                      new ObjectName(
-                          rs.getString("objectCatalog"),
-                          rs.getString("objectSchema"),
-                          rs.getString("objectName")),
-                      emptyList())
-            , rs -> 
-                    new ForeignKeyColumn(
-                      new ObjectName(
-                          rs.getString("constrainedObjectCatalog"),
-                          rs.getString("constrainedObjectSchema"),
-                          rs.getString("constrainedObjectName")
-                      ),
-                      rs.getString("constrainedColumn"),
-                      new ObjectName(
-                          rs.getString("referencedObjectCatalog"),
-                          rs.getString("referencedObjectSchema"),
-                          rs.getString("referencedObjectName")
-                      ),
-                      rs.getString("referencedColumn"))
-            , (p, c) -> new ForeignKey(p.getObjectName(), c));
-            //@formatter:on
-            // CSON
+    @Override
+    public Catalog getCatalogDelta(IConnectionContext connectionContext, String database, Catalog previous)
+    {
+        String previousVersion = previous.getVersion();
+        if (isBlank(previousVersion))
+        {
+            return null;
+        }
+        int index = previousVersion.indexOf('|');
+        String since = index > 0 ? previousVersion.substring(0, index)
+                : null;
+        if (since == null)
+        {
+            return null;
+        }
 
-            stm.getMoreResults();
-
-            //@formatter:off
-            List<Constraint> constraints = map(stm,
-              rs -> new Constraint(
-                      new ObjectName(
-                          rs.getString("objectCatalog"),
-                          rs.getString("objectSchema"),
-                          rs.getString("objectName")),
-                      rs.getString("name"),
-                      Constraint.Type.valueOf(rs.getString("type")),
-                      rs.getString("columnName"),
-                      rs.getString("definition"))
-            );
-            //@formatter:on
-            // CSON
+        try (Connection con = connectionContext.createConnection())
+        {
+            long time = System.currentTimeMillis();
+            con.setCatalog(database);
+            String version = getCatalogVersion(con);
+            if (previousVersion.equals(version))
+            {
+                return previous;
+            }
+
+            try (PreparedStatement stm = con.prepareStatement(META_DATA_DELTA_QUERY))
+            {
+                stm.setString(1, since);
+                moveToResultSet(stm, stm.execute());
 
-            LOGGER.info("Fetched metadata for " + database + " in: " + DurationFormatUtils.formatDurationHMS(System.currentTimeMillis() - time));
-            return new Catalog(database, tableSources, routines, indices, foreignKeys, constraints);
+                Set<ObjectName> changedObjects = new HashSet<>(map(stm, this::mapObjectName));
+                moveToResultSet(stm, stm.getMoreResults());
+                Catalog changes = readCatalog(stm, database, version);
+                moveToResultSet(stm, stm.getMoreResults());
+                Set<ObjectName> existingObjects = new HashSet<>(map(stm, this::mapObjectName));
+
+                LOGGER.info("Fetched metadata delta for " + database + " (" + changedObjects.size() + " changed object(s)) in: " + DurationFormatUtils.formatDurationHMS(System.currentTimeMillis() - time));
+                return previous.merge(changes, changedObjects, existingObjects, version);
+            }
         }
         catch (SQLException e)
         {
@@ -313,6 +285,148 @@ public Catalog getCatalog(IConnectionContext connectionContext, String database)
         }
     }
 
+    private String getCatalogVersion(Connection con) throws SQLException
+    {
+        try (Statement stm = con.createStatement(); ResultSet rs = stm.executeQuery(CATALOG_VERSION_QUERY))
+        {
+            return rs.next() ? rs.getString(1)
+                    : null;
+        }
+    }
+
+    private ObjectName mapObjectName(ResultSet rs) throws SQLException
+    {
+        return new ObjectName(rs.getString("objectCatalog"), rs.getString("objectSchema"), rs.getString("objectName"));
+    }
+
+    /** Skip update counts until statement is positioned on a result set */
+    private void moveToResultSet(Statement stm, boolean resultSet) throws SQLException
+    {
+        while (!resultSet
+                && stm.getUpdateCount() != -1)
+        {
+            resultSet = stm.getMoreResults();
+        }
+        if (!resultSet)
+        {
+            throw new SQLException("Expected a result set");
+        }
+    }
+
+    /** Read tables, routines, indices, foreign keys and constraints result sets. Statement should be positioned on the first result set. */
+    private Catalog readCatalog(Statement stm, String database, String version) throws SQLException
+    {
+        // CSOFF
+        //@formatter:off
+        List<TableSource> tableSources = map(stm,
+          rs -> new TableSource(
+                  rs.getString("objectCatalog"),
+                  rs.getString("objectSchema"),
+                  rs.getString("objectName"),
+                  tableSourceTypeFrom(rs.getString("objectType")),
+                  emptyList())
+        , rs -> 
+                new Column(
+                  rs.getString("columnName"),
+                  rs.getString("columnType"),
+                  rs.getInt("columnMaxLength"),
+                  rs.getInt("columnPrecision"),
+                  rs.getInt("columnScale"),
+                  rs.getBoolean("columnNullable"),
+                  rs.getString("primaryKeyName"))
+        , (p, c) -> new TableSource(p.getCatalog(), p.getSchema(), p.getName(), p.getType(), c));
+        //@formatter:on
+
+        moveToResultSet(stm, stm.getMoreResults());
+
+        //@formatter:off
+        List<Routine> routines = map(stm,
+          rs -> new Routine(
+                  rs.getString("objectCatalog"),
+                  rs.getString("objectSchema"),
+                  rs.getString("objectName"),
+                  "P".equalsIgnoreCase(rs.getString("objectType")) ? Routine.Type.PROCEDURE
+                          : Routine.Type.FUNCTION,
+                  emptyList())
+        , rs -> 
+                new RoutineParameter(
+                  rs.getString("parameterName"),
+                  rs.getString("parameterType"),
+                  rs.getInt("parameterMaxLength"),
+                  rs.getInt("parameterPrecision"),
+                  rs.getInt("parameterScale"),
+                  rs.getBoolean("parameterNullable"),
+                  rs.getBoolean("parameterOutput"))
+        , (p, c) -> new Routine(p.getCatalog(), p.getSchema(), p.getName(), p.getType(), c));
+        //@formatter:on
+
+        moveToResultSet(stm, stm.getMoreResults());
+
+        //@formatter:off
+        List<Index> indices = map(stm,
+          rs -> new Index(
+                  new ObjectName(
+                      rs.getString("objectCatalog"),
+                      rs.getString("objectSchema"),
+                      rs.getString("objectName")),
+                  rs.getString("indexName"),
+                  rs.getBoolean("indexIsUnique"),
+                  emptyList())
+        , rs -> 
+                new IndexColumn(
+                  rs.getString("columnName"),
+                  rs.getBoolean("columnDescending"))
+        , (p, c) -> new Index(p.getObjectName(), p.getIndexName(), p.isUnique(), c));
+        //@formatter:on
+
+        moveToResultSet(stm, stm.getMoreResults());
+
+        //@formatter:off
+        List<ForeignKey> foreignKeys = map(stm,
+          rs -> new ForeignKey(
+                  new ObjectName(
+                      rs.getString("objectCatalog"),
+                      rs.getString("objectSchema"),
+                      rs.getString("objectName")),
+                  emptyList())
+        , rs -> 
+                new ForeignKeyColumn(
+                  new ObjectName(
+                      rs.getString("constrainedObjectCatalog"),
+                      rs.getString("constrainedObjectSchema"),
+                      rs.getString("constrainedObjectName")
+                  ),
+                  rs.getString("constrainedColumn"),
+                  new ObjectName(
+                      rs.getString("referencedObjectCatalog"),
+                      rs.getString("referencedObjectSchema"),
+                      rs.getString("referencedObjectName")
+                  ),
+                  rs.getString("referencedColumn"))
+        , (p, c) -> new ForeignKey(p.getObjectName(), c));
+        //@formatter:on
+        // CSON
+
+        moveToResultSet(stm, stm.getMoreResults());
+
+        //@formatter:off
+        List<Constraint> constraints = map(stm,
+          rs -> new Constraint(
+                  new ObjectName(
+                      rs.getString("objectCatalog"),
+                      rs.getString("objectSchema"),
+                      rs.getString("objectName")),
+                  rs.getString("name"),
+                  Constraint.Type.valueOf(rs.getString("type")),
+                  rs.getString("columnName"),
+                  rs.getString("definition"))
+        );
+        //@formatter:on
+        // CSON
+
+        return new Catalog(database, tableSources, routines, indices, foreignKeys, constraints, version);
+    }
+
     @Override
     public void beforeExecuteQuery(Connection connection, IJdbcEngineState engineState) throws SQLException
     {
@@ -326,6 +440,13 @@ public void beforeExecuteQuery(Connection connection, IJdbcEngineState engineSta
         }
     }
 
+    @Override
+    public int getInitialFetchSize()
+    {
+        // Forward only read only results are streamed by the driver (firehose cursor) and fetch size has no effect
+        return 0;
+    }
+
     @Override
     public Connection createConnection(String url, String username, String password, boolean importMode) throws SQLException
     {
@@ -5,11 +5,15 @@
 
 import java.awt.event.ActionEvent;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.SwingUtilities;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
 import com.queryeer.api.IQueryFile;
 import com.queryeer.api.extensions.output.queryplan.IQueryPlanOutputComponent;
 import com.queryeer.api.extensions.output.queryplan.IQueryPlanOutputExtension;
@@ -22,6 +26,12 @@
 /** Tries to parse an XML cell in table to a query plan */
 class SqlServerQueryPlanActionFactory implements ITableContextMenuActionFactory
 {
+    /** Executor that parses plans off the EDT and the query thread. Single threaded to keep the plans in the order they were produced */
+    private static final ExecutorService PARSE_EXECUTOR = Executors.newSingleThreadExecutor(BasicThreadFactory.builder()
+            .daemon(true)
+            .namingPattern("SqlServerQueryPlanParser-#%d")
+            .build());
+
     private final IQueryFileProvider provider;
     private final IQueryPlanOutputExtension queryPlanOutputExtension;
 
@@ -83,9 +93,14 @@ static boolean isSqlServerQueryPlan(String value)
         return CI.startsWith(value, "<ShowPlanXML");
     }
 
+    /** Parse plan on a background thread and show it in the query files plan output */
     static void parseAndShowQueryPlan(IQueryFile queryFile, IQueryPlanOutputExtension queryPlanOutputExtension, String xml, boolean switchToQueryPlanOutput)
     {
-        List<Node> nodes = SqlServerQueryPlanParser.parseXml(xml);
+        PARSE_EXECUTOR.execute(() -> showQueryPlan(queryFile, queryPlanOutputExtension, SqlServerQueryPlanParser.parseXml(xml), switchToQueryPlanOutput));
+    }
+
+    private static void showQueryPlan(IQueryFile queryFile, IQueryPlanOutputExtension queryPlanOutputExtension, List<Node> nodes, boolean switchToQueryPlanOutput)
+    {
         if (nodes != null)
         {
             SwingUtilities.invokeLater(() ->
@@ -83,6 +83,7 @@
 import se.kuseman.payloadbuilder.catalog.jdbc.dialect.sqlserver.showplan2019.WarningsType;
 
 import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Unmarshaller;
 
 @SuppressWarnings("deprecation")
@@ -91,11 +92,15 @@
     private static final String WARNINGS = "Warnings";
     private static final Logger LOGGER = LoggerFactory.getLogger(SqlServerQueryPlanParser.class);
     private static final DecimalFormat TOOLTIP_DOUBLE_FORMAT = new DecimalFormat("##.########");
+    /**
+     * Unmarshaller reused between parses. Unmarshallers are not thread safe but parses are serialized on the single threaded parse executor of {@link SqlServerQueryPlanActionFactory} so one
+     * instance is enough.
+     */
+    private static Unmarshaller unmarshaller;
 
     /** Parse provided xml plan and return a query plan node structure. */
-    static List<Node> parseXml(String planXml)
+    static synchronized List<Node> parseXml(String planXml)
     {
-
         ClassLoader contextClassLoader = Thread.currentThread()
                 .getContextClassLoader();
         try
@@ -104,8 +109,10 @@ static List<Node> parseXml(String planXml)
             // from core
             Thread.currentThread()
                     .setContextClassLoader(ShowPlanXML.class.getClassLoader());
-            JAXBContext jc = JAXBContext.newInstance(ShowPlanXML.class);
-            Unmarshaller u = jc.createUnmarshaller();
+            if (unmarshaller == null)
+            {
+                unmarshaller = JAXBContextHolder.CONTEXT.createUnmarshaller();
+            }
 
             XMLReader xmlReader = SAXParserFactory.newInstance()
                     .newSAXParser()
@@ -116,7 +123,7 @@ static List<Node> parseXml(String planXml)
 
             InputSource is = new InputSource(new StringReader(planXml));
             SAXSource source = new SAXSource(inFilter, is);
-            ShowPlanXML o = (ShowPlanXML) u.unmarshal(source);
+            ShowPlanXML o = (ShowPlanXML) unmarshaller.unmarshal(source);
 
             // TODO: try to investigate when there are more than one batch/statement etc.
             List<BaseStmtInfoType> stmInfos = o.getBatchSequence()
@@ -132,9 +139,18 @@ static List<Node> parseXml(String planXml)
         }
         catch (Exception e)
         {
+            // Don't reuse an unmarshaller that failed
+            unmarshaller = null;
             LOGGER.error("Error unmarshalling SQLServer ShowPlanXML", e);
             return null;
         }
+        catch (LinkageError e)
+        {
+            // A failing JAXB context is thrown as ExceptionInInitializerError on first parse and NoClassDefFoundError on the following ones.
+            // Catch those here to not kill the parse executor thread
+            LOGGER.error("Error creating JAXB context for SQLServer ShowPlanXML", e);
+            return null;
+        }
         finally
         {
             Thread.currentThread()
@@ -142,6 +158,24 @@ static List<Node> parseXml(String planXml)
         }
     }
 
+    /** Holder of the JAXB context. Creating the context is expensive so it's created once on first parse. Context is thread safe. */
+    private static class JAXBContextHolder
+    {
+        private static final JAXBContext CONTEXT;
+
+        static
+        {
+            try
+            {
+                CONTEXT = JAXBContext.newInstance(ShowPlanXML.class);
+            }
+            catch (JAXBException e)
+            {
+                throw new RuntimeException("Error creating JAXB context for ShowPlanXML", e);
+            }
+        }
+    }
+
     private static String formatValueForTooltip(Object value)
     {
         if (value instanceof Double d)
@@ -0,0 +1,480 @@
+package se.kuseman.payloadbuilder.catalog.jdbc.dialect;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ErrorNodeImpl;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.antlr.v4.runtime.tree.TerminalNodeImpl;
+
+import com.queryeer.api.editor.ITextEditorDocumentParser.ParseItem;
+
+/**
+ * Incremental re-parse of a document. Compares the tokens of the previous parse with the newly lexed tokens, re-parses only the innermost statement that covers the changed tokens and builds a
+ * new tree where the statement is replaced. Tokens in the unchanged parts of the tree are replaced with the new tokens so offsets and token indices match the new document. The previous tree is
+ * never modified since completions and tooltips read it from other threads until the new tree is published.
+ */
+class StatementReparser
+{
+    /** Max number of statements that is tried before giving up and falling back to a full parse */
+    private static final int MAX_ATTEMPTS = 3;
+    /** Constructors used to copy contexts */
+    private static final ClassValue<Constructor<?>> CONSTRUCTORS = new ClassValue<>()
+    {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type)
+        {
+            return constructor(type);
+        }
+    };
+    /** Label, local and argument fields of generated contexts */
+    private static final ClassValue<List<Field>> FIELDS = new ClassValue<>()
+    {
+        @Override
+        protected List<Field> computeValue(Class<?> type)
+        {
+            return fields(type);
+        }
+    };
+
+    private StatementReparser()
+    {
+    }
+
+    /**
+     * Try to re-parse the changed part of the document.
+     *
+     * @param root Root of the previous parse tree. Is not modified
+     * @param statements Statement contexts of the previous parse tree in document order
+     * @param oldTokens Tokens of the previous parse
+     * @param tokenStream Filled token stream of the new document
+     * @param parser Parser attached to the token stream. Must not have any error listeners since a statement with syntax errors is not spliced
+     * @param statementRule Function that parses a single statement
+     * @return Result of the re-parse or null if a full parse is needed
+     */
+    static Result reparse(ParserRuleContext root, List<ParserRuleContext> statements, List<Token> oldTokens, CommonTokenStream tokenStream, Parser parser,
+            Function<Parser, ParserRuleContext> statementRule)
+    {
+        List<Token> newTokens = tokenStream.getTokens();
+        int n = oldTokens.size();
+        int m = newTokens.size();
+        if (n == 0
+                || m == 0)
+        {
+            return null;
+        }
+
+        // Common prefix, last token is always EOF
+        int prefix = 0;
+        while (prefix < n - 1
+                && prefix < m - 1
+                && same(oldTokens.get(prefix), newTokens.get(prefix)))
+        {
+            prefix++;
+        }
+        // Common suffix including EOF
+        int suffix = 0;
+        while (suffix < n - prefix
+                && suffix < m - prefix
+                && same(oldTokens.get(n - 1 - suffix), newTokens.get(m - 1 - suffix)))
+        {
+            suffix++;
+        }
+
+        int delta = m - n;
+        int oldChangeEnd = n - suffix;
+        int newChangeEnd = m - suffix;
+
+        // Only hidden tokens (whitespace, comments) changed, tree structure is intact
+        if (!hasDefaultChannelToken(oldTokens, prefix, oldChangeEnd)
+                && !hasDefaultChannelToken(newTokens, prefix, newChangeEnd))
+        {
+            Map<Token, Token> mapping = mapping(oldTokens, newTokens, prefix, suffix);
+            if (!canRemap(root, null, mapping, removed(oldTokens, prefix, oldChangeEnd)))
+            {
+                return null;
+            }
+            ParserRuleContext newRoot = (ParserRuleContext) copy(root, null, mapping, null, null);
+            Token anchorOld = oldTokens.get(oldChangeEnd);
+            Token anchorNew = newTokens.get(newChangeEnd);
+            return new Result(newRoot, startIndex(oldTokens, prefix), anchorOld.getStartIndex(), anchorNew.getStartIndex() - anchorOld.getStartIndex(), anchorNew.getLine() - anchorOld.getLine());
+        }
+
+        // Candidate statements: starts before the change and nothing but the change lies between the statements end and the next unchanged token
+        List<Candidate> candidates = new ArrayList<>();
+        for (ParserRuleContext statement : statements)
+        {
+            if (statement.start == null
+                    || statement.stop == null
+                    || !(statement.parent instanceof ParserRuleContext)
+                    || statement.start.getTokenIndex() >= prefix
+                    || statement.stop.getTokenIndex() < statement.start.getTokenIndex())
+            {
+                continue;
+            }
+            int stop = statement.stop.getTokenIndex();
+            int anchor = nextDefaultChannelToken(oldTokens, Math.max(stop + 1, oldChangeEnd));
+            if (anchor < 0
+                    || hasDefaultChannelToken(oldTokens, stop + 1, Math.min(anchor, oldChangeEnd)))
+            {
+                continue;
+            }
+            candidates.add(new Candidate(statement, anchor));
+        }
+        // Innermost first
+        candidates.sort(Comparator.comparingInt((Candidate c) -> -c.statement.start.getTokenIndex())
+                .thenComparingInt(c -> c.statement.stop.getTokenIndex()));
+
+        Map<Token, Token> mapping = null;
+        Set<Token> removed = null;
+        for (int i = 0; i < candidates.size()
+                && i < MAX_ATTEMPTS; i++)
+        {
+            Candidate candidate = candidates.get(i);
+            ParserRuleContext statement = candidate.statement;
+            if (mapping == null)
+            {
+                mapping = mapping(oldTokens, newTokens, prefix, suffix);
+                removed = removed(oldTokens, prefix, oldChangeEnd);
+            }
+            if (!canRemap(root, statement, mapping, removed))
+            {
+                continue;
+            }
+
+            int anchorNew = candidate.anchor + delta;
+            parser.reset();
+            tokenStream.seek(statement.start.getTokenIndex());
+            ParserRuleContext ctx = statementRule.apply(parser);
+
+            // Error recovery of a full parse is not local to the statement so a statement with errors
+            // can end up in a different tree, let a full parse handle it
+            if (ctx == null
+                    || parser.getNumberOfSyntaxErrors() > 0
+                    || ctx.start == null
+                    || ctx.stop == null
+                    || ctx.getRuleIndex() != statement.getRuleIndex()
+                    || ctx.start.getTokenIndex() != statement.start.getTokenIndex()
+                    || nextDefaultChannelToken(newTokens, ctx.stop.getTokenIndex() + 1) != anchorNew)
+            {
+                continue;
+            }
+
+            ParserRuleContext newRoot = (ParserRuleContext) copy(root, null, mapping, statement, ctx);
+
+            Token anchorOldToken = oldTokens.get(candidate.anchor);
+            Token anchorNewToken = newTokens.get(anchorNew);
+            return new Result(newRoot, statement.start.getStartIndex(), anchorOldToken.getStartIndex(), anchorNewToken.getStartIndex() - anchorOldToken.getStartIndex(),
+                    anchorNewToken.getLine() - anchorOldToken.getLine());
+        }
+        return null;
+    }
+
+    /** Shift syntax errors of the previous parse. Errors in the re-parsed range are dropped since the range is error free and errors after are moved by the results deltas. */
+    static List<ParseItem> shift(List<ParseItem> items, Result result)
+    {
+        List<ParseItem> shifted = new ArrayList<>(items.size());
+        for (ParseItem item : items)
+        {
+            int offset = item.getOffset();
+            if (offset < 0
+                    || offset < result.startIndex())
+            {
+                shifted.add(item);
+            }
+            else if (offset >= result.endIndex())
+            {
+                shifted.add(new ParseItem(item.getMessage(), item.getLine() + result.lineDelta(), offset + result.charDelta(), item.getLength(), item.getColor(), item.getLevel()));
+            }
+        }
+        return shifted;
+    }
+
+    private static boolean same(Token a, Token b)
+    {
+        return a.getType() == b.getType()
+                && a.getChannel() == b.getChannel()
+                && (a.getType() == Token.EOF
+                        || a.getText()
+                                .equals(b.getText()));
+    }
+
+    private static int startIndex(List<Token> tokens, int index)
+    {
+        return tokens.get(Math.min(index, tokens.size() - 1))
+                .getStartIndex();
+    }
+
+    private static boolean hasDefaultChannelToken(List<Token> tokens, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            if (tokens.get(i)
+                    .getChannel() == Token.DEFAULT_CHANNEL)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int nextDefaultChannelToken(List<Token> tokens, int from)
+    {
+        for (int i = from; i < tokens.size(); i++)
+        {
+            if (tokens.get(i)
+                    .getChannel() == Token.DEFAULT_CHANNEL)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Map<Token, Token> mapping(List<Token> oldTokens, List<Token> newTokens, int prefix, int suffix)
+    {
+        Map<Token, Token> mapping = new IdentityHashMap<>(2 * (prefix + suffix));
+        for (int i = 0; i < prefix; i++)
+        {
+            mapping.put(oldTokens.get(i), newTokens.get(i));
+        }
+        int n = oldTokens.size();
+        int m = newTokens.size();
+        for (int i = 1; i <= suffix; i++)
+        {
+            mapping.put(oldTokens.get(n - i), newTokens.get(m - i));
+        }
+        return mapping;
+    }
+
+    private static Set<Token> removed(List<Token> oldTokens, int from, int to)
+    {
+        Set<Token> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = from; i < to; i++)
+        {
+            removed.add(oldTokens.get(i));
+        }
+        return removed;
+    }
+
+    /** Verifies that no node outside of the replaced statement references a changed token */
+    private static boolean canRemap(ParserRuleContext root, ParserRuleContext replaced, Map<Token, Token> mapping, Set<Token> removed)
+    {
+        Deque<ParseTree> queue = new ArrayDeque<>();
+        queue.push(root);
+        while (!queue.isEmpty())
+        {
+            ParseTree tree = queue.pop();
+            if (tree == replaced)
+            {
+                continue;
+            }
+            if (tree instanceof TerminalNodeImpl node)
+            {
+                if (removed.contains(node.symbol))
+                {
+                    return false;
+                }
+            }
+            else if (tree instanceof ParserRuleContext ctx)
+            {
+                // Start and stop of the replaced statements ancestors are updated on copy
+                if ((removed.contains(ctx.start)
+                        && (replaced == null
+                                || ctx.start != replaced.start))
+                        || (removed.contains(ctx.stop)
+                                && (replaced == null
+                                        || ctx.stop != replaced.stop)))
+                {
+                    return false;
+                }
+                for (int i = ctx.getChildCount() - 1; i >= 0; i--)
+                {
+                    queue.push(ctx.getChild(i));
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copy provided tree. Tokens are replaced with their new counterparts and the replaced statement with its re-parsed context. Ancestors of the replaced statement that ends where the statement
+     * ends gets the re-parsed context's stop token.
+     */
+    private static ParseTree copy(ParseTree tree, ParserRuleContext parent, Map<Token, Token> mapping, ParserRuleContext replaced, ParserRuleContext replacement)
+    {
+        if (tree == replaced)
+        {
+            replacement.parent = parent;
+            replacement.invokingState = replaced.invokingState;
+            return replacement;
+        }
+        if (tree instanceof TerminalNode node)
+        {
+            Token token = map(mapping, node.getSymbol());
+            TerminalNodeImpl copy = node instanceof ErrorNode ? new ErrorNodeImpl(token)
+                    : new TerminalNodeImpl(token);
+            copy.parent = parent;
+            return copy;
+        }
+
+        ParserRuleContext ctx = (ParserRuleContext) tree;
+        ParserRuleContext copy = newInstance(ctx.getClass());
+        copy.parent = parent;
+        copy.invokingState = ctx.invokingState;
+        copy.exception = ctx.exception;
+        // Start of the replaced statement is an unchanged token so only stop needs special care
+        copy.start = map(mapping, ctx.start);
+        copy.stop = replaced != null
+                && ctx.stop == replaced.stop ? replacement.stop
+                        : map(mapping, ctx.stop);
+
+        Map<ParseTree, ParseTree> copies = null;
+        if (ctx.children != null)
+        {
+            copy.children = new ArrayList<>(ctx.children.size());
+            copies = new IdentityHashMap<>(2 * ctx.children.size());
+            for (ParseTree child : ctx.children)
+            {
+                ParseTree childCopy = copy(child, copy, mapping, replaced, replacement);
+                copy.children.add(childCopy);
+                copies.put(child, childCopy);
+            }
+        }
+
+        // Labels references the context's own children
+        for (Field field : FIELDS.get(ctx.getClass()))
+        {
+            try
+            {
+                field.set(copy, translate(field.get(ctx), copies, mapping));
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new IllegalStateException("Cannot copy field " + field + " of " + ctx.getClass(), e);
+            }
+        }
+        return copy;
+    }
+
+    private static Object translate(Object value, Map<ParseTree, ParseTree> copies, Map<Token, Token> mapping)
+    {
+        if (value instanceof Token token)
+        {
+            return map(mapping, token);
+        }
+        else if (value instanceof ParseTree child)
+        {
+            ParseTree copy = copies != null ? copies.get(child)
+                    : null;
+            return copy != null ? copy
+                    : child;
+        }
+        else if (value instanceof List<?> list)
+        {
+            List<Object> result = new ArrayList<>(list.size());
+            for (Object item : list)
+            {
+                result.add(translate(item, copies, mapping));
+            }
+            return result;
+        }
+        return value;
+    }
+
+    private static Token map(Map<Token, Token> mapping, Token token)
+    {
+        Token result = mapping.get(token);
+        return result != null ? result
+                : token;
+    }
+
+    private static ParserRuleContext newInstance(Class<?> type)
+    {
+        try
+        {
+            Constructor<?> constructor = CONSTRUCTORS.get(type);
+            if (constructor.getParameterCount() == 2)
+            {
+                return (ParserRuleContext) constructor.newInstance(null, -1);
+            }
+            // Alternative label contexts are created from an instance of their rule context
+            return (ParserRuleContext) constructor.newInstance(newInstance(constructor.getParameterTypes()[0]));
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Cannot copy context " + type, e);
+        }
+    }
+
+    private static Constructor<?> constructor(Class<?> type)
+    {
+        try
+        {
+            return type.getConstructor(ParserRuleContext.class, int.class);
+        }
+        catch (NoSuchMethodException e)
+        {
+            for (Constructor<?> constructor : type.getConstructors())
+            {
+                if (constructor.getParameterCount() == 1
+                        && ParserRuleContext.class.isAssignableFrom(constructor.getParameterTypes()[0]))
+                {
+                    return constructor;
+                }
+            }
+            throw new IllegalStateException("No constructor found to copy context " + type);
+        }
+    }
+
+    private static List<Field> fields(Class<?> type)
+    {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : type.getFields())
+        {
+            if (Modifier.isStatic(field.getModifiers())
+                    || Modifier.isFinal(field.getModifiers())
+                    || field.getDeclaringClass()
+                            .isAssignableFrom(ParserRuleContext.class))
+            {
+                continue;
+            }
+            fields.add(field);
+        }
+        return fields;
+    }
+
+    private record Candidate(ParserRuleContext statement, int anchor)
+    {
+    }
+
+    /**
+     * Result of a successful re-parse.
+     *
+     * @param root Root of the new tree
+     * @param startIndex Start char index in the previous document of the re-parsed range
+     * @param endIndex End char index (exclusive) in the previous document of the re-parsed range
+     * @param charDelta Number of chars the document after the re-parsed range has moved
+     * @param lineDelta Number of lines the document after the re-parsed range has moved
+     */
+    record Result(ParserRuleContext root, int startIndex, int endIndex, int charDelta, int lineDelta)
+    {
+    }
+}
@@ -1,9 +1,17 @@
 package se.kuseman.payloadbuilder.catalog.jdbc.model;
 
+import static java.util.Collections.emptyList;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.requireNonNull;
+import static org.apache.commons.lang3.StringUtils.isBlank;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 /** A catalog (database/schema) with a set of table sources and routines */
 public class Catalog
@@ -14,15 +22,48 @@
     private final List<Index> indices;
     private final List<ForeignKey> foreignKeys;
     private final List<Constraint> constraints;
+    /** Dialect specific version of the catalog used by delta crawls. Null if not versioned */
+    private final String version;
+
+    // Case insensitive lookup indices keyed by lower case object name. Schema is matched on lookup
+    private final Map<String, List<TableSource>> tableSourcesByName;
+    private final Map<String, List<Routine>> routinesByName;
+    private final Map<String, List<Index>> indicesByTable;
+    private final Map<String, List<Constraint>> constraintsByTable;
+    /** Foreign keys by constrained (child) table */
+    private final Map<String, List<ForeignKey>> foreignKeysByTable;
+    /** Foreign keys by referenced (parent) table */
+    private final Map<String, List<ForeignKey>> foreignKeysByReferencedTable;
 
     public Catalog(String name, List<TableSource> tableSources, List<Routine> routines, List<Index> indices, List<ForeignKey> foreignKeys, List<Constraint> constraints)
+    {
+        this(name, tableSources, routines, indices, foreignKeys, constraints, null);
+    }
+
+    public Catalog(String name, List<TableSource> tableSources, List<Routine> routines, List<Index> indices, List<ForeignKey> foreignKeys, List<Constraint> constraints, String version)
     {
         this.name = requireNonNull(name, "name");
+        this.version = version;
         this.tableSources = unmodifiableList(requireNonNull(tableSources, "tableSources"));
         this.routines = unmodifiableList(requireNonNull(routines, "routines"));
         this.indices = unmodifiableList(requireNonNull(indices, "indices"));
         this.foreignKeys = unmodifiableList(requireNonNull(foreignKeys, "foreignKeys"));
         this.constraints = unmodifiableList(requireNonNull(constraints, "constraints"));
+
+        this.tableSourcesByName = index(tableSources, t -> t);
+        this.routinesByName = index(routines, r -> r);
+        this.indicesByTable = index(indices, Index::getObjectName);
+        this.constraintsByTable = index(constraints, Constraint::getObjectName);
+        this.foreignKeysByTable = index(foreignKeys, fk -> fk.getColumns()
+                .isEmpty() ? null
+                        : fk.getColumns()
+                                .get(0)
+                                .getConstrainedObjectName());
+        this.foreignKeysByReferencedTable = index(foreignKeys, fk -> fk.getColumns()
+                .isEmpty() ? null
+                        : fk.getColumns()
+                                .get(0)
+                                .getReferencedObjectName());
     }
 
     public String getName()
@@ -54,4 +95,143 @@ public List<Constraint> getConstraints()
     {
         return constraints;
     }
+
+    public String getVersion()
+    {
+        return version;
+    }
+
+    /** Find table sources with provided name (case insensitive). If schema is blank all schemas are matched */
+    public List<TableSource> findTableSources(String schema, String name)
+    {
+        return lookup(tableSourcesByName, t -> t, schema, name);
+    }
+
+    /** Find routines with provided name (case insensitive). If schema is blank all schemas are matched */
+    public List<Routine> findRoutines(String schema, String name)
+    {
+        return lookup(routinesByName, r -> r, schema, name);
+    }
+
+    /** Return indices of provided table. If table schema is blank all schemas are matched */
+    public List<Index> getIndices(ObjectName table)
+    {
+        return lookup(indicesByTable, Index::getObjectName, table.getSchema(), table.getName());
+    }
+
+    /** Return constraints of provided table. If table schema is blank all schemas are matched */
+    public List<Constraint> getConstraints(ObjectName table)
+    {
+        return lookup(constraintsByTable, Constraint::getObjectName, table.getSchema(), table.getName());
+    }
+
+    /** Return foreign keys where provided table is the constrained (child) table. If table schema is blank all schemas are matched */
+    public List<ForeignKey> getForeignKeys(ObjectName table)
+    {
+        return lookup(foreignKeysByTable, fk -> fk.getColumns()
+                .get(0)
+                .getConstrainedObjectName(), table.getSchema(), table.getName());
+    }
+
+    /** Return foreign keys where provided table is the referenced (parent) table. If table schema is blank all schemas are matched */
+    public List<ForeignKey> getReferencingForeignKeys(ObjectName table)
+    {
+        return lookup(foreignKeysByReferencedTable, fk -> fk.getColumns()
+                .get(0)
+                .getReferencedObjectName(), table.getSchema(), table.getName());
+    }
+
+    /**
+     * Create a new catalog with changes merged into this catalog.
+     *
+     * @param changes Catalog with the current state of the changed objects
+     * @param changedObjects Names of objects that has changed. Existing items of these objects are replaced by the ones in changes
+     * @param existingObjects Names of all objects that exists. Items of objects not in this set are removed
+     * @param version Version of the new catalog
+     */
+    public Catalog merge(Catalog changes, Set<ObjectName> changedObjects, Set<ObjectName> existingObjects, String version)
+    {
+        //@formatter:off
+        return new Catalog(
+                name,
+                merge(tableSources, changes.tableSources, o -> o, changedObjects, existingObjects),
+                merge(routines, changes.routines, o -> o, changedObjects, existingObjects),
+                merge(indices, changes.indices, Index::getObjectName, changedObjects, existingObjects),
+                merge(foreignKeys, changes.foreignKeys, fk -> fk.getColumns().isEmpty() ? fk.getObjectName()
+                        : fk.getColumns().get(0).getConstrainedObjectName(), changedObjects, existingObjects),
+                merge(constraints, changes.constraints, Constraint::getObjectName, changedObjects, existingObjects),
+                version);
+        //@formatter:on
+    }
+
+    private static <T> List<T> merge(List<T> current, List<T> changes, Function<T, ObjectName> owner, Set<ObjectName> changedObjects, Set<ObjectName> existingObjects)
+    {
+        List<T> result = new ArrayList<>(current.size() + changes.size());
+        for (T item : current)
+        {
+            ObjectName key = key(owner.apply(item));
+            if (!changedObjects.contains(key)
+                    && existingObjects.contains(key))
+            {
+                result.add(item);
+            }
+        }
+        result.addAll(changes);
+        return result;
+    }
+
+    private static <T> Map<String, List<T>> index(List<T> items, Function<T, ObjectName> owner)
+    {
+        Map<String, List<T>> result = new HashMap<>();
+        for (T item : items)
+        {
+            ObjectName name = owner.apply(item);
+            if (name == null)
+            {
+                continue;
+            }
+            result.computeIfAbsent(key(name.getName()), k -> new ArrayList<>(1))
+                    .add(item);
+        }
+        return result;
+    }
+
+    private static <T> List<T> lookup(Map<String, List<T>> index, Function<T, ObjectName> owner, String schema, String name)
+    {
+        if (name == null)
+        {
+            return emptyList();
+        }
+        List<T> items = index.get(key(name));
+        if (items == null)
+        {
+            return emptyList();
+        }
+        if (isBlank(schema))
+        {
+            return unmodifiableList(items);
+        }
+        List<T> result = new ArrayList<>(items.size());
+        for (T item : items)
+        {
+            if (schema.equalsIgnoreCase(owner.apply(item)
+                    .getSchema()))
+            {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    private static String key(String name)
+    {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /** Returns the plain object name of provided name. Sub classes of {@link ObjectName} are not equal to a plain name */
+    public static ObjectName key(ObjectName name)
+    {
+        return name.getClass() == ObjectName.class ? name
+                : new ObjectName(name.getCatalog(), name.getSchema(), name.getName());
+    }
 }
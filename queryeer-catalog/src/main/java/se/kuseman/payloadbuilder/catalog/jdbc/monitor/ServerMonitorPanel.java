@@ -72,9 +72,6 @@ public class ServerMonitorPanel extends JPanel
     // Timer for auto-refresh
     private javax.swing.Timer refreshTimer;
 
-    // Separate monitoring connection
-    private volatile Connection monitorConnection;
-
     public ServerMonitorPanel(IConnectionContext connectionContext, IIconFactory iconFactory, IDialogFactory dialogFactory)
     {
         this.connectionContext = requireNonNull(connectionContext, "connectionContext");
@@ -119,11 +116,10 @@ public ServerMonitorPanel(IConnectionContext connectionContext, IIconFactory ico
         buildSectionTabs();
     }
 
-    /** Stop timer and close the monitoring connection. Call when the dialog is closed. */
+    /** Stop timer. Call when the dialog is closed. */
     public void dispose()
     {
         stopTimer();
-        closeMonitorConnection();
     }
 
     // -----------------------------------------------------------------------
@@ -212,9 +208,9 @@ private void triggerRefresh()
             List<SectionResult> results = new ArrayList<>();
             String errorMsg = null;
 
-            try
+            // Borrow a pooled connection per refresh instead of keeping one open for the life time of the dialog
+            try (Connection con = connectionContext.createConnection())
             {
-                Connection con = getOrCreateConnection();
                 for (SectionTab tab : tabsSnapshot)
                 {
                     try (Statement stm = con.createStatement(); ResultSet rs = stm.executeQuery(tab.section.query()))
@@ -250,7 +246,6 @@ private void triggerRefresh()
             {
                 LOGGER.warn("Error refreshing server monitor", e);
                 errorMsg = e.getMessage();
-                closeMonitorConnection();
             }
 
             final String finalError = errorMsg;
@@ -278,48 +273,6 @@ private void triggerRefresh()
         });
     }
 
-    private Connection getOrCreateConnection() throws Exception
-    {
-        Connection con = monitorConnection;
-        if (con != null)
-        {
-            try
-            {
-                if (!con.isClosed()
-                        && con.isValid(2))
-                {
-                    return con;
-                }
-            }
-            catch (Exception e)
-            {
-                // fall through to create new
-            }
-            closeMonitorConnection();
-        }
-
-        con = connectionContext.createConnection();
-        monitorConnection = con;
-        return con;
-    }
-
-    private void closeMonitorConnection()
-    {
-        Connection con = monitorConnection;
-        monitorConnection = null;
-        if (con != null)
-        {
-            try
-            {
-                con.close();
-            }
-            catch (Exception e)
-            {
-                // swallow
-            }
-        }
-    }
-
     private void updateTimer()
     {
         stopTimer();
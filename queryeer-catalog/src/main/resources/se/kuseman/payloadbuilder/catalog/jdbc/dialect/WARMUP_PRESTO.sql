@@ -0,0 +1,16 @@
+SELECT a.col1, b.col2, count(*) AS cnt, sum(a.amount) total
+FROM schema1.tableA a
+INNER JOIN tableB b
+  ON b.id = a.id
+  AND b.type = 'X'
+LEFT JOIN catalog1.schema1.tableC c
+  ON c.id = a.id
+WHERE a.x IN (1, 2, 3)
+AND EXISTS (SELECT 1 FROM tableD d WHERE d.id = a.id)
+AND b.name LIKE 'abc%'
+AND c.id IS NULL
+AND CASE WHEN a.y > 1 THEN true ELSE false END
+GROUP BY a.col1, b.col2
+HAVING count(*) > 1
+ORDER BY total DESC
+LIMIT 100
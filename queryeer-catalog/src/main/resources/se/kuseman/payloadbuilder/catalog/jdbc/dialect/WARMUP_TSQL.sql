@@ -0,0 +1,127 @@
+-- Representative T-SQL used to warm up the parser caches at startup
+USE master
+
+SELECT 1
+
+SELECT a.col1, b.col2, COUNT(*) cnt, SUM(a.amount) AS total
+FROM dbo.tableA a
+INNER JOIN tableB b
+  ON b.id = a.id
+  AND b.type = 'X'
+LEFT JOIN db.dbo.tableC c WITH (NOLOCK)
+  ON c.id = a.id
+WHERE a.x IN (1, 2, 3)
+AND a.createdAt >= DATEADD(DAY, -7, GETDATE())
+AND EXISTS (SELECT 1 FROM dbo.tableD d WHERE d.id = a.id)
+AND b.name LIKE 'abc%'
+AND c.id IS NULL
+GROUP BY a.col1, b.col2
+HAVING COUNT(*) > 1
+ORDER BY total DESC
+
+SELECT TOP 100 *
+FROM sys.objects o
+CROSS APPLY
+(
+  SELECT TOP 1 c.name
+  FROM sys.columns c
+  WHERE c.object_id = o.object_id
+) x
+OUTER APPLY OPENJSON(o.name) j
+ORDER BY o.name
+OFFSET 0 ROWS FETCH NEXT 10 ROWS ONLY
+
+;WITH cte (id, parentId, lvl) AS
+(
+  SELECT id, parentId, 0
+  FROM dbo.tree
+  WHERE parentId IS NULL
+  UNION ALL
+  SELECT t.id, t.parentId, cte.lvl + 1
+  FROM dbo.tree t
+  INNER JOIN cte
+    ON cte.id = t.parentId
+)
+SELECT id, lvl, ROW_NUMBER() OVER (PARTITION BY lvl ORDER BY id) rn, CASE WHEN lvl > 1 THEN 'deep' ELSE 'shallow' END depth
+FROM cte
+
+DECLARE @id INT = 10, @name NVARCHAR(100)
+DECLARE @tbl TABLE (id INT, name VARCHAR(50))
+SET @name = N'test'
+SELECT @id = MAX(id) FROM dbo.tableA
+
+IF @id > 0
+BEGIN
+  PRINT 'positive'
+END
+ELSE
+BEGIN
+  RAISERROR('negative', 16, 1)
+END
+
+WHILE @id > 0
+BEGIN
+  SET @id = @id - 1
+END
+
+CREATE TABLE #temp
+(
+  id INT NOT NULL PRIMARY KEY,
+  name VARCHAR(100) NULL,
+  created DATETIME2 DEFAULT SYSDATETIME()
+)
+
+INSERT INTO #temp (id, name)
+SELECT id, name
+FROM dbo.tableA
+WHERE id > @id
+
+INSERT INTO @tbl (id, name)
+VALUES (1, 'a'), (2, 'b')
+
+UPDATE t
+SET t.name = s.name,
+    t.created = GETDATE()
+FROM #temp t
+INNER JOIN dbo.source s
+  ON s.id = t.id
+WHERE s.active = 1
+
+DELETE FROM #temp
+WHERE id IN (SELECT id FROM @tbl)
+
+MERGE dbo.target AS t
+USING dbo.source AS s
+  ON t.id = s.id
+WHEN MATCHED THEN
+  UPDATE SET t.name = s.name
+WHEN NOT MATCHED THEN
+  INSERT (id, name) VALUES (s.id, s.name);
+
+DROP TABLE IF EXISTS #temp
+
+EXEC dbo.myProc @param1 = 1, @param2 = 'abc'
+GO
+
+CREATE OR ALTER PROCEDURE dbo.myProc
+  @param1 INT,
+  @param2 VARCHAR(10) = NULL
+AS
+BEGIN
+  SET NOCOUNT ON
+
+  BEGIN TRY
+    BEGIN TRANSACTION
+    SELECT CAST(@param1 AS VARCHAR(10)) + @param2, ISNULL(@param2, ''), COALESCE(@param2, 'x')
+    COMMIT
+  END TRY
+  BEGIN CATCH
+    IF @@TRANCOUNT > 0
+      ROLLBACK
+    THROW
+  END CATCH
+END
+GO
+
+ALTER TABLE dbo.tableA ADD newColumn INT NULL
+CREATE NONCLUSTERED INDEX IX_tableA_col1 ON dbo.tableA (col1) INCLUDE (col2)
@@ -0,0 +1,141 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/** Test of {@link AdaptiveFetchSize}. */
+class AdaptiveFetchSizeTest
+{
+    private final AtomicLong clock = new AtomicLong();
+    /** Simulated time that {@link ResultSet#next()} blocks */
+    private long waitNanos;
+
+    @Test
+    void test_fetch_size_grows_when_fetching_waits_for_server() throws Exception
+    {
+        ResultSet rs = resultSet();
+        AdaptiveFetchSize fetchSize = new AdaptiveFetchSize(10, 35, clock::get);
+        fetchSize.init(rs);
+        verify(rs).setFetchSize(10);
+
+        waitNanos = TimeUnit.MILLISECONDS.toNanos(1);
+        next(fetchSize, rs, 10);
+        assertEquals(20, fetchSize.getFetchSize());
+        verify(rs).setFetchSize(20);
+
+        next(fetchSize, rs, 20);
+        // Capped by max fetch size
+        assertEquals(35, fetchSize.getFetchSize());
+
+        next(fetchSize, rs, 35);
+        assertEquals(35, fetchSize.getFetchSize());
+        assertEquals(2, fetchSize.getAdjustments());
+        assertEquals(65, fetchSize.getRoundTrips());
+    }
+
+    @Test
+    void test_fetch_size_is_kept_when_rows_are_buffered() throws Exception
+    {
+        ResultSet rs = resultSet();
+        AdaptiveFetchSize fetchSize = new AdaptiveFetchSize(10, 1000, clock::get);
+        fetchSize.init(rs);
+
+        // Below the round trip threshold, rows are served from the drivers buffer
+        waitNanos = AdaptiveFetchSize.ROUND_TRIP_NANOS / 2;
+        next(fetchSize, rs, 100);
+        assertEquals(10, fetchSize.getFetchSize());
+        assertEquals(0, fetchSize.getRoundTrips());
+        verify(rs, never()).setFetchSize(20);
+    }
+
+    @Test
+    void test_fetch_size_is_capped_by_byte_budget_of_wide_rows() throws Exception
+    {
+        ResultSet rs = resultSet();
+        AdaptiveFetchSize fetchSize = new AdaptiveFetchSize(100, 10_000, clock::get);
+        fetchSize.init(rs);
+        waitNanos = TimeUnit.MILLISECONDS.toNanos(1);
+
+        // Narrow rows, grows
+        next(fetchSize, rs, 100, new byte[10]);
+        assertEquals(200, fetchSize.getFetchSize());
+
+        // Wide rows, average row width grows past the budget and the fetch size shrinks below what we started with
+        byte[] wide = new byte[(int) (AdaptiveFetchSize.FETCH_BYTES_BUDGET / 10)];
+        next(fetchSize, rs, 200, wide);
+        long budget = AdaptiveFetchSize.FETCH_BYTES_BUDGET / fetchSize.getAvgRowBytes();
+        assertEquals(budget, fetchSize.getFetchSize());
+        assertTrue(fetchSize.getFetchSize() < 100);
+        verify(rs).setFetchSize((int) budget);
+    }
+
+    @Test
+    void test_driver_without_fetch_size_support_keeps_default() throws Exception
+    {
+        ResultSet rs = resultSet();
+        doThrow(new SQLException("Not supported")).when(rs)
+                .setFetchSize(anyInt());
+        AdaptiveFetchSize fetchSize = new AdaptiveFetchSize(10, 1000, clock::get);
+        fetchSize.init(rs);
+
+        waitNanos = TimeUnit.MILLISECONDS.toNanos(1);
+        next(fetchSize, rs, 50);
+        assertEquals(0, fetchSize.getFetchSize());
+        assertTrue(fetchSize.getStatistics()
+                .startsWith("fetch size: driver default"), fetchSize.getStatistics());
+    }
+
+    @Test
+    void test_estimate_size()
+    {
+        assertEquals(1, AdaptiveFetchSize.estimateSize(null));
+        assertEquals(6, AdaptiveFetchSize.estimateSize("abc"));
+        assertEquals(5, AdaptiveFetchSize.estimateSize(new byte[5]));
+        assertEquals(8, AdaptiveFetchSize.estimateSize(10L));
+        assertEquals(16, AdaptiveFetchSize.estimateSize(new Object()));
+    }
+
+    private ResultSet resultSet() throws SQLException
+    {
+        ResultSet rs = mock(ResultSet.class);
+        doAnswer(i ->
+        {
+            clock.addAndGet(waitNanos);
+            return true;
+        }).when(rs)
+                .next();
+        return rs;
+    }
+
+    private static void next(AdaptiveFetchSize fetchSize, ResultSet rs, int rows) throws SQLException
+    {
+        next(fetchSize, rs, rows, 1);
+    }
+
+    /** Move to next row and sample provided value like the engine does */
+    private static void next(AdaptiveFetchSize fetchSize, ResultSet rs, int rows, Object value) throws SQLException
+    {
+        for (int i = 0; i < rows; i++)
+        {
+            assertTrue(fetchSize.next(rs));
+            if (fetchSize.isSampleRow())
+            {
+                fetchSize.sample(value);
+                fetchSize.endSample();
+            }
+        }
+    }
+}
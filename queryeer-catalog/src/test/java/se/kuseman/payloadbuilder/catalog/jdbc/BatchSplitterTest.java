@@ -0,0 +1,145 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Test of {@link BatchSplitter}. */
+class BatchSplitterTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    void test_split_is_case_insensitive()
+    {
+        assertEquals(List.of("select 1\n", "select 2\n", "select 3\n"), BatchSplitter.split("select 1\nGO\nselect 2\ngo\nselect 3\nGo", "GO"));
+    }
+
+    @Test
+    void test_split_skips_blank_batches_and_handles_crlf()
+    {
+        assertEquals(List.of("select 1\r\n", "select 2"), BatchSplitter.split("GO\r\nselect 1\r\nGO\r\n  \r\nGO\r\nselect 2", "GO"));
+    }
+
+    @Test
+    void test_split_without_delimiter()
+    {
+        assertEquals(List.of("select 1\nGO\nselect 2"), BatchSplitter.split("select 1\nGO\nselect 2", ""));
+    }
+
+    @Test
+    void test_reader_byte_offsets_with_multi_byte_chars() throws Exception
+    {
+        String batch1 = "select 'åäö €'\n";
+        String batch2 = "select '𝄞'\n";
+        String script = batch1 + "go\n" + batch2 + "GO\nselect 3";
+        Path file = write(script.getBytes(StandardCharsets.UTF_8));
+
+        try (BatchSplitter.ScriptReader reader = new BatchSplitter.ScriptReader(file, "GO", 1))
+        {
+            assertEquals(script.getBytes(StandardCharsets.UTF_8).length, reader.getSize());
+
+            assertEquals(batch1, reader.next());
+            assertEquals(1, reader.getBatchIndex());
+            assertEquals(bytes(batch1 + "go\n"), reader.getOffset());
+
+            assertEquals(batch2, reader.next());
+            assertEquals(2, reader.getBatchIndex());
+            assertEquals(bytes(batch1 + "go\n" + batch2 + "GO\n"), reader.getOffset());
+
+            assertEquals("select 3", reader.next());
+            assertEquals(3, reader.getBatchIndex());
+            assertEquals(reader.getSize(), reader.getOffset());
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    void test_reader_skips_bom() throws Exception
+    {
+        byte[] text = "select 'å'\r\nGO\r\nselect 2\r\n".getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[text.length + 3];
+        bytes[0] = (byte) 0xEF;
+        bytes[1] = (byte) 0xBB;
+        bytes[2] = (byte) 0xBF;
+        System.arraycopy(text, 0, bytes, 3, text.length);
+        Path file = write(bytes);
+
+        try (BatchSplitter.ScriptReader reader = new BatchSplitter.ScriptReader(file, "GO", 1))
+        {
+            assertEquals("select 'å'\r\n", reader.next());
+            assertEquals(3 + bytes("select 'å'\r\nGO\r\n"), reader.getOffset());
+            assertEquals("select 2\r\n", reader.next());
+            assertEquals(bytes.length, reader.getOffset());
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    void test_reader_skips_batches_before_start_batch() throws Exception
+    {
+        String script = "select 1\nGO\n\nGO\nselect 2\nGO\nselect 3\nGO\nselect 4\n";
+        Path file = write(script.getBytes(StandardCharsets.UTF_8));
+
+        try (BatchSplitter.ScriptReader reader = new BatchSplitter.ScriptReader(file, "go", 3))
+        {
+            assertEquals(2, reader.getBatchIndex());
+            assertEquals(bytes("select 1\nGO\n\nGO\nselect 2\nGO\n"), reader.getOffset());
+            List<String> batches = new ArrayList<>();
+            reader.forEachRemaining(batches::add);
+            assertEquals(List.of("select 3\n", "select 4\n"), batches);
+            assertEquals(4, reader.getBatchIndex());
+        }
+
+        try (BatchSplitter.ScriptReader reader = new BatchSplitter.ScriptReader(file, "go", 10))
+        {
+            assertEquals(4, reader.getBatchIndex());
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    void test_reader_resume_batch_index() throws Exception
+    {
+        Path file = write("select 1\nGO\nselect 2\nGO\nselect 3\n".getBytes(StandardCharsets.UTF_8));
+
+        try (BatchSplitter.ScriptReader reader = new BatchSplitter.ScriptReader(file, "GO", 2))
+        {
+            // Nothing executed yet, resume from start batch
+            assertEquals(2, reader.getResumeBatchIndex());
+
+            reader.next();
+            // Aborted during batch 2
+            assertEquals(2, reader.getResumeBatchIndex());
+
+            reader.batchCompleted();
+            // Aborted after batch 2 completed
+            assertEquals(3, reader.getResumeBatchIndex());
+
+            reader.next();
+            reader.batchCompleted();
+            // All batches completed
+            assertEquals(0, reader.getResumeBatchIndex());
+            assertEquals(3, reader.getBatchIndex());
+        }
+    }
+
+    private Path write(byte[] bytes) throws Exception
+    {
+        return Files.write(dir.resolve("script.sql"), bytes);
+    }
+
+    private static long bytes(String text)
+    {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
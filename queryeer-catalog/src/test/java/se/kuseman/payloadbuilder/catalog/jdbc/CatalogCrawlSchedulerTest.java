@@ -0,0 +1,270 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import se.kuseman.payloadbuilder.catalog.jdbc.CatalogCrawlScheduler.Priority;
+import se.kuseman.payloadbuilder.catalog.jdbc.dialect.JdbcDialect;
+
+/** Test of {@link CatalogCrawlScheduler} */
+class CatalogCrawlSchedulerTest
+{
+    private final IConnectionContext serverA = context("jdbc:a");
+    private final IConnectionContext serverB = context("jdbc:b");
+    /** Databases in the order their crawls were run */
+    private final List<String> runs = new CopyOnWriteArrayList<>();
+
+    @Test
+    void test_focused_crawls_runs_before_background_crawls() throws Exception
+    {
+        CatalogCrawlScheduler scheduler = new CatalogCrawlScheduler(1, 1);
+        TestJob blocker = new TestJob("blocker");
+        scheduler.schedule(serverA, "blocker", Priority.BACKGROUND, blocker);
+        blocker.awaitStarted();
+
+        TestJob first = new TestJob("first").release();
+        TestJob second = new TestJob("second").release();
+        TestJob third = new TestJob("third").release();
+        assertTrue(scheduler.schedule(serverA, "first", Priority.BACKGROUND, first));
+        assertTrue(scheduler.schedule(serverA, "second", Priority.BACKGROUND, second));
+        assertTrue(scheduler.schedule(serverA, "third", Priority.FOCUSED, third));
+
+        blocker.release();
+        second.awaitDone();
+        assertEquals(List.of("blocker", "third", "first", "second"), runs);
+    }
+
+    @Test
+    void test_concurrency_per_server() throws Exception
+    {
+        CatalogCrawlScheduler scheduler = new CatalogCrawlScheduler(2, 1);
+        TestJob a1 = new TestJob("a1");
+        TestJob a2 = new TestJob("a2").release();
+        TestJob b1 = new TestJob("b1").release();
+        scheduler.schedule(serverA, "a1", Priority.BACKGROUND, a1);
+        a1.awaitStarted();
+        scheduler.schedule(serverA, "a2", Priority.BACKGROUND, a2);
+        scheduler.schedule(serverB, "b1", Priority.BACKGROUND, b1);
+
+        // Server B is free so its crawl runs while server A is busy even though it was queued last
+        b1.awaitDone();
+        Map<String, Object> statistics = scheduler.getStatistics();
+        assertEquals(1, statistics.get("Queue Depth"));
+        assertEquals(Map.of("jdbc:a", 1), statistics.get("Running By Server"));
+        assertEquals(List.of("a1", "b1"), runs);
+
+        a1.release();
+        a2.awaitDone();
+        assertEquals(List.of("a1", "b1", "a2"), runs);
+        assertEquals(3L, scheduler.getStatistics()
+                .get("Completed"));
+    }
+
+    @Test
+    void test_crawls_of_same_database_are_deduplicated_and_reprioritized() throws Exception
+    {
+        CatalogCrawlScheduler scheduler = new CatalogCrawlScheduler(1, 1);
+        TestJob blocker = new TestJob("blocker");
+        scheduler.schedule(serverA, "blocker", Priority.BACKGROUND, blocker);
+        blocker.awaitStarted();
+
+        // Running crawl is not scheduled again
+        TestJob duplicate = new TestJob("duplicate");
+        assertFalse(scheduler.schedule(serverA, "blocker", Priority.BACKGROUND, duplicate));
+
+        TestJob first = new TestJob("first").release();
+        TestJob second = new TestJob("second").release();
+        assertTrue(scheduler.schedule(serverA, "first", Priority.BACKGROUND, first));
+        assertTrue(scheduler.schedule(serverA, "second", Priority.BACKGROUND, second));
+        // Queued crawl is moved ahead when requested with a higher priority
+        assertFalse(scheduler.schedule(serverA, "second", Priority.FOCUSED, new TestJob("second duplicate")));
+        assertEquals(List.of("FOCUSED second", "BACKGROUND first"), scheduler.getStatistics()
+                .get("Queue"));
+
+        blocker.release();
+        first.awaitDone();
+        assertEquals(List.of("blocker", "second", "first"), runs);
+        assertFalse(duplicate.started.await(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void test_focused_crawl_supersedes_queued_focused_crawl() throws Exception
+    {
+        CatalogCrawlScheduler scheduler = new CatalogCrawlScheduler(2, 1);
+        TestJob blocker = new TestJob("blocker");
+        scheduler.schedule(serverA, "blocker", Priority.BACKGROUND, blocker);
+        blocker.awaitStarted();
+
+        TestJob first = new TestJob("first").release();
+        TestJob background = new TestJob("background").release();
+        TestJob second = new TestJob("second").release();
+        scheduler.schedule(serverA, "first", Priority.FOCUSED, first);
+        scheduler.schedule(serverA, "background", Priority.BACKGROUND, background);
+        // Focused crawl on another server does not cancel anything
+        TestJob other = new TestJob("other").release();
+        scheduler.schedule(serverB, "other", Priority.FOCUSED, other);
+        other.awaitDone();
+
+        // Switching focus to another database on the same server cancels the queued focused crawl right away
+        scheduler.schedule(serverA, "second", Priority.FOCUSED, second);
+        assertTrue(first.cancelled);
+        assertNull(first.error);
+        assertEquals(1L, scheduler.getStatistics()
+                .get("Cancelled"));
+
+        blocker.release();
+        background.awaitDone();
+        assertEquals(List.of("blocker", "other", "second", "background"), runs);
+        assertFalse(first.started.await(0, TimeUnit.SECONDS));
+        // Blocker was a background crawl and is not superseded
+        assertFalse(blocker.cancelled);
+    }
+
+    @Test
+    void test_focused_crawl_supersedes_running_focused_crawl() throws Exception
+    {
+        Connection connection = mock(Connection.class);
+        IConnectionContext context = context("jdbc:a", connection);
+        TestJob first = new TestJob("first")
+        {
+            @Override
+            public long run(IConnectionContext connectionContext) throws Exception
+            {
+                connectionContext.createConnection();
+                return super.run(connectionContext);
+            }
+        };
+        // Aborting the connection releases the running crawl like the driver does
+        doAnswer(i ->
+        {
+            first.release();
+            return null;
+        }).when(connection)
+                .abort(any());
+
+        CatalogCrawlScheduler scheduler = new CatalogCrawlScheduler(1, 1);
+        scheduler.schedule(context, "first", Priority.FOCUSED, first);
+        first.awaitStarted();
+
+        TestJob second = new TestJob("second").release();
+        scheduler.schedule(context, "second", Priority.FOCUSED, second);
+
+        first.awaitDone();
+        assertTrue(first.cancelled);
+        second.awaitDone();
+        assertFalse(second.cancelled);
+        assertEquals(List.of("first", "second"), runs);
+        assertEquals(1L, scheduler.getStatistics()
+                .get("Cancelled"));
+        assertEquals(1L, scheduler.getStatistics()
+                .get("Completed"));
+
+        // Connections cannot be created from a cancelled context
+        assertThrows(SQLException.class, () -> first.context.createConnection());
+    }
+
+    private static IConnectionContext context(String url)
+    {
+        return context(url, null);
+    }
+
+    private static IConnectionContext context(String url, Connection connection)
+    {
+        JdbcConnection jdbcConnection = mock(JdbcConnection.class);
+        when(jdbcConnection.getJdbcURL()).thenReturn(url);
+        return new IConnectionContext()
+        {
+            @Override
+            public String getDatabase()
+            {
+                return null;
+            }
+
+            @Override
+            public JdbcDialect getJdbcDialect()
+            {
+                return null;
+            }
+
+            @Override
+            public JdbcConnection getJdbcConnection()
+            {
+                return jdbcConnection;
+            }
+
+            @Override
+            public Connection createConnection()
+            {
+                return connection;
+            }
+        };
+    }
+
+    /** Job that records its run and blocks until released */
+    private class TestJob implements CatalogCrawlScheduler.Job
+    {
+        private final String name;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile IConnectionContext context;
+        private volatile Throwable error;
+        private volatile boolean cancelled;
+
+        TestJob(String name)
+        {
+            this.name = name;
+        }
+
+        TestJob release()
+        {
+            released.countDown();
+            return this;
+        }
+
+        void awaitStarted() throws InterruptedException
+        {
+            assertTrue(started.await(5, TimeUnit.SECONDS), name + " should start");
+        }
+
+        void awaitDone() throws InterruptedException
+        {
+            assertTrue(done.await(5, TimeUnit.SECONDS), name + " should be done");
+        }
+
+        @Override
+        public long run(IConnectionContext connectionContext) throws Exception
+        {
+            context = connectionContext;
+            runs.add(name);
+            started.countDown();
+            assertTrue(released.await(5, TimeUnit.SECONDS), name + " should be released");
+            return 0;
+        }
+
+        @Override
+        public void done(Throwable error, boolean cancelled)
+        {
+            this.error = error;
+            this.cancelled = cancelled;
+            done.countDown();
+        }
+    }
+}
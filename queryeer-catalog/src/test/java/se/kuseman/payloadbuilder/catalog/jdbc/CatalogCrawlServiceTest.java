@@ -0,0 +1,198 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.queryeer.api.service.IQueryFileProvider;
+
+import se.kuseman.payloadbuilder.catalog.jdbc.dialect.JdbcDialect;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Catalog;
+
+/** Test of {@link CatalogCrawlService}. */
+class CatalogCrawlServiceTest
+{
+    @TempDir
+    File folder;
+
+    private final JdbcDialect dialect = mock(JdbcDialect.class);
+    private final IConnectionContext context = context(new JdbcConnection("test", JdbcConnection.SqlType.JDBC_URL), dialect);
+
+    @Test
+    void test_snapshot_is_served_while_crawl_waits_for_the_server() throws Exception
+    {
+        CatalogSnapshotStore store = new CatalogSnapshotStore(folder);
+        Catalog snapshot = catalog("snapshot");
+        store.write(context.getJdbcConnection()
+                .getJdbcURL(), "db", snapshot, 1234L);
+
+        CatalogCrawlScheduler scheduler = new CatalogCrawlScheduler(1, 1);
+        // Occupy the only crawl slot of the server
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch releaseBlocker = new CountDownLatch(1);
+        scheduler.schedule(context, "other", CatalogCrawlScheduler.Priority.BACKGROUND, new CatalogCrawlScheduler.Job()
+        {
+            @Override
+            public long run(IConnectionContext connectionContext) throws Exception
+            {
+                blockerStarted.countDown();
+                releaseBlocker.await();
+                return 0;
+            }
+
+            @Override
+            public void done(Throwable error, boolean cancelled)
+            {
+            }
+        });
+        assertTrue(blockerStarted.await(5, TimeUnit.SECONDS));
+
+        Catalog crawled = catalog("crawled");
+        CountDownLatch crawledLatch = new CountDownLatch(1);
+        when(dialect.getCatalog(any(), eq("db"))).then(i ->
+        {
+            crawledLatch.countDown();
+            return crawled;
+        });
+
+        // Snapshots are read on the calling thread here to make the test deterministic
+        CatalogCrawlService service = new CatalogCrawlService(store, mock(IQueryFileProvider.class), scheduler, Runnable::run, System::currentTimeMillis);
+        Catalog actual = service.getCatalog(context, "db");
+        assertEquals("snapshot", actual.getName());
+
+        releaseBlocker.countDown();
+        assertTrue(crawledLatch.await(5, TimeUnit.SECONDS));
+        // The crawled catalog replaces the snapshot when the crawl is done
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.getCatalog(context, "db") != crawled
+                && System.nanoTime() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        assertSame(crawled, service.getCatalog(context, "db"));
+    }
+
+    @Test
+    void test_failed_crawls_are_retried_with_backoff()
+    {
+        long[] clock = { 1000 };
+        int[] crawls = { 0 };
+        Catalog crawled = catalog("crawled");
+        when(dialect.getCatalog(any(), eq("db"))).then(i ->
+        {
+            crawls[0]++;
+            // Only the third crawl succeeds
+            if (crawls[0] != 3)
+            {
+                throw new RuntimeException("Crawl failed");
+            }
+            return crawled;
+        });
+
+        CatalogCrawlService service = new CatalogCrawlService(new CatalogSnapshotStore(folder), mock(IQueryFileProvider.class), new InlineScheduler(), Runnable::run, () -> clock[0]);
+
+        assertNull(service.getCatalog(context, "db"));
+        assertEquals(1, crawls[0]);
+
+        // First backoff is 15 seconds
+        clock[0] += 15_000 - 1;
+        assertNull(service.getCatalog(context, "db"));
+        assertEquals(1, crawls[0]);
+        clock[0] += 1;
+        assertNull(service.getCatalog(context, "db"));
+        assertEquals(2, crawls[0]);
+
+        // Backoff is doubled for each consecutive failure
+        clock[0] += 30_000 - 1;
+        assertNull(service.getCatalog(context, "db"));
+        assertEquals(2, crawls[0]);
+        clock[0] += 1;
+        assertSame(crawled, service.getCatalog(context, "db"));
+        assertEquals(3, crawls[0]);
+
+        // A successful crawl resets the backoff and the catalog is served until it expires
+        clock[0] += 60_000;
+        assertSame(crawled, service.getCatalog(context, "db"));
+        assertEquals(3, crawls[0]);
+        clock[0] += TimeUnit.MINUTES.toMillis(10);
+        assertSame(crawled, service.getCatalog(context, "db"));
+        assertEquals(4, crawls[0]);
+        clock[0] += 15_000;
+        assertSame(crawled, service.getCatalog(context, "db"));
+        assertEquals(5, crawls[0]);
+    }
+
+    static Catalog catalog(String name)
+    {
+        return new Catalog(name, List.of(), List.of(), List.of(), List.of(), List.of());
+    }
+
+    /** Scheduler that runs crawls on the calling thread */
+    private static class InlineScheduler extends CatalogCrawlScheduler
+    {
+        InlineScheduler()
+        {
+            super(0, 1);
+        }
+
+        @Override
+        synchronized boolean schedule(IConnectionContext connectionContext, String database, Priority priority, Job job)
+        {
+            Throwable error = null;
+            try
+            {
+                job.run(connectionContext);
+            }
+            catch (Throwable e)
+            {
+                error = e;
+            }
+            job.done(error, false);
+            return true;
+        }
+    }
+
+    static IConnectionContext context(JdbcConnection jdbcConnection, JdbcDialect dialect)
+    {
+        return new IConnectionContext()
+        {
+            @Override
+            public String getDatabase()
+            {
+                return null;
+            }
+
+            @Override
+            public JdbcDialect getJdbcDialect()
+            {
+                return dialect;
+            }
+
+            @Override
+            public JdbcConnection getJdbcConnection()
+            {
+                return jdbcConnection;
+            }
+
+            @Override
+            public Connection createConnection()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,331 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Catalog;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Column;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Constraint;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.ForeignKey;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.ForeignKeyColumn;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Index;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.IndexColumn;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.ObjectName;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Routine;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.RoutineParameter;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.TableSource;
+
+/** Test of {@link CatalogSnapshotStore}. */
+class CatalogSnapshotStoreTest
+{
+    private static final String URL = "jdbc:sqlserver://server";
+
+    @TempDir
+    File folder;
+
+    @Test
+    void test_round_trip()
+    {
+        CatalogSnapshotStore store = new CatalogSnapshotStore(folder);
+        Catalog expected = catalog();
+        store.write(URL, "db", expected, 1234L);
+
+        CatalogSnapshotStore.Snapshot snapshot = store.read(URL, "db");
+        assertNotNull(snapshot);
+        assertEquals(1234L, snapshot.lastFullCrawl());
+        Catalog actual = snapshot.catalog();
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getVersion(), actual.getVersion());
+
+        assertEquals(expected.getTableSources()
+                .size(),
+                actual.getTableSources()
+                        .size());
+        for (int i = 0; i < expected.getTableSources()
+                .size(); i++)
+        {
+            TableSource e = expected.getTableSources()
+                    .get(i);
+            TableSource a = actual.getTableSources()
+                    .get(i);
+            assertObjectName(e, a);
+            assertEquals(e.getType(), a.getType());
+            assertEquals(e.getColumns()
+                    .size(),
+                    a.getColumns()
+                            .size());
+            for (int j = 0; j < e.getColumns()
+                    .size(); j++)
+            {
+                Column ec = e.getColumns()
+                        .get(j);
+                Column ac = a.getColumns()
+                        .get(j);
+                assertEquals(ec.getName(), ac.getName());
+                assertEquals(ec.getType(), ac.getType());
+                assertEquals(ec.getMaxLength(), ac.getMaxLength());
+                assertEquals(ec.getPrecision(), ac.getPrecision());
+                assertEquals(ec.getScale(), ac.getScale());
+                assertEquals(ec.isNullable(), ac.isNullable());
+                assertEquals(ec.getPrimaryKeyName(), ac.getPrimaryKeyName());
+            }
+        }
+
+        assertEquals(expected.getRoutines()
+                .size(),
+                actual.getRoutines()
+                        .size());
+        for (int i = 0; i < expected.getRoutines()
+                .size(); i++)
+        {
+            Routine e = expected.getRoutines()
+                    .get(i);
+            Routine a = actual.getRoutines()
+                    .get(i);
+            assertObjectName(e, a);
+            assertEquals(e.getType(), a.getType());
+            assertEquals(e.getParameters()
+                    .size(),
+                    a.getParameters()
+                            .size());
+            for (int j = 0; j < e.getParameters()
+                    .size(); j++)
+            {
+                RoutineParameter ep = e.getParameters()
+                        .get(j);
+                RoutineParameter ap = a.getParameters()
+                        .get(j);
+                assertEquals(ep.getName(), ap.getName());
+                assertEquals(ep.getType(), ap.getType());
+                assertEquals(ep.getMaxLength(), ap.getMaxLength());
+                assertEquals(ep.getPrecision(), ap.getPrecision());
+                assertEquals(ep.getScale(), ap.getScale());
+                assertEquals(ep.isNullable(), ap.isNullable());
+                assertEquals(ep.isOutput(), ap.isOutput());
+            }
+        }
+
+        assertEquals(expected.getIndices()
+                .size(),
+                actual.getIndices()
+                        .size());
+        for (int i = 0; i < expected.getIndices()
+                .size(); i++)
+        {
+            Index e = expected.getIndices()
+                    .get(i);
+            Index a = actual.getIndices()
+                    .get(i);
+            assertObjectName(e.getObjectName(), a.getObjectName());
+            assertEquals(e.getIndexName(), a.getIndexName());
+            assertEquals(e.isUnique(), a.isUnique());
+            assertEquals(e.getColumns()
+                    .size(),
+                    a.getColumns()
+                            .size());
+            for (int j = 0; j < e.getColumns()
+                    .size(); j++)
+            {
+                assertEquals(e.getColumns()
+                        .get(j)
+                        .getName(),
+                        a.getColumns()
+                                .get(j)
+                                .getName());
+                assertEquals(e.getColumns()
+                        .get(j)
+                        .isAscending(),
+                        a.getColumns()
+                                .get(j)
+                                .isAscending());
+            }
+        }
+
+        assertEquals(expected.getForeignKeys()
+                .size(),
+                actual.getForeignKeys()
+                        .size());
+        for (int i = 0; i < expected.getForeignKeys()
+                .size(); i++)
+        {
+            ForeignKey e = expected.getForeignKeys()
+                    .get(i);
+            ForeignKey a = actual.getForeignKeys()
+                    .get(i);
+            assertObjectName(e.getObjectName(), a.getObjectName());
+            assertEquals(e.getColumns()
+                    .size(),
+                    a.getColumns()
+                            .size());
+            for (int j = 0; j < e.getColumns()
+                    .size(); j++)
+            {
+                ForeignKeyColumn ec = e.getColumns()
+                        .get(j);
+                ForeignKeyColumn ac = a.getColumns()
+                        .get(j);
+                assertObjectName(ec.getConstrainedObjectName(), ac.getConstrainedObjectName());
+                assertEquals(ec.getConstrainedColumnName(), ac.getConstrainedColumnName());
+                assertObjectName(ec.getReferencedObjectName(), ac.getReferencedObjectName());
+                assertEquals(ec.getReferencedColumnName(), ac.getReferencedColumnName());
+            }
+        }
+
+        assertEquals(expected.getConstraints()
+                .size(),
+                actual.getConstraints()
+                        .size());
+        for (int i = 0; i < expected.getConstraints()
+                .size(); i++)
+        {
+            Constraint e = expected.getConstraints()
+                    .get(i);
+            Constraint a = actual.getConstraints()
+                    .get(i);
+            assertObjectName(e.getObjectName(), a.getObjectName());
+            assertEquals(e.getName(), a.getName());
+            assertEquals(e.getType(), a.getType());
+            assertEquals(e.getColumnName(), a.getColumnName());
+            assertEquals(e.getDefinition(), a.getDefinition());
+        }
+    }
+
+    @Test
+    void test_missing_snapshot()
+    {
+        assertNull(new CatalogSnapshotStore(folder).read(URL, "db"));
+    }
+
+    @Test
+    void test_truncated_snapshot_is_discarded() throws Exception
+    {
+        CatalogSnapshotStore store = new CatalogSnapshotStore(folder);
+        store.write(URL, "db", catalog(), 0);
+        Path path = snapshotFile();
+        byte[] bytes = Files.readAllBytes(path);
+
+        // Every truncation must be detected
+        for (int length = 0; length < bytes.length; length++)
+        {
+            Files.write(path, Arrays.copyOf(bytes, length));
+            assertNull(store.read(URL, "db"), "Length " + length);
+            assertFalse(Files.exists(path), "Length " + length);
+        }
+    }
+
+    @Test
+    void test_corrupt_snapshot_is_discarded() throws Exception
+    {
+        CatalogSnapshotStore store = new CatalogSnapshotStore(folder);
+        store.write(URL, "db", catalog(), 0);
+        Path path = snapshotFile();
+        byte[] bytes = Files.readAllBytes(path);
+
+        // Point the last string index outside of the string table
+        byte[] corrupt = bytes.clone();
+        ByteBuffer.wrap(corrupt)
+                .putInt(corrupt.length - 4, Integer.MAX_VALUE);
+        Files.write(path, corrupt);
+        assertNull(store.read(URL, "db"));
+        assertFalse(Files.exists(path));
+
+        // Garbage
+        Files.write(path, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 });
+        assertNull(store.read(URL, "db"));
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    void test_snapshot_of_other_format_version_is_discarded() throws Exception
+    {
+        CatalogSnapshotStore store = new CatalogSnapshotStore(folder);
+        store.write(URL, "db", catalog(), 0);
+        Path path = snapshotFile();
+        byte[] bytes = Files.readAllBytes(path);
+
+        ByteBuffer.wrap(bytes)
+                .putInt(4, CatalogSnapshotStore.FORMAT_VERSION + 1);
+        Files.write(path, bytes);
+        assertNull(store.read(URL, "db"));
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    void test_snapshot_of_other_url_with_same_file_is_discarded() throws Exception
+    {
+        CatalogSnapshotStore store = new CatalogSnapshotStore(folder);
+        store.write(URL, "db", catalog(), 0);
+        Path path = snapshotFile();
+        byte[] bytes = Files.readAllBytes(path);
+        Files.delete(path);
+
+        // Simulate a hash collision by placing the snapshot of one url at the file of another
+        store.write("jdbc:sqlserver://other", "db", catalog(), 0);
+        Path otherPath = snapshotFile();
+        Files.write(otherPath, bytes);
+
+        assertNull(store.read("jdbc:sqlserver://other", "db"));
+        assertFalse(Files.exists(otherPath));
+    }
+
+    @Test
+    void test_rewrite_replaces_snapshot() throws Exception
+    {
+        CatalogSnapshotStore store = new CatalogSnapshotStore(folder);
+        store.write(URL, "db", catalog(), 1);
+        store.write(URL, "db", new Catalog("db", List.of(), List.of(), List.of(), List.of(), List.of(), null), 2);
+
+        CatalogSnapshotStore.Snapshot snapshot = store.read(URL, "db");
+        assertEquals(2, snapshot.lastFullCrawl());
+        assertNull(snapshot.catalog()
+                .getVersion());
+        assertEquals(List.of(), snapshot.catalog()
+                .getTableSources());
+        assertArrayEquals(new File[] { snapshotFile().toFile() }, folder.listFiles());
+    }
+
+    private Path snapshotFile()
+    {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".catalog"));
+        assertEquals(1, files.length);
+        return files[0].toPath();
+    }
+
+    private static void assertObjectName(ObjectName expected, ObjectName actual)
+    {
+        assertEquals(expected.getCatalog(), actual.getCatalog());
+        assertEquals(expected.getSchema(), actual.getSchema());
+        assertEquals(expected.getName(), actual.getName());
+    }
+
+    private static Catalog catalog()
+    {
+        ObjectName orders = new ObjectName("db", "dbo", "orders");
+        ObjectName customers = new ObjectName("db", "dbo", "customers");
+        List<TableSource> tableSources = List.of(new TableSource("db", "dbo", "orders", TableSource.Type.TABLE, List.of(new Column("id", "int", 4, 10, 0, false, "PK_orders"),
+                new Column("customer_id", "int", 4, 10, 0, true, null), new Column("amount", "decimal", 9, 18, 4, true, null), new Column("note", "nvarchar", -1, 0, 0, true, null))),
+                new TableSource("db", "sales", "v_orders", TableSource.Type.VIEW, List.of(new Column("id", "int", 4, 10, 0, false, null))),
+                new TableSource(null, null, "synonym", TableSource.Type.SYNONYM, List.of()));
+        List<Routine> routines = List.of(new Routine("db", "dbo", "sp_orders", Routine.Type.PROCEDURE, List.of(new RoutineParameter("@id", "int", 4, 10, 0, false, false),
+                new RoutineParameter("@total", "decimal", 9, 18, 2, true, true))), new Routine("db", "dbo", "fn_total", Routine.Type.FUNCTION, List.of()));
+        List<Index> indices = List.of(new Index(orders, "IX_orders_customer", false, List.of(new IndexColumn("customer_id", true), new IndexColumn("id", false))),
+                new Index(customers, "UX_customers_name", true, List.of(new IndexColumn("name", true))));
+        List<ForeignKey> foreignKeys = List.of(new ForeignKey(new ObjectName("db", "dbo", "FK_orders_customers"), List.of(new ForeignKeyColumn(orders, "customer_id", customers, "id"))));
+        List<Constraint> constraints = List.of(new Constraint(orders, "CK_amount", Constraint.Type.CHECK, "amount", "([amount]>=(0))"),
+                new Constraint(orders, "DF_note", Constraint.Type.DEFAULT, "note", "('åäö')"));
+        return new Catalog("db", tableSources, routines, indices, foreignKeys, constraints, "0x00000000000007D1");
+    }
+}
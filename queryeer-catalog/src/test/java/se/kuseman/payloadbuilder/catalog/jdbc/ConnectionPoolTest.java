@@ -0,0 +1,357 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import se.kuseman.payloadbuilder.catalog.jdbc.dialect.JdbcDialect;
+
+/** Test of {@link ConnectionPool}. */
+class ConnectionPoolTest
+{
+    private static final ConnectionPool.Limits LIMITS = new ConnectionPool.Limits(2, TimeUnit.SECONDS.toMillis(10), 1000, 5000, 20_000, 3000);
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    /** Physical connections in creation order */
+    private final List<Connection> physicals = new ArrayList<>();
+    private JdbcConnection jdbcConnection;
+    private JdbcDialect dialect;
+
+    @BeforeEach
+    void setup() throws SQLException
+    {
+        jdbcConnection = new JdbcConnection("test", JdbcConnection.SqlType.JDBC_URL);
+        jdbcConnection.setUsername("user");
+        dialect = mock(JdbcDialect.class);
+        when(dialect.createConnection(any(), any(), any(), anyBoolean())).then(i ->
+        {
+            Connection physical = mock(Connection.class);
+            when(physical.getCatalog()).thenReturn("master");
+            when(physical.getAutoCommit()).thenReturn(true);
+            physicals.add(physical);
+            return physical;
+        });
+        when(dialect.isValid(any())).thenReturn(true);
+        when(dialect.resetPooledConnection(any())).thenReturn(true);
+    }
+
+    @Test
+    void test_returned_connection_is_reused() throws SQLException
+    {
+        ConnectionPool pool = pool();
+        Connection connection = pool.borrow();
+        connection.close();
+        // Closing twice is a no-op
+        connection.close();
+        assertTrue(connection.isClosed());
+        assertThrows(SQLException.class, () -> connection.createStatement());
+
+        pool.borrow()
+                .close();
+        assertEquals(1, physicals.size());
+        ConnectionPool.PoolStats stats = pool.stats();
+        assertEquals(1, stats.idle());
+        assertEquals(2, stats.borrows());
+        assertEquals(1, stats.reused());
+    }
+
+    @Test
+    void test_borrow_timeout() throws Exception
+    {
+        ConnectionPool pool = new ConnectionPool(jdbcConnection, dialect, new ConnectionPool.Limits(2, 0, 1000, 5000, 20_000, 3000), clock::get);
+        pool.borrow();
+        pool.borrow();
+        SQLException e = assertThrows(SQLException.class, () -> pool.borrow());
+        assertTrue(e.getMessage()
+                .contains("all 2 connections are in use"), e.getMessage());
+        assertEquals(1, pool.stats()
+                .timeouts());
+    }
+
+    @Test
+    void test_waiting_borrower_gets_returned_connection() throws Exception
+    {
+        ConnectionPool pool = pool();
+        Connection first = pool.borrow();
+        pool.borrow();
+
+        CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() ->
+        {
+            try
+            {
+                return pool.borrow();
+            }
+            catch (SQLException e)
+            {
+                throw new RuntimeException(e);
+            }
+        });
+        first.close();
+        waiting.get(5, TimeUnit.SECONDS)
+                .close();
+        assertEquals(2, physicals.size());
+    }
+
+    @Test
+    void test_idle_connection_is_validated_before_reuse() throws SQLException
+    {
+        ConnectionPool pool = pool();
+        pool.borrow()
+                .close();
+
+        // Within validation interval, no validation
+        clock.addAndGet(LIMITS.validationIntervalMs() - 1);
+        pool.borrow()
+                .close();
+        verify(dialect, never()).isValid(any());
+
+        clock.addAndGet(LIMITS.validationIntervalMs());
+        when(dialect.isValid(physicals.get(0))).thenReturn(false);
+        pool.borrow()
+                .close();
+        verify(dialect).isValid(physicals.get(0));
+        verify(physicals.get(0)).close();
+        assertEquals(2, physicals.size());
+        assertEquals(1, pool.stats()
+                .validationFailures());
+    }
+
+    @Test
+    void test_connection_past_max_lifetime_is_closed() throws SQLException
+    {
+        ConnectionPool pool = pool();
+        Connection connection = pool.borrow();
+        clock.addAndGet(LIMITS.maxLifetimeMs());
+        connection.close();
+        verify(physicals.get(0)).close();
+        assertEquals(0, pool.stats()
+                .size());
+
+        // Idle connections are evicted by the housekeeping
+        pool.borrow()
+                .close();
+        clock.addAndGet(LIMITS.idleTimeoutMs());
+        pool.evictExpired();
+        verify(physicals.get(1)).close();
+        assertEquals(0, pool.stats()
+                .idle());
+        assertEquals(1, pool.stats()
+                .evictions());
+    }
+
+    @Test
+    void test_session_state_is_reset_on_return() throws SQLException
+    {
+        ConnectionPool pool = pool();
+        Connection connection = pool.borrow();
+        Connection physical = physicals.get(0);
+        // Borrower changes database and starts a transaction
+        when(physical.getCatalog()).thenReturn("other");
+        when(physical.getSchema()).thenReturn("dbo");
+        when(physical.getAutoCommit()).thenReturn(false);
+        connection.close();
+
+        verify(physical).rollback();
+        verify(physical).setAutoCommit(true);
+        verify(physical).setCatalog("master");
+        verify(physical).setSchema(null);
+        verify(physical).clearWarnings();
+        verify(physical, never()).close();
+    }
+
+    @Test
+    void test_connection_that_dialect_cannot_reset_is_closed() throws SQLException
+    {
+        ConnectionPool pool = pool();
+        pool.borrow()
+                .close();
+        verify(dialect).resetPooledConnection(physicals.get(0));
+        verify(physicals.get(0), never()).close();
+
+        when(dialect.resetPooledConnection(physicals.get(0))).thenReturn(false);
+        pool.borrow()
+                .close();
+        verify(physicals.get(0)).close();
+        assertEquals(0, pool.stats()
+                .size());
+    }
+
+    @Test
+    void test_concurrent_close_returns_connection_once() throws Exception
+    {
+        ConnectionPool pool = pool();
+        for (int i = 0; i < 200; i++)
+        {
+            Connection connection = pool.borrow();
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<Void>> closes = new ArrayList<>();
+            for (int j = 0; j < 4; j++)
+            {
+                closes.add(CompletableFuture.runAsync(() ->
+                {
+                    try
+                    {
+                        start.await();
+                        connection.close();
+                    }
+                    catch (Exception e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                }));
+            }
+            start.countDown();
+            CompletableFuture.allOf(closes.toArray(CompletableFuture[]::new))
+                    .get(5, TimeUnit.SECONDS);
+
+            // A connection returned more than once would show up twice among the idle connections
+            assertEquals(1, pool.stats()
+                    .idle());
+        }
+        assertEquals(1, physicals.size());
+    }
+
+    @Test
+    void test_connection_that_fails_reset_is_closed() throws SQLException
+    {
+        ConnectionPool pool = pool();
+        Connection connection = pool.borrow();
+        Connection physical = physicals.get(0);
+        when(physical.getCatalog()).thenReturn("other");
+        doThrow(new SQLException("Broken")).when(physical)
+                .setCatalog("master");
+        connection.close();
+
+        verify(physical).close();
+        pool.borrow()
+                .close();
+        assertEquals(2, physicals.size());
+    }
+
+    @Test
+    void test_credential_change_bumps_generation() throws SQLException
+    {
+        ConnectionPool pool = pool();
+        Connection borrowed = pool.borrow();
+        pool.borrow()
+                .close();
+
+        jdbcConnection.setRuntimePassword("secret".toCharArray());
+        // Idle connection of old credentials is closed
+        pool.borrow()
+                .close();
+        verify(physicals.get(1)).close();
+        assertEquals(3, physicals.size());
+
+        // Borrowed connection of old credentials is closed on return
+        borrowed.close();
+        verify(physicals.get(0)).close();
+        verify(physicals.get(2), never()).close();
+        assertEquals(1, pool.stats()
+                .idle());
+    }
+
+    @Test
+    void test_close_closes_idle_and_returned_connections() throws SQLException
+    {
+        ConnectionPool pool = pool();
+        Connection borrowed = pool.borrow();
+        pool.borrow()
+                .close();
+
+        pool.close();
+        verify(physicals.get(1)).close();
+        borrowed.close();
+        verify(physicals.get(0)).close();
+        assertEquals(0, pool.stats()
+                .size());
+    }
+
+    @Test
+    void test_pools_of_removed_connections_are_closed() throws SQLException
+    {
+        JdbcConnection kept = new JdbcConnection("kept", JdbcConnection.SqlType.JDBC_URL);
+        Connection borrowed = ConnectionPool.borrow(jdbcConnection, dialect);
+        ConnectionPool.borrow(jdbcConnection, dialect)
+                .close();
+        ConnectionPool.borrow(kept, dialect)
+                .close();
+
+        ConnectionPool.retain(List.of(kept));
+        assertNull(ConnectionPool.getStats(jdbcConnection));
+        verify(physicals.get(1)).close();
+        borrowed.close();
+        verify(physicals.get(0)).close();
+        verify(physicals.get(2), never()).close();
+        assertEquals(1, ConnectionPool.getStats(kept)
+                .idle());
+
+        ConnectionPool.retain(List.of());
+        verify(physicals.get(2)).close();
+    }
+
+    @Test
+    void test_leak_detection() throws SQLException
+    {
+        ConnectionPool pool = pool();
+        Connection connection = pool.borrow();
+
+        clock.addAndGet(LIMITS.leakThresholdMs() - 1);
+        pool.detectLeaks();
+        assertEquals(0, pool.stats()
+                .leaks());
+
+        clock.addAndGet(1);
+        pool.detectLeaks();
+        // Only reported once per borrow
+        pool.detectLeaks();
+        assertEquals(1, pool.stats()
+                .leaks());
+
+        connection.close();
+        clock.addAndGet(LIMITS.leakThresholdMs());
+        pool.detectLeaks();
+        assertEquals(1, pool.stats()
+                .leaks());
+        verify(dialect, times(1)).createConnection(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void test_failed_create_releases_slot() throws SQLException
+    {
+        ConnectionPool pool = new ConnectionPool(jdbcConnection, dialect, new ConnectionPool.Limits(1, 0, 1000, 5000, 20_000, 3000), clock::get);
+        when(dialect.createConnection(any(), any(), any(), anyBoolean())).thenThrow(new SQLException("Login failed"));
+        assertThrows(SQLException.class, () -> pool.borrow());
+        // The slot is released so the next borrow tries to create a connection instead of timing out
+        SQLException e = assertThrows(SQLException.class, () -> pool.borrow());
+        assertEquals("Login failed", e.getMessage());
+        assertEquals(0, pool.stats()
+                .size());
+    }
+
+    private ConnectionPool pool()
+    {
+        return new ConnectionPool(jdbcConnection, dialect, LIMITS, clock::get);
+    }
+}
@@ -0,0 +1,309 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.queryeer.api.editor.TextSelection;
+import com.queryeer.api.extensions.output.QueryeerOutputWriter;
+import com.queryeer.api.extensions.output.text.ITextOutputComponent;
+
+import se.kuseman.payloadbuilder.catalog.jdbc.dialect.JdbcDialect;
+import se.kuseman.payloadbuilder.catalog.jdbc.dialect.JdbcDialectProvider;
+
+/** Test of {@link FanOutExecution} */
+class FanOutExecutionTest
+{
+    private static final String[] COLUMNS = new String[] { "id", "name" };
+    private static final int[] TYPES = new int[] { Types.INTEGER, Types.VARCHAR };
+
+    private final JdbcQueryEngine queryEngine = mock(JdbcQueryEngine.class);
+    private final JdbcDialectProvider dialectProvider = mock(JdbcDialectProvider.class);
+    private final JdbcDialect dialect = mock(JdbcDialect.class);
+    private final ITextOutputComponent textOutput = mock(ITextOutputComponent.class);
+    private final QueryeerOutputWriter writer = mock(QueryeerOutputWriter.class);
+    /** Statements per connection name */
+    private final Map<String, Statement> statements = new HashMap<>();
+    /** Written results in order */
+    private final List<Result> results = new ArrayList<>();
+
+    @BeforeEach
+    void setup() throws Exception
+    {
+        when(queryEngine.getColumnsMeta(any())).thenCallRealMethod();
+        when(dialectProvider.getDialect(any())).thenReturn(dialect);
+        when(dialect.isValid(any())).then(i -> i.getArgument(0) != null);
+        when(dialect.createConnection(any(), any(), any(), anyBoolean())).then(i ->
+        {
+            Connection connection = mock(Connection.class);
+            Statement statement = statements.get(i.getArgument(1));
+            when(connection.createStatement(anyInt(), anyInt())).thenReturn(statement);
+            return connection;
+        });
+        when(dialect.getJdbcValueType(anyInt())).then(i -> (int) i.getArgument(0) == Types.INTEGER ? Integer.class
+                : String.class);
+        when(dialect.getJdbcValue(any(), anyInt(), anyInt())).then(i -> ((ResultSet) i.getArgument(0)).getObject((int) i.getArgument(1)));
+        when(textOutput.getTextWriter()).thenReturn(new PrintWriter(new StringWriter()));
+
+        doAnswer(i ->
+        {
+            results.add(new Result(i.getArgument(0), i.getArgument(1), i.getArgument(2)));
+            return null;
+        }).when(writer)
+                .initResult(any(String[].class), any(Class[].class), any());
+        doAnswer(i ->
+        {
+            Object[][] values = i.getArgument(1);
+            int rowCount = i.getArgument(2);
+            Result result = results.get(results.size() - 1);
+            for (int row = 0; row < rowCount; row++)
+            {
+                Object[] rowValues = new Object[values.length];
+                for (int col = 0; col < values.length; col++)
+                {
+                    rowValues[col] = values[col][row];
+                }
+                result.rows.add(Arrays.asList(rowValues));
+            }
+            return null;
+        }).when(writer)
+                .writeBatch(any(), any(), anyInt());
+        doAnswer(i ->
+        {
+            results.get(results.size() - 1).ended = true;
+            return null;
+        }).when(writer)
+                .endResult();
+    }
+
+    @Test
+    void test_buffered_result_spills_and_reads_back_in_order() throws Exception
+    {
+        Object notSerializable = new Object()
+        {
+            @Override
+            public String toString()
+            {
+                return "custom";
+            }
+        };
+
+        int batchCount = FanOutExecution.MAX_BUFFERED_BATCHES + 3;
+        List<List<Object>> actual = new ArrayList<>();
+        try (FanOutExecution.BufferedResult buffered = new FanOutExecution.BufferedResult(COLUMNS, new Class<?>[] { Integer.class, Object.class }))
+        {
+            for (int b = 0; b < batchCount; b++)
+            {
+                // Batch arrays are larger than the row count like the batches of a result set read
+                Object[][] batch = new Object[][] { new Object[] { b, null }, new Object[] { notSerializable, null } };
+                buffered.add(batch, 1);
+            }
+
+            buffered.read((columns, values, rowCount) ->
+            {
+                assertArrayEquals(COLUMNS, columns);
+                for (int row = 0; row < rowCount; row++)
+                {
+                    actual.add(Arrays.asList(values[0][row], values[1][row]));
+                }
+            });
+        }
+
+        assertEquals(batchCount, actual.size());
+        for (int b = 0; b < batchCount; b++)
+        {
+            assertEquals(b, actual.get(b)
+                    .get(0));
+            // In memory batches keep the value, spilled ones without a serial form are read back as strings
+            Object expected = b < FanOutExecution.MAX_BUFFERED_BATCHES ? notSerializable
+                    : "custom";
+            assertEquals(expected, actual.get(b)
+                    .get(1));
+        }
+    }
+
+    @Test
+    void test_merged_results_with_matching_columns() throws Exception
+    {
+        // Column names are matched case insensitive
+        statement("a", resultSet(COLUMNS, TYPES, new Object[][] { { 1, "one" }, { 2, "two" } }));
+        statement("b", resultSet(new String[] { "ID", "NAME" }, TYPES, new Object[][] { { 3, "three" } }));
+
+        execute(true, 0, "a", "b");
+
+        assertEquals(1, results.size());
+        Result merged = results.get(0);
+        assertEquals(FanOutExecution.CONNECTION_COLUMN, merged.columns[0]);
+        assertEquals(FanOutExecution.DATABASE_COLUMN, merged.columns[1]);
+        assertArrayEquals(new Class<?>[] { String.class, String.class, Integer.class, String.class }, merged.columnTypes);
+        // Targets run concurrently so the order between targets is not known
+        assertEquals(Set.of(List.of("a", "db", 1, "one"), List.of("a", "db", 2, "two"), List.of("b", "db", 3, "three")), new HashSet<>(merged.rows));
+        assertTrue(merged.ended);
+    }
+
+    @Test
+    void test_merged_result_with_non_matching_types_is_written_separately() throws Exception
+    {
+        statement("a", resultSet(COLUMNS, TYPES, new Object[][] { { 1, "one" } }));
+        statement("b", resultSet(COLUMNS, new int[] { Types.VARCHAR, Types.VARCHAR }, new Object[][] { { "2", "two" } }));
+
+        execute(true, 0, "a", "b");
+
+        // The first target that delivers a result decides the merged columns
+        assertEquals(2, results.size());
+        Result merged = results.get(0);
+        String mergedTarget = (String) merged.rows.get(0)
+                .get(0);
+        String separateTarget = "a".equals(mergedTarget) ? "b"
+                : "a";
+        assertEquals(1, merged.rows.size());
+        assertEquals("a".equals(mergedTarget) ? Integer.class
+                : String.class, merged.columnTypes[2]);
+
+        // The non matching result is written separately after the merged one
+        Result separate = results.get(1);
+        assertArrayEquals(COLUMNS, separate.columns);
+        assertEquals(separateTarget, separate.metaData.get(FanOutExecution.CONNECTION_COLUMN));
+        assertEquals("a".equals(separateTarget) ? List.of(List.of(1, "one"))
+                : List.of(List.of("2", "two")), separate.rows);
+        results.forEach(r -> assertTrue(r.ended));
+    }
+
+    @Test
+    void test_separate_mode_writes_results_per_target() throws Exception
+    {
+        statement("a", resultSet(COLUMNS, TYPES, new Object[][] { { 1, "one" } }), resultSet(new String[] { "value" }, new int[] { Types.INTEGER }, new Object[][] { { 10 } }));
+        statement("b", resultSet(COLUMNS, TYPES, new Object[][] { { 2, "two" }, { 3, "three" } }), resultSet(new String[] { "value" }, new int[] { Types.INTEGER }, new Object[][] { { 20 } }));
+
+        execute(false, 0, "a", "b");
+
+        assertEquals(4, results.size());
+        for (String target : List.of("a", "b"))
+        {
+            // Results of a target are written together and in order
+            int index = -1;
+            for (int i = 0; i < results.size(); i++)
+            {
+                if (target.equals(results.get(i).metaData.get(FanOutExecution.CONNECTION_COLUMN)))
+                {
+                    index = i;
+                    break;
+                }
+            }
+            Result first = results.get(index);
+            Result second = results.get(index + 1);
+            assertEquals(target, second.metaData.get(FanOutExecution.CONNECTION_COLUMN));
+            assertEquals("db", first.metaData.get(FanOutExecution.DATABASE_COLUMN));
+            assertArrayEquals(COLUMNS, first.columns);
+            assertArrayEquals(new String[] { "value" }, second.columns);
+            assertEquals("a".equals(target) ? List.of(List.of(1, "one"))
+                    : List.of(List.of(2, "two"), List.of(3, "three")), first.rows);
+            assertEquals(List.of(List.of("a".equals(target) ? 10
+                    : 20)), second.rows);
+        }
+        results.forEach(r -> assertTrue(r.ended));
+    }
+
+    @Test
+    void test_preview_limits_rows_per_result() throws Exception
+    {
+        Statement statement = statement("a", resultSet(COLUMNS, TYPES, new Object[][] { { 1, "one" }, { 2, "two" }, { 3, "three" } }));
+
+        execute(false, 2, "a");
+
+        assertEquals(1, results.size());
+        assertEquals(List.of(List.of(1, "one"), List.of(2, "two")), results.get(0).rows);
+        verify(statement).cancel();
+        verify(textOutput).appendWarning(contains("Preview limit of 2 rows reached"), eq(TextSelection.EMPTY));
+    }
+
+    private void execute(boolean merge, int maxRows, String... connectionNames) throws Exception
+    {
+        List<FanOutExecution.Target> targets = new ArrayList<>();
+        for (String name : connectionNames)
+        {
+            JdbcConnection connection = new JdbcConnection(name, JdbcConnection.SqlType.JDBC_URL);
+            // The user name is used to pick the statement of the target
+            connection.setUsername(name);
+            connection.setRuntimePassword("secret".toCharArray());
+            targets.add(new FanOutExecution.Target(connection, "db"));
+        }
+        new FanOutExecution(queryEngine, dialectProvider, targets, merge, maxRows).execute("select", writer, textOutput);
+    }
+
+    /** Create a statement of a connection that returns provided result sets */
+    private Statement statement(String connectionName, ResultSet... resultSets) throws SQLException
+    {
+        Statement statement = mock(Statement.class);
+        when(statement.execute(anyString())).thenReturn(true);
+        when(statement.getResultSet()).thenReturn(resultSets[0], Arrays.copyOfRange(resultSets, 1, resultSets.length));
+        Boolean[] moreResults = new Boolean[resultSets.length];
+        Arrays.fill(moreResults, true);
+        moreResults[resultSets.length - 1] = false;
+        when(statement.getMoreResults()).thenReturn(moreResults[0], Arrays.copyOfRange(moreResults, 1, moreResults.length));
+        when(statement.getUpdateCount()).thenReturn(-1);
+        statements.put(connectionName, statement);
+        return statement;
+    }
+
+    private ResultSet resultSet(String[] columns, int[] types, Object[][] rows) throws SQLException
+    {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(columns.length);
+        when(metaData.getColumnLabel(anyInt())).then(i -> columns[(int) i.getArgument(0) - 1]);
+        when(metaData.getColumnType(anyInt())).then(i -> types[(int) i.getArgument(0) - 1]);
+
+        AtomicInteger row = new AtomicInteger(-1);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(rs.next()).then(i -> row.incrementAndGet() < rows.length);
+        when(rs.getObject(anyInt())).then(i -> rows[row.get()][(int) i.getArgument(0) - 1]);
+        return rs;
+    }
+
+    private static class Result
+    {
+        private final String[] columns;
+        private final Class<?>[] columnTypes;
+        private final Map<String, Object> metaData;
+        private final List<List<Object>> rows = new ArrayList<>();
+        private boolean ended;
+
+        Result(String[] columns, Class<?>[] columnTypes, Map<String, Object> metaData)
+        {
+            this.columns = columns;
+            this.columnTypes = columnTypes;
+            this.metaData = metaData;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package se.kuseman.payloadbuilder.catalog.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.queryeer.api.extensions.output.QueryeerOutputWriter;
+
+/** Test of {@link FetchPipeline}. */
+class FetchPipelineTest
+{
+    private static final String[] COLUMNS = new String[] { "col" };
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    /** Row values of each written batch */
+    private final List<List<Object>> batches = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void test_rows_are_written_in_order_in_batches() throws Exception
+    {
+        try (FetchPipeline pipeline = new FetchPipeline(recordingWriter(null), COLUMNS, 3, Long.MAX_VALUE, 2, () -> false, executor))
+        {
+            for (int i = 0; i < 7; i++)
+            {
+                append(pipeline, i);
+            }
+            pipeline.finish();
+        }
+
+        assertEquals(List.of(List.of(0, 1, 2), List.of(3, 4, 5), List.of(6)), batches);
+    }
+
+    @Test
+    void test_stale_batch_is_written_while_fetching_is_blocked() throws Exception
+    {
+        CountDownLatch written = new CountDownLatch(1);
+        try (FetchPipeline pipeline = new FetchPipeline(recordingWriter(written), COLUMNS, 100, TimeUnit.MILLISECONDS.toNanos(50), 2, () -> false, executor))
+        {
+            append(pipeline, 0);
+            append(pipeline, 1);
+            // No more rows are appended, simulates a fetching thread that is blocked in ResultSet#next
+            assertTrue(written.await(5, TimeUnit.SECONDS), "Partial batch should be written by the consumer");
+            assertEquals(List.of(List.of(0, 1)), batches);
+
+            append(pipeline, 2);
+            pipeline.finish();
+        }
+
+        assertEquals(List.of(List.of(0, 1), List.of(2)), batches);
+    }
+
+    @Test
+    void test_consumer_failure_is_propagated_to_fetching_thread() throws Exception
+    {
+        QueryeerOutputWriter writer = mock(QueryeerOutputWriter.class);
+        doAnswer(i ->
+        {
+            throw new IllegalStateException("Output failed");
+        }).when(writer)
+                .writeBatch(any(), any(), anyInt());
+
+        try (FetchPipeline pipeline = new FetchPipeline(writer, COLUMNS, 1, Long.MAX_VALUE, 1, () -> false, executor))
+        {
+            append(pipeline, 0);
+            // The only slot is never returned by the failed consumer so this blocks until the failure is detected
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> append(pipeline, 1));
+            assertEquals("Output failed", e.getMessage());
+        }
+    }
+
+    @Test
+    void test_abort_stops_fetching_and_consumer() throws Exception
+    {
+        AtomicBoolean abort = new AtomicBoolean();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        QueryeerOutputWriter writer = mock(QueryeerOutputWriter.class);
+        doAnswer(i ->
+        {
+            blocked.countDown();
+            release.await();
+            return null;
+        }).when(writer)
+                .writeBatch(any(), any(), anyInt());
+
+        try (FetchPipeline pipeline = new FetchPipeline(writer, COLUMNS, 1, Long.MAX_VALUE, 1, abort::get, executor))
+        {
+            append(pipeline, 0);
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            // Output is behind and all slots are in use, abort must unblock the fetching thread
+            executor.submit(() -> abort.set(true));
+            assertThrows(CancellationException.class, () -> append(pipeline, 1));
+            release.countDown();
+            // Returns without waiting for remaining batches
+            pipeline.finish();
+        }
+    }
+
+    private static void append(FetchPipeline pipeline, int value) throws Exception
+    {
+        pipeline.append((values, row) -> values[0][row] = value);
+    }
+
+    private QueryeerOutputWriter recordingWriter(CountDownLatch written)
+    {
+        QueryeerOutputWriter writer = mock(QueryeerOutputWriter.class);
+        doAnswer(i ->
+        {
+            Object[][] values = i.getArgument(1);
+            int rowCount = i.getArgument(2);
+            // Values are recycled by the pipeline so copy them
+            List<Object> rows = new ArrayList<>(rowCount);
+            for (int row = 0; row < rowCount; row++)
+            {
+                rows.add(values[0][row]);
+            }
+            batches.add(rows);
+            if (written != null)
+            {
+                written.countDown();
+            }
+            return null;
+        }).when(writer)
+                .writeBatch(any(), any(), anyInt());
+        return writer;
+    }
+}
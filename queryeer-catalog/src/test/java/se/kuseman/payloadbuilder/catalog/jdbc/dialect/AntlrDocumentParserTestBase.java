@@ -5,6 +5,7 @@
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -17,6 +18,7 @@
 import java.util.stream.Collectors;
 
 import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.junit.jupiter.api.BeforeEach;
@@ -164,6 +166,91 @@ protected void useTableCatalog()
         when(crawlService.getCatalog(any(), anyString())).thenReturn(TABLE_CATALOG);
     }
 
+    /**
+     * Parse before and then after with the parser under test and assert that the tree and parse result equals a full parse of after. Also asserts that the tree of the first parse is left
+     * untouched. Returns true if the second parse was incremental.
+     */
+    protected boolean assertReparse(String before, String after)
+    {
+        documentParser.parse(new StringReader(before));
+        ParserRuleContext previousTree = documentParser.context;
+        String previousDump = dump(previousTree);
+        long incrementalParses = incrementalParses();
+
+        documentParser.parse(new StringReader(after));
+        boolean incremental = incrementalParses() > incrementalParses;
+        assertEquals(previousDump, dump(previousTree), "Tree of previous parse must not be modified");
+
+        AntlrDocumentParser<?> fullParser = createParser();
+        fullParser.parse(new StringReader(after));
+        assertEquals(dump(fullParser.context), dump(documentParser.context));
+        assertEquals(items(fullParser.getParseResult()), items(documentParser.getParseResult()));
+        return incremental;
+    }
+
+    private long incrementalParses()
+    {
+        return ((Number) documentParser.getParseStatistics()
+                .get("Incremental Parses")).longValue();
+    }
+
+    private static List<String> items(List<ParseItem> items)
+    {
+        return items.stream()
+                .map(i -> i.getLevel() + " " + i.getLine() + ":" + i.getOffset() + ":" + i.getLength() + " " + i.getMessage())
+                .collect(Collectors.toList());
+    }
+
+    /** Dump tree with token positions and verify parent links */
+    private static String dump(ParseTree tree)
+    {
+        StringBuilder sb = new StringBuilder();
+        dump(tree, null, sb, 0);
+        return sb.toString();
+    }
+
+    private static void dump(ParseTree tree, ParseTree parent, StringBuilder sb, int indent)
+    {
+        assertSame(parent, tree.getParent(), "Parent of: " + tree.getText());
+        sb.append("  ".repeat(indent));
+        if (tree instanceof TerminalNode node)
+        {
+            Token token = node.getSymbol();
+            sb.append(node.getClass()
+                    .getSimpleName())
+                    .append(" '")
+                    .append(token.getText())
+                    .append("' type: ")
+                    .append(token.getType())
+                    .append(", index: ")
+                    .append(token.getTokenIndex())
+                    .append(", start: ")
+                    .append(token.getStartIndex())
+                    .append(", stop: ")
+                    .append(token.getStopIndex())
+                    .append(", line: ")
+                    .append(token.getLine())
+                    .append(':')
+                    .append(token.getCharPositionInLine())
+                    .append('\n');
+            return;
+        }
+        ParserRuleContext ctx = (ParserRuleContext) tree;
+        sb.append(ctx.getClass()
+                .getSimpleName())
+                .append(" start: ")
+                .append(ctx.start != null ? ctx.start.getTokenIndex()
+                        : null)
+                .append(", stop: ")
+                .append(ctx.stop != null ? ctx.stop.getTokenIndex()
+                        : null)
+                .append('\n');
+        for (int i = 0; i < ctx.getChildCount(); i++)
+        {
+            dump(ctx.getChild(i), ctx, sb, indent + 1);
+        }
+    }
+
     // -----------------------------------------------------------------
     // Column-suggestion tests (getCompletionItems integration)
     // -----------------------------------------------------------------
@@ -811,6 +898,72 @@ void test_validation_differentExpressions_noWarning()
         assertTrue(warnings.isEmpty(), "No 'Same expression' warning expected when expressions differ");
     }
 
+    // -----------------------------------------------------------------
+    // Incremental re-parse tests
+    // -----------------------------------------------------------------
+
+    private static final String REPARSE_QUERY = """
+            SELECT col1 FROM dbo.tableA WHERE col1 = 1;
+            SELECT col2, col3 FROM dbo.tableB;
+            SELECT 3
+            """;
+
+    @Test
+    void test_reparse_editInsideStatement()
+    {
+        assertReparse(REPARSE_QUERY, REPARSE_QUERY.replace("col2, col3", "col2, col3 + 10, col4"));
+        assertReparse(REPARSE_QUERY, REPARSE_QUERY.replace("col1 = 1", "col1 = 1 AND col2 > 20"));
+        assertReparse(REPARSE_QUERY, REPARSE_QUERY.replace("SELECT 3", "SELECT 3, 4"));
+    }
+
+    @Test
+    void test_reparse_hiddenOnlyEdit()
+    {
+        assertReparse(REPARSE_QUERY, REPARSE_QUERY.replace("FROM dbo.tableB", "FROM   /* comment */ dbo.tableB"));
+        assertReparse(REPARSE_QUERY, "-- comment\n\n" + REPARSE_QUERY);
+        assertReparse(REPARSE_QUERY, REPARSE_QUERY.replace("\n", "\n\n"));
+    }
+
+    @Test
+    void test_reparse_editAtStatementBoundary()
+    {
+        // End of a statement
+        assertReparse(REPARSE_QUERY, REPARSE_QUERY.replace("col1 = 1;", "col1 = 12;"));
+        assertReparse(REPARSE_QUERY, REPARSE_QUERY.replace("dbo.tableB;", "dbo.tableB"));
+        // Start of a statement
+        assertReparse(REPARSE_QUERY, REPARSE_QUERY.replace("SELECT col2", "SELECT TOP 10 col2"));
+        // New statement between two statements
+        assertReparse(REPARSE_QUERY, REPARSE_QUERY.replace("dbo.tableB;", "dbo.tableB;\nSELECT 4;"));
+        // Statement removed
+        assertReparse(REPARSE_QUERY, REPARSE_QUERY.replace("SELECT col2, col3 FROM dbo.tableB;\n", ""));
+        // End of document
+        assertReparse(REPARSE_QUERY, REPARSE_QUERY + "SELECT 5");
+    }
+
+    @Test
+    void test_reparse_syntaxErrors()
+    {
+        // Edit that introduces a syntax error
+        assertReparse(REPARSE_QUERY, REPARSE_QUERY.replace("col2, col3", "col2,, col3"));
+        // Edit that fixes a syntax error
+        assertReparse(REPARSE_QUERY.replace("col2, col3", "col2,, col3"), REPARSE_QUERY);
+        // Edit of another statement than the one with the syntax error
+        String query = REPARSE_QUERY.replace("col1 = 1", "col1 = = 1");
+        assertReparse(query, query.replace("SELECT 3", "SELECT 3, 4"));
+    }
+
+    @Test
+    void test_reparse_consecutiveEdits()
+    {
+        String query = REPARSE_QUERY;
+        for (String column : List.of("colA", "colB", "colC"))
+        {
+            String next = query.replace("col3", "col3, " + column);
+            assertReparse(query, next);
+            query = next;
+        }
+    }
+
     // -----------------------------------------------------------------
     // findNearestPrecedingStatementCtx tests
     // -----------------------------------------------------------------
@@ -60,6 +60,38 @@ protected AntlrDocumentParser<?> createParser()
         return sqlServerDocumentParser;
     }
 
+    // -----------------------------------------------------------------
+    // Incremental re-parse tests
+    // -----------------------------------------------------------------
+
+    @Test
+    void test_reparse_isIncremental()
+    {
+        String query = """
+                IF @a = 1
+                BEGIN
+                  SELECT x = a + b * c FROM t1 INNER JOIN t2 ON t2.id = t1.id WHERE t1.c IN (1, 2, 3)
+                  UPDATE t SET a = 1 WHERE b = 2
+                END
+                ELSE
+                  DELETE FROM t3 WHERE d > 5
+                INSERT INTO t4 (a, b) SELECT a, b FROM t5
+                """;
+        assertTrue(assertReparse(query, query.replace("a + b * c", "a + b * c - d")), "Edit inside a statement should be incremental");
+        assertTrue(assertReparse(query, query.replace("b = 2", "b = 2 OR b = 3")), "Edit inside a nested statement should be incremental");
+        assertTrue(assertReparse(query, query.replace("FROM t5", "FROM t5 WHERE a = 1")), "Edit at the end of a statement should be incremental");
+        assertTrue(assertReparse(query, query.replace("FROM t3", "FROM /* comment */ t3")), "Hidden only edit should be incremental");
+    }
+
+    @Test
+    void test_reparse_fallsBackToFullParse()
+    {
+        String query = "SELECT col1 FROM dbo.tableA\nSELECT col2 FROM dbo.tableB\nSELECT 3\n";
+        assertFalse(assertReparse(query, query.replace("col2", "col2,,")), "Edit with syntax errors should do a full parse");
+        assertFalse(assertReparse(query, query.replace("dbo.tableB\n", "dbo.tableB\nSELECT 4\n")), "New statement should do a full parse");
+        assertFalse(assertReparse(query, query.replace("SELECT col2 FROM dbo.tableB\n", "")), "Removed statement should do a full parse");
+    }
+
     // -----------------------------------------------------------------
     // Procedure-parameter tests (T-SQL EXEC / @param syntax)
     // -----------------------------------------------------------------
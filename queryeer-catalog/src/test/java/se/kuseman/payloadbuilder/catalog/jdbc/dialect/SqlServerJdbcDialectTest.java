@@ -0,0 +1,217 @@
+package se.kuseman.payloadbuilder.catalog.jdbc.dialect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.queryeer.api.extensions.output.queryplan.IQueryPlanOutputExtension;
+import com.queryeer.api.service.IEventBus;
+import com.queryeer.api.service.ITemplateService;
+
+import se.kuseman.payloadbuilder.catalog.jdbc.CatalogCrawlService;
+import se.kuseman.payloadbuilder.catalog.jdbc.IConnectionContext;
+import se.kuseman.payloadbuilder.catalog.jdbc.Icons;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Catalog;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Column;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Constraint;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.ForeignKey;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.ForeignKeyColumn;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.Index;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.IndexColumn;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.ObjectName;
+import se.kuseman.payloadbuilder.catalog.jdbc.model.TableSource;
+
+/** Test of {@link SqlServerJdbcDialect} */
+class SqlServerJdbcDialectTest
+{
+    private static final String PREVIOUS_VERSION = "2026-01-01T00:00:00|3";
+    private static final String VERSION = "2026-01-02T00:00:00|3";
+    private static final ObjectName ORDERS = new ObjectName("db", "dbo", "orders");
+    private static final ObjectName CUSTOMERS = new ObjectName("db", "dbo", "customers");
+    private static final ObjectName ARTICLES = new ObjectName("db", "dbo", "articles");
+
+    private final IConnectionContext connectionContext = mock(IConnectionContext.class);
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement deltaStatement = mock(PreparedStatement.class);
+    private SqlServerJdbcDialect dialect;
+
+    @BeforeEach
+    void setup() throws SQLException
+    {
+        dialect = new SqlServerJdbcDialect(mock(CatalogCrawlService.class), mock(IEventBus.class), mock(Icons.class), mock(QueryActionsConfigurable.class), mock(ITemplateService.class),
+                mock(IQueryPlanOutputExtension.class), mock(ITreeConfig.class));
+        when(connectionContext.createConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(deltaStatement);
+    }
+
+    @Test
+    void test_catalog_delta_without_version()
+    {
+        assertNull(dialect.getCatalogDelta(connectionContext, "db", previous(null)));
+        // Version without a since part
+        assertNull(dialect.getCatalogDelta(connectionContext, "db", previous("3")));
+        assertNull(dialect.getCatalogDelta(connectionContext, "db", previous("|3")));
+    }
+
+    @Test
+    void test_catalog_delta_unchanged_version() throws SQLException
+    {
+        mockVersion(PREVIOUS_VERSION);
+        Catalog previous = previous(PREVIOUS_VERSION);
+
+        assertSame(previous, dialect.getCatalogDelta(connectionContext, "db", previous));
+        verify(connection).setCatalog("db");
+        verify(connection, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    void test_catalog_delta() throws SQLException
+    {
+        mockVersion(VERSION);
+        Catalog previous = previous(PREVIOUS_VERSION);
+
+        // Orders got a new column and its index and constraint were replaced, articles was dropped
+        when(deltaStatement.execute()).thenReturn(true);
+        when(deltaStatement.getMoreResults()).thenReturn(true);
+        //@formatter:off
+        when(deltaStatement.getResultSet()).thenReturn(
+                // Changed objects
+                resultSet(List.of(object(ORDERS))),
+                // Tables
+                resultSet(List.of(
+                        column(ORDERS, "id"),
+                        column(ORDERS, "customer_id"),
+                        column(ORDERS, "created"))),
+                // Routines
+                resultSet(List.of()),
+                // Indices
+                resultSet(List.of(row(ORDERS, "indexName", "IX_orders_created", "indexIsUnique", false, "columnName", "created", "columnDescending", false))),
+                // Foreign keys
+                resultSet(List.of()),
+                // Constraints
+                resultSet(List.of(row(ORDERS, "name", "DF_created", "type", "DEFAULT", "columnName", "created", "definition", "(getdate())"))),
+                // Existing objects
+                resultSet(List.of(object(ORDERS), object(CUSTOMERS))));
+        //@formatter:on
+
+        Catalog actual = dialect.getCatalogDelta(connectionContext, "db", previous);
+
+        verify(deltaStatement).setString(1, "2026-01-01T00:00:00");
+        assertEquals(VERSION, actual.getVersion());
+
+        // Customers is kept as is, orders is replaced and articles removed
+        assertEquals(2, actual.getTableSources()
+                .size());
+        assertSame(previous.getTableSources()
+                .get(1),
+                actual.findTableSources("dbo", "customers")
+                        .get(0));
+        assertEquals(List.of("id", "customer_id", "created"), actual.findTableSources("dbo", "orders")
+                .get(0)
+                .getColumns()
+                .stream()
+                .map(Column::getName)
+                .toList());
+        assertTrue(actual.findTableSources("dbo", "articles")
+                .isEmpty());
+
+        assertEquals(List.of("IX_orders_created"), actual.getIndices(ORDERS)
+                .stream()
+                .map(Index::getIndexName)
+                .toList());
+        assertEquals(previous.getIndices(CUSTOMERS), actual.getIndices(CUSTOMERS));
+        assertEquals(List.of("DF_created"), actual.getConstraints(ORDERS)
+                .stream()
+                .map(Constraint::getName)
+                .toList());
+
+        // Foreign key of orders was not part of the delta and the one of articles was dropped with its table
+        assertTrue(actual.getForeignKeys()
+                .isEmpty());
+    }
+
+    private void mockVersion(String version) throws SQLException
+    {
+        Statement statement = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(rs);
+        when(rs.next()).thenReturn(true, false);
+        when(rs.getString(1)).thenReturn(version);
+    }
+
+    private static Catalog previous(String version)
+    {
+        List<TableSource> tableSources = List.of(table(ORDERS, "id", "customer_id"), table(CUSTOMERS, "id", "name"), table(ARTICLES, "id", "customer_id"));
+        List<Index> indices = List.of(new Index(ORDERS, "IX_orders_customer", false, List.of(new IndexColumn("customer_id", false))),
+                new Index(CUSTOMERS, "UX_customers_name", true, List.of(new IndexColumn("name", false))));
+        List<ForeignKey> foreignKeys = List.of(new ForeignKey(new ObjectName("db", "dbo", "FK_orders_customers"), List.of(new ForeignKeyColumn(ORDERS, "customer_id", CUSTOMERS, "id"))),
+                new ForeignKey(new ObjectName("db", "dbo", "FK_articles_customers"), List.of(new ForeignKeyColumn(ARTICLES, "customer_id", CUSTOMERS, "id"))));
+        List<Constraint> constraints = List.of(new Constraint(ORDERS, "CK_customer", Constraint.Type.CHECK, "customer_id", "([customer_id]>(0))"));
+        return new Catalog("db", tableSources, List.of(), indices, foreignKeys, constraints, version);
+    }
+
+    private static TableSource table(ObjectName name, String... columns)
+    {
+        return new TableSource(name.getCatalog(), name.getSchema(), name.getName(), TableSource.Type.TABLE, List.of(columns)
+                .stream()
+                .map(c -> new Column(c, "int", 4, 10, 0, false, null))
+                .toList());
+    }
+
+    private static Map<String, Object> object(ObjectName name)
+    {
+        return row(name);
+    }
+
+    private static Map<String, Object> column(ObjectName table, String column)
+    {
+        return row(table, "objectType", "U", "columnName", column, "columnType", "int", "columnMaxLength", 4, "columnPrecision", 10, "columnScale", 0, "columnNullable", false);
+    }
+
+    private static Map<String, Object> row(ObjectName name, Object... keyValues)
+    {
+        Map<String, Object> row = new HashMap<>();
+        row.put("objectCatalog", name.getCatalog());
+        row.put("objectSchema", name.getSchema());
+        row.put("objectName", name.getName());
+        for (int i = 0; i < keyValues.length; i += 2)
+        {
+            row.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return row;
+    }
+
+    /** Create a result set that returns provided rows by column label */
+    private static ResultSet resultSet(List<Map<String, Object>> rows) throws SQLException
+    {
+        ResultSet rs = mock(ResultSet.class);
+        int[] index = { -1 };
+        when(rs.next()).then(i -> ++index[0] < rows.size());
+        when(rs.getString(anyString())).then(i -> (String) rows.get(index[0])
+                .get(i.getArgument(0)));
+        when(rs.getInt(anyString())).then(i -> (Integer) rows.get(index[0])
+                .getOrDefault(i.getArgument(0), 0));
+        when(rs.getBoolean(anyString())).then(i -> (Boolean) rows.get(index[0])
+                .getOrDefault(i.getArgument(0), false));
+        return rs;
+    }
+}
@@ -0,0 +1,105 @@
+package se.kuseman.payloadbuilder.catalog.jdbc.dialect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.queryeer.api.extensions.output.queryplan.Node;
+import com.queryeer.api.extensions.output.queryplan.Node.NodeProperty;
+
+/** Test of {@link SqlServerQueryPlanParser} */
+class SqlServerQueryPlanParserTest
+{
+    //@formatter:off
+    private static final String PLAN = """
+            <ShowPlanXML xmlns="http://schemas.microsoft.com/sqlserver/2004/07/showplan" Version="1.539" Build="15.0.2000.5">
+              <BatchSequence>
+                <Batch>
+                  <Statements>
+                    <StmtSimple StatementText="select top 10 * from dbo.orders" StatementId="1" StatementCompId="1" StatementType="SELECT" StatementSubTreeCost="0.0033" StatementEstRows="10" CardinalityEstimationModelVersion="150">
+                      <QueryPlan CachedPlanSize="16" CompileTime="1" CompileCPU="1" CompileMemory="120">
+                        <RelOp NodeId="0" PhysicalOp="Top" LogicalOp="Top" EstimateRows="10" EstimateIO="0" EstimateCPU="0.000001" AvgRowSize="15" EstimatedTotalSubtreeCost="0.0033" Parallel="0" EstimateRebinds="0" EstimateRewinds="0" EstimatedExecutionMode="Row">
+                          <OutputList />
+                          <Top RowCount="0" IsPercent="0" WithTies="0">
+                            <TopExpression>
+                              <ScalarOperator ScalarString="(10)">
+                                <Const ConstValue="(10)" />
+                              </ScalarOperator>
+                            </TopExpression>
+                            <RelOp NodeId="1" PhysicalOp="Clustered Index Scan" LogicalOp="Clustered Index Scan" EstimateRows="10" EstimateIO="0.003125" EstimateCPU="0.000168" AvgRowSize="15" EstimatedTotalSubtreeCost="0.0032" Parallel="0" EstimateRebinds="0" EstimateRewinds="0" EstimatedExecutionMode="Row">
+                              <OutputList />
+                              <IndexScan Ordered="0" ForcedIndex="0" ForceScan="0" NoExpandHint="0" Storage="RowStore">
+                                <DefinedValues />
+                                <Object Database="[db]" Schema="[dbo]" Table="[orders]" Index="[PK_orders]" IndexKind="Clustered" Storage="RowStore" />
+                              </IndexScan>
+                            </RelOp>
+                          </Top>
+                        </RelOp>
+                      </QueryPlan>
+                    </StmtSimple>
+                  </Statements>
+                </Batch>
+              </BatchSequence>
+            </ShowPlanXML>
+            """;
+    //@formatter:on
+
+    @Test
+    void test_parse()
+    {
+        List<Node> nodes = SqlServerQueryPlanParser.parseXml(PLAN);
+        assertNotNull(nodes);
+        assertEquals(1, nodes.size());
+
+        Node statement = nodes.get(0);
+        assertEquals("<html><b>Select</b>", statement.label());
+        assertEquals("select top 10 * from dbo.orders", property(statement, NodeProperty.STATEMENT_TEXT));
+
+        Node top = child(statement);
+        assertEquals("<html><b>Top</b> (0)<br/>Cost: 0%", top.label());
+        assertEquals(10.0, property(top, NodeProperty.ROW_COUNT));
+
+        Node scan = child(top);
+        assertTrue(scan.label()
+                .startsWith("<html><b>Clustered Index Scan (Clustered)</b> (1)<br/>[orders].[PK_orders]"), scan.label());
+        assertEquals("[db].[dbo].[orders].[PK_orders]", property(scan, "Object"));
+        assertTrue(scan.children()
+                .isEmpty());
+    }
+
+    @Test
+    void test_parse_after_failure()
+    {
+        assertNull(SqlServerQueryPlanParser.parseXml("<ShowPlanXML><BatchSequence>"));
+        assertNull(SqlServerQueryPlanParser.parseXml("not xml"));
+
+        // A failed parse does not affect the next one
+        List<Node> nodes = SqlServerQueryPlanParser.parseXml(PLAN);
+        assertNotNull(nodes);
+        assertEquals(nodes, SqlServerQueryPlanParser.parseXml(PLAN));
+    }
+
+    private static Node child(Node node)
+    {
+        assertEquals(1, node.children()
+                .size());
+        return node.children()
+                .get(0)
+                .node();
+    }
+
+    private static Object property(Node node, String name)
+    {
+        return node.properties()
+                .stream()
+                .filter(p -> name.equalsIgnoreCase(p.name()))
+                .findAny()
+                .map(NodeProperty::value)
+                .orElseThrow(() -> new AssertionError("Missing property " + name + " in " + node.label()));
+    }
+}
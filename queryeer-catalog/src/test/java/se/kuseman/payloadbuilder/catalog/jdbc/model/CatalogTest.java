@@ -0,0 +1,157 @@
+package se.kuseman.payloadbuilder.catalog.jdbc.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/** Test of {@link Catalog}. */
+class CatalogTest
+{
+    private static final ObjectName ORDERS = new ObjectName("db", "dbo", "orders");
+    private static final ObjectName CUSTOMERS = new ObjectName("db", "dbo", "customers");
+    private static final ObjectName ARTICLES = new ObjectName("db", "dbo", "articles");
+
+    @Test
+    void test_key()
+    {
+        // Plain names are returned as is
+        assertSame(ORDERS, Catalog.key(ORDERS));
+
+        // Sub classes are never equal to a plain name so they are converted
+        TableSource table = table("orders", "id");
+        Routine routine = new Routine("db", "dbo", "orders", Routine.Type.PROCEDURE, List.of());
+        assertNotEquals(ORDERS, table);
+        assertNotEquals(ORDERS, routine);
+        assertEquals(ORDERS, Catalog.key(table));
+        assertEquals(ORDERS, Catalog.key(routine));
+        assertEquals(ObjectName.class, Catalog.key(table)
+                .getClass());
+    }
+
+    @Test
+    void test_merge_keeps_unchanged_objects()
+    {
+        Catalog previous = previous();
+
+        // Nothing changed and all objects still exists
+        Catalog merged = previous.merge(empty("v2"), Set.of(), Set.of(ORDERS, CUSTOMERS, ARTICLES), "v2");
+
+        assertEquals("db", merged.getName());
+        assertEquals("v2", merged.getVersion());
+        assertEquals(previous.getTableSources(), merged.getTableSources());
+        assertSame(previous.getTableSources()
+                .get(0),
+                merged.getTableSources()
+                        .get(0));
+        assertEquals(previous.getIndices(), merged.getIndices());
+        assertEquals(previous.getForeignKeys(), merged.getForeignKeys());
+        assertEquals(previous.getConstraints(), merged.getConstraints());
+    }
+
+    @Test
+    void test_merge_replaces_changed_objects_and_their_children()
+    {
+        Catalog previous = previous();
+
+        // A column was added to orders and its index was replaced. Constraints, indices etc. marks their parent table as changed
+        TableSource changedOrders = table("orders", "id", "customer_id", "created");
+        Index changedIndex = new Index(ORDERS, "IX_orders_created", false, List.of(new IndexColumn("created", true)));
+        Constraint changedConstraint = new Constraint(ORDERS, "DF_created", Constraint.Type.DEFAULT, "created", "(getdate())");
+        Catalog changes = new Catalog("db", List.of(changedOrders), List.of(), List.of(changedIndex), List.of(), List.of(changedConstraint), "v2");
+
+        Catalog merged = previous.merge(changes, Set.of(ORDERS), Set.of(ORDERS, CUSTOMERS, ARTICLES), "v2");
+
+        assertEquals(List.of(previous.getTableSources()
+                .get(1),
+                previous.getTableSources()
+                        .get(2),
+                changedOrders), merged.getTableSources());
+        assertSame(changedOrders, merged.findTableSources("dbo", "ORDERS")
+                .get(0));
+        assertEquals(3, merged.findTableSources("dbo", "orders")
+                .get(0)
+                .getColumns()
+                .size());
+
+        // Old index and constraint of orders are gone, the ones of customers are kept
+        assertEquals(List.of(changedIndex), merged.getIndices(ORDERS));
+        assertEquals(previous.getIndices(CUSTOMERS), merged.getIndices(CUSTOMERS));
+        assertEquals(List.of(changedConstraint), merged.getConstraints(ORDERS));
+
+        // Foreign key of the changed child table is removed since it's not part of the changes
+        assertEquals(List.of(), merged.getForeignKeys(ORDERS));
+        assertEquals(previous.getForeignKeys(ARTICLES), merged.getReferencingForeignKeys(CUSTOMERS));
+        assertEquals(previous.getForeignKeys(ARTICLES), merged.getForeignKeys(ARTICLES));
+    }
+
+    @Test
+    void test_merge_removes_dropped_objects_and_their_children()
+    {
+        Catalog previous = previous();
+
+        // Articles was dropped
+        Catalog merged = previous.merge(empty("v2"), Set.of(), Set.of(ORDERS, CUSTOMERS), "v2");
+
+        assertEquals(List.of(previous.getTableSources()
+                .get(0),
+                previous.getTableSources()
+                        .get(1)),
+                merged.getTableSources());
+        assertTrue(merged.findTableSources(null, "articles")
+                .isEmpty());
+        assertTrue(merged.getForeignKeys(ARTICLES)
+                .isEmpty());
+        // The other foreign key is kept
+        assertEquals(previous.getForeignKeys(ORDERS), merged.getForeignKeys(ORDERS));
+        assertEquals(previous.getIndices(), merged.getIndices());
+    }
+
+    @Test
+    void test_merge_adds_new_objects()
+    {
+        Catalog previous = previous();
+        ObjectName payments = new ObjectName("db", "dbo", "payments");
+        TableSource table = table("payments", "id", "order_id");
+        Routine routine = new Routine("db", "dbo", "sp_pay", Routine.Type.PROCEDURE, List.of());
+        ForeignKey foreignKey = new ForeignKey(new ObjectName("db", "dbo", "FK_payments_orders"), List.of(new ForeignKeyColumn(payments, "order_id", ORDERS, "id")));
+        Catalog changes = new Catalog("db", List.of(table), List.of(routine), List.of(), List.of(foreignKey), List.of(), "v2");
+
+        Catalog merged = previous.merge(changes, Set.of(payments, Catalog.key(routine)), Set.of(ORDERS, CUSTOMERS, ARTICLES, payments, Catalog.key(routine)), "v2");
+
+        assertEquals(4, merged.getTableSources()
+                .size());
+        assertEquals(List.of(routine), merged.findRoutines(null, "sp_pay"));
+        assertEquals(List.of(foreignKey), merged.getForeignKeys(payments));
+        assertEquals(List.of(foreignKey), merged.getReferencingForeignKeys(ORDERS));
+    }
+
+    private static Catalog previous()
+    {
+        List<TableSource> tableSources = List.of(table("orders", "id", "customer_id"), table("customers", "id", "name"), table("articles", "id", "customer_id"));
+        List<Index> indices = List.of(new Index(ORDERS, "IX_orders_customer", false, List.of(new IndexColumn("customer_id", true))),
+                new Index(CUSTOMERS, "UX_customers_name", true, List.of(new IndexColumn("name", true))));
+        List<ForeignKey> foreignKeys = List.of(new ForeignKey(new ObjectName("db", "dbo", "FK_orders_customers"), List.of(new ForeignKeyColumn(ORDERS, "customer_id", CUSTOMERS, "id"))),
+                new ForeignKey(new ObjectName("db", "dbo", "FK_articles_customers"), List.of(new ForeignKeyColumn(ARTICLES, "customer_id", CUSTOMERS, "id"))));
+        List<Constraint> constraints = List.of(new Constraint(ORDERS, "CK_customer", Constraint.Type.CHECK, "customer_id", "([customer_id]>(0))"));
+        return new Catalog("db", tableSources, List.of(), indices, foreignKeys, constraints, "v1");
+    }
+
+    private static Catalog empty(String version)
+    {
+        return new Catalog("db", List.of(), List.of(), List.of(), List.of(), List.of(), version);
+    }
+
+    private static TableSource table(String name, String... columns)
+    {
+        return new TableSource("db", "dbo", name, TableSource.Type.TABLE, List.of(columns)
+                .stream()
+                .map(c -> new Column(c, "int", 4, 10, 0, false, null))
+                .toList());
+    }
+}
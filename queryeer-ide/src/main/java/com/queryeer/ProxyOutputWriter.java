@@ -39,6 +39,12 @@ public void close()
 
     @Override
     public void initResult(String[] columns, Map<String, Object> resultMetaData)
+    {
+        initResult(columns, null, resultMetaData);
+    }
+
+    @Override
+    public void initResult(String[] columns, Class<?>[] columnTypes, Map<String, Object> resultMetaData)
     {
         if (!resultMetaData.containsKey(METADATA_TIMESTAMP))
         {
@@ -51,7 +57,7 @@ public void initResult(String[] columns, Map<String, Object> resultMetaData)
         {
             if (w instanceof QueryeerOutputWriter qw)
             {
-                qw.initResult(columns, metaMap);
+                qw.initResult(columns, columnTypes, metaMap);
             }
             else
             {
@@ -66,6 +72,22 @@ public void initResult(String[] columns)
         writers.forEach(w -> w.initResult(columns));
     }
 
+    @Override
+    public void writeBatch(String[] columns, Object[][] values, int rowCount)
+    {
+        writers.forEach(w ->
+        {
+            if (w instanceof QueryeerOutputWriter qw)
+            {
+                qw.writeBatch(columns, values, rowCount);
+            }
+            else
+            {
+                QueryeerOutputWriter.writeRows(w, columns, values, rowCount);
+            }
+        });
+    }
+
     @Override
     public void endResult()
     {
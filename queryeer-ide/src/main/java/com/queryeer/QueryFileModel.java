@@ -265,10 +265,21 @@ void execute(Duration duration)
             {
                 return;
             }
+            if (state.isExecuting()
+                    || !queryEngine.shouldExecute(this))
+            {
+                return;
+            }
             executeInternal();
         }
         else
         {
+            // Confirm once when the interval starts and not on every tick
+            if (!queryEngine.shouldExecute(this))
+            {
+                return;
+            }
+
             // Stop previous timer if any
             if (executionTimer != null)
             {
@@ -283,13 +294,8 @@ void execute(Duration duration)
     }
 
     /** Execute this query file. */
-    void executeInternal()
+    private void executeInternal()
     {
-        if (!queryEngine.shouldExecute(this))
-        {
-            return;
-        }
-
         if (state.isExecuting())
         {
             return;
@@ -564,6 +570,12 @@ public void incrementTotalRowCount()
         totalRowCount++;
     }
 
+    @Override
+    public void incrementTotalRowCount(int count)
+    {
+        totalRowCount += count;
+    }
+
     /** Total row count of current execution including all result sets */
     int getTotalRowCount()
     {
@@ -101,6 +101,7 @@
 import com.queryeer.assistant.AIAssistantService;
 import com.queryeer.domain.Caret;
 import com.queryeer.event.CaretChangedEvent;
+import com.queryeer.event.ParseStatisticsEvent;
 import com.queryeer.event.QueryFileClosingEvent;
 import com.queryeer.event.QueryFileSaveEvent;
 import com.queryeer.mcp.McpConfigurable;
@@ -131,6 +132,7 @@ class QueryeerView extends JFrame
     private final JPanel panelStatus;
     private final JLabel labelMemory;
     private final JLabel labelCaret;
+    private final JLabel labelParse;
     private final JLabel labelVersion;
     private final JLabel labelTasks;
     private final JLabel labelTasksSpinner;
@@ -227,6 +229,9 @@ public void mouseClicked(MouseEvent e)
         labelCaret.setBorder(new EtchedBorder(EtchedBorder.LOWERED));
         labelCaret.setPreferredSize(new Dimension(100, 20));
         labelCaret.setToolTipText("Caret Position (Line, Column, Offset)");
+        labelParse = new JLabel("", SwingConstants.CENTER);
+        labelParse.setBorder(new EtchedBorder(EtchedBorder.LOWERED));
+        labelParse.setPreferredSize(new Dimension(80, 20));
         labelVersion = new JLabel();
         labelTasks = new JLabel();
         labelTasks.setMaximumSize(new Dimension(16, 16));
@@ -296,6 +301,7 @@ public void mouseClicked(MouseEvent e)
         panelStatus.add(labelLogs);
         panelStatus.add(panelTasks);
         panelStatus.add(labelMemory);
+        panelStatus.add(labelParse);
         panelStatus.add(labelCaret);
         panelStatus.add(labelVersion);
 
@@ -881,6 +887,17 @@ private void carretChanged(CaretChangedEvent event)
         labelCaret.setText(String.format("%d : %d : %d", caret.getLineNumber(), caret.getOffset(), caret.getPosition()));
     }
 
+    @Subscribe
+    private void parseStatistics(ParseStatisticsEvent event)
+    {
+        SwingUtilities.invokeLater(() ->
+        {
+            labelParse.setText(event.getParseMillis() + " ms");
+            labelParse.setToolTipText(String.format("Last Parse: %d ms, Queued: %d ms, Aborted: %d, Superseded: %d", event.getParseMillis(), event.getQueueMillis(), event.getAborted(),
+                    event.getSuperseded()));
+        });
+    }
+
     @Subscribe
     private void mcpServerStatus(McpServerStatusEvent event)
     {
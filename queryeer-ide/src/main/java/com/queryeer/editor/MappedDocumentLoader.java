@@ -0,0 +1,141 @@
+package com.queryeer.editor;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+/**
+ * Loads a file into a {@link Document} through a read only memory mapping. The mapping is decoded in chunks that are appended to the document so besides the document content only a single chunk
+ * is held in memory. Line separators are normalized to '\n' as Swing documents expects.
+ */
+class MappedDocumentLoader
+{
+    /** Max size of a file that can be loaded. A document cannot hold more chars than this */
+    static final long MAX_SIZE = Integer.MAX_VALUE - 8;
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private MappedDocumentLoader()
+    {
+    }
+
+    /** Load provided file and append its content to document */
+    static void load(Path file, Charset charset, Document document) throws IOException, BadLocationException
+    {
+        load(file, charset, document, CHUNK_SIZE);
+    }
+
+    static void load(Path file, Charset charset, Document document, int chunkSize) throws IOException, BadLocationException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size > MAX_SIZE)
+            {
+                throw new IOException("File is too large to be opened: " + file + " (" + size + " bytes)");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CharsetDecoder decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+            // Decoded length is at most the number of bytes
+            if (size > chunkSize)
+            {
+                reserve(document, (int) size);
+            }
+
+            CharBuffer chars = CharBuffer.allocate(chunkSize);
+            boolean first = true;
+            while (true)
+            {
+                CoderResult result = decoder.decode(buffer, chars, true);
+                if (result.isUnderflow())
+                {
+                    result = decoder.flush(chars);
+                }
+                if (result.isError())
+                {
+                    result.throwException();
+                }
+                chars.flip();
+                if (first)
+                {
+                    skipBom(chars);
+                    first = false;
+                }
+                boolean done = result.isUnderflow();
+                append(document, chars, done);
+                if (done)
+                {
+                    break;
+                }
+            }
+        }
+    }
+
+    /** Append decoded chars to document. A trailing '\r' is carried over to next chunk since it might be followed by a '\n' */
+    private static void append(Document document, CharBuffer chars, boolean last) throws BadLocationException
+    {
+        char[] array = chars.array();
+        int length = chars.limit();
+        int write = 0;
+        boolean carry = false;
+        for (int read = chars.position(); read < length; read++)
+        {
+            char c = array[read];
+            if (c == '\r')
+            {
+                if (read + 1 == length
+                        && !last)
+                {
+                    carry = true;
+                    break;
+                }
+                // CRLF => LF, CR => LF
+                if (read + 1 < length
+                        && array[read + 1] == '\n')
+                {
+                    continue;
+                }
+                c = '\n';
+            }
+            array[write++] = c;
+        }
+        if (write > 0)
+        {
+            document.insertString(document.getLength(), new String(array, 0, write), null);
+        }
+        chars.clear();
+        if (carry)
+        {
+            chars.put('\r');
+        }
+    }
+
+    /** Reserve capacity for provided number of chars. Swing document content grows linearly when large so appending chunks would otherwise copy the whole content on every chunk */
+    private static void reserve(Document document, int length) throws BadLocationException
+    {
+        int offset = document.getLength();
+        document.insertString(offset, " ".repeat(length), null);
+        document.remove(offset, length);
+    }
+
+    private static void skipBom(CharBuffer chars)
+    {
+        if (chars.hasRemaining()
+                && chars.get(chars.position()) == '\uFEFF')
+        {
+            chars.position(chars.position() + 1);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.queryeer.editor;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coordinator of background parses for a single editor. Runs at most one parse at a time, only the latest requested document snapshot is kept in queue and a running parse of an older document
+ * generation is aborted. Aborting is cooperative, the task gets a cancel check that it is expected to poll at safe points and then throw {@link CancellationException}. The parse thread is never
+ * interrupted since that would close any interruptible channel used during the parse.
+ */
+class ParseCoordinator
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParseCoordinator.class);
+
+    private final Executor executor;
+    private final IntSupplier currentGeneration;
+    private final Consumer<Statistics> statisticsListener;
+
+    /** Latest requested parse that is not started yet */
+    private Job pending;
+    private Job running;
+    /** True if a worker is scheduled or running on the executor */
+    private boolean scheduled;
+
+    private long parses;
+    private long aborted;
+    private long superseded;
+    private long lastParseMillis;
+    private long lastQueueMillis;
+
+    ParseCoordinator(Executor executor, IntSupplier currentGeneration, Consumer<Statistics> statisticsListener)
+    {
+        this.executor = requireNonNull(executor, "executor");
+        this.currentGeneration = requireNonNull(currentGeneration, "currentGeneration");
+        this.statisticsListener = requireNonNull(statisticsListener, "statisticsListener");
+    }
+
+    /** Request a parse of a snapshot of provided document generation. A queued request that is not started is replaced and a running parse of another generation is aborted. */
+    synchronized void submit(int generation, Consumer<BooleanSupplier> task)
+    {
+        if (pending != null)
+        {
+            superseded++;
+        }
+        pending = new Job(generation, requireNonNull(task, "task"), System.nanoTime());
+        if (running != null
+                && running.generation != generation)
+        {
+            abortRunning();
+        }
+        if (!scheduled)
+        {
+            try
+            {
+                executor.execute(this::work);
+                scheduled = true;
+            }
+            catch (RejectedExecutionException e)
+            {
+                pending = null;
+            }
+        }
+    }
+
+    /** Drop the queued parse and abort the running one */
+    synchronized void cancel()
+    {
+        pending = null;
+        abortRunning();
+    }
+
+    synchronized Statistics getStatistics()
+    {
+        return new Statistics(parses, aborted, superseded, lastParseMillis, lastQueueMillis);
+    }
+
+    private void abortRunning()
+    {
+        if (running != null)
+        {
+            running.aborted = true;
+        }
+    }
+
+    private void work()
+    {
+        while (true)
+        {
+            Job job;
+            synchronized (this)
+            {
+                job = pending;
+                pending = null;
+                if (job == null)
+                {
+                    scheduled = false;
+                    return;
+                }
+                // Document changed after the request, a newer request will follow
+                if (job.generation != currentGeneration.getAsInt())
+                {
+                    superseded++;
+                    continue;
+                }
+                running = job;
+                lastQueueMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - job.submitted);
+            }
+
+            long start = System.nanoTime();
+            try
+            {
+                job.task.accept(job::isAborted);
+            }
+            catch (CancellationException e)
+            {
+                // Aborted
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.error("Error parsing document", e);
+            }
+
+            Statistics statistics;
+            synchronized (this)
+            {
+                if (job.aborted)
+                {
+                    aborted++;
+                }
+                else
+                {
+                    parses++;
+                    lastParseMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+                running = null;
+                statistics = getStatistics();
+            }
+            statisticsListener.accept(statistics);
+        }
+    }
+
+    /** Statistics of the parses */
+    record Statistics(long parses, long aborted, long superseded, long lastParseMillis, long lastQueueMillis)
+    {
+    }
+
+    private static class Job
+    {
+        private final int generation;
+        private final Consumer<BooleanSupplier> task;
+        private final long submitted;
+        /** Set on the submitting thread, polled by the parse */
+        private volatile boolean aborted;
+
+        Job(int generation, Consumer<BooleanSupplier> task, long submitted)
+        {
+            this.generation = generation;
+            this.task = task;
+            this.submitted = submitted;
+        }
+
+        boolean isAborted()
+        {
+            return aborted;
+        }
+    }
+}
@@ -40,18 +40,20 @@
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
+import javax.swing.BorderFactory;
 import javax.swing.ButtonGroup;
 import javax.swing.Icon;
 import javax.swing.JButton;
@@ -77,6 +79,7 @@
 import javax.swing.text.JTextComponent;
 import javax.swing.text.Segment;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Strings;
 import org.apache.commons.lang3.concurrent.BasicThreadFactory;
@@ -100,6 +103,7 @@
 import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
 import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
 import org.fife.ui.rsyntaxtextarea.SquiggleUnderlineHighlightPainter;
+import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
 import org.fife.ui.rsyntaxtextarea.TextEditorPane;
 import org.fife.ui.rsyntaxtextarea.Theme;
 import org.fife.ui.rsyntaxtextarea.parser.AbstractParser;
@@ -139,6 +143,7 @@
 import com.queryeer.api.service.IEventBus;
 import com.queryeer.domain.Caret;
 import com.queryeer.event.CaretChangedEvent;
+import com.queryeer.event.ParseStatisticsEvent;
 
 /** Text editor implemented with {@link RSyntaxTextArea} */
 class TextEditor implements ITextEditor, SearchListener
@@ -156,6 +161,8 @@ class TextEditor implements ITextEditor, SearchListener
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TextEditor.class);
+    /** Files larger than this are opened in large file mode */
+    private static final long LARGE_FILE_THRESHOLD = 10 * 1024 * 1024;
 
     private static final String ZOOM_IN = "zoomIn";
     private static final String ZOOM_OUT = "zoomOut";
@@ -187,6 +194,13 @@ class TextEditor implements ITextEditor, SearchListener
     private ParsingIndicator parsingIndicator;
     private OutlineOverlay outlineOverlay;
     private Timer outlineScanTimer;
+    /** True if a large file is loaded. Expensive features are turned off and the editor is read only */
+    private boolean largeFile;
+    private String largeFileMessage;
+    /** Banner shown above the editor while a large file is loading and in large file mode */
+    private JLabel banner;
+    /** Incremented on each load so the result of a superseded background load is discarded */
+    private int loadGeneration;
 
     TextEditor(ITextEditorKit editorKit)
     {
@@ -588,7 +602,8 @@ public void actionPerformed(ActionEvent e)
                     @Override
                     public void keyTyped(KeyEvent e)
                     {
-                        if (e.getKeyChar() == '.')
+                        if (e.getKeyChar() == '.'
+                                && !largeFile)
                         {
                             // Require the fresh parse (the one that will include the dot) before
                             // showing the popup. docRevision is incremented by the document listener
@@ -641,6 +656,10 @@ private void adaptToLookAndFeel()
 
     private void scheduleOutlineScan()
     {
+        if (largeFile)
+        {
+            return;
+        }
         String text;
         try
         {
@@ -712,12 +731,7 @@ public void close()
         multiCaretSupport.dispose();
         if (parser != null)
         {
-            Future<?> session = parser.currentSession;
-            if (session != null
-                    && !session.isDone())
-            {
-                session.cancel(true);
-            }
+            parser.coordinator.cancel();
         }
         if (parsingIndicator != null)
         {
@@ -797,20 +811,156 @@ public JComponent getComponent()
     @Override
     public void loadFromFile(File file)
     {
+        int caretPos = textEditor.getCaretPosition();
+        if (largeFile
+                || file.length() > LARGE_FILE_THRESHOLD)
+        {
+            loadLargeFile(file, caretPos);
+            return;
+        }
+        loadGeneration++;
         try
         {
-            int caretPos = textEditor.getCaretPosition();
             textEditor.load(FileLocation.create(file), StandardCharsets.UTF_8);
-            if (textEditor.getDocument()
-                    .getLength() > caretPos)
-            {
-                textEditor.setCaretPosition(caretPos);
-            }
         }
         catch (IOException e)
         {
             throw new RuntimeException("Error loading file: " + file, e);
         }
+        restoreCaret(caretPos);
+    }
+
+    /**
+     * Load a large file. The file is decoded from a memory mapping into a detached document on a background thread and the document is set on EDT. Large file mode is entered when the load
+     * succeeds.
+     */
+    private void loadLargeFile(File file, int caretPos)
+    {
+        long size = file.length();
+        int generation = ++loadGeneration;
+        textEditor.setEditable(false);
+        setBanner("<html><b>Loading</b> " + file.getName() + " (" + FileUtils.byteCountToDisplaySize(size) + ")...");
+        EXECUTOR.submit(() ->
+        {
+            RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+            Exception error = null;
+            try
+            {
+                MappedDocumentLoader.load(file.toPath(), StandardCharsets.UTF_8, document);
+            }
+            catch (IOException | BadLocationException | RuntimeException e)
+            {
+                error = e;
+            }
+            Exception loadError = error;
+            SwingUtilities.invokeLater(() -> largeFileLoaded(file, size, document, loadError, generation, caretPos));
+        });
+    }
+
+    private void largeFileLoaded(File file, long size, Document document, Exception error, int generation, int caretPos)
+    {
+        // A newer load has been started
+        if (generation != loadGeneration)
+        {
+            return;
+        }
+        if (error != null)
+        {
+            LOGGER.error("Error loading file: {}", file, error);
+            textEditor.setEditable(!largeFile
+                    && !editorKit.readOnly());
+            setBanner(largeFile ? largeFileMessage
+                    : null);
+            JOptionPane.showMessageDialog(panel, "Error loading file: " + file + System.lineSeparator() + error.getMessage(), "Load File", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        enterLargeFileMode(size);
+        setBanner(largeFileMessage);
+        // Loading a file should not change the dirty state, that is managed by the owner of the editor
+        boolean dirty = textEditor.isDirty();
+        textEditor.setDocument(document);
+        textEditor.discardAllEdits();
+        textEditor.setDirty(dirty);
+        restoreCaret(caretPos);
+    }
+
+    private void restoreCaret(int caretPos)
+    {
+        if (textEditor.getDocument()
+                .getLength() > caretPos)
+        {
+            textEditor.setCaretPosition(caretPos);
+        }
+    }
+
+    /** Show a message above the editor. A null message removes the banner */
+    private void setBanner(String message)
+    {
+        if (message == null)
+        {
+            if (banner != null)
+            {
+                panel.remove(banner);
+                banner = null;
+                panel.revalidate();
+            }
+            return;
+        }
+        if (banner == null)
+        {
+            banner = new JLabel(message, IconFactory.of(FontAwesome.INFO_CIRCLE), JLabel.LEADING);
+            banner.setOpaque(true);
+            banner.setBackground(UIManager.getColor("ToolTip.background"));
+            banner.setBorder(BorderFactory.createEmptyBorder(4, 6, 4, 6));
+            panel.add(banner, BorderLayout.PAGE_START);
+            panel.revalidate();
+        }
+        else
+        {
+            banner.setText(message);
+        }
+    }
+
+    /** Turn off syntax highlighting, parsing, completions, outline, folding, multiple carets and editing. Stays on for the lifetime of the editor */
+    private void enterLargeFileMode(long size)
+    {
+        largeFileMessage = "<html><b>Large file mode</b> (" + FileUtils.byteCountToDisplaySize(size) + "). "
+                + "Syntax highlighting, parsing, completions, outline, code folding and multiple carets are turned off and the file is read only. "
+                + "Find and execution of the whole file or a selection are still available.";
+        if (largeFile)
+        {
+            return;
+        }
+        largeFile = true;
+        textEditor.setEditable(false);
+        textEditor.setCodeFoldingEnabled(false);
+        textEditor.setBracketMatchingEnabled(false);
+        multiCaretSupport.dispose();
+        if (parser != null)
+        {
+            parser.setEnabled(false);
+            parser.coordinator.cancel();
+            textEditor.removeParser(parser);
+            textEditor.setToolTipSupplier(null);
+            textEditor.setLinkGenerator(null);
+        }
+        if (completer != null)
+        {
+            completer.autoCompletion.uninstall();
+        }
+        if (parsingIndicator != null)
+        {
+            parsingIndicator.stopAnimation();
+        }
+        if (errorStrip != null)
+        {
+            errorStrip.setVisible(false);
+        }
+        outlineScanTimer.stop();
+        outlineOverlay.setVisible(false);
+        List.of(removeTrailingWhiteSpace, toggleCommentAction, showReplaceDialogAction, pasteSpecialAction, lowerCaseSelection, upperCaseSelection, toggleOutlineAction)
+                .forEach(a -> a.setEnabled(false));
     }
 
     @Override
@@ -854,7 +1004,8 @@ public void focused()
     @Override
     public void parse()
     {
-        if (this.parser != null)
+        if (this.parser != null
+                && !largeFile)
         {
             textEditor.forceReparsing(this.parser);
             if (parser != null)
@@ -1038,6 +1189,15 @@ private void publishCaret()
         eventBus.publish(caretEvent);
     }
 
+    private void publishParseStatistics(ParseCoordinator.Statistics statistics)
+    {
+        if (eventBus == null)
+        {
+            return;
+        }
+        eventBus.publish(new ParseStatisticsEvent(statistics.lastParseMillis(), statistics.lastQueueMillis(), statistics.aborted(), statistics.superseded()));
+    }
+
     private Action lowerCaseSelection = new RTextAreaEditorKit.LowerSelectionCaseAction()
     {
         {
@@ -1885,7 +2045,7 @@ private static class EditorParser extends AbstractParser implements ToolTipSuppl
         private ITextEditorDocumentParser.LinkAction currentLinkAction;
         private ITextEditorDocumentParser.ToolTipItem currentToolTip;
 
-        private Future<?> currentSession;
+        private final ParseCoordinator coordinator;
 
         private volatile State state = null;
         private volatile DefaultParseResult parseResult = new DefaultParseResult(this);
@@ -1901,6 +2061,7 @@ private static class EditorParser extends AbstractParser implements ToolTipSuppl
         {
             this.editor = editor;
             this.parser = parser;
+            this.coordinator = new ParseCoordinator(EXECUTOR, () -> docRevision, editor::publishParseStatistics);
             if (parser.supportsLinkActions())
             {
                 this.editor.textEditor.addMouseMotionListener(hideLinkActionsListener);
@@ -1940,24 +2101,12 @@ public void mouseMoved(MouseEvent e)
         public ParseResult parse(RSyntaxDocument doc, String style)
         {
             // Dirty
-            if (state != null)
+            if (state == State.COMPLETE)
             {
-                if (state == State.PARSING)
-                {
-                    if (currentSession != null
-                            && !currentSession.isDone())
-                    {
-                        LOGGER.debug("Cancel current parsing session");
-                        currentSession.cancel(true);
-                    }
-                }
-                else if (state == State.COMPLETE)
-                {
-                    LOGGER.debug("Returning parse result {}", parseResult);
-                    // Reset state to parsing if previous was COMPLETE
-                    state = State.IDLE;
-                    return parseResult;
-                }
+                LOGGER.debug("Returning parse result {}", parseResult);
+                // Reset state to parsing if previous was COMPLETE
+                state = State.IDLE;
+                return parseResult;
             }
 
             CharArrayReader reader;
@@ -1966,8 +2115,9 @@ else if (state == State.COMPLETE)
             {
                 lineCount = doc.getDefaultRootElement()
                         .getElementCount();
+                // Copy the text, the segment can point into the documents buffer which is modified on EDT while parsing
                 doc.getText(0, doc.getLength(), seg);
-                reader = new CharArrayReader(seg.array, seg.offset, seg.count);
+                reader = new CharArrayReader(Arrays.copyOfRange(seg.array, seg.offset, seg.offset + seg.count));
             }
             catch (BadLocationException e)
             {
@@ -1983,73 +2133,71 @@ else if (state == State.COMPLETE)
                 editor.parsingIndicator.startAnimation();
             }
             final int capturedRevision = docRevision;
-            try
+            coordinator.submit(capturedRevision, cancelled ->
             {
-                currentSession = EXECUTOR.submit(() ->
+                long start = System.currentTimeMillis();
+                parseResult.clearNotices();
+                try
                 {
-                    long start = System.currentTimeMillis();
-                    parseResult.clearNotices();
-                    try
-                    {
-                        parser.parse(reader);
+                    parser.parse(reader, cancelled);
 
-                        parseResult.setParsedLines(0, lineCount);
+                    parseResult.setParsedLines(0, lineCount);
 
-                        List<ParseItem> items = parser.getParseResult();
+                    List<ParseItem> items = parser.getParseResult();
 
-                        for (ParseItem item : items)
-                        {
-                            DefaultParserNotice notice = new DefaultParserNotice(this, item.getMessage(), item.getLine(), item.getOffset(), item.getLength());
-                            notice.setColor(item.getColor());
+                    for (ParseItem item : items)
+                    {
+                        DefaultParserNotice notice = new DefaultParserNotice(this, item.getMessage(), item.getLine(), item.getOffset(), item.getLength());
+                        notice.setColor(item.getColor());
 
-                            if (item.getLevel() != null)
+                        if (item.getLevel() != null)
+                        {
+                            notice.setLevel(switch (item.getLevel())
                             {
-                                notice.setLevel(switch (item.getLevel())
-                                {
-                                    case INFO -> ParserNotice.Level.INFO;
-                                    case WARN -> ParserNotice.Level.WARNING;
-                                    case ERROR -> ParserNotice.Level.ERROR;
-                                    default -> null;
-                                });
-                            }
-
-                            parseResult.addNotice(notice);
+                                case INFO -> ParserNotice.Level.INFO;
+                                case WARN -> ParserNotice.Level.WARNING;
+                                case ERROR -> ParserNotice.Level.ERROR;
+                                default -> null;
+                            });
                         }
 
+                        parseResult.addNotice(notice);
                     }
-                    catch (Exception e)
-                    {
-                        parseResult.setError(e);
-                    }
-                    finally
+
+                }
+                catch (CancellationException e)
+                {
+                    LOGGER.debug("Parse session aborted");
+                    throw e;
+                }
+                catch (Exception e)
+                {
+                    parseResult.setError(e);
+                }
+                finally
+                {
+                    parseResult.setParseTime(System.currentTimeMillis() - start);
+                }
+
+                if (!cancelled.getAsBoolean())
+                {
+                    LOGGER.debug("Parse session completed {}", parseResult.getParseTime());
+                    state = State.COMPLETE;
+                    sessionStartRevision = capturedRevision;
+                    if (parseCompleteListener != null)
                     {
-                        parseResult.setParseTime(System.currentTimeMillis() - start);
+                        parseCompleteListener.run();
                     }
-
-                    if (!Thread.interrupted())
+                    SwingUtilities.invokeLater(() ->
                     {
-                        LOGGER.debug("Parse session completed {}", parseResult.getParseTime());
-                        state = State.COMPLETE;
-                        sessionStartRevision = capturedRevision;
-                        if (parseCompleteListener != null)
+                        if (editor.parsingIndicator != null)
                         {
-                            parseCompleteListener.run();
+                            editor.parsingIndicator.stopAnimation();
                         }
-                        SwingUtilities.invokeLater(() ->
-                        {
-                            if (editor.parsingIndicator != null)
-                            {
-                                editor.parsingIndicator.stopAnimation();
-                            }
-                            editor.textEditor.forceReparsing(this);
-                        });
-                    }
-                });
-            }
-            catch (RejectedExecutionException e)
-            {
-                // SWALLOW
-            }
+                        editor.textEditor.forceReparsing(this);
+                    });
+                }
+            });
 
             return null;
         }
@@ -0,0 +1,44 @@
+package com.queryeer.event;
+
+import com.queryeer.api.event.Event;
+
+/** Event fired when a background parse of a text editor is completed or aborted */
+public class ParseStatisticsEvent extends Event
+{
+    private final long parseMillis;
+    private final long queueMillis;
+    private final long aborted;
+    private final long superseded;
+
+    public ParseStatisticsEvent(long parseMillis, long queueMillis, long aborted, long superseded)
+    {
+        this.parseMillis = parseMillis;
+        this.queueMillis = queueMillis;
+        this.aborted = aborted;
+        this.superseded = superseded;
+    }
+
+    /** Return duration of the last completed parse */
+    public long getParseMillis()
+    {
+        return parseMillis;
+    }
+
+    /** Return time the last parse waited in queue */
+    public long getQueueMillis()
+    {
+        return queueMillis;
+    }
+
+    /** Return number of parses aborted because the document changed */
+    public long getAborted()
+    {
+        return aborted;
+    }
+
+    /** Return number of queued parses that were replaced by a newer document snapshot before started */
+    public long getSuperseded()
+    {
+        return superseded;
+    }
+}
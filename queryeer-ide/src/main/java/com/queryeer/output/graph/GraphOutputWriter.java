@@ -1,13 +1,15 @@
 package com.queryeer.output.graph;
 
+import static java.util.Arrays.asList;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import com.queryeer.api.IQueryFile;
+import com.queryeer.api.extensions.output.QueryeerOutputWriter;
 
-import se.kuseman.payloadbuilder.api.OutputWriter;
-
-class GraphOutputWriter implements OutputWriter
+class GraphOutputWriter implements QueryeerOutputWriter
 {
     private final IQueryFile queryFile;
     private final GraphOutputComponent outputComponent;
@@ -23,6 +25,28 @@ class GraphOutputWriter implements OutputWriter
         outputComponent = this.queryFile.getOutputComponent(GraphOutputComponent.class);
     }
 
+    @Override
+    public void initResult(String[] columns, Map<String, Object> resultMetaData)
+    {
+    }
+
+    @Override
+    public void writeBatch(String[] columns, Object[][] values, int rowCount)
+    {
+        List<String> batchColumns = asList(columns);
+        int columnCount = columns.length;
+        for (int row = 0; row < rowCount; row++)
+        {
+            rowValues.clear();
+            for (int column = 0; column < columnCount; column++)
+            {
+                rowValues.add(values[column][row]);
+            }
+            rowNumber++;
+            outputComponent.addRow(rowNumber, batchColumns, rowValues);
+        }
+    }
+
     @Override
     public void startRow()
     {
@@ -0,0 +1,81 @@
+package com.queryeer.output.queryplan;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.queryeer.api.extensions.output.queryplan.Node;
+import com.queryeer.api.extensions.output.queryplan.Node.NodeLink;
+
+/** Keeps track of which operators of a query plan that have their children visible. Nodes are tracked by identity since plans can contain equal operators. */
+class PlanExpansion
+{
+    /** Nodes whose children are visible */
+    private final Set<Node> expanded = Collections.newSetFromMap(new IdentityHashMap<>());
+    /** Number of operators in each nodes subtree, including the node itself */
+    private final Map<Node, Integer> subtreeSizes = new IdentityHashMap<>();
+
+    PlanExpansion(Node plan)
+    {
+        computeSubtreeSize(requireNonNull(plan, "plan"));
+    }
+
+    /** Expand nodes breadth first from provided node until the number of newly visible operators reaches the limit. Provided node is always expanded. */
+    void expand(Node node, int limit)
+    {
+        int visible = 0;
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add(node);
+        while (!queue.isEmpty())
+        {
+            Node current = queue.poll();
+            int childCount = current.children()
+                    .size();
+            if (childCount == 0)
+            {
+                continue;
+            }
+            if (current != node
+                    && visible + childCount > limit)
+            {
+                break;
+            }
+            visible += childCount;
+            expanded.add(current);
+            for (NodeLink link : current.children())
+            {
+                queue.add(link.node());
+            }
+        }
+    }
+
+    /** Returns true if provided node has children that are not visible */
+    boolean isCollapsed(Node node)
+    {
+        return !node.children()
+                .isEmpty()
+                && !expanded.contains(node);
+    }
+
+    /** Returns number of operators below provided node */
+    int getDescendantCount(Node node)
+    {
+        return subtreeSizes.getOrDefault(node, 1) - 1;
+    }
+
+    private int computeSubtreeSize(Node node)
+    {
+        int size = 1;
+        for (NodeLink link : node.children())
+        {
+            size += computeSubtreeSize(link.node());
+        }
+        subtreeSizes.put(node, size);
+        return size;
+    }
+}
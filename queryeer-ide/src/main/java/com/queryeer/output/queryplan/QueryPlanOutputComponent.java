@@ -6,6 +6,7 @@
 import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.event.ActionEvent;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
@@ -13,6 +14,8 @@
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.imageio.ImageIO;
+import javax.swing.AbstractAction;
+import javax.swing.Action;
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
 import javax.swing.JPanel;
@@ -122,6 +125,7 @@ class QueryPlansPanel extends JPanel
 
             tabbedPane = new JTabbedPane();
             tabbedPane.setTabLayoutPolicy(JTabbedPane.SCROLL_TAB_LAYOUT);
+            tabbedPane.addChangeListener(e -> renderSelectedTab());
 
             add(tabbedPane, BorderLayout.CENTER);
         }
@@ -139,8 +143,7 @@ void addQueryPlan(Node queryPlan)
                     .map(String::valueOf)
                     .orElse("");
 
-            JPanel panel = new JPanel(new BorderLayout());
-            panel.add(new QueryPlanPanel(queryPlan), BorderLayout.CENTER);
+            LazyQueryPlanPanel panel = new LazyQueryPlanPanel(queryPlan);
             if (!isBlank(statementText))
             {
                 JTextField lblStmTest = new JTextField(statementText);
@@ -154,12 +157,53 @@ void addQueryPlan(Node queryPlan)
             // The tabbed panes minimum size increases for every query plan added and that makes
             // the parent tabbed pane un-resizable so force the minimum size
             tabbedPane.setMinimumSize(new Dimension(100, 100));
+            renderSelectedTab();
+        }
+
+        private void renderSelectedTab()
+        {
+            if (tabbedPane.getSelectedComponent() instanceof LazyQueryPlanPanel panel)
+            {
+                panel.render();
+            }
+        }
+    }
+
+    /** Tab panel that builds the plan graph first when the tab is shown. */
+    class LazyQueryPlanPanel extends JPanel
+    {
+        private Node plan;
+
+        LazyQueryPlanPanel(Node plan)
+        {
+            super(new BorderLayout());
+            this.plan = plan;
+        }
+
+        void render()
+        {
+            if (plan == null)
+            {
+                return;
+            }
+            add(new QueryPlanPanel(plan), BorderLayout.CENTER);
+            plan = null;
+            revalidate();
+            repaint();
         }
     }
 
-    /** Converts a {@link Node} tree into a {@link Graph} and delegates rendering to {@link GraphPanel}. */
+    /**
+     * Converts a {@link Node} tree into a {@link Graph} and delegates rendering to {@link GraphPanel}. Large plans are rendered with only the top most operators visible and collapsed subtrees are
+     * expanded by double clicking the operator.
+     */
     class QueryPlanPanel extends JPanel
     {
+        /** Max number of operators rendered when a plan is shown */
+        private static final int INITIAL_OPERATORS = 200;
+        /** Max number of operators that is made visible when a collapsed operator is expanded */
+        private static final int EXPAND_OPERATORS = 100;
+
         // Internal meta-property names used as rendering hints; excluded from the property sheet
         private static final Set<String> INTERNAL_PROPERTIES = Set.of(NodeProperty.HAS_WARNINGS.toLowerCase(), NodeProperty.PARALLEL.toLowerCase(), NodeProperty.ROW_COUNT.toLowerCase(),
                 NodeProperty.STATEMENT_TEXT.toLowerCase());
@@ -173,12 +217,27 @@ class QueryPlanPanel extends JPanel
             YELLOW_WARNING = new ImageIcon(toImage("/icons/yellowwarning.png"));
         }
 
+        private final Node plan;
+        private final PlanExpansion expansion;
+
         QueryPlanPanel(Node plan)
         {
             setLayout(new BorderLayout());
+            this.plan = plan;
+            this.expansion = new PlanExpansion(plan);
+            expansion.expand(plan, INITIAL_OPERATORS);
             add(new GraphPanel(toGraph(plan)), BorderLayout.CENTER);
         }
 
+        private void expandAndRender(Node node)
+        {
+            expansion.expand(node, EXPAND_OPERATORS);
+            removeAll();
+            add(new GraphPanel(toGraph(plan)), BorderLayout.CENTER);
+            revalidate();
+            repaint();
+        }
+
         /** Convert the {@link Node} tree into a flat {@link Graph} for {@link GraphPanel}. */
         private Graph toGraph(Node root)
         {
@@ -203,6 +262,24 @@ private String collectNodes(Node node, String parentId, List<GraphVertex> vertic
             }
 
             List<GraphProperty> props = toGraphProperties(node.properties(), INTERNAL_PROPERTIES);
+            if (expansion.isCollapsed(node))
+            {
+                String label = node.label() + "<br/><i>(+" + expansion.getDescendantCount(node) + " operators, double click to expand)</i>";
+                Action expandAction = new AbstractAction("Expand")
+                {
+                    {
+                        putValue(GraphVertex.ON_DOUBLE_CLICK, true);
+                    }
+
+                    @Override
+                    public void actionPerformed(ActionEvent e)
+                    {
+                        expandAndRender(node);
+                    }
+                };
+                vertices.add(new GraphVertex(id, label, node.toolTip(), null, overlays, props).withActions(() -> List.of(expandAction)));
+                return id;
+            }
             vertices.add(new GraphVertex(id, node.label(), node.toolTip(), null, overlays, props));
 
             for (NodeLink link : node.children())
@@ -0,0 +1,569 @@
+package com.queryeer.output.table;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Incremental statistics of a result column. Keeps null count, min/max, an approximate distinct count (HyperLogLog), approximate most frequent values (space saving) and a histogram of numeric
+ * values. Frequent values that are not scalars, like maps and lists, are tracked by a hash and a bounded string form so memory is constant regardless of the number and size of the values. Not
+ * thread safe.
+ */
+class ColumnStatistics
+{
+    static final int TOP_K = 10;
+    private static final int TOP_K_CAPACITY = 100;
+    private static final int HISTOGRAM_BINS = 20;
+    /** Longer strings are tracked as frequent values by a hash and an abbreviated form to keep memory bounded */
+    private static final int MAX_TRACKED_LENGTH = 256;
+
+    private long count;
+    private long nullCount;
+
+    /** Integral and floating point values are tracked separately since longs above 2^53 can't be represented exactly as doubles */
+    private boolean hasLong;
+    private long longMin = Long.MAX_VALUE;
+    private long longMax = Long.MIN_VALUE;
+    private boolean hasDouble;
+    private double doubleMin = Double.POSITIVE_INFINITY;
+    private double doubleMax = Double.NEGATIVE_INFINITY;
+    private BigDecimal decimalMin;
+    private BigDecimal decimalMax;
+
+    private Comparable<Object> min;
+    private Comparable<Object> max;
+    private boolean comparable = true;
+
+    private final HyperLogLog distinct = new HyperLogLog(12);
+    private final SpaceSaving topValues = new SpaceSaving(TOP_K_CAPACITY);
+    private final StreamingHistogram histogram = new StreamingHistogram(HISTOGRAM_BINS);
+
+    void addNull()
+    {
+        nullCount++;
+    }
+
+    void addNulls(long count)
+    {
+        nullCount += count;
+    }
+
+    void add(long value)
+    {
+        count++;
+        hasLong = true;
+        longMin = Math.min(longMin, value);
+        longMax = Math.max(longMax, value);
+        distinct.add(mix(value));
+        topValues.add(value);
+        histogram.add(value);
+    }
+
+    void add(double value)
+    {
+        if (Double.isNaN(value))
+        {
+            addObject(value);
+            return;
+        }
+        count++;
+        hasDouble = true;
+        doubleMin = Math.min(doubleMin, value);
+        doubleMax = Math.max(doubleMax, value);
+        distinct.add(mix(Double.doubleToLongBits(value)));
+        topValues.add(value);
+        histogram.add(value);
+    }
+
+    void add(Object value)
+    {
+        if (value == null)
+        {
+            addNull();
+        }
+        else if (value instanceof Long
+                || value instanceof Integer
+                || value instanceof Short
+                || value instanceof Byte)
+        {
+            add(((Number) value).longValue());
+        }
+        else if (value instanceof Double
+                || value instanceof Float)
+        {
+            add(((Number) value).doubleValue());
+        }
+        else if (value instanceof BigInteger bigInteger)
+        {
+            if (bigInteger.bitLength() < Long.SIZE)
+            {
+                add(bigInteger.longValue());
+            }
+            else
+            {
+                add(new BigDecimal(bigInteger));
+            }
+        }
+        else if (value instanceof BigDecimal bigDecimal)
+        {
+            add(bigDecimal);
+        }
+        else
+        {
+            addObject(value);
+        }
+    }
+
+    private void add(BigDecimal value)
+    {
+        count++;
+        if (decimalMin == null
+                || value.compareTo(decimalMin) < 0)
+        {
+            decimalMin = value;
+        }
+        if (decimalMax == null
+                || value.compareTo(decimalMax) > 0)
+        {
+            decimalMax = value;
+        }
+        // Same value with different scales are counted as one distinct value
+        distinct.add(mix(value.stripTrailingZeros()
+                .hashCode()));
+        topValues.add(value);
+        histogram.add(value.doubleValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addObject(Object value)
+    {
+        count++;
+        if (comparable)
+        {
+            if (value instanceof Comparable c
+                    && (min == null
+                            || min.getClass() == value.getClass()))
+            {
+                if (min == null
+                        || c.compareTo(min) < 0)
+                {
+                    min = c;
+                }
+                if (max == null
+                        || c.compareTo(max) > 0)
+                {
+                    max = c;
+                }
+            }
+            else
+            {
+                // Mixed or non comparable values, min/max has no meaning
+                comparable = false;
+                min = null;
+                max = null;
+            }
+        }
+
+        if (value.getClass()
+                .isArray())
+        {
+            distinct.add(mix(value.hashCode()));
+            return;
+        }
+        long hash = value instanceof String str ? hash(str)
+                : mix(value.hashCode());
+        distinct.add(hash);
+        topValues.add(isScalar(value) ? value
+                : new BoundedValue(hash, StringUtils.abbreviate(String.valueOf(value), MAX_TRACKED_LENGTH)));
+    }
+
+    /** Returns true if provided value is small enough to be kept as is when tracked as a frequent value */
+    private static boolean isScalar(Object value)
+    {
+        if (value instanceof String str)
+        {
+            return str.length() <= MAX_TRACKED_LENGTH;
+        }
+        return value instanceof Number
+                || value instanceof Boolean
+                || value instanceof Character
+                || value instanceof Temporal
+                || value instanceof UUID
+                || value instanceof Enum;
+    }
+
+    /** Return statistics as a map suitable for presentation */
+    Map<String, Object> toMap()
+    {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("Count", count + nullCount);
+        result.put("Null Count", nullCount);
+        result.put("Approx Distinct Count", distinct.estimate());
+        boolean hasDecimal = decimalMin != null;
+        if (hasDouble)
+        {
+            double min = doubleMin;
+            double max = doubleMax;
+            if (hasLong)
+            {
+                min = Math.min(min, longMin);
+                max = Math.max(max, longMax);
+            }
+            if (hasDecimal)
+            {
+                min = Math.min(min, decimalMin.doubleValue());
+                max = Math.max(max, decimalMax.doubleValue());
+            }
+            result.put("Number Min", min);
+            result.put("Number Max", max);
+        }
+        else if (hasDecimal)
+        {
+            // Decimals are exact, integral values are exact as decimals
+            BigDecimal min = decimalMin;
+            BigDecimal max = decimalMax;
+            if (hasLong)
+            {
+                min = min.min(BigDecimal.valueOf(longMin));
+                max = max.max(BigDecimal.valueOf(longMax));
+            }
+            result.put("Number Min", min);
+            result.put("Number Max", max);
+        }
+        else if (hasLong)
+        {
+            result.put("Number Min", longMin);
+            result.put("Number Max", longMax);
+        }
+        if (min != null)
+        {
+            result.put("Min", format(min));
+            result.put("Max", format(max));
+        }
+
+        List<Map<String, Object>> top = new ArrayList<>();
+        for (SpaceSaving.Entry entry : topValues.top(TOP_K))
+        {
+            Map<String, Object> value = new LinkedHashMap<>();
+            value.put("Value", format(entry.value()));
+            value.put("Count", entry.count());
+            if (entry.error() > 0)
+            {
+                value.put("Max Overcount", entry.error());
+            }
+            top.add(value);
+        }
+        result.put("Top Values", top);
+
+        if (hasLong
+                || hasDouble
+                || hasDecimal)
+        {
+            double[] centroids = histogram.getCentroids();
+            long[] counts = histogram.getCounts();
+            List<Map<String, Object>> bins = new ArrayList<>();
+            for (int i = 0; i < centroids.length; i++)
+            {
+                Map<String, Object> bin = new LinkedHashMap<>();
+                bin.put("Centroid", centroids[i]);
+                bin.put("Count", counts[i]);
+                bins.add(bin);
+            }
+            result.put("Histogram", bins);
+        }
+        return result;
+    }
+
+    private static String format(Object value)
+    {
+        return StringUtils.abbreviate(String.valueOf(value), 100);
+    }
+
+    /** 64 bit FNV-1a of the chars of a string */
+    static long hash(String value)
+    {
+        long hash = 0xcbf29ce484222325L;
+        int length = value.length();
+        for (int i = 0; i < length; i++)
+        {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /** Murmur3 finalizer */
+    static long mix(long value)
+    {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** Frequent value that is tracked by its hash and an abbreviated string form instead of the value itself */
+    record BoundedValue(long hash, String value)
+    {
+        @Override
+        public String toString()
+        {
+            return value;
+        }
+    }
+
+    /** HyperLogLog sketch for approximate distinct count */
+    static class HyperLogLog
+    {
+        private final int precision;
+        private final byte[] registers;
+
+        HyperLogLog(int precision)
+        {
+            this.precision = precision;
+            this.registers = new byte[1 << precision];
+        }
+
+        void add(long hash)
+        {
+            int index = (int) (hash >>> (64 - precision));
+            // Leading zeros of the remaining bits plus one, the guard bit caps the value when all bits are zero
+            int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+            if (rank > registers[index])
+            {
+                registers[index] = (byte) rank;
+            }
+        }
+
+        long estimate()
+        {
+            int m = registers.length;
+            double sum = 0;
+            int zeros = 0;
+            for (byte register : registers)
+            {
+                sum += 1.0d / (1L << register);
+                if (register == 0)
+                {
+                    zeros++;
+                }
+            }
+            double alpha = 0.7213d / (1 + 1.079d / m);
+            double estimate = alpha * m * m / sum;
+            // Small range correction
+            if (estimate <= 2.5d * m
+                    && zeros > 0)
+            {
+                estimate = m * Math.log((double) m / zeros);
+            }
+            return Math.round(estimate);
+        }
+    }
+
+    /**
+     * Space saving sketch for approximate most frequent values. Counters are kept in a min-heap on count so the least frequent value is found in constant time and an increment or replacement is
+     * O(log capacity).
+     */
+    static class SpaceSaving
+    {
+        private final Map<Object, Counter> counters = new HashMap<>();
+        private final Counter[] heap;
+        private int size;
+
+        SpaceSaving(int capacity)
+        {
+            this.heap = new Counter[capacity];
+        }
+
+        void add(Object value)
+        {
+            Counter counter = counters.get(value);
+            if (counter != null)
+            {
+                counter.count++;
+                siftDown(counter.index);
+                return;
+            }
+            if (size < heap.length)
+            {
+                counter = new Counter(value, size);
+                counter.count = 1;
+                heap[size++] = counter;
+                counters.put(value, counter);
+                siftUp(counter.index);
+                return;
+            }
+
+            // Replace the least frequent value, the new value inherits it's count as error
+            counter = heap[0];
+            counters.remove(counter.value);
+            counter.value = value;
+            counter.error = counter.count;
+            counter.count++;
+            counters.put(value, counter);
+            siftDown(0);
+        }
+
+        List<Entry> top(int k)
+        {
+            return Arrays.stream(heap, 0, size)
+                    .map(c -> new Entry(c.value, c.count, c.error))
+                    // Values with a lower error first when counts are equal since their count is more certain
+                    .sorted(Comparator.comparingLong(Entry::count)
+                            .reversed()
+                            .thenComparingLong(Entry::error))
+                    .limit(k)
+                    .toList();
+        }
+
+        private void siftUp(int index)
+        {
+            Counter counter = heap[index];
+            while (index > 0)
+            {
+                int parent = (index - 1) >>> 1;
+                if (heap[parent].count <= counter.count)
+                {
+                    break;
+                }
+                move(heap[parent], index);
+                index = parent;
+            }
+            move(counter, index);
+        }
+
+        private void siftDown(int index)
+        {
+            Counter counter = heap[index];
+            int half = size >>> 1;
+            while (index < half)
+            {
+                int child = 2 * index + 1;
+                int right = child + 1;
+                if (right < size
+                        && heap[right].count < heap[child].count)
+                {
+                    child = right;
+                }
+                if (counter.count <= heap[child].count)
+                {
+                    break;
+                }
+                move(heap[child], index);
+                index = child;
+            }
+            move(counter, index);
+        }
+
+        private void move(Counter counter, int index)
+        {
+            heap[index] = counter;
+            counter.index = index;
+        }
+
+        /** Counter of a tracked value. Mutable and reused when a value is replaced. */
+        private static class Counter
+        {
+            private Object value;
+            private long count;
+            private long error;
+            /** Position in heap */
+            private int index;
+
+            Counter(Object value, int index)
+            {
+                this.value = value;
+                this.index = index;
+            }
+        }
+
+        /** A tracked value. Count is an upper bound and the true count is at least count - error. */
+        record Entry(Object value, long count, long error)
+        {
+        }
+    }
+
+    /** Streaming histogram with a fixed number of bins where the closest bins are merged (Ben-Haim and Tom-Tov) */
+    static class StreamingHistogram
+    {
+        private final int maxBins;
+        private final double[] centroids;
+        private final long[] counts;
+        private int size;
+
+        StreamingHistogram(int maxBins)
+        {
+            this.maxBins = maxBins;
+            this.centroids = new double[maxBins + 1];
+            this.counts = new long[maxBins + 1];
+        }
+
+        void add(double value)
+        {
+            int index = Arrays.binarySearch(centroids, 0, size, value);
+            if (index >= 0)
+            {
+                counts[index]++;
+                return;
+            }
+            index = -(index + 1);
+            System.arraycopy(centroids, index, centroids, index + 1, size - index);
+            System.arraycopy(counts, index, counts, index + 1, size - index);
+            centroids[index] = value;
+            counts[index] = 1;
+            size++;
+            if (size > maxBins)
+            {
+                mergeClosest();
+            }
+        }
+
+        private void mergeClosest()
+        {
+            int closest = 0;
+            double minDistance = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < size - 1; i++)
+            {
+                double distance = centroids[i + 1] - centroids[i];
+                if (distance < minDistance)
+                {
+                    minDistance = distance;
+                    closest = i;
+                }
+            }
+            long count = counts[closest] + counts[closest + 1];
+            centroids[closest] = (centroids[closest] * counts[closest] + centroids[closest + 1] * counts[closest + 1]) / count;
+            counts[closest] = count;
+            System.arraycopy(centroids, closest + 2, centroids, closest + 1, size - closest - 2);
+            System.arraycopy(counts, closest + 2, counts, closest + 1, size - closest - 2);
+            size--;
+        }
+
+        int size()
+        {
+            return size;
+        }
+
+        double[] getCentroids()
+        {
+            return Arrays.copyOf(centroids, size);
+        }
+
+        long[] getCounts()
+        {
+            return Arrays.copyOf(counts, size);
+        }
+    }
+}
@@ -0,0 +1,914 @@
+package com.queryeer.output.table;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column storage for a {@link ResultStore}. Values of type stable columns are kept in primitive arrays to avoid box overhead. When a value arrives that the vector cannot store the
+ * {@link ResultStore} promotes the column to an {@link ObjectVector}.
+ */
+abstract class ColumnVector
+{
+    static final int INIT_SIZE = 50;
+    private static final byte TAG_INT = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_DOUBLE = 3;
+    private static final byte TAG_BOOLEAN = 4;
+    private static final byte TAG_LOCAL_DATE_TIME = 5;
+    private static final byte TAG_TIMESTAMP = 6;
+    private static final byte TAG_OBJECT = 7;
+    private static final byte TAG_DICTIONARY = 8;
+
+    protected int size;
+    private int nullCount;
+    private BitSet nulls;
+
+    /** Create a vector for provided java type. Returns an object vector if there is no specialization for the type. */
+    static ColumnVector of(Class<?> type)
+    {
+        if (type == Integer.class)
+        {
+            return new IntVector();
+        }
+        else if (type == Long.class)
+        {
+            return new LongVector();
+        }
+        else if (type == Double.class)
+        {
+            return new DoubleVector();
+        }
+        else if (type == Boolean.class)
+        {
+            return new BooleanVector();
+        }
+        else if (type == LocalDateTime.class
+                || type == Timestamp.class)
+        {
+            return new DateTimeVector(type);
+        }
+        return new ObjectVector();
+    }
+
+    /** Return the java type of the values in this vector */
+    abstract Class<?> getType();
+
+    /** Returns true if this vector can store provided non null value */
+    abstract boolean accepts(Object value);
+
+    protected abstract void ensureCapacity(int capacity);
+
+    protected abstract void setValue(int row, Object value);
+
+    protected abstract Object getValue(int row);
+
+    /** Return the binary tag of this vector */
+    protected abstract byte tag();
+
+    /** Return estimated number of heap bytes used by the values of this vector */
+    protected abstract long estimateValueBytes();
+
+    /** Write the values of this vector in binary form. Nulls are already written. */
+    protected abstract void writeValues(DataOutput out) throws IOException;
+
+    /** Read the values of this vector from binary form. Size and nulls are already read. */
+    protected abstract void readValues(ByteBuffer buffer);
+
+    /** Returns true if this vector can be written in binary form */
+    boolean isSpillable()
+    {
+        return true;
+    }
+
+    /** Return estimated number of heap bytes used by this vector */
+    long estimateBytes()
+    {
+        return 16 + (nulls != null ? nulls.size() / 8
+                : 0) + estimateValueBytes();
+    }
+
+    /**
+     * Write this vector in binary form.
+     *
+     * <pre>
+     * Layout:
+     * byte     tag
+     * int      size
+     * int      null count
+     * long[]   null bitmap words (only present if null count &gt; 0)
+     * ...      values, type specific
+     * </pre>
+     */
+    void write(DataOutput out) throws IOException
+    {
+        out.writeByte(tag());
+        out.writeInt(size);
+        out.writeInt(nullCount);
+        if (nullCount > 0)
+        {
+            writeBitSet(out, nulls, size);
+        }
+        writeValues(out);
+    }
+
+    /** Read a vector written with {@link #write(DataOutput)} */
+    static ColumnVector read(ByteBuffer buffer)
+    {
+        byte tag = buffer.get();
+        ColumnVector vector = switch (tag)
+        {
+            case TAG_INT -> new IntVector();
+            case TAG_LONG -> new LongVector();
+            case TAG_DOUBLE -> new DoubleVector();
+            case TAG_BOOLEAN -> new BooleanVector();
+            case TAG_LOCAL_DATE_TIME -> new DateTimeVector(LocalDateTime.class);
+            case TAG_TIMESTAMP -> new DateTimeVector(Timestamp.class);
+            case TAG_OBJECT -> new ObjectVector();
+            case TAG_DICTIONARY -> new DictionaryVector(Integer.MAX_VALUE);
+            default -> throw new IllegalArgumentException("Unknown vector tag: " + tag);
+        };
+        vector.size = buffer.getInt();
+        vector.nullCount = buffer.getInt();
+        if (vector.nullCount > 0)
+        {
+            vector.nulls = readBitSet(buffer, vector.size);
+        }
+        vector.ensureCapacity(vector.size);
+        vector.readValues(buffer);
+        return vector;
+    }
+
+    static void writeBitSet(DataOutput out, BitSet bitSet, int size) throws IOException
+    {
+        long[] words = bitSet.toLongArray();
+        int count = (size + 63) >>> 6;
+        for (int i = 0; i < count; i++)
+        {
+            out.writeLong(i < words.length ? words[i]
+                    : 0);
+        }
+    }
+
+    static BitSet readBitSet(ByteBuffer buffer, int size)
+    {
+        int count = (size + 63) >>> 6;
+        long[] words = new long[count];
+        for (int i = 0; i < count; i++)
+        {
+            words[i] = buffer.getLong();
+        }
+        return BitSet.valueOf(words);
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /** Returns true if this vector only contains nulls */
+    boolean isAllNull()
+    {
+        return nullCount == size;
+    }
+
+    boolean isNull(int row)
+    {
+        return nulls != null
+                && nulls.get(row);
+    }
+
+    /** Append a value. Value must be null or {@link #accepts(Object)} by this vector */
+    void append(Object value)
+    {
+        ensureCapacity(size + 1);
+        if (value == null)
+        {
+            if (nulls == null)
+            {
+                nulls = new BitSet();
+            }
+            nulls.set(size);
+            nullCount++;
+        }
+        else
+        {
+            setValue(size, value);
+        }
+        size++;
+    }
+
+    /** Append provided number of nulls */
+    void appendNulls(int count)
+    {
+        if (count <= 0)
+        {
+            return;
+        }
+        ensureCapacity(size + count);
+        if (nulls == null)
+        {
+            nulls = new BitSet();
+        }
+        nulls.set(size, size + count);
+        nullCount += count;
+        size += count;
+    }
+
+    Object get(int row)
+    {
+        if (isNull(row))
+        {
+            return null;
+        }
+        return getValue(row);
+    }
+
+    /** Copy this vector into an object vector. Used when a value arrives that this vector cannot store. */
+    ObjectVector promote()
+    {
+        ObjectVector result = new ObjectVector();
+        result.ensureCapacity(size);
+        for (int i = 0; i < size; i++)
+        {
+            result.append(get(i));
+        }
+        return result;
+    }
+
+    static int newCapacity(int current, int required)
+    {
+        return Math.max(required, Math.max(INIT_SIZE, current + (current >> 1)));
+    }
+
+    /** Vector of int's */
+    static class IntVector extends ColumnVector
+    {
+        private int[] values = new int[0];
+
+        @Override
+        Class<?> getType()
+        {
+            return Integer.class;
+        }
+
+        @Override
+        boolean accepts(Object value)
+        {
+            return value instanceof Integer;
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity)
+        {
+            if (capacity > values.length)
+            {
+                values = Arrays.copyOf(values, newCapacity(values.length, capacity));
+            }
+        }
+
+        @Override
+        protected void setValue(int row, Object value)
+        {
+            values[row] = (Integer) value;
+        }
+
+        @Override
+        protected Object getValue(int row)
+        {
+            return values[row];
+        }
+
+        int getInt(int row)
+        {
+            return values[row];
+        }
+
+        @Override
+        protected byte tag()
+        {
+            return TAG_INT;
+        }
+
+        @Override
+        protected long estimateValueBytes()
+        {
+            return 16 + 4L * values.length;
+        }
+
+        @Override
+        protected void writeValues(DataOutput out) throws IOException
+        {
+            for (int i = 0; i < size; i++)
+            {
+                out.writeInt(values[i]);
+            }
+        }
+
+        @Override
+        protected void readValues(ByteBuffer buffer)
+        {
+            buffer.asIntBuffer()
+                    .get(values, 0, size);
+            buffer.position(buffer.position() + 4 * size);
+        }
+    }
+
+    /** Vector of long's */
+    static class LongVector extends ColumnVector
+    {
+        private long[] values = new long[0];
+
+        @Override
+        Class<?> getType()
+        {
+            return Long.class;
+        }
+
+        @Override
+        boolean accepts(Object value)
+        {
+            return value instanceof Long;
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity)
+        {
+            if (capacity > values.length)
+            {
+                values = Arrays.copyOf(values, newCapacity(values.length, capacity));
+            }
+        }
+
+        @Override
+        protected void setValue(int row, Object value)
+        {
+            values[row] = (Long) value;
+        }
+
+        @Override
+        protected Object getValue(int row)
+        {
+            return values[row];
+        }
+
+        long getLong(int row)
+        {
+            return values[row];
+        }
+
+        @Override
+        protected byte tag()
+        {
+            return TAG_LONG;
+        }
+
+        @Override
+        protected long estimateValueBytes()
+        {
+            return 16 + 8L * values.length;
+        }
+
+        @Override
+        protected void writeValues(DataOutput out) throws IOException
+        {
+            for (int i = 0; i < size; i++)
+            {
+                out.writeLong(values[i]);
+            }
+        }
+
+        @Override
+        protected void readValues(ByteBuffer buffer)
+        {
+            buffer.asLongBuffer()
+                    .get(values, 0, size);
+            buffer.position(buffer.position() + 8 * size);
+        }
+    }
+
+    /** Vector of double's */
+    static class DoubleVector extends ColumnVector
+    {
+        private double[] values = new double[0];
+
+        @Override
+        Class<?> getType()
+        {
+            return Double.class;
+        }
+
+        @Override
+        boolean accepts(Object value)
+        {
+            return value instanceof Double;
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity)
+        {
+            if (capacity > values.length)
+            {
+                values = Arrays.copyOf(values, newCapacity(values.length, capacity));
+            }
+        }
+
+        @Override
+        protected void setValue(int row, Object value)
+        {
+            values[row] = (Double) value;
+        }
+
+        @Override
+        protected Object getValue(int row)
+        {
+            return values[row];
+        }
+
+        double getDouble(int row)
+        {
+            return values[row];
+        }
+
+        @Override
+        protected byte tag()
+        {
+            return TAG_DOUBLE;
+        }
+
+        @Override
+        protected long estimateValueBytes()
+        {
+            return 16 + 8L * values.length;
+        }
+
+        @Override
+        protected void writeValues(DataOutput out) throws IOException
+        {
+            for (int i = 0; i < size; i++)
+            {
+                out.writeDouble(values[i]);
+            }
+        }
+
+        @Override
+        protected void readValues(ByteBuffer buffer)
+        {
+            buffer.asDoubleBuffer()
+                    .get(values, 0, size);
+            buffer.position(buffer.position() + 8 * size);
+        }
+    }
+
+    /** Vector of boolean's */
+    static class BooleanVector extends ColumnVector
+    {
+        private final BitSet values = new BitSet();
+
+        @Override
+        Class<?> getType()
+        {
+            return Boolean.class;
+        }
+
+        @Override
+        boolean accepts(Object value)
+        {
+            return value instanceof Boolean;
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity)
+        {
+        }
+
+        @Override
+        protected void setValue(int row, Object value)
+        {
+            values.set(row, (Boolean) value);
+        }
+
+        @Override
+        protected Object getValue(int row)
+        {
+            return values.get(row);
+        }
+
+        boolean getBoolean(int row)
+        {
+            return values.get(row);
+        }
+
+        @Override
+        protected byte tag()
+        {
+            return TAG_BOOLEAN;
+        }
+
+        @Override
+        protected long estimateValueBytes()
+        {
+            return 16 + values.size() / 8;
+        }
+
+        @Override
+        protected void writeValues(DataOutput out) throws IOException
+        {
+            writeBitSet(out, values, size);
+        }
+
+        @Override
+        protected void readValues(ByteBuffer buffer)
+        {
+            values.or(readBitSet(buffer, size));
+        }
+    }
+
+    /** Vector of date times. Stores epoch seconds and nanos and recreates the original type ({@link LocalDateTime} or {@link Timestamp}) on access. */
+    static class DateTimeVector extends ColumnVector
+    {
+        private final Class<?> type;
+        private long[] seconds = new long[0];
+        private int[] nanos = new int[0];
+
+        DateTimeVector(Class<?> type)
+        {
+            this.type = type;
+        }
+
+        @Override
+        Class<?> getType()
+        {
+            return type;
+        }
+
+        @Override
+        boolean accepts(Object value)
+        {
+            return value != null
+                    && value.getClass() == type;
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity)
+        {
+            if (capacity > seconds.length)
+            {
+                int newCapacity = newCapacity(seconds.length, capacity);
+                seconds = Arrays.copyOf(seconds, newCapacity);
+                nanos = Arrays.copyOf(nanos, newCapacity);
+            }
+        }
+
+        @Override
+        protected void setValue(int row, Object value)
+        {
+            if (value instanceof Timestamp ts)
+            {
+                seconds[row] = Math.floorDiv(ts.getTime(), 1000);
+                nanos[row] = ts.getNanos();
+            }
+            else
+            {
+                LocalDateTime ldt = (LocalDateTime) value;
+                seconds[row] = ldt.toEpochSecond(ZoneOffset.UTC);
+                nanos[row] = ldt.getNano();
+            }
+        }
+
+        @Override
+        protected Object getValue(int row)
+        {
+            if (type == Timestamp.class)
+            {
+                Timestamp ts = new Timestamp(seconds[row] * 1000);
+                ts.setNanos(nanos[row]);
+                return ts;
+            }
+            return LocalDateTime.ofEpochSecond(seconds[row], nanos[row], ZoneOffset.UTC);
+        }
+
+        long getEpochSecond(int row)
+        {
+            return seconds[row];
+        }
+
+        int getNano(int row)
+        {
+            return nanos[row];
+        }
+
+        @Override
+        protected byte tag()
+        {
+            return type == Timestamp.class ? TAG_TIMESTAMP
+                    : TAG_LOCAL_DATE_TIME;
+        }
+
+        @Override
+        protected long estimateValueBytes()
+        {
+            return 32 + 12L * seconds.length;
+        }
+
+        @Override
+        protected void writeValues(DataOutput out) throws IOException
+        {
+            for (int i = 0; i < size; i++)
+            {
+                out.writeLong(seconds[i]);
+            }
+            for (int i = 0; i < size; i++)
+            {
+                out.writeInt(nanos[i]);
+            }
+        }
+
+        @Override
+        protected void readValues(ByteBuffer buffer)
+        {
+            buffer.asLongBuffer()
+                    .get(seconds, 0, size);
+            buffer.position(buffer.position() + 8 * size);
+            buffer.asIntBuffer()
+                    .get(nanos, 0, size);
+            buffer.position(buffer.position() + 4 * size);
+        }
+    }
+
+    /** Vector of arbitrary objects. Used for non specialized types and for columns with mixed types. */
+    static class ObjectVector extends ColumnVector
+    {
+        private Object[] values = new Object[0];
+        private Class<?> type;
+
+        @Override
+        Class<?> getType()
+        {
+            return type == null ? Object.class
+                    : type;
+        }
+
+        @Override
+        boolean accepts(Object value)
+        {
+            return true;
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity)
+        {
+            if (capacity > values.length)
+            {
+                values = Arrays.copyOf(values, newCapacity(values.length, capacity));
+            }
+        }
+
+        @Override
+        protected void setValue(int row, Object value)
+        {
+            values[row] = value;
+
+            // Try to determine the type of the column
+            Class<?> clazz = value.getClass();
+            // Booleans are not set as a column type, this to use the default renderers etc.
+            if (clazz != Boolean.class)
+            {
+                // No class set, set the values class
+                if (type == null)
+                {
+                    type = clazz;
+                }
+                // .. the class differs from previous values => set to Object.class which is the default in a swing table
+                else if (type != Object.class
+                        && type != clazz)
+                {
+                    type = Object.class;
+                }
+            }
+        }
+
+        @Override
+        protected Object getValue(int row)
+        {
+            return values[row];
+        }
+
+        /** Replace a value at provided row. */
+        void set(int row, Object value)
+        {
+            values[row] = value;
+        }
+
+        @Override
+        protected byte tag()
+        {
+            return TAG_OBJECT;
+        }
+
+        @Override
+        boolean isSpillable()
+        {
+            for (int i = 0; i < size; i++)
+            {
+                if (!isNull(i)
+                        && !ValueCodec.canWrite(values[i]))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        protected long estimateValueBytes()
+        {
+            long bytes = 16 + 4L * values.length;
+            for (int i = 0; i < size; i++)
+            {
+                bytes += ValueCodec.estimateBytes(values[i]);
+            }
+            return bytes;
+        }
+
+        @Override
+        protected void writeValues(DataOutput out) throws IOException
+        {
+            for (int i = 0; i < size; i++)
+            {
+                if (!isNull(i))
+                {
+                    ValueCodec.write(out, values[i]);
+                }
+            }
+        }
+
+        @Override
+        protected void readValues(ByteBuffer buffer)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                if (!isNull(i))
+                {
+                    setValue(i, ValueCodec.read(buffer));
+                }
+            }
+        }
+    }
+
+    /**
+     * Vector of strings that is dictionary encoded. Each distinct string is stored once in a dictionary and rows stores an int code. The vector stops accepting new distinct values when the
+     * dictionary reaches max size, then the owner promotes the vector to an {@link ObjectVector}.
+     */
+    static class DictionaryVector extends ColumnVector
+    {
+        private final int maxSize;
+        private final Map<String, Integer> codeByValue = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private int[] codes = new int[0];
+        private long hits;
+        private long lookups;
+
+        DictionaryVector(int maxSize)
+        {
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        Class<?> getType()
+        {
+            return String.class;
+        }
+
+        @Override
+        boolean accepts(Object value)
+        {
+            return value instanceof String str
+                    && (dictionary.size() < maxSize
+                            || codeByValue.containsKey(str));
+        }
+
+        /** Returns true if the dictionary has reached it's max size */
+        boolean isFull()
+        {
+            return dictionary.size() >= maxSize;
+        }
+
+        int getDictionarySize()
+        {
+            return dictionary.size();
+        }
+
+        /** Return number of appended values that was found in the dictionary */
+        long getHits()
+        {
+            return hits;
+        }
+
+        /** Return number of appended non null values */
+        long getLookups()
+        {
+            return lookups;
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity)
+        {
+            if (capacity > codes.length)
+            {
+                codes = Arrays.copyOf(codes, newCapacity(codes.length, capacity));
+            }
+        }
+
+        @Override
+        protected void setValue(int row, Object value)
+        {
+            String str = (String) value;
+            lookups++;
+            Integer code = codeByValue.get(str);
+            if (code == null)
+            {
+                code = dictionary.size();
+                dictionary.add(str);
+                codeByValue.put(str, code);
+            }
+            else
+            {
+                hits++;
+            }
+            codes[row] = code;
+        }
+
+        @Override
+        protected Object getValue(int row)
+        {
+            return dictionary.get(codes[row]);
+        }
+
+        int getCode(int row)
+        {
+            return codes[row];
+        }
+
+        @Override
+        protected byte tag()
+        {
+            return TAG_DICTIONARY;
+        }
+
+        @Override
+        protected long estimateValueBytes()
+        {
+            long bytes = 64 + 4L * codes.length;
+            for (String str : dictionary)
+            {
+                // String + map entry + boxed code
+                bytes += 40 + str.length() + 48;
+            }
+            return bytes;
+        }
+
+        @Override
+        protected void writeValues(DataOutput out) throws IOException
+        {
+            out.writeInt(dictionary.size());
+            for (String str : dictionary)
+            {
+                byte[] bytes = str.getBytes(UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            for (int i = 0; i < size; i++)
+            {
+                out.writeInt(codes[i]);
+            }
+        }
+
+        @Override
+        protected void readValues(ByteBuffer buffer)
+        {
+            int dictionarySize = buffer.getInt();
+            for (int i = 0; i < dictionarySize; i++)
+            {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                // Read vectors are never appended to so we skip the value lookup map
+                dictionary.add(new String(bytes, UTF_8));
+            }
+            buffer.asIntBuffer()
+                    .get(codes, 0, size);
+            buffer.position(buffer.position() + 4 * size);
+        }
+    }
+}
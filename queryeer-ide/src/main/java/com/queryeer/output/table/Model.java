@@ -6,9 +6,13 @@
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 
 import javax.swing.Icon;
 import javax.swing.SwingUtilities;
@@ -21,164 +25,233 @@
 import org.apache.commons.lang3.Strings;
 import org.apache.commons.lang3.tuple.Pair;
 
+import com.queryeer.output.table.ResultStore.DictionaryStats;
+import com.queryeer.output.table.TableOutputConfigurable.TableOutputSettings;
 import com.queryeer.output.table.TableOutputWriter.Row;
 
-import se.kuseman.payloadbuilder.api.catalog.Column.Type;
-import se.kuseman.payloadbuilder.api.catalog.ResolvedType;
 import se.kuseman.payloadbuilder.api.execution.Decimal;
 import se.kuseman.payloadbuilder.api.execution.EpochDateTime;
 import se.kuseman.payloadbuilder.api.execution.EpochDateTimeOffset;
 import se.kuseman.payloadbuilder.api.execution.UTF8String;
-import se.kuseman.payloadbuilder.api.execution.vector.MutableValueVector;
-import se.kuseman.payloadbuilder.core.execution.vector.BufferAllocator;
-import se.kuseman.payloadbuilder.core.execution.vector.VectorFactory;
 
 /** Resulting model of a query */
 class Model implements TableModel
 {
     private static final String NO_COLUMN_NAME = "(No column name)";
     private static final String IMAGE_PREFIX = "__queryeerimage__";
-    private static final int INIT_ROW_SIZE = 50;
-    private final VectorFactory vectorFactory;
     private List<String> columns = emptyList();
+    /** Lower case column name to sorted ordinals. Used to resolve columns of rows that don't match the schema. */
+    private final Map<String, List<Integer>> ordinalsByColumn = new HashMap<>();
     private Set<Integer> imageColumnIndices = new HashSet<>();
-    private int lastNotifyRowIndex = 0;
     private EventListenerList listenerList = new EventListenerList();
 
-    private int rowCount = 0;
-    private List<Class<?>> columnTypes = new ArrayList<>();
-    private List<MutableValueVector> columnVectors = new ArrayList<>();
+    private final ResultStore store;
+    private final RowChangeNotifier notifier;
+    private final ResultStatistics statistics;
 
     Model()
     {
-        vectorFactory = new VectorFactory(new BufferAllocator());
+        this(new ResultStore(), new TableOutputSettings());
+    }
+
+    Model(ResultStore store, TableOutputSettings settings)
+    {
+        this.store = requireNonNull(store, "store");
+        this.notifier = new RowChangeNotifier((firstRow, lastRow) -> fireTableChanged(new TableModelEvent(this, firstRow, lastRow, TableModelEvent.ALL_COLUMNS, TableModelEvent.INSERT)),
+                settings.getMaxNotificationsPerSecond());
+        this.statistics = settings.isColumnStatistics() ? new ResultStatistics(store)
+                : null;
     }
 
     /** Add row */
     void addRow(Row row)
     {
         int size = row.size();
-        int diff = Math.max(size, columnTypes.size()) - columnTypes.size();
-        // Make sure the lists are in par size wise with the appending row
-        if (diff > 0)
+        ensureColumnsSize(size);
+        boolean columnsChanged = false;
+        // First column is the row number which is virtual and not stored
+        for (int i = 1; i < size; i++)
         {
-            columnTypes.addAll(Collections.nCopies(diff, null));
-            columnVectors.addAll(Collections.nCopies(diff, null));
+            Pair<String, Object> pair = row.get(i);
+            int vectorOrdinal = resolveOrdinal(i, pair.getKey());
+            if (vectorOrdinal < 0)
+            {
+                vectorOrdinal = -vectorOrdinal;
+                columnsChanged = true;
+            }
+            store.append(vectorOrdinal, pair.getValue());
         }
-        diff = Math.max(size, columns.size()) - columns.size();
-        if (diff > 0)
+
+        // Normalize all columns and append null to the ones that didn't get a value
+        store.endRow();
+
+        if (columnsChanged)
         {
-            columns.addAll(Collections.nCopies(diff, null));
+            SwingUtilities.invokeLater(() -> fireTableChanged(new TableModelEvent(this, TableModelEvent.HEADER_ROW)));
+        }
+
+        if (store.getRowCount() >= TableOutputComponent.COLUMN_ADJUST_ROW_LIMIT)
+        {
+            notifyChanges(false);
         }
+    }
+
+    /**
+     * Add a batch of rows in column major form. Columns are resolved once for the whole batch.
+     *
+     * @param batchColumns Columns of the batch (excluding the row number column)
+     * @param values Column major values
+     * @param rowCount Number of rows in batch
+     * @param valueMapper Mapper that is applied to each value before it's stored
+     */
+    void addBatch(String[] batchColumns, Object[][] values, int rowCount, UnaryOperator<Object> valueMapper)
+    {
+        int size = batchColumns.length;
+        ensureColumnsSize(size + 1);
         boolean columnsChanged = false;
+        int[] ordinals = new int[size];
         for (int i = 0; i < size; i++)
         {
-            Pair<String, Object> pair = row.get(i);
-            String column = pair.getKey();
-            Object value = pair.getValue();
-
-            // First row is integer row number
-            if (i == 0)
+            // First column is the row number which is virtual and not stored
+            int vectorOrdinal = resolveOrdinal(i + 1, batchColumns[i]);
+            if (vectorOrdinal < 0)
             {
-                if (columnTypes.get(i) == null)
-                {
-                    columnTypes.set(0, Integer.class);
-                }
-
-                MutableValueVector vector = columnVectors.get(0);
-                if (vector == null)
-                {
-                    vector = vectorFactory.getMutableVector(ResolvedType.of(Type.Int), INIT_ROW_SIZE);
-                    columnVectors.set(0, vector);
-                }
-                vector.setInt(rowCount, rowCount + 1);
+                vectorOrdinal = -vectorOrdinal;
+                columnsChanged = true;
             }
-            // All other columns are objects
-            else
+            ordinals[i] = vectorOrdinal;
+        }
+
+        for (int row = 0; row < rowCount; row++)
+        {
+            for (int i = 0; i < size; i++)
             {
-                int vectorOrdinal = -1;
-                MutableValueVector vector = null;
-                // Find the column index for the current row column
-                // Start to search from current rows column index, this to adapt to multiple
-                // columns with the same name on the same row
-                int columnSize = columns.size();
-                for (int j = i; j < columnSize; j++)
-                {
-                    // Find the first matching column and put the value there
-                    if (column.equalsIgnoreCase(columns.get(j)))
-                    {
-                        vector = columnVectors.get(j);
-                        if (vector == null)
-                        {
-                            vector = vectorFactory.getMutableVector(ResolvedType.ANY, INIT_ROW_SIZE);
-                            columnVectors.set(j, vector);
-                        }
-                        vectorOrdinal = j;
-                        break;
-                    }
-                }
-                // No column found, append the column last (at current index)
-                if (vector == null)
-                {
-                    vector = vectorFactory.getMutableVector(ResolvedType.ANY, INIT_ROW_SIZE);
-                    columnVectors.set(i, vector);
-                    columns.set(i, column);
-                    vectorOrdinal = i;
-                    columnsChanged = true;
-
-                    if (Strings.CI.startsWith(column, IMAGE_PREFIX))
-                    {
-                        imageColumnIndices.add(i);
-                    }
-                }
+                store.append(ordinals[i], valueMapper.apply(values[i][row]));
+            }
+            store.endRow();
+        }
+
+        if (columnsChanged)
+        {
+            SwingUtilities.invokeLater(() -> fireTableChanged(new TableModelEvent(this, TableModelEvent.HEADER_ROW)));
+        }
+
+        if (store.getRowCount() >= TableOutputComponent.COLUMN_ADJUST_ROW_LIMIT)
+        {
+            notifyChanges(false);
+        }
+    }
+
+    /** Make sure the columns are in par size wise with the appending row */
+    private void ensureColumnsSize(int size)
+    {
+        int diff = Math.max(size, columns.size()) - columns.size();
+        if (diff > 0)
+        {
+            columns.addAll(Collections.nCopies(diff, null));
+        }
+    }
 
-                vector.setAny(rowCount, value);
+    /** Resolve the vector ordinal for a column at provided row index. Returns the negated ordinal if a new column was added. */
+    private int resolveOrdinal(int index, String column)
+    {
+        // Fast path, the column at the current index is the one we are looking for. This is always the case
+        // for results with a fixed schema since the row columns are the same as the ones from initResult
+        String existing = columns.get(index);
+        if (existing == column
+                || column.equalsIgnoreCase(existing))
+        {
+            return index;
+        }
 
-                // Try to determine types of columns
-                Class<?> clazz = value == null ? null
-                        : value.getClass();
-                if (clazz != null
-                        && clazz != Boolean.class)
+        // Find the column index for the current row column
+        // Start to search from current rows column index, this to adapt to multiple
+        // columns with the same name on the same row
+        List<Integer> ordinals = ordinalsByColumn.get(ordinalKey(column));
+        if (ordinals != null)
+        {
+            for (int ordinal : ordinals)
+            {
+                if (ordinal >= index)
                 {
-                    Class<?> columnType = columnTypes.get(vectorOrdinal);
-
-                    // No class set, set the values class
-                    if (columnType == null)
-                    {
-                        columnTypes.set(vectorOrdinal, clazz);
-                    }
-                    // .. the class differs from previous values => set to Object.class which is the default in a swing table
-                    else if (columnType != Object.class
-                            && columnType != clazz)
-                    {
-                        columnTypes.set(vectorOrdinal, Object.class);
-                    }
+                    return ordinal;
                 }
             }
         }
 
-        // Normalize all vectors and append null to the ones that didn't get a value
-        size = columnVectors.size();
-        for (int i = 0; i < size; i++)
+        // No column found, append the column last (at current index)
+        if (existing != null)
         {
-            MutableValueVector vector = columnVectors.get(i);
-            if (vector != null
-                    && vector.size() != rowCount + 1)
-            {
-                vector.setNull(rowCount);
-            }
+            removeOrdinal(existing, index);
         }
+        columns.set(index, column);
+        addOrdinal(column, index);
+        if (Strings.CI.startsWith(column, IMAGE_PREFIX))
+        {
+            imageColumnIndices.add(index);
+            store.pin(index);
+        }
+        return -index;
+    }
 
-        if (columnsChanged)
+    private void addOrdinal(String column, int ordinal)
+    {
+        if (column == null)
         {
-            SwingUtilities.invokeLater(() -> fireTableChanged(new TableModelEvent(this, TableModelEvent.HEADER_ROW)));
+            return;
+        }
+        List<Integer> ordinals = ordinalsByColumn.computeIfAbsent(ordinalKey(column), k -> new ArrayList<>(1));
+        // Keep ordinals sorted
+        int index = Collections.binarySearch(ordinals, ordinal);
+        if (index < 0)
+        {
+            ordinals.add(-(index + 1), ordinal);
         }
+    }
 
-        rowCount++;
-        if (rowCount >= TableOutputComponent.COLUMN_ADJUST_ROW_LIMIT)
+    private void removeOrdinal(String column, int ordinal)
+    {
+        List<Integer> ordinals = ordinalsByColumn.get(ordinalKey(column));
+        if (ordinals != null)
         {
-            notifyChanges(false);
+            ordinals.remove(Integer.valueOf(ordinal));
+        }
+    }
+
+    private static String ordinalKey(String column)
+    {
+        return column.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Set column type hints. Java types of the values of each column (including the row number column) or null if unknown. Is used to open typed vectors before any values has arrived.
+     */
+    void setColumnTypeHints(Class<?>[] columnTypeHints)
+    {
+        store.setColumnTypeHints(columnTypeHints);
+    }
+
+    /** Return the storage of this model */
+    ResultStore getStore()
+    {
+        return store;
+    }
+
+    /** Return statistics of provided column or null if statistics is not collected */
+    Map<String, Object> getColumnStatistics(int columnIndex)
+    {
+        return statistics != null ? statistics.getStatistics(columnIndex)
+                : null;
+    }
+
+    /** Release the storage of this model. Removes any spill files from disk. */
+    void close()
+    {
+        if (statistics != null)
+        {
+            statistics.close();
         }
+        store.close();
     }
 
     /** Set columns */
@@ -187,12 +260,15 @@ void setColumns(List<String> columns)
         if (requireNonNull(columns).size() > 0)
         {
             this.columns = columns;
+            ordinalsByColumn.clear();
             int size = columns.size();
             for (int i = 0; i < size; i++)
             {
+                addOrdinal(columns.get(i), i);
                 if (Strings.CI.startsWith(columns.get(i), IMAGE_PREFIX))
                 {
                     imageColumnIndices.add(i);
+                    store.pin(i);
                 }
             }
             SwingUtilities.invokeLater(() -> fireTableChanged(new TableModelEvent(this, TableModelEvent.HEADER_ROW)));
@@ -207,7 +283,7 @@ List<String> getColumns()
     @Override
     public int getRowCount()
     {
-        return rowCount;
+        return store.getRowCount();
     }
 
     @Override
@@ -236,49 +312,93 @@ else if (imageColumnIndices.contains(column))
     @Override
     public Object getValueAt(int rowIndex, int columnIndex)
     {
-        if (rowIndex >= rowCount)
+        if (rowIndex >= store.getRowCount())
         {
             return null;
         }
 
-        MutableValueVector vector = columnVectors.get(columnIndex);
-
-        if (vector == null)
+        // Row number column is virtual
+        if (columnIndex == 0)
         {
-            return null;
+            return rowIndex + 1;
         }
 
-        Object value = vector.valueAsObject(rowIndex);
+        Object value = store.get(rowIndex, columnIndex);
 
         if (value != null
                 && imageColumnIndices.contains(columnIndex)
                 && !(value instanceof QueryeerImage))
         {
             value = new QueryeerImage(value);
-            vector.setAny(rowIndex, value);
+            store.replace(rowIndex, columnIndex, value);
+        }
+
+        return unwrap(value);
+    }
+
+    /**
+     * Return the value at provided row and column read directly from the column vectors. Unlike {@link #getValueAt(int, int)} the store is never modified (image values are not wrapped) so this is
+     * safe to call from a background thread, ie. from a row filter.
+     */
+    Object getRawValueAt(int rowIndex, int columnIndex)
+    {
+        // Row number column is virtual
+        if (columnIndex == 0)
+        {
+            return rowIndex + 1;
         }
+        return unwrap(store.get(rowIndex, columnIndex));
+    }
 
-        // Unwrap PLB objects here to avoid problems in actions etc. that checks for string values etc.
+    /** Unwrap PLB objects here to avoid problems in actions etc. that checks for string values etc. */
+    static Object unwrap(Object value)
+    {
         if (value instanceof UTF8String str)
         {
-            value = str.toString();
+            return str.toString();
         }
         else if (value instanceof Decimal d)
         {
-            value = d.asBigDecimal();
+            return d.asBigDecimal();
         }
         else if (value instanceof EpochDateTime d)
         {
-            value = d.getLocalDateTime();
+            return d.getLocalDateTime();
         }
         else if (value instanceof EpochDateTimeOffset d)
         {
-            value = d.getZonedDateTime();
+            return d.getZonedDateTime();
         }
-
         return value;
     }
 
+    /** Return tool tip for provided column. Contains storage statistics of the column. */
+    String getColumnToolTip(int columnIndex)
+    {
+        if (columnIndex == 0)
+        {
+            long requests = notifier.getRequestCount();
+            long published = notifier.getPublishCount();
+            return String.format("Rows: %d, change notifications: %d (%d coalesced)", store.getRowCount(), published, Math.max(0, requests - published));
+        }
+        if (columnIndex < 0
+                || columnIndex >= columns.size())
+        {
+            return null;
+        }
+        String toolTip = getColumnName(columnIndex) + " (" + getColumnClass(columnIndex).getSimpleName() + ")";
+        DictionaryStats stats = store.getDictionaryStats(columnIndex);
+        if (stats != null)
+        {
+            toolTip += String.format(", dictionary hit rate: %.1f%%", stats.hitRatio() * 100);
+            if (stats.disabled())
+            {
+                toolTip += " (turned off, too many distinct values)";
+            }
+        }
+        return toolTip;
+    }
+
     @Override
     public boolean isCellEditable(int rowIndex, int columnIndex)
     {
@@ -288,9 +408,13 @@ public boolean isCellEditable(int rowIndex, int columnIndex)
     @Override
     public Class<?> getColumnClass(int columnIndex)
     {
-        Class<?> clazz = columnIndex < columnTypes.size() ? columnTypes.get(columnIndex)
-                : null;
-        return clazz == null ? Object.class
+        if (columnIndex == 0)
+        {
+            return Integer.class;
+        }
+        Class<?> clazz = store.getType(columnIndex);
+        // Booleans are not set as a column type, this to use the default renderers etc.
+        return clazz == Boolean.class ? Object.class
                 : clazz;
     }
 
@@ -311,23 +435,20 @@ public void removeTableModelListener(TableModelListener l)
         listenerList.remove(TableModelListener.class, l);
     }
 
-    /** Notifies changes since last notify */
+    /** Notifies changes since last notify. Notifications are coalesced unless forced. */
     void notifyChanges(boolean force)
     {
-        int size = rowCount - 1;
-        if (size >= lastNotifyRowIndex
-                || force)
+        if (statistics != null)
         {
-            TableModelEvent event = new TableModelEvent(this, lastNotifyRowIndex, size, TableModelEvent.ALL_COLUMNS, TableModelEvent.INSERT);
-            if (SwingUtilities.isEventDispatchThread())
-            {
-                fireTableChanged(event);
-            }
-            else
-            {
-                SwingUtilities.invokeLater(() -> fireTableChanged(event));
-            }
-            lastNotifyRowIndex = size;
+            statistics.update();
+        }
+        if (force)
+        {
+            notifier.flush(store.getRowCount());
+        }
+        else
+        {
+            notifier.rowsAppended(store.getRowCount());
         }
     }
 
@@ -0,0 +1,841 @@
+package com.queryeer.output.table;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Row sorter for result tables. Sorting and filtering is performed on a background thread with parallel sorts of primitive keys extracted directly from the column vectors of the {@link ResultStore}.
+ * The resulting view is published on the EDT in one go so the table never sees a half sorted view. Rows that are appended while a result is streaming are sorted by themselves and merged into the
+ * published view.
+ */
+class ResultRowSorter extends RowSorter<Model>
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultRowSorter.class);
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(BasicThreadFactory.builder()
+            .daemon(true)
+            .namingPattern("ResultRowSorter-%d")
+            .build());
+    private static final ThreadLocal<Collator> COLLATOR = ThreadLocal.withInitial(Collator::getInstance);
+    private static final int MAX_SORT_KEYS = 3;
+    /** Don't report progress for fast sorts to avoid flickering */
+    private static final long PROGRESS_DELAY_NANOS = 250_000_000L;
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+
+    private final Model model;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final List<IntConsumer> progressListeners = new ArrayList<>();
+
+    // All fields below are only accessed on EDT
+    private List<SortKey> sortKeys = emptyList();
+    private IntPredicate rowFilter;
+    private List<SortKey> publishedSortKeys = emptyList();
+    private IntPredicate publishedRowFilter;
+    /** Number of model rows the published view was computed from */
+    private int publishedRowCount;
+    /** Incremented when the model is changed in other ways than appended rows */
+    private int modelVersion;
+    private int publishedModelVersion;
+    /** View to model index. Null if the view is the same as the model */
+    private int[] viewToModel;
+    private int[] modelToView;
+    private boolean running;
+    /** Model was changed during a running sort, a new sort is started when the current completes */
+    private boolean pending;
+
+    ResultRowSorter(Model model)
+    {
+        this.model = requireNonNull(model, "model");
+    }
+
+    @Override
+    public Model getModel()
+    {
+        return model;
+    }
+
+    /** Add a listener that is notified on EDT with the progress (0-100) of a running sort. -1 is reported when sort is completed or cancelled. */
+    void addProgressListener(IntConsumer listener)
+    {
+        progressListeners.add(requireNonNull(listener, "listener"));
+    }
+
+    /** Set the filter of this sorter. Provided predicate is tested with model row indices from a background thread. */
+    void setRowFilter(IntPredicate rowFilter)
+    {
+        this.rowFilter = rowFilter;
+        schedule(true);
+    }
+
+    IntPredicate getRowFilter()
+    {
+        return rowFilter;
+    }
+
+    /** Returns true if a sort or filter is running */
+    boolean isRunning()
+    {
+        return running;
+    }
+
+    /** Cancel current running sort. The view is left as is and the sort keys and filter are reverted to the ones of the view. */
+    void cancel()
+    {
+        if (!running)
+        {
+            return;
+        }
+        generation.incrementAndGet();
+        running = false;
+        pending = false;
+        rowFilter = publishedRowFilter;
+        if (!sortKeys.equals(publishedSortKeys))
+        {
+            sortKeys = publishedSortKeys;
+            fireSortOrderChanged();
+        }
+        notifyProgress(-1);
+    }
+
+    @Override
+    public void toggleSortOrder(int column)
+    {
+        if (column < 0
+                || column >= model.getColumnCount())
+        {
+            throw new IndexOutOfBoundsException("Invalid column: " + column);
+        }
+        List<SortKey> keys = new ArrayList<>(sortKeys);
+        int index = -1;
+        for (int i = 0; i < keys.size(); i++)
+        {
+            if (keys.get(i)
+                    .getColumn() == column)
+            {
+                index = i;
+                break;
+            }
+        }
+        if (index == -1)
+        {
+            keys.add(0, new SortKey(column, SortOrder.ASCENDING));
+        }
+        else if (index == 0)
+        {
+            SortKey key = keys.get(0);
+            keys.set(0, new SortKey(column, key.getSortOrder() == SortOrder.ASCENDING ? SortOrder.DESCENDING
+                    : SortOrder.ASCENDING));
+        }
+        else
+        {
+            keys.remove(index);
+            keys.add(0, new SortKey(column, SortOrder.ASCENDING));
+        }
+        if (keys.size() > MAX_SORT_KEYS)
+        {
+            keys = keys.subList(0, MAX_SORT_KEYS);
+        }
+        setSortKeys(keys);
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys)
+    {
+        List<SortKey> newKeys = keys == null ? emptyList()
+                : unmodifiableList(new ArrayList<>(keys));
+        if (newKeys.equals(sortKeys))
+        {
+            return;
+        }
+        sortKeys = newKeys;
+        fireSortOrderChanged();
+        schedule(true);
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys()
+    {
+        return sortKeys;
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index)
+    {
+        int[] v = viewToModel;
+        if (v == null)
+        {
+            if (index < 0
+                    || index >= model.getRowCount())
+            {
+                throw new IndexOutOfBoundsException("Invalid index: " + index);
+            }
+            return index;
+        }
+        return v[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index)
+    {
+        int[] v = viewToModel;
+        if (v == null)
+        {
+            if (index < 0
+                    || index >= model.getRowCount())
+            {
+                throw new IndexOutOfBoundsException("Invalid index: " + index);
+            }
+            return index;
+        }
+        if (modelToView == null)
+        {
+            int length = 0;
+            for (int row : v)
+            {
+                length = Math.max(length, row + 1);
+            }
+            modelToView = new int[length];
+            Arrays.fill(modelToView, -1);
+            for (int i = 0; i < v.length; i++)
+            {
+                modelToView[v[i]] = i;
+            }
+        }
+        // Rows that arrived after the view was computed are not visible yet
+        return index >= 0
+                && index < modelToView.length ? modelToView[index]
+                        : -1;
+    }
+
+    @Override
+    public int getViewRowCount()
+    {
+        int[] v = viewToModel;
+        return v == null ? model.getRowCount()
+                : v.length;
+    }
+
+    @Override
+    public int getModelRowCount()
+    {
+        return model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged()
+    {
+        // Drop keys for columns that no longer exists
+        int columnCount = model.getColumnCount();
+        if (sortKeys.stream()
+                .anyMatch(k -> k.getColumn() >= columnCount))
+        {
+            sortKeys = sortKeys.stream()
+                    .filter(k -> k.getColumn() < columnCount)
+                    .toList();
+            fireSortOrderChanged();
+            modelVersion++;
+            schedule(true);
+            return;
+        }
+        modelVersion++;
+        schedule(false);
+    }
+
+    @Override
+    public void allRowsChanged()
+    {
+        modelVersion++;
+        schedule(false);
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow)
+    {
+        if (firstRow < publishedRowCount)
+        {
+            modelVersion++;
+        }
+        schedule(false);
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow)
+    {
+        modelVersion++;
+        schedule(false);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow)
+    {
+        // Results are immutable, updates are only image cells getting loaded
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column)
+    {
+    }
+
+    /**
+     * Schedule a new sort.
+     *
+     * @param restart True if a running sort should be cancelled. Otherwise the sort is postponed until the running one is completed, this to not starve the sorting when rows are streaming into the
+     * model.
+     */
+    private void schedule(boolean restart)
+    {
+        if (sortKeys.isEmpty()
+                && rowFilter == null)
+        {
+            // Back to model order, no need to sort anything
+            boolean wasRunning = running;
+            generation.incrementAndGet();
+            running = false;
+            pending = false;
+            if (viewToModel != null)
+            {
+                publish(null, sortKeys, null, model.getRowCount(), modelVersion);
+            }
+            if (wasRunning)
+            {
+                notifyProgress(-1);
+            }
+            return;
+        }
+
+        if (running
+                && !restart)
+        {
+            pending = true;
+            return;
+        }
+
+        List<SortKey> keys = sortKeys;
+        IntPredicate filter = rowFilter;
+        int rowCount = model.getRowCount();
+        int version = modelVersion;
+        // Only appended rows since the view was published, these are merged into the current view
+        int[] currentView = !restart
+                && viewToModel != null
+                && publishedModelVersion == version
+                && keys.equals(publishedSortKeys)
+                && filter == publishedRowFilter
+                && rowCount >= publishedRowCount ? viewToModel
+                        : null;
+        if (currentView != null
+                && rowCount == publishedRowCount)
+        {
+            return;
+        }
+        int firstRow = publishedRowCount;
+
+        int gen = generation.incrementAndGet();
+        running = true;
+        pending = false;
+
+        ResultStore store = model.getStore();
+        long start = System.nanoTime();
+        BooleanSupplier cancelled = () -> generation.get() != gen;
+        IntConsumer progress = p ->
+        {
+            if (System.nanoTime() - start >= PROGRESS_DELAY_NANOS)
+            {
+                SwingUtilities.invokeLater(() ->
+                {
+                    if (generation.get() == gen)
+                    {
+                        notifyProgress(p);
+                    }
+                });
+            }
+        };
+
+        EXECUTOR.execute(() ->
+        {
+            int[] result;
+            try
+            {
+                if (currentView != null
+                        && canMerge(store, keys))
+                {
+                    result = merge(store, currentView, sort(store, firstRow, rowCount, keys, filter, cancelled, progress), keys, cancelled);
+                }
+                else
+                {
+                    result = sort(store, 0, rowCount, keys, filter, cancelled, progress);
+                }
+            }
+            catch (CancellationException e)
+            {
+                return;
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.error("Error sorting result", e);
+                result = null;
+            }
+            int[] view = result;
+            SwingUtilities.invokeLater(() ->
+            {
+                if (generation.get() != gen)
+                {
+                    return;
+                }
+                running = false;
+                if (view != null)
+                {
+                    publish(view, keys, filter, rowCount, version);
+                }
+                notifyProgress(-1);
+                if (pending)
+                {
+                    schedule(false);
+                }
+            });
+        });
+    }
+
+    private void publish(int[] view, List<SortKey> keys, IntPredicate filter, int rowCount, int version)
+    {
+        int[] previous = viewToModel;
+        viewToModel = view;
+        modelToView = null;
+        publishedSortKeys = keys;
+        publishedRowFilter = filter;
+        publishedRowCount = rowCount;
+        publishedModelVersion = version;
+        fireRowSorterChanged(previous);
+    }
+
+    private void notifyProgress(int percent)
+    {
+        for (IntConsumer listener : progressListeners)
+        {
+            listener.accept(percent);
+        }
+    }
+
+    /**
+     * Filter and sort the rows of provided store.
+     *
+     * @param store Store to sort
+     * @param rowCount Number of rows to include
+     * @param keys Sort keys. Column 0 is the virtual row number column.
+     * @param filter Filter of model rows or null
+     * @param cancelled Supplier that is polled for cancellation. A {@link CancellationException} is thrown if cancelled.
+     * @param progress Consumer of progress (0-100)
+     * @return View to model index
+     */
+    static int[] sort(ResultStore store, int rowCount, List<? extends SortKey> keys, IntPredicate filter, BooleanSupplier cancelled, IntConsumer progress)
+    {
+        return sort(store, 0, rowCount, keys, filter, cancelled, progress);
+    }
+
+    /** Filter and sort the model rows from first row (inclusive) to row count (exclusive) of provided store. */
+    static int[] sort(ResultStore store, int firstRow, int rowCount, List<? extends SortKey> keys, IntPredicate filter, BooleanSupplier cancelled, IntConsumer progress)
+    {
+        int[] rows;
+        if (filter != null)
+        {
+            rows = IntStream.range(firstRow, rowCount)
+                    .parallel()
+                    .filter(row ->
+                    {
+                        checkCancelled(row, cancelled);
+                        return filter.test(row);
+                    })
+                    .toArray();
+        }
+        else
+        {
+            rows = IntStream.range(firstRow, rowCount)
+                    .toArray();
+        }
+        progress.accept(20);
+
+        List<? extends SortKey> activeKeys = keys.stream()
+                .filter(k -> k.getSortOrder() != SortOrder.UNSORTED)
+                .toList();
+        int keyCount = activeKeys.size();
+        // Least significant key first, each pass is stable so the result is ordered by all keys
+        for (int k = keyCount - 1; k >= 0; k--)
+        {
+            SortKey key = activeKeys.get(k);
+            int[] ranks = rank(store, rows, key.getColumn(), cancelled);
+            if (key.getSortOrder() == SortOrder.DESCENDING)
+            {
+                int max = Arrays.stream(ranks)
+                        .max()
+                        .orElse(0);
+                Arrays.parallelSetAll(ranks, i -> max - ranks[i]);
+            }
+            checkCancelled(0, cancelled);
+
+            // Pack rank and position into one long, sorting those makes the sort stable
+            long[] packed = new long[rows.length];
+            Arrays.parallelSetAll(packed, i -> ((long) ranks[i] << 32) | i);
+            Arrays.parallelSort(packed);
+            checkCancelled(0, cancelled);
+
+            int[] current = rows;
+            int[] sorted = new int[current.length];
+            Arrays.parallelSetAll(sorted, i -> current[(int) packed[i]]);
+            rows = sorted;
+            progress.accept(20 + (80 * (keyCount - k)) / keyCount);
+        }
+        return rows;
+    }
+
+    /** Returns true if the rows of all provided keys can be compared one by one with the same order as {@link #sort}. Columns with mixed types are ranked as a whole. */
+    static boolean canMerge(ResultStore store, List<? extends SortKey> keys)
+    {
+        for (SortKey key : keys)
+        {
+            if (key.getColumn() > 0
+                    && store.getType(key.getColumn()) == Object.class)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Merge sorted rows into a sorted view. All provided rows must be after the rows of the view in the model.
+     *
+     * @param store Store to sort
+     * @param view Current view to model index
+     * @param rows Rows to merge sorted with the same keys as the view
+     * @param keys Sort keys
+     * @param cancelled Supplier that is polled for cancellation. A {@link CancellationException} is thrown if cancelled.
+     * @return New view to model index
+     */
+    static int[] merge(ResultStore store, int[] view, int[] rows, List<? extends SortKey> keys, BooleanSupplier cancelled)
+    {
+        List<RowComparator> comparators = keys.stream()
+                .filter(k -> k.getSortOrder() != SortOrder.UNSORTED)
+                .map(k -> comparator(store, k))
+                .toList();
+        RowComparator comparator = (a, b) ->
+        {
+            for (RowComparator c : comparators)
+            {
+                int result = c.compare(a, b);
+                if (result != 0)
+                {
+                    return result;
+                }
+            }
+            return 0;
+        };
+
+        int[] result = new int[view.length + rows.length];
+        int from = 0;
+        int length = 0;
+        for (int i = 0; i < rows.length; i++)
+        {
+            checkCancelled(i, cancelled);
+            int row = rows[i];
+            // Find the first view row that is greater, rows with equal keys are kept in model order
+            int low = from;
+            int high = view.length;
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if (comparator.compare(view[mid], row) <= 0)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+            System.arraycopy(view, from, result, length, low - from);
+            length += low - from;
+            result[length++] = row;
+            from = low;
+        }
+        System.arraycopy(view, from, result, length, view.length - from);
+        return result;
+    }
+
+    /** Return a comparator of model rows with the same order as the ranks of a column */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static RowComparator comparator(ResultStore store, SortKey key)
+    {
+        int ordinal = key.getColumn();
+        int direction = key.getSortOrder() == SortOrder.DESCENDING ? -1
+                : 1;
+        if (ordinal == 0)
+        {
+            return (a, b) -> direction * Integer.compare(a, b);
+        }
+        Class<?> type = store.getType(ordinal);
+        if (isNumeric(type))
+        {
+            boolean floatingPoint = type == Double.class
+                    || type == Float.class;
+            return (a, b) ->
+            {
+                ColumnVector vectorA = store.vectorAt(a, ordinal);
+                ColumnVector vectorB = store.vectorAt(b, ordinal);
+                int chunkRowA = ResultStore.chunkRow(a);
+                int chunkRowB = ResultStore.chunkRow(b);
+                boolean nullA = vectorA == null
+                        || vectorA.isNull(chunkRowA);
+                boolean nullB = vectorB == null
+                        || vectorB.isNull(chunkRowB);
+                if (nullA
+                        || nullB)
+                {
+                    return direction * Boolean.compare(!nullA, !nullB);
+                }
+                return direction * Long.compare(numericKey(vectorA, chunkRowA, floatingPoint), numericKey(vectorB, chunkRowB, floatingPoint));
+            };
+        }
+        return (a, b) ->
+        {
+            Object valueA = Model.unwrap(store.get(a, ordinal));
+            Object valueB = Model.unwrap(store.get(b, ordinal));
+            if (valueA == null
+                    || valueB == null)
+            {
+                return direction * Boolean.compare(valueA != null, valueB != null);
+            }
+            if (valueA.getClass() == valueB.getClass()
+                    && valueA.getClass() != String.class
+                    && valueA instanceof Comparable comparable)
+            {
+                return direction * comparable.compareTo(valueB);
+            }
+            return direction * COLLATOR.get()
+                    .compare(String.valueOf(valueA), String.valueOf(valueB));
+        };
+    }
+
+    /** Return a dense rank for each of provided rows of a column. Null values gets rank 0 and are sorted first. */
+    private static int[] rank(ResultStore store, int[] rows, int ordinal, BooleanSupplier cancelled)
+    {
+        Class<?> type = ordinal == 0 ? Integer.class
+                : store.getType(ordinal);
+        if (isNumeric(type))
+        {
+            return numericRank(store, rows, ordinal, type == Double.class
+                    || type == Float.class, cancelled);
+        }
+        return objectRank(store, rows, ordinal, cancelled);
+    }
+
+    private static int[] numericRank(ResultStore store, int[] rows, int ordinal, boolean floatingPoint, BooleanSupplier cancelled)
+    {
+        int length = rows.length;
+        long[] keys = new long[length];
+        boolean[] nulls = new boolean[length];
+        IntStream.range(0, length)
+                .parallel()
+                .forEach(i ->
+                {
+                    checkCancelled(i, cancelled);
+                    int row = rows[i];
+                    // Row number column is virtual
+                    if (ordinal == 0)
+                    {
+                        keys[i] = row;
+                        return;
+                    }
+                    ColumnVector vector = store.vectorAt(row, ordinal);
+                    int chunkRow = ResultStore.chunkRow(row);
+                    if (vector == null
+                            || vector.isNull(chunkRow))
+                    {
+                        nulls[i] = true;
+                    }
+                    else
+                    {
+                        keys[i] = numericKey(vector, chunkRow, floatingPoint);
+                    }
+                });
+
+        long[] unique = IntStream.range(0, length)
+                .parallel()
+                .filter(i -> !nulls[i])
+                .mapToLong(i -> keys[i])
+                .distinct()
+                .toArray();
+        Arrays.parallelSort(unique);
+        checkCancelled(0, cancelled);
+
+        int[] ranks = new int[length];
+        Arrays.parallelSetAll(ranks, i -> nulls[i] ? 0
+                : Arrays.binarySearch(unique, keys[i]) + 1);
+        return ranks;
+    }
+
+    private static boolean isNumeric(Class<?> type)
+    {
+        return type == Integer.class
+                || type == Long.class
+                || type == Double.class
+                || type == Float.class
+                || type == Short.class
+                || type == Byte.class;
+    }
+
+    /** Return a long with the same sort order as the non null value of provided vector */
+    private static long numericKey(ColumnVector vector, int chunkRow, boolean floatingPoint)
+    {
+        if (vector instanceof ColumnVector.IntVector v)
+        {
+            return v.getInt(chunkRow);
+        }
+        else if (vector instanceof ColumnVector.LongVector v)
+        {
+            return v.getLong(chunkRow);
+        }
+        else if (vector instanceof ColumnVector.DoubleVector v)
+        {
+            return sortableBits(v.getDouble(chunkRow));
+        }
+        Number number = (Number) vector.get(chunkRow);
+        return floatingPoint ? sortableBits(number.doubleValue())
+                : number.longValue();
+    }
+
+    /** Map a double to a long with the same sort order */
+    private static long sortableBits(double value)
+    {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int[] objectRank(ResultStore store, int[] rows, int ordinal, BooleanSupplier cancelled)
+    {
+        int length = rows.length;
+        Object[] values = new Object[length];
+        IntStream.range(0, length)
+                .parallel()
+                .forEach(i ->
+                {
+                    checkCancelled(i, cancelled);
+                    values[i] = Model.unwrap(store.get(rows[i], ordinal));
+                });
+
+        // Collect distinct values, low cardinality columns (dictionary encoded strings etc.) only needs to compare a few values
+        Map<Object, Integer> distinctIndex = new HashMap<>();
+        List<Object> distinct = new ArrayList<>();
+        int[] indices = new int[length];
+        Class<?> commonClass = null;
+        boolean sameClass = true;
+        for (int i = 0; i < length; i++)
+        {
+            Object value = values[i];
+            if (value == null)
+            {
+                indices[i] = -1;
+                continue;
+            }
+            Integer index = distinctIndex.get(value);
+            if (index == null)
+            {
+                index = distinct.size();
+                distinctIndex.put(value, index);
+                distinct.add(value);
+                if (commonClass == null)
+                {
+                    commonClass = value.getClass();
+                }
+                else if (commonClass != value.getClass())
+                {
+                    sameClass = false;
+                }
+            }
+            indices[i] = index;
+        }
+        checkCancelled(0, cancelled);
+
+        // Same rules as TableRowSorter, strings are collated, comparables are compared and everything else is collated by string value
+        Object[] sortValues = distinct.toArray();
+        Comparator<Object> comparator;
+        if (sameClass
+                && commonClass != null
+                && commonClass != String.class
+                && Comparable.class.isAssignableFrom(commonClass))
+        {
+            comparator = (a, b) -> ((Comparable) a).compareTo(b);
+        }
+        else
+        {
+            if (!sameClass
+                    || commonClass != String.class)
+            {
+                Arrays.parallelSetAll(sortValues, i -> String.valueOf(sortValues[i]));
+            }
+            comparator = (a, b) -> COLLATOR.get()
+                    .compare(a, b);
+        }
+
+        Integer[] order = new Integer[sortValues.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.parallelSort(order, (a, b) -> comparator.compare(sortValues[a], sortValues[b]));
+        checkCancelled(0, cancelled);
+
+        int[] rankByIndex = new int[order.length];
+        int rank = 0;
+        for (int i = 0; i < order.length; i++)
+        {
+            if (i == 0
+                    || comparator.compare(sortValues[order[i - 1]], sortValues[order[i]]) != 0)
+            {
+                rank++;
+            }
+            rankByIndex[order[i]] = rank;
+        }
+
+        int[] ranks = new int[length];
+        Arrays.parallelSetAll(ranks, i -> indices[i] < 0 ? 0
+                : rankByIndex[indices[i]]);
+        return ranks;
+    }
+
+    /** Comparator of model rows */
+    @FunctionalInterface
+    private interface RowComparator
+    {
+        int compare(int rowA, int rowB);
+    }
+
+    private static void checkCancelled(int index, BooleanSupplier cancelled)
+    {
+        if (index % CANCEL_CHECK_INTERVAL == 0
+                && cancelled.getAsBoolean())
+        {
+            throw new CancellationException();
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.queryeer.output.table;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import javax.swing.RowSorter;
+import javax.swing.SwingUtilities;
+import javax.swing.event.RowSorterListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+import org.apache.commons.lang3.Strings;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background search of result tables. Column vectors of each result are scanned in parallel and the matching cells are collected in a sorted hit list which makes find next/previous a binary
+ * search. Results that receive more rows are scanned incrementally. When a result is sorted or filtered the hits are re-ordered by view row on demand.
+ */
+class ResultSearch
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultSearch.class);
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(BasicThreadFactory.builder()
+            .daemon(true)
+            .namingPattern("ResultSearch-%d")
+            .build());
+    private static final long[] EMPTY = new long[0];
+
+    private final Supplier<List<Model>> models;
+    private final Runnable changeListener;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final TableModelListener modelListener = this::modelChanged;
+
+    // All fields below are only accessed on EDT
+    private final Map<Model, Hits> hitsByModel = new IdentityHashMap<>();
+    private Query query;
+    private boolean running;
+    /** Rows was added during a running scan */
+    private boolean pending;
+
+    /**
+     * Create a search
+     *
+     * @param models Supplier of the current models to search. Called on EDT.
+     * @param changeListener Listener that is called on EDT when a scan completes
+     */
+    ResultSearch(Supplier<List<Model>> models, Runnable changeListener)
+    {
+        this.models = requireNonNull(models, "models");
+        this.changeListener = requireNonNull(changeListener, "changeListener");
+    }
+
+    /** Start search of provided query. If query is the same as the current then only new rows are scanned. */
+    void search(Query query)
+    {
+        requireNonNull(query, "query");
+        if (!query.equals(this.query))
+        {
+            clear();
+            this.query = query;
+        }
+        scan();
+    }
+
+    /** Cancel current search and release all hits */
+    void clear()
+    {
+        generation.incrementAndGet();
+        for (Map.Entry<Model, Hits> entry : hitsByModel.entrySet())
+        {
+            entry.getKey()
+                    .removeTableModelListener(modelListener);
+            entry.getValue()
+                    .setSorter(null);
+        }
+        hitsByModel.clear();
+        query = null;
+        running = false;
+        pending = false;
+    }
+
+    /** Returns true if scan is running */
+    boolean isRunning()
+    {
+        return running;
+    }
+
+    /** Return total number of hits of the current search */
+    int getHitCount()
+    {
+        int count = 0;
+        for (Hits hits : hitsByModel.values())
+        {
+            count += hits.size;
+        }
+        return count;
+    }
+
+    /**
+     * Find a hit relative to a position. Hits are traversed in view order of each model, rows that are filtered out are skipped.
+     *
+     * @param models Models in table order
+     * @param sorters Row sorters of the models, same order as models. A null sorter means the view is the same as the model.
+     * @param model Model of current position or null to start from the first/last model
+     * @param viewRow View row of current position
+     * @param column Model column of current position
+     * @param forward Direction
+     * @param inclusive True if a hit at the position should be returned
+     * @return Found hit or null if there are no more hits in provided direction
+     */
+    Hit find(List<Model> models, List<? extends RowSorter<?>> sorters, Model model, int viewRow, int column, boolean forward, boolean inclusive)
+    {
+        int size = models.size();
+        int modelIndex = model == null ? -1
+                : models.indexOf(model);
+        if (modelIndex < 0)
+        {
+            modelIndex = forward ? 0
+                    : size - 1;
+            model = null;
+        }
+        long position = pack(viewRow, column);
+        int step = forward ? 1
+                : -1;
+        for (int i = modelIndex; i >= 0
+                && i < size; i += step)
+        {
+            Model current = models.get(i);
+            Hits hits = hitsByModel.get(current);
+            if (hits == null)
+            {
+                continue;
+            }
+            RowSorter<?> sorter = sorters.get(i);
+            hits.setSorter(sorter);
+            long[] cells = hits.viewCells();
+            int hitCount = hits.viewSize;
+            if (hitCount == 0)
+            {
+                continue;
+            }
+
+            int index;
+            if (current != model)
+            {
+                index = forward ? 0
+                        : hitCount - 1;
+            }
+            else
+            {
+                index = Arrays.binarySearch(cells, 0, hitCount, position);
+                if (index >= 0)
+                {
+                    if (!inclusive)
+                    {
+                        index += forward ? 1
+                                : -1;
+                    }
+                }
+                else
+                {
+                    int insertionPoint = -(index + 1);
+                    index = forward ? insertionPoint
+                            : insertionPoint - 1;
+                }
+            }
+
+            if (index >= 0
+                    && index < hitCount)
+            {
+                long cell = cells[index];
+                int hitViewRow = (int) (cell >>> 32);
+                int row = sorter == null ? hitViewRow
+                        : sorter.convertRowIndexToModel(hitViewRow);
+                return new Hit(current, row, hitViewRow, (int) cell, index + 1, hitCount);
+            }
+        }
+        return null;
+    }
+
+    private void modelChanged(TableModelEvent e)
+    {
+        if (query != null
+                && (e.getType() == TableModelEvent.INSERT
+                        || e.getFirstRow() == TableModelEvent.HEADER_ROW))
+        {
+            scan();
+        }
+    }
+
+    private void scan()
+    {
+        if (running)
+        {
+            pending = true;
+            return;
+        }
+
+        // Collect the row ranges that hasn't been scanned yet
+        List<Model> currentModels = models.get();
+        List<ScanTask> tasks = new ArrayList<>(currentModels.size());
+        for (Model model : currentModels)
+        {
+            Hits hits = hitsByModel.get(model);
+            if (hits == null)
+            {
+                hits = new Hits();
+                hitsByModel.put(model, hits);
+                model.addTableModelListener(modelListener);
+            }
+            int rowCount = model.getRowCount();
+            if (rowCount > hits.scannedRows)
+            {
+                tasks.add(new ScanTask(model, hits.scannedRows, rowCount, model.getColumnCount()));
+            }
+        }
+        if (tasks.isEmpty())
+        {
+            changeListener.run();
+            return;
+        }
+
+        int gen = generation.get();
+        running = true;
+        pending = false;
+        Predicate<String> matcher = query.matcher();
+        BooleanSupplier cancelled = () -> generation.get() != gen;
+        EXECUTOR.execute(() ->
+        {
+            long[][] result = new long[tasks.size()][];
+            try
+            {
+                for (int i = 0; i < tasks.size(); i++)
+                {
+                    ScanTask task = tasks.get(i);
+                    result[i] = scan(task.model.getStore(), task.fromRow, task.toRow, task.columnCount, matcher, cancelled);
+                }
+            }
+            catch (CancellationException e)
+            {
+                return;
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.error("Error searching result", e);
+            }
+            SwingUtilities.invokeLater(() ->
+            {
+                if (generation.get() != gen)
+                {
+                    return;
+                }
+                running = false;
+                for (int i = 0; i < tasks.size(); i++)
+                {
+                    ScanTask task = tasks.get(i);
+                    Hits hits = hitsByModel.get(task.model);
+                    if (hits != null
+                            && result[i] != null)
+                    {
+                        hits.append(result[i], task.toRow);
+                    }
+                }
+                if (pending)
+                {
+                    scan();
+                }
+                else
+                {
+                    changeListener.run();
+                }
+            });
+        });
+    }
+
+    /**
+     * Scan provided row range of a store and return the matching cells sorted in row major order. Columns and row chunks are scanned in parallel.
+     *
+     * @param store Store to scan
+     * @param fromRow Inclusive start row
+     * @param toRow Exclusive end row
+     * @param columnCount Number of columns including the virtual row number column that is not scanned
+     * @param matcher Matcher of string values
+     * @param cancelled Supplier that is polled for cancellation. A {@link CancellationException} is thrown if cancelled.
+     * @return Matching cells, {@link #pack(int, int)}
+     */
+    static long[] scan(ResultStore store, int fromRow, int toRow, int columnCount, Predicate<String> matcher, BooleanSupplier cancelled)
+    {
+        if (fromRow >= toRow
+                || columnCount <= 1)
+        {
+            return EMPTY;
+        }
+        int firstChunk = fromRow >>> ResultStore.CHUNK_SHIFT;
+        int chunkCount = ((toRow - 1) >>> ResultStore.CHUNK_SHIFT) - firstChunk + 1;
+        int columns = columnCount - 1;
+        long[] result = IntStream.range(0, columns * chunkCount)
+                .parallel()
+                .mapToObj(task ->
+                {
+                    if (cancelled.getAsBoolean())
+                    {
+                        throw new CancellationException();
+                    }
+                    int column = task % columns + 1;
+                    int chunk = firstChunk + task / columns;
+                    int start = Math.max(fromRow, chunk << ResultStore.CHUNK_SHIFT);
+                    int end = Math.min(toRow, (chunk + 1) << ResultStore.CHUNK_SHIFT);
+                    return scanChunk(store, start, end, column, matcher);
+                })
+                .flatMapToLong(Arrays::stream)
+                .toArray();
+        Arrays.parallelSort(result);
+        return result;
+    }
+
+    private static long[] scanChunk(ResultStore store, int start, int end, int column, Predicate<String> matcher)
+    {
+        ColumnVector vector = store.vectorAt(start, column);
+        if (vector == null)
+        {
+            return EMPTY;
+        }
+        long[] hits = EMPTY;
+        int count = 0;
+        // Dictionary encoded chunks only needs to match each distinct value once
+        byte[] matchByCode = vector instanceof ColumnVector.DictionaryVector ? new byte[16]
+                : null;
+        for (int row = start; row < end; row++)
+        {
+            int chunkRow = ResultStore.chunkRow(row);
+            if (vector.isNull(chunkRow))
+            {
+                continue;
+            }
+            boolean match;
+            if (matchByCode != null)
+            {
+                int code = ((ColumnVector.DictionaryVector) vector).getCode(chunkRow);
+                if (code >= matchByCode.length)
+                {
+                    matchByCode = Arrays.copyOf(matchByCode, Math.max(code + 1, matchByCode.length * 2));
+                }
+                if (matchByCode[code] == 0)
+                {
+                    matchByCode[code] = matcher.test((String) vector.get(chunkRow)) ? (byte) 1
+                            : (byte) 2;
+                }
+                match = matchByCode[code] == 1;
+            }
+            else
+            {
+                match = matcher.test(String.valueOf(Model.unwrap(vector.get(chunkRow))));
+            }
+            if (match)
+            {
+                if (count == hits.length)
+                {
+                    hits = Arrays.copyOf(hits, Math.max(16, count * 2));
+                }
+                hits[count++] = pack(row, column);
+            }
+        }
+        return count == hits.length ? hits
+                : Arrays.copyOf(hits, count);
+    }
+
+    /** Pack a cell into a long that sorts in row major order */
+    static long pack(int row, int column)
+    {
+        return ((long) row << 32) | column;
+    }
+
+    /** Query of a search */
+    record Query(String searchFor, boolean matchCase, boolean regularExpression)
+    {
+        Predicate<String> matcher()
+        {
+            if (regularExpression)
+            {
+                Pattern pattern = matchCase ? Pattern.compile(searchFor)
+                        : Pattern.compile(searchFor, Pattern.CASE_INSENSITIVE);
+                return value -> pattern.matcher(value)
+                        .find();
+            }
+            else if (matchCase)
+            {
+                return value -> value.contains(searchFor);
+            }
+            return value -> Strings.CI.contains(value, searchFor);
+        }
+    }
+
+    /**
+     * A found cell
+     *
+     * @param model Model of the hit
+     * @param row Model row
+     * @param viewRow View row
+     * @param column Model column
+     * @param index 1-based index of the hit in view order
+     * @param count Number of visible hits in the model
+     */
+    record Hit(Model model, int row, int viewRow, int column, int index, int count)
+    {
+    }
+
+    private record ScanTask(Model model, int fromRow, int toRow, int columnCount)
+    {
+    }
+
+    /** Sorted hits of a model */
+    private static class Hits
+    {
+        private long[] cells = EMPTY;
+        private int size;
+        private int scannedRows;
+
+        /** Sorter of the view and the listener that invalidates the view ordered cells */
+        private RowSorter<?> sorter;
+        private final RowSorterListener sorterListener = e -> viewCells = null;
+        /** Hits sorted in view order. Null if not computed since last change of hits or view */
+        private long[] viewCells;
+        private int viewSize;
+
+        /** Append hits of rows after the already scanned ones, keeps the cells sorted */
+        void append(long[] newCells, int scannedRows)
+        {
+            if (size + newCells.length > cells.length)
+            {
+                cells = Arrays.copyOf(cells, Math.max(size + newCells.length, cells.length * 2));
+            }
+            System.arraycopy(newCells, 0, cells, size, newCells.length);
+            size += newCells.length;
+            this.scannedRows = scannedRows;
+            viewCells = null;
+        }
+
+        void setSorter(RowSorter<?> sorter)
+        {
+            if (this.sorter == sorter)
+            {
+                return;
+            }
+            if (this.sorter != null)
+            {
+                this.sorter.removeRowSorterListener(sorterListener);
+            }
+            this.sorter = sorter;
+            if (sorter != null)
+            {
+                sorter.addRowSorterListener(sorterListener);
+            }
+            viewCells = null;
+        }
+
+        /** Return hits packed with view row sorted in view order. Rows that are not visible are excluded. */
+        long[] viewCells()
+        {
+            if (viewCells != null)
+            {
+                return viewCells;
+            }
+            // Unsorted and unfiltered, view is the same as the model
+            if (sorter == null
+                    || (sorter.getSortKeys()
+                            .isEmpty()
+                            && sorter.getViewRowCount() == sorter.getModelRowCount()))
+            {
+                viewCells = cells;
+                viewSize = size;
+                return viewCells;
+            }
+
+            long[] result = new long[size];
+            int count = 0;
+            for (int i = 0; i < size; i++)
+            {
+                int viewRow = sorter.convertRowIndexToView((int) (cells[i] >>> 32));
+                if (viewRow >= 0)
+                {
+                    result[count++] = pack(viewRow, (int) cells[i]);
+                }
+            }
+            Arrays.sort(result, 0, count);
+            viewCells = result;
+            viewSize = count;
+            return viewCells;
+        }
+    }
+}
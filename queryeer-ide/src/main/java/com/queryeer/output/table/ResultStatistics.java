@@ -0,0 +1,171 @@
+package com.queryeer.output.table;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Column statistics of a result. Rows are read from the {@link ResultStore} on a side thread as they are appended, this so ingestion isn't slowed down by the statistics.
+ */
+class ResultStatistics
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultStatistics.class);
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(BasicThreadFactory.builder()
+            .daemon(true)
+            .namingPattern("ResultStatistics-%d")
+            .build());
+
+    private final ResultStore store;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    /** Statistics per column ordinal. Guarded by this */
+    private final List<ColumnStatistics> columns = new ArrayList<>();
+    private volatile int processedRows;
+    private volatile boolean closed;
+
+    ResultStatistics(ResultStore store)
+    {
+        this.store = requireNonNull(store, "store");
+    }
+
+    /** Process rows appended to the store since last update. Can be called from any thread. */
+    void update()
+    {
+        if (closed
+                || processedRows >= store.getRowCount()
+                || !scheduled.compareAndSet(false, true))
+        {
+            return;
+        }
+        EXECUTOR.execute(this::process);
+    }
+
+    /** Return number of rows included in the statistics */
+    int getProcessedRows()
+    {
+        return processedRows;
+    }
+
+    /** Return statistics for provided column as a presentation map. Returns null if column has no statistics. */
+    Map<String, Object> getStatistics(int ordinal)
+    {
+        ColumnStatistics statistics;
+        synchronized (this)
+        {
+            statistics = ordinal > 0
+                    && ordinal < columns.size() ? columns.get(ordinal)
+                            : null;
+        }
+        if (statistics == null)
+        {
+            return null;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        int rowCount = store.getRowCount();
+        int processed = processedRows;
+        synchronized (statistics)
+        {
+            result.putAll(statistics.toMap());
+        }
+        if (processed < rowCount)
+        {
+            result.put("Note", "Computed over " + processed + " of " + rowCount + " rows");
+        }
+        return result;
+    }
+
+    void close()
+    {
+        closed = true;
+    }
+
+    private void process()
+    {
+        try
+        {
+            while (!closed)
+            {
+                int rowCount = store.getRowCount();
+                int fromRow = processedRows;
+                if (fromRow >= rowCount)
+                {
+                    break;
+                }
+                // Process one chunk at a time to let readers see progress
+                int toRow = Math.min(rowCount, ((fromRow >>> ResultStore.CHUNK_SHIFT) + 1) << ResultStore.CHUNK_SHIFT);
+                int columnCount = store.getColumnCount();
+                for (int ordinal = 1; ordinal < columnCount; ordinal++)
+                {
+                    ColumnStatistics statistics = getOrCreate(ordinal, fromRow);
+                    synchronized (statistics)
+                    {
+                        process(statistics, ordinal, fromRow, toRow);
+                    }
+                }
+                processedRows = toRow;
+            }
+        }
+        catch (RuntimeException e)
+        {
+            LOGGER.error("Error calculating column statistics", e);
+            closed = true;
+        }
+        finally
+        {
+            scheduled.set(false);
+        }
+        // Rows appended while we where finishing didn't schedule a new run
+        update();
+    }
+
+    private synchronized ColumnStatistics getOrCreate(int ordinal, int fromRow)
+    {
+        while (columns.size() <= ordinal)
+        {
+            ColumnStatistics statistics = new ColumnStatistics();
+            // Columns that appear later are null for all rows before
+            statistics.addNulls(fromRow);
+            columns.add(statistics);
+        }
+        return columns.get(ordinal);
+    }
+
+    private void process(ColumnStatistics statistics, int ordinal, int fromRow, int toRow)
+    {
+        ColumnVector vector = store.vectorAt(fromRow, ordinal);
+        for (int row = fromRow; row < toRow; row++)
+        {
+            int chunkRow = ResultStore.chunkRow(row);
+            if (vector == null
+                    || vector.isNull(chunkRow))
+            {
+                statistics.addNull();
+            }
+            else if (vector instanceof ColumnVector.IntVector v)
+            {
+                statistics.add(v.getInt(chunkRow));
+            }
+            else if (vector instanceof ColumnVector.LongVector v)
+            {
+                statistics.add(v.getLong(chunkRow));
+            }
+            else if (vector instanceof ColumnVector.DoubleVector v)
+            {
+                statistics.add(v.getDouble(chunkRow));
+            }
+            else
+            {
+                statistics.add(Model.unwrap(vector.get(chunkRow)));
+            }
+        }
+    }
+}
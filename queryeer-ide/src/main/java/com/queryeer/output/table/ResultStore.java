@@ -0,0 +1,589 @@
+package com.queryeer.output.table;
+
+import static java.util.Objects.requireNonNull;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.queryeer.output.table.TableOutputConfigurable.TableOutputSettings;
+
+/**
+ * Column storage of a {@link Model}. Rows are stored in chunks of {@link #CHUNK_SIZE} rows per column. When a chunk row is complete it's sealed and accounted for. If the memory used by sealed chunks
+ * exceeds the per result limit or the total limit of all results then the oldest sealed chunks are written to a memory mapped {@link SpillFile} and released from the heap. Spilled chunks are read
+ * back on access and kept in a small LRU cache.
+ */
+class ResultStore
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultStore.class);
+    static final int CHUNK_SHIFT = 12;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final long MB = 1024 * 1024;
+    private static final long MIN_CACHE_BYTES = 16 * MB;
+    /** Total number of sealed in memory bytes for all results */
+    private static final AtomicLong TOTAL_MEMORY_BYTES = new AtomicLong();
+
+    private final boolean spillToDisk;
+    private final long resultMemoryLimit;
+    private final long totalMemoryLimit;
+    private final String spillFolder;
+    private final int dictionaryMaxSize;
+    private final List<Column> columns = new ArrayList<>();
+    /** Sealed chunk rows that are not yet spilled, oldest first */
+    private final Deque<Integer> sealedChunkRows = new ArrayDeque<>();
+    private final ChunkCache cache;
+    /** Columns that must stay in memory since their values are mutated on access */
+    private final BitSet pinnedColumns = new BitSet();
+    private Class<?>[] columnTypeHints = new Class<?>[0];
+    private volatile int rowCount;
+    /** Number of column chunks in the current chunk row */
+    private int openChunks;
+    /** Number of columns that got a value on the current row */
+    private int rowValueCount;
+    private long memoryBytes;
+    private SpillFile spillFile;
+    private boolean spillFailed;
+    private volatile boolean closed;
+
+    ResultStore()
+    {
+        this(new TableOutputSettings());
+    }
+
+    ResultStore(TableOutputSettings settings)
+    {
+        requireNonNull(settings, "settings");
+        this.spillToDisk = settings.isSpillToDisk();
+        this.resultMemoryLimit = Math.max(1, settings.getResultMemoryLimitMB()) * MB;
+        this.totalMemoryLimit = Math.max(1, settings.getTotalMemoryLimitMB()) * MB;
+        this.spillFolder = settings.getSpillFolder();
+        this.dictionaryMaxSize = settings.getDictionaryMaxSize();
+        this.cache = new ChunkCache(Math.max(resultMemoryLimit / 4, MIN_CACHE_BYTES));
+    }
+
+    /**
+     * Set column type hints. Java types of the values of each column or null if unknown. Is used to open typed vectors before any values has arrived.
+     */
+    void setColumnTypeHints(Class<?>[] columnTypeHints)
+    {
+        this.columnTypeHints = requireNonNull(columnTypeHints);
+    }
+
+    /** Pin column at provided ordinal in memory. Values of pinned columns are never spilled. */
+    void pin(int ordinal)
+    {
+        pinnedColumns.set(ordinal);
+    }
+
+    int getRowCount()
+    {
+        return rowCount;
+    }
+
+    /** Append value to the current row at provided ordinal. Opens or promotes the column chunk depending on the value. */
+    void append(int ordinal, Object value)
+    {
+        while (columns.size() <= ordinal)
+        {
+            columns.add(null);
+        }
+        Column column = columns.get(ordinal);
+        if (column == null)
+        {
+            column = new Column();
+            columns.set(ordinal, column);
+        }
+
+        int chunkIndex = rowCount >>> CHUNK_SHIFT;
+        int chunkStart = chunkIndex << CHUNK_SHIFT;
+        while (column.chunks.size() <= chunkIndex)
+        {
+            column.chunks.add(null);
+        }
+
+        Chunk chunk = column.chunks.get(chunkIndex);
+        if (chunk == null)
+        {
+            // Open a typed vector from the column type hint or from the first non null value.
+            // Pinned columns must be object vectors since values are replaced on access
+            Class<?> type = pinnedColumns.get(ordinal) ? Object.class
+                    : value != null ? value.getClass()
+                            : column.type != null ? column.type
+                                    : getColumnTypeHint(ordinal);
+            // Type is still unknown, wait for the first non null value. A missing chunk is all nulls.
+            if (type == null)
+            {
+                return;
+            }
+            chunk = new Chunk(newVector(column, type));
+            chunk.vector.appendNulls(rowCount - chunkStart);
+            column.chunks.set(chunkIndex, chunk);
+            openChunks++;
+        }
+
+        ColumnVector vector = chunk.vector;
+        if (value != null
+                && !vector.accepts(value))
+        {
+            // A vector without values can be re-opened with the values type, this happens if the hint was wrong
+            // otherwise we have a conflicting value and promote the vector to objects
+            if (vector.isAllNull())
+            {
+                ColumnVector newVector = newVector(column, value.getClass());
+                newVector.appendNulls(vector.size());
+                vector = newVector;
+            }
+            else
+            {
+                // Dictionary got too many distinct values, turn off dictionary encoding for the rest of the column
+                if (vector instanceof ColumnVector.DictionaryVector dictionaryVector)
+                {
+                    column.addDictionaryStats(dictionaryVector);
+                    column.dictionaryDisabled = dictionaryVector.isFull();
+                }
+                vector = vector.promote();
+            }
+            chunk.vector = vector;
+        }
+
+        if (vector.size() == rowCount - chunkStart)
+        {
+            rowValueCount++;
+        }
+        vector.append(value);
+    }
+
+    /** End current row. Appends null to all columns that didn't get a value and seals the chunk row if complete. */
+    void endRow()
+    {
+        int chunkIndex = rowCount >>> CHUNK_SHIFT;
+        int chunkRow = rowCount - (chunkIndex << CHUNK_SHIFT);
+        // All columns got a value (always the case for fixed schema results) => no need to normalize
+        if (rowValueCount != openChunks)
+        {
+            int size = columns.size();
+            for (int i = 0; i < size; i++)
+            {
+                Column column = columns.get(i);
+                Chunk chunk = column != null
+                        && chunkIndex < column.chunks.size() ? column.chunks.get(chunkIndex)
+                                : null;
+                if (chunk != null
+                        && chunk.vector.size() != chunkRow + 1)
+                {
+                    chunk.vector.append(null);
+                }
+            }
+        }
+        rowValueCount = 0;
+
+        rowCount++;
+        if (chunkRow + 1 == CHUNK_SIZE)
+        {
+            openChunks = 0;
+            seal(chunkIndex);
+        }
+    }
+
+    /** Return number of column ordinals of this store (including the virtual row number column) */
+    int getColumnCount()
+    {
+        return columns.size();
+    }
+
+    /** Return value at provided row and column */
+    Object get(int row, int ordinal)
+    {
+        ColumnVector vector = vectorAt(row, ordinal);
+        if (vector == null)
+        {
+            return null;
+        }
+        return vector.get(chunkRow(row));
+    }
+
+    /** Return the row in the chunk vector for provided row */
+    static int chunkRow(int row)
+    {
+        return row & (CHUNK_SIZE - 1);
+    }
+
+    /** Replace value at provided row and column. Only supported for pinned columns. */
+    void replace(int row, int ordinal, Object value)
+    {
+        ColumnVector vector = vectorAt(row, ordinal);
+        if (vector instanceof ColumnVector.ObjectVector objectVector)
+        {
+            objectVector.set(chunkRow(row), value);
+        }
+    }
+
+    /** Return the java type of provided column. Returns Object if the column has mixed or no values. */
+    Class<?> getType(int ordinal)
+    {
+        Column column = ordinal < columns.size() ? columns.get(ordinal)
+                : null;
+        if (column == null)
+        {
+            return Object.class;
+        }
+        Class<?> type = column.type;
+        int size = column.chunks.size();
+        Chunk tail = size > 0 ? column.chunks.get(size - 1)
+                : null;
+        ColumnVector vector = tail != null ? tail.vector
+                : null;
+        if (vector != null
+                && !vector.isAllNull())
+        {
+            type = union(type, vector.getType());
+        }
+        return type != null ? type
+                : Object.class;
+    }
+
+    /** Return dictionary statistics for provided column. Returns null if the column is not dictionary encoded. */
+    DictionaryStats getDictionaryStats(int ordinal)
+    {
+        Column column = ordinal < columns.size() ? columns.get(ordinal)
+                : null;
+        if (column == null)
+        {
+            return null;
+        }
+        long hits = column.dictionaryHits;
+        long lookups = column.dictionaryLookups;
+        int size = column.chunks.size();
+        Chunk tail = size > 0 ? column.chunks.get(size - 1)
+                : null;
+        ColumnVector vector = tail != null ? tail.vector
+                : null;
+        if (vector instanceof ColumnVector.DictionaryVector dictionaryVector)
+        {
+            hits += dictionaryVector.getHits();
+            lookups += dictionaryVector.getLookups();
+        }
+        if (lookups == 0)
+        {
+            return null;
+        }
+        return new DictionaryStats(hits, lookups, column.dictionaryDisabled);
+    }
+
+    /** Return number of bytes currently spilled to disk */
+    long getSpilledBytes()
+    {
+        SpillFile file = spillFile;
+        return file != null ? file.getFileSize()
+                : 0;
+    }
+
+    /** Close store and release all resources */
+    void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        synchronized (this)
+        {
+            TOTAL_MEMORY_BYTES.addAndGet(-memoryBytes);
+            memoryBytes = 0;
+            sealedChunkRows.clear();
+        }
+        cache.clear();
+        if (spillFile != null)
+        {
+            spillFile.close();
+        }
+    }
+
+    /** Return the vector that holds provided row for provided column. Row in the vector is {@link #chunkRow(int)}. Returns null if the column has no values for the row. */
+    ColumnVector vectorAt(int row, int ordinal)
+    {
+        Column column = ordinal < columns.size() ? columns.get(ordinal)
+                : null;
+        if (column == null)
+        {
+            return null;
+        }
+        int chunkIndex = row >>> CHUNK_SHIFT;
+        Chunk chunk = chunkIndex < column.chunks.size() ? column.chunks.get(chunkIndex)
+                : null;
+        if (chunk == null)
+        {
+            return null;
+        }
+        ColumnVector vector = chunk.vector;
+        if (vector != null)
+        {
+            return vector;
+        }
+        return faultIn(chunk);
+    }
+
+    private ColumnVector faultIn(Chunk chunk)
+    {
+        ColumnVector vector = cache.get(chunk);
+        if (vector != null)
+        {
+            return vector;
+        }
+
+        SpillFile file = spillFile;
+        ByteBuffer buffer = file != null
+                && chunk.location != null ? file.read(chunk.location)
+                        : null;
+        if (buffer == null)
+        {
+            return null;
+        }
+        vector = ColumnVector.read(buffer);
+        cache.put(chunk, vector);
+        return vector;
+    }
+
+    private void seal(int chunkIndex)
+    {
+        long bytes = 0;
+        int size = columns.size();
+        for (int i = 0; i < size; i++)
+        {
+            Column column = columns.get(i);
+            Chunk chunk = column != null
+                    && chunkIndex < column.chunks.size() ? column.chunks.get(chunkIndex)
+                            : null;
+            if (chunk != null)
+            {
+                if (!chunk.vector.isAllNull())
+                {
+                    column.type = union(column.type, chunk.vector.getType());
+                }
+                if (chunk.vector instanceof ColumnVector.DictionaryVector dictionaryVector)
+                {
+                    column.addDictionaryStats(dictionaryVector);
+                }
+                chunk.bytes = chunk.vector.estimateBytes();
+                bytes += chunk.bytes;
+            }
+        }
+
+        synchronized (this)
+        {
+            if (closed)
+            {
+                return;
+            }
+            memoryBytes += bytes;
+            sealedChunkRows.addLast(chunkIndex);
+        }
+        TOTAL_MEMORY_BYTES.addAndGet(bytes);
+
+        if (spillToDisk)
+        {
+            while (!spillFailed
+                    && !closed
+                    && (memoryBytes > resultMemoryLimit
+                            || TOTAL_MEMORY_BYTES.get() > totalMemoryLimit)
+                    && !sealedChunkRows.isEmpty())
+            {
+                spill(sealedChunkRows.pollFirst());
+            }
+        }
+    }
+
+    private void spill(int chunkIndex)
+    {
+        if (spillFile == null)
+        {
+            try
+            {
+                spillFile = new SpillFile(isBlank(spillFolder) ? Path.of(System.getProperty("java.io.tmpdir"))
+                        : Path.of(spillFolder));
+            }
+            catch (IOException e)
+            {
+                LOGGER.error("Error creating spill file, results will be kept in memory", e);
+                spillFailed = true;
+                return;
+            }
+        }
+
+        long released = 0;
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        int size = columns.size();
+        for (int i = 0; i < size; i++)
+        {
+            Column column = columns.get(i);
+            Chunk chunk = column != null
+                    && !pinnedColumns.get(i)
+                    && chunkIndex < column.chunks.size() ? column.chunks.get(chunkIndex)
+                            : null;
+            if (chunk == null
+                    || chunk.vector == null
+                    || !chunk.vector.isSpillable())
+            {
+                continue;
+            }
+
+            try
+            {
+                bos.reset();
+                chunk.vector.write(new DataOutputStream(bos));
+                // Location must be visible before the vector is released
+                chunk.location = spillFile.write(bos.toByteArray());
+                chunk.vector = null;
+                released += chunk.bytes;
+            }
+            catch (IOException e)
+            {
+                LOGGER.error("Error spilling result to disk, results will be kept in memory", e);
+                spillFailed = true;
+                break;
+            }
+        }
+
+        synchronized (this)
+        {
+            memoryBytes -= released;
+        }
+        TOTAL_MEMORY_BYTES.addAndGet(-released);
+    }
+
+    private ColumnVector newVector(Column column, Class<?> type)
+    {
+        if (type == String.class
+                && dictionaryMaxSize > 0
+                && !column.dictionaryDisabled)
+        {
+            return new ColumnVector.DictionaryVector(dictionaryMaxSize);
+        }
+        return ColumnVector.of(type);
+    }
+
+    private Class<?> getColumnTypeHint(int ordinal)
+    {
+        return ordinal < columnTypeHints.length ? columnTypeHints[ordinal]
+                : null;
+    }
+
+    private static Class<?> union(Class<?> a, Class<?> b)
+    {
+        if (a == null)
+        {
+            return b;
+        }
+        else if (b == null
+                || a == b)
+        {
+            return a;
+        }
+        return Object.class;
+    }
+
+    /** Return total number of sealed in memory bytes for all results */
+    static long getTotalMemoryBytes()
+    {
+        return TOTAL_MEMORY_BYTES.get();
+    }
+
+    /** A column */
+    private static class Column
+    {
+        private final List<Chunk> chunks = new ArrayList<>();
+        /** Union type of all sealed chunks */
+        private volatile Class<?> type;
+        /** Set when a dictionary of this column got too many distinct values */
+        private volatile boolean dictionaryDisabled;
+        /** Dictionary stats of sealed or promoted dictionary chunks */
+        private volatile long dictionaryHits;
+        private volatile long dictionaryLookups;
+
+        private void addDictionaryStats(ColumnVector.DictionaryVector vector)
+        {
+            dictionaryHits += vector.getHits();
+            dictionaryLookups += vector.getLookups();
+        }
+    }
+
+    /** Dictionary encoding statistics of a column */
+    record DictionaryStats(long hits, long lookups, boolean disabled)
+    {
+        double hitRatio()
+        {
+            return lookups > 0 ? (double) hits / lookups
+                    : 0;
+        }
+    }
+
+    /** A chunk of a column. Either has it's vector in memory or a location in the spill file. */
+    private static class Chunk
+    {
+        private volatile ColumnVector vector;
+        private volatile SpillFile.Location location;
+        private long bytes;
+
+        Chunk(ColumnVector vector)
+        {
+            this.vector = vector;
+        }
+    }
+
+    /** Byte bounded LRU cache of chunks read back from disk */
+    private static class ChunkCache
+    {
+        private final long maxBytes;
+        private final Map<Chunk, ColumnVector> vectors = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+
+        ChunkCache(long maxBytes)
+        {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized ColumnVector get(Chunk chunk)
+        {
+            return vectors.get(chunk);
+        }
+
+        synchronized void put(Chunk chunk, ColumnVector vector)
+        {
+            if (vectors.put(chunk, vector) == null)
+            {
+                bytes += chunk.bytes;
+            }
+            Iterator<Map.Entry<Chunk, ColumnVector>> it = vectors.entrySet()
+                    .iterator();
+            // Evict least recently used but always keep the last one
+            while (bytes > maxBytes
+                    && vectors.size() > 1)
+            {
+                Map.Entry<Chunk, ColumnVector> entry = it.next();
+                bytes -= entry.getKey().bytes;
+                it.remove();
+            }
+        }
+
+        synchronized void clear()
+        {
+            vectors.clear();
+            bytes = 0;
+        }
+    }
+}
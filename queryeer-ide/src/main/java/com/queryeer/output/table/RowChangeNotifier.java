@@ -0,0 +1,172 @@
+package com.queryeer.output.table;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import javax.swing.SwingUtilities;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+/**
+ * Coalesces appended rows of a model into insert notifications on EDT. At most one notification per frame interval is published and each notification covers all rows appended since the previous one,
+ * this so a fast producer cannot flood the EDT with events.
+ */
+class RowChangeNotifier
+{
+    static final int DEFAULT_MAX_NOTIFICATIONS_PER_SECOND = 30;
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(BasicThreadFactory.builder()
+            .daemon(true)
+            .namingPattern("RowChangeNotifier-%d")
+            .build());
+
+    private final RowsInsertedListener listener;
+    private final long intervalNanos;
+    private final LongSupplier nanoTime;
+    private final Dispatcher dispatcher;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong publishCount = new AtomicLong();
+    private volatile int appendedRowCount;
+    private volatile long lastPublishNanos;
+    /** Only accessed on EDT */
+    private int publishedRowCount;
+
+    /**
+     * Create a notifier
+     *
+     * @param listener Listener that is called on EDT with inserted rows
+     * @param maxNotificationsPerSecond Max number of notifications per second
+     */
+    RowChangeNotifier(RowsInsertedListener listener, int maxNotificationsPerSecond)
+    {
+        this(listener, maxNotificationsPerSecond, System::nanoTime, Dispatcher.EDT);
+    }
+
+    /** Create a notifier with provided clock and dispatcher. Used in tests. */
+    RowChangeNotifier(RowsInsertedListener listener, int maxNotificationsPerSecond, LongSupplier nanoTime, Dispatcher dispatcher)
+    {
+        this.listener = requireNonNull(listener, "listener");
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxNotificationsPerSecond);
+        this.nanoTime = requireNonNull(nanoTime, "nanoTime");
+        this.dispatcher = requireNonNull(dispatcher, "dispatcher");
+        // Allow a publish right away
+        this.lastPublishNanos = nanoTime.getAsLong() - intervalNanos;
+    }
+
+    /** Mark that the model has provided row count. Can be called from any thread. */
+    void rowsAppended(int rowCount)
+    {
+        appendedRowCount = rowCount;
+        requestCount.incrementAndGet();
+        schedule();
+    }
+
+    /** Publish provided row count as soon as possible regardless of the interval. Can be called from any thread. */
+    void flush(int rowCount)
+    {
+        appendedRowCount = rowCount;
+        requestCount.incrementAndGet();
+        if (dispatcher.isDispatchThread())
+        {
+            publish();
+        }
+        else
+        {
+            dispatcher.dispatch(this::publish, 0);
+        }
+    }
+
+    /** Return number of requested notifications */
+    long getRequestCount()
+    {
+        return requestCount.get();
+    }
+
+    /** Return number of published notifications */
+    long getPublishCount()
+    {
+        return publishCount.get();
+    }
+
+    private void schedule()
+    {
+        if (!scheduled.compareAndSet(false, true))
+        {
+            return;
+        }
+        long delay = lastPublishNanos + intervalNanos - nanoTime.getAsLong();
+        dispatcher.dispatch(this::scheduledPublish, delay);
+    }
+
+    private void scheduledPublish()
+    {
+        scheduled.set(false);
+        publish();
+        // Rows appended after we published but before the flag was reset didn't schedule
+        if (appendedRowCount > publishedRowCount)
+        {
+            schedule();
+        }
+    }
+
+    private void publish()
+    {
+        int rowCount = appendedRowCount;
+        if (rowCount <= publishedRowCount)
+        {
+            return;
+        }
+        int firstRow = publishedRowCount;
+        publishedRowCount = rowCount;
+        lastPublishNanos = nanoTime.getAsLong();
+        publishCount.incrementAndGet();
+        listener.rowsInserted(firstRow, rowCount - 1);
+    }
+
+    /** Runs publishing on the thread that listeners are called on */
+    interface Dispatcher
+    {
+        /** Dispatcher that runs tasks on EDT */
+        Dispatcher EDT = new Dispatcher()
+        {
+            @Override
+            public void dispatch(Runnable task, long delayNanos)
+            {
+                if (delayNanos <= 0)
+                {
+                    SwingUtilities.invokeLater(task);
+                }
+                else
+                {
+                    SCHEDULER.schedule(() -> SwingUtilities.invokeLater(task), delayNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+
+            @Override
+            public boolean isDispatchThread()
+            {
+                return SwingUtilities.isEventDispatchThread();
+            }
+        };
+
+        /** Run provided task after provided delay. A delay of zero or less runs the task as soon as possible. */
+        void dispatch(Runnable task, long delayNanos);
+
+        /** Returns true if the current thread is the dispatch thread */
+        boolean isDispatchThread();
+    }
+
+    /** Listener of inserted rows */
+    @FunctionalInterface
+    interface RowsInsertedListener
+    {
+        /** Called on EDT with the inclusive range of inserted rows */
+        void rowsInserted(int firstRow, int lastRow);
+    }
+}
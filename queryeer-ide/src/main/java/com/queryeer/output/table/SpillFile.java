@@ -0,0 +1,117 @@
+package com.queryeer.output.table;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append only temporary file that is memory mapped in segments. Used by {@link ResultStore} to move sealed column chunks out of the heap. The file is deleted when closed.
+ */
+class SpillFile implements Closeable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpillFile.class);
+    static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long fileSize;
+    private volatile boolean closed;
+
+    SpillFile(Path folder) throws IOException
+    {
+        requireNonNull(folder, "folder");
+        this.path = Files.createTempFile(folder, "queryeer-result-", ".spill");
+        this.path.toFile()
+                .deleteOnExit();
+        this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.SPARSE, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    /** Append provided bytes and return the location where they were written */
+    synchronized Location write(byte[] bytes) throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("Spill file is closed");
+        }
+
+        MappedByteBuffer segment = segments.isEmpty() ? null
+                : segments.get(segments.size() - 1);
+        if (segment == null
+                || segment.remaining() < bytes.length)
+        {
+            // Chunks larger than a segment get a segment of their own
+            int size = Math.max(SEGMENT_SIZE, bytes.length);
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, fileSize, size);
+            segments.add(segment);
+            fileSize += size;
+        }
+
+        int position = segment.position();
+        segment.put(bytes);
+        return new Location(segments.size() - 1, position, bytes.length);
+    }
+
+    /** Return a read only buffer of the bytes at provided location. Returns null if file is closed. */
+    ByteBuffer read(Location location)
+    {
+        MappedByteBuffer segment;
+        synchronized (this)
+        {
+            if (closed)
+            {
+                return null;
+            }
+            segment = segments.get(location.segment);
+        }
+        return segment.duplicate()
+                .position(location.position)
+                .limit(location.position + location.length)
+                .slice()
+                .asReadOnlyBuffer();
+    }
+
+    /** Return number of bytes mapped by this file */
+    synchronized long getFileSize()
+    {
+        return fileSize;
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        segments.clear();
+        try
+        {
+            channel.close();
+            Files.deleteIfExists(path);
+        }
+        catch (IOException e)
+        {
+            // On some platforms a mapped file cannot be deleted until unmapped, delete on exit will take care of it
+            LOGGER.debug("Error deleting spill file: {}", path, e);
+        }
+    }
+
+    /** Location of a written chunk */
+    record Location(int segment, int position, int length)
+    {
+    }
+}
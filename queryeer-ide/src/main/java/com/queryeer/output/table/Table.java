@@ -21,6 +21,7 @@
 import javax.swing.table.JTableHeader;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableColumn;
+import javax.swing.table.TableModel;
 
 import com.queryeer.UiUtils;
 import com.queryeer.api.extensions.output.table.ITableContextMenuAction;
@@ -43,7 +44,6 @@ class Table extends JTable
 
     Table(List<ITableContextMenuAction> actions)
     {
-        setAutoCreateRowSorter(true);
         setBorder(BorderFactory.createEmptyBorder());
         setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
         setCellSelectionEnabled(true);
@@ -81,6 +81,36 @@ && getTableHeader().getCursor()
         setTransferHandler(new TableTransferHandler());
     }
 
+    @Override
+    public void setModel(TableModel dataModel)
+    {
+        super.setModel(dataModel);
+        // Results are sorted and filtered off EDT
+        if (dataModel instanceof Model model)
+        {
+            setRowSorter(new ResultRowSorter(model));
+        }
+    }
+
+    @Override
+    protected JTableHeader createDefaultTableHeader()
+    {
+        return new JTableHeader(columnModel)
+        {
+            @Override
+            public String getToolTipText(MouseEvent event)
+            {
+                int column = columnAtPoint(event.getPoint());
+                if (column >= 0
+                        && getModel() instanceof Model model)
+                {
+                    return model.getColumnToolTip(convertColumnIndexToModel(column));
+                }
+                return null;
+            }
+        };
+    }
+
     @Override
     public TableCellRenderer getCellRenderer(int row, int column)
     {
@@ -291,6 +321,31 @@ void adjustColumns()
         }
     }
 
+    /** Widen adjusted columns to fit provided inserted model rows. Columns that has been resized by the user are left as is. */
+    void adjustColumnsToRows(int fromModelRow, int toModelRow)
+    {
+        if (!columnsAdjusted.get())
+        {
+            return;
+        }
+        int columns = getColumnCount();
+        for (int i = 0; i < columns; i++)
+        {
+            TableColumn column = getColumnModel().getColumn(i);
+            // New column since last adjust
+            if (i >= adjustedWidths.size())
+            {
+                adjuster.adjustColumn(i, 250);
+                adjustedWidths.add(column.getWidth());
+            }
+            else if (column.getWidth() == adjustedWidths.get(i)
+                    && adjuster.widenColumn(i, fromModelRow, toModelRow, 250))
+            {
+                adjustedWidths.set(i, column.getWidth());
+            }
+        }
+    }
+
     void restoreWidths()
     {
         int size = adjustedWidths.size();
@@ -1,18 +1,34 @@
 package com.queryeer.output.table;
 
 import java.awt.Component;
+import java.awt.Font;
+import java.time.temporal.Temporal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.swing.JTable;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
 
-/** Table column adjuster */
+import com.queryeer.output.table.Model.QueryeerImage;
+
+/** Table column adjuster. Widths are measured from a bounded sample of rows to keep the cost independent of the row count. */
 class TableColumnAdjuster
 {
     private static final int DEFAULT_SPACING = 6;
+    /** Number of rows that is sampled from the start, the end and randomly in between when measuring a column */
+    static final int SAMPLE_SIZE = 100;
+    private static final int MAX_CACHED_WIDTHS = 4096;
+    /** Longer strings are cached by a hash to not retain the values */
+    private static final int MAX_KEY_LENGTH = 256;
+    private static final Object NULL_KEY = new Object();
     private final JTable table;
     private final int spacing;
+    /** Rendered width per value for each model column */
+    private final Map<Integer, Map<Object, Integer>> widthCache = new HashMap<>();
+    private Font widthCacheFont;
 
     TableColumnAdjuster(JTable table)
     {
@@ -75,14 +91,53 @@ private int getColumnHeaderWidth(int column)
         return c.getPreferredSize().width;
     }
 
+    /**
+     * Widen the specified column if any of the sampled model rows doesn't fit. Rows that are not part of the view are skipped.
+     *
+     * @return True if the column was widened
+     */
+    boolean widenColumn(int column, int fromModelRow, int toModelRow, int maxWidth)
+    {
+        TableColumn tableColumn = table.getColumnModel()
+                .getColumn(column);
+        if (!tableColumn.getResizable())
+        {
+            return false;
+        }
+
+        int preferredWidth = 0;
+        for (int modelRow : sampleRows(fromModelRow, toModelRow))
+        {
+            int row = modelRow < table.getModel()
+                    .getRowCount() ? table.convertRowIndexToView(modelRow)
+                            : -1;
+            if (row >= 0)
+            {
+                preferredWidth = Math.max(preferredWidth, getCellDataWidth(row, column));
+            }
+        }
+        preferredWidth += spacing;
+        if (maxWidth != -1)
+        {
+            preferredWidth = Math.min(preferredWidth, maxWidth);
+        }
+        if (preferredWidth <= tableColumn.getWidth())
+        {
+            return false;
+        }
+        table.getTableHeader()
+                .setResizingColumn(tableColumn);
+        tableColumn.setWidth(preferredWidth);
+        return true;
+    }
+
     private int getColumnDataWidth(int column)
     {
         int preferredWidth = 0;
         int maxWidth = table.getColumnModel()
                 .getColumn(column)
                 .getMaxWidth();
-        int rowCount = table.getRowCount();
-        for (int row = 0; row < rowCount; row++)
+        for (int row : sampleRows(0, table.getRowCount()))
         {
             preferredWidth = Math.max(preferredWidth, getCellDataWidth(row, column));
             if (preferredWidth >= maxWidth)
@@ -94,19 +149,106 @@ private int getColumnDataWidth(int column)
         return preferredWidth;
     }
 
+    /** Return the rows to measure in provided range. First and last {@link #SAMPLE_SIZE} rows plus {@link #SAMPLE_SIZE} random rows in between. */
+    static int[] sampleRows(int fromRow, int toRow)
+    {
+        int count = toRow - fromRow;
+        if (count <= 0)
+        {
+            return new int[0];
+        }
+        if (count <= SAMPLE_SIZE * 3)
+        {
+            int[] rows = new int[count];
+            for (int i = 0; i < count; i++)
+            {
+                rows[i] = fromRow + i;
+            }
+            return rows;
+        }
+
+        int[] rows = new int[SAMPLE_SIZE * 3];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < SAMPLE_SIZE; i++)
+        {
+            rows[i] = fromRow + i;
+            rows[SAMPLE_SIZE + i] = random.nextInt(fromRow + SAMPLE_SIZE, toRow - SAMPLE_SIZE);
+            rows[SAMPLE_SIZE * 2 + i] = toRow - SAMPLE_SIZE + i;
+        }
+        return rows;
+    }
+
     private int getCellDataWidth(int row, int column)
     {
         if (column >= table.getColumnCount())
         {
             return 0;
         }
+
+        Object value = table.getValueAt(row, column);
+        // Images and arrays are measured every time, images changes when loaded and arrays are compared by identity
+        boolean cacheable = !(value instanceof QueryeerImage)
+                && (value == null
+                        || !value.getClass()
+                                .isArray());
+        Map<Object, Integer> cache = null;
+        Object key = null;
+        if (cacheable)
+        {
+            key = widthKey(value);
+            cache = getWidthCache(column);
+            Integer width = cache.get(key);
+            if (width != null)
+            {
+                return width;
+            }
+        }
+
         TableCellRenderer cellRenderer = table.getCellRenderer(row, column);
         Component c = table.prepareRenderer(cellRenderer, row, column);
         int width = c.getPreferredSize().width + table.getIntercellSpacing().width;
 
+        if (cache != null
+                && cache.size() < MAX_CACHED_WIDTHS)
+        {
+            cache.put(key, width);
+        }
         return width;
     }
 
+    /** Return the width cache key of provided value. Small values are used as is, other values are keyed by type and hash */
+    static Object widthKey(Object value)
+    {
+        if (value == null)
+        {
+            return NULL_KEY;
+        }
+        else if (value instanceof String str)
+        {
+            return str.length() <= MAX_KEY_LENGTH ? str
+                    : new WidthKey(String.class, ColumnStatistics.hash(str));
+        }
+        else if (value instanceof Number
+                || value instanceof Boolean
+                || value instanceof Temporal)
+        {
+            return value;
+        }
+        return new WidthKey(value.getClass(), ColumnStatistics.mix(value.hashCode()));
+    }
+
+    private Map<Object, Integer> getWidthCache(int column)
+    {
+        // Widths are only valid for the font they where measured with (zoom etc.)
+        Font font = table.getFont();
+        if (font != widthCacheFont)
+        {
+            widthCache.clear();
+            widthCacheFont = font;
+        }
+        return widthCache.computeIfAbsent(table.convertColumnIndexToModel(column), k -> new HashMap<>());
+    }
+
     private void updateTableColumn(int column, int w, int maxWidth)
     {
         int width = w;
@@ -123,4 +265,9 @@ private void updateTableColumn(int column, int w, int maxWidth)
         tableColumn.setWidth(maxWidth != -1 ? Math.min(width, maxWidth)
                 : width);
     }
+
+    /** Width cache key of a large value */
+    private record WidthKey(Class<?> type, long hash)
+    {
+    }
 }
@@ -23,17 +23,14 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
 import java.util.stream.IntStream;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.ActionMap;
 import javax.swing.BorderFactory;
-import javax.swing.DefaultRowSorter;
 import javax.swing.Icon;
 import javax.swing.InputMap;
 import javax.swing.JButton;
@@ -45,12 +42,13 @@
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JPopupMenu.Separator;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTextField;
 import javax.swing.KeyStroke;
-import javax.swing.RowFilter;
+import javax.swing.RowSorter;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.event.PopupMenuEvent;
@@ -88,6 +86,10 @@ class TableOutputComponent extends JPanel implements ITableOutputComponent, Sear
     private final List<ITableContextMenuActionFactory> contextMenuActionFactories;
     private final List<TableComponent> tables = new ArrayList<>();
     private final TableFindDialog findDialog;
+    private final ResultSearch search = new ResultSearch(() -> tables.stream()
+            .map(tc -> (Model) tc.table.getModel())
+            .toList(), this::searchChanged);
+    private SearchContext pendingFind;
     private final IOutputExtension extension;
 
     private List<ITableContextMenuAction> contextMenuActions;
@@ -99,7 +101,6 @@ class TableOutputComponent extends JPanel implements ITableOutputComponent, Sear
     private int rowHeight = -1;
     private float fontSize = -1;
 
-    Map<Object, Object> internCache = new HashMap<>();
 
     class TableComponent extends JPanel implements ITableOutputComponent.Table
     {
@@ -150,6 +151,40 @@ class TableComponent extends JPanel implements ITableOutputComponent.Table
                 add(metaPanel, BorderLayout.NORTH);
             }
             add(new JScrollPane(table), BorderLayout.CENTER);
+
+            if (table.getRowSorter() instanceof ResultRowSorter sorter)
+            {
+                add(createSortProgressPanel(sorter), BorderLayout.SOUTH);
+            }
+        }
+
+        private JPanel createSortProgressPanel(ResultRowSorter sorter)
+        {
+            JPanel progressPanel = new JPanel(new BorderLayout());
+            JProgressBar progressBar = new JProgressBar(0, 100);
+            progressBar.setStringPainted(true);
+            JButton cancel = new JButton(Constants.CLOSE_ICON);
+            cancel.setToolTipText("Cancel Sort/Filter");
+            cancel.addActionListener(l -> sorter.cancel());
+            progressPanel.add(progressBar, BorderLayout.CENTER);
+            progressPanel.add(cancel, BorderLayout.EAST);
+            progressPanel.setVisible(false);
+
+            sorter.addProgressListener(percent ->
+            {
+                if (percent < 0)
+                {
+                    progressPanel.setVisible(false);
+                }
+                else
+                {
+                    progressBar.setValue(percent);
+                    progressBar.setString("Sorting... " + percent + "%");
+                    progressPanel.setVisible(true);
+                }
+                revalidate();
+            });
+            return progressPanel;
         }
 
         @Override
@@ -321,91 +356,95 @@ public void searchEvent(SearchEvent e)
         {
             default:
             case FIND:
+                // Find is performed when the search has scanned all rows
+                pendingFind = context;
+                search.search(new ResultSearch.Query(context.getSearchFor(), context.getMatchCase(), context.isRegularExpression()));
+                findDialog.updateTitle();
+                break;
+        }
+    }
 
-                Pattern pattern = null;
-                if (context.isRegularExpression())
-                {
-                    if (context.getMatchCase())
-                    {
-                        pattern = Pattern.compile(context.getSearchFor());
-                    }
-                    else
-                    {
-                        pattern = Pattern.compile(context.getSearchFor(), Pattern.CASE_INSENSITIVE);
-                    }
-                }
+    private void searchChanged()
+    {
+        findDialog.updateTitle();
+        if (pendingFind != null
+                && !search.isRunning())
+        {
+            SearchContext context = pendingFind;
+            pendingFind = null;
+            find(context);
+        }
+    }
 
-                findDialog.incrementSearchState();
-                int tableIndex = 0;
-                for (int i = 0; i < tables.size(); i++)
+    private void find(SearchContext context)
+    {
+        List<TableComponent> tableComponents = new ArrayList<>(tables);
+        List<Model> models = tableComponents.stream()
+                .map(tc -> (Model) tc.table.getModel())
+                .toList();
+        List<RowSorter<?>> sorters = tableComponents.stream()
+                .<RowSorter<?>>map(tc -> tc.table.getRowSorter())
+                .toList();
+
+        boolean forward = context.getSearchForward();
+        boolean inclusive = findDialog.initialSearch;
+        findDialog.initialSearch = false;
+        Model model = findDialog.currentTable != null ? (Model) findDialog.currentTable.table.getModel()
+                : null;
+        // Current position is kept in model coordinates since the view can be sorted/filtered between finds.
+        // A filtered out row starts from the beginning of the table
+        int viewRow = 0;
+        if (model != null
+                && findDialog.currentRow < model.getRowCount())
+        {
+            viewRow = findDialog.currentTable.table.convertRowIndexToView(findDialog.currentRow);
+        }
+        int col = findDialog.currentCol;
+        boolean wrapped = false;
+        // Guard against looping when all hits are in hidden columns
+        int attempts = search.getHitCount() + 1;
+        while (attempts-- > 0)
+        {
+            ResultSearch.Hit hit = search.find(models, sorters, model, viewRow, col, forward, inclusive);
+            if (hit == null)
+            {
+                if (!context.getSearchWrap()
+                        || wrapped)
                 {
-                    TableComponent table = tables.get(i);
-                    if (table == findDialog.currentTable)
-                    {
-                        tableIndex = i;
-                        break;
-                    }
+                    break;
                 }
+                wrapped = true;
+                model = null;
+                inclusive = true;
+                continue;
+            }
 
-                int searchCount = 0;
-                while (searchCount <= 1)
-                {
-                    int startRow = findDialog.currentRow;
-                    int startCol = findDialog.currentCol;
-                    for (int i = tableIndex; i < tables.size(); i++)
-                    {
-                        TableComponent tc = tables.get(i);
-                        int rowCount = tc.table.getRowCount();
-                        int colCount = tc.table.getColumnCount();
-
-                        for (int row = startRow; row < rowCount; row++)
-                        {
-                            for (int col = startCol; col < colCount; col++)
-                            {
-                                // Don't search in row number
-                                if (col == 0)
-                                {
-                                    continue;
-                                }
+            inclusive = false;
+            model = hit.model();
+            viewRow = hit.viewRow();
+            col = hit.column();
 
-                                Object value = tc.table.getValueAt(row, col);
-                                if (!match(value, context, pattern))
-                                {
-                                    continue;
-                                }
+            TableComponent tc = tableComponents.get(models.indexOf(model));
+            int viewCol = tc.table.convertColumnIndexToView(col);
+            if (viewCol < 0)
+            {
+                continue;
+            }
 
-                                // Mark for next find
-                                findDialog.currentTable = tc;
-                                findDialog.currentRow = row;
-                                findDialog.currentCol = col;
+            // Mark for next find
+            findDialog.currentTable = tc;
+            findDialog.currentRow = hit.row();
+            findDialog.currentCol = col;
 
-                                Rectangle bounds = new Rectangle(tc.table.getBounds());
-                                tc.table.scrollRectToVisible(bounds);
+            Rectangle bounds = new Rectangle(tc.table.getBounds());
+            tc.table.scrollRectToVisible(bounds);
 
-                                tc.table.changeSelection(row, col, false, false);
-                                tc.table.scrollRectToVisible(new Rectangle(tc.table.getCellRect(row, col, true)));
-                                return;
-                            }
-                            startCol = 0;
-                        }
-                    }
-
-                    if (context.getSearchWrap())
-                    {
-                        searchCount++;
-                        findDialog.currentTable = null;
-                        findDialog.currentRow = 0;
-                        findDialog.currentCol = 0;
-                    }
-                    else
-                    {
-                        break;
-                    }
-                }
-
-                JOptionPane.showMessageDialog(this, "No more hits", "Search", JOptionPane.INFORMATION_MESSAGE);
-                break;
+            tc.table.changeSelection(viewRow, viewCol, false, false);
+            tc.table.scrollRectToVisible(new Rectangle(tc.table.getCellRect(viewRow, viewCol, true)));
+            return;
         }
+
+        JOptionPane.showMessageDialog(this, "No more hits", "Search", JOptionPane.INFORMATION_MESSAGE);
     }
 
     @Override
@@ -431,16 +470,18 @@ public void clearState()
     {
         // Clear reference to any table
         findDialog.currentTable = null;
+        search.clear();
+        pendingFind = null;
 
-        // Remove listeners
+        // Remove listeners and release storage
         for (TableComponent tc : tables)
         {
             tc.table.setTableHeader(null);
             Model model = (Model) tc.table.getModel();
             model.removeTableModelListener(tc.table);
+            model.close();
         }
 
-        internCache.clear();
         tables.clear();
         removeAll();
         repaint();
@@ -508,26 +549,6 @@ void showFind()
         showFindDialogAction.actionPerformed(null);
     }
 
-    private boolean match(Object val, SearchContext context, Pattern pattern)
-    {
-        if (val == null)
-        {
-            return false;
-        }
-        String value = String.valueOf(val);
-        if (pattern != null)
-        {
-            return pattern.matcher(value)
-                    .find();
-        }
-        else if (context.getMatchCase())
-        {
-            return value.contains(context.getSearchFor());
-        }
-
-        return Strings.CI.contains(value, context.getSearchFor());
-    }
-
     private ITableContextMenuAction getAction(com.queryeer.output.table.Table table, int row, int col)
     {
         TableSelectedCell selectedCell = new TableSelectedCell(table, row, col);
@@ -556,6 +577,56 @@ private com.queryeer.output.table.Table createTable()
         }
 
         com.queryeer.output.table.Table table = new com.queryeer.output.table.Table(contextMenuActions);
+        table.getTableHeader()
+                .addMouseListener(new MouseAdapter()
+                {
+                    @Override
+                    public void mousePressed(MouseEvent e)
+                    {
+                        showHeaderPopup(e);
+                    }
+
+                    @Override
+                    public void mouseReleased(MouseEvent e)
+                    {
+                        showHeaderPopup(e);
+                    }
+
+                    private void showHeaderPopup(MouseEvent e)
+                    {
+                        if (!e.isPopupTrigger())
+                        {
+                            return;
+                        }
+                        int column = table.getTableHeader()
+                                .columnAtPoint(e.getPoint());
+                        int modelColumn = column >= 0 ? table.convertColumnIndexToModel(column)
+                                : -1;
+                        if (modelColumn <= 0
+                                || !(table.getModel() instanceof Model model))
+                        {
+                            return;
+                        }
+                        String header = model.getColumnName(modelColumn);
+                        JPopupMenu popup = new JPopupMenu();
+                        popup.add(new AbstractAction("Column Statistics For " + header)
+                        {
+                            @Override
+                            public void actionPerformed(ActionEvent e)
+                            {
+                                Map<String, Object> statistics = model.getColumnStatistics(modelColumn);
+                                if (statistics == null)
+                                {
+                                    JOptionPane.showMessageDialog(TableOutputComponent.this, "No statistics available. Statistics can be turned on in Table Output options.", "Column Statistics",
+                                            JOptionPane.INFORMATION_MESSAGE);
+                                    return;
+                                }
+                                dialogFactory.showValueDialog("Column Statistics - " + header, statistics, IDialogFactory.Format.JSON);
+                            }
+                        });
+                        popup.show(e.getComponent(), e.getX(), e.getY());
+                    }
+                });
         // Remove default Enter move to next cell/row, we view the cell value instead
         table.getInputMap(JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT)
                 .put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "none");
@@ -757,45 +828,19 @@ private JMenu createFilterContextMenu(int col, Object value, String header)
                 JMenu filter = new JMenu("Filter");
                 JMenuItem equals = new JMenuItem(new AbstractAction("Filter for " + header + " = " + value)
                 {
-                    @SuppressWarnings("unchecked")
                     @Override
                     public void actionPerformed(ActionEvent e)
                     {
-                        RowFilter<Model, Integer> rowFilter = new RowFilter<Model, Integer>()
-                        {
-                            @Override
-                            public boolean include(Entry<? extends Model, ? extends Integer> entry)
-                            {
-                                if (value == null)
-                                {
-                                    return entry.getValue(col) == null;
-                                }
-                                return Strings.CI.equals(entry.getStringValue(col), String.valueOf(value));
-                            }
-                        };
-                        ((DefaultRowSorter<Model, Integer>) table.getRowSorter()).setRowFilter(rowFilter);
+                        setRowFilter(col, value, true);
                     }
                 });
                 filter.add(equals);
                 JMenuItem notEquals = new JMenuItem(new AbstractAction("Filter for " + header + " <> " + value)
                 {
-                    @SuppressWarnings("unchecked")
                     @Override
                     public void actionPerformed(ActionEvent e)
                     {
-                        RowFilter<Model, Integer> rowFilter = new RowFilter<Model, Integer>()
-                        {
-                            @Override
-                            public boolean include(Entry<? extends Model, ? extends Integer> entry)
-                            {
-                                if (value == null)
-                                {
-                                    return entry.getValue(col) != null;
-                                }
-                                return !Strings.CI.equals(entry.getStringValue(col), String.valueOf(value));
-                            }
-                        };
-                        ((DefaultRowSorter<Model, Integer>) table.getRowSorter()).setRowFilter(rowFilter);
+                        setRowFilter(col, value, false);
                     }
                 });
                 filter.add(notEquals);
@@ -804,13 +849,36 @@ public boolean include(Entry<? extends Model, ? extends Integer> entry)
                     @Override
                     public void actionPerformed(ActionEvent e)
                     {
-                        ((DefaultRowSorter<?, ?>) table.getRowSorter()).setRowFilter(null);
+                        if (table.getRowSorter() instanceof ResultRowSorter sorter)
+                        {
+                            sorter.setRowFilter(null);
+                        }
                     }
                 });
                 filter.add(noFilter);
                 return filter;
             }
 
+            private void setRowFilter(int col, Object value, boolean equals)
+            {
+                if (!(table.getRowSorter() instanceof ResultRowSorter sorter))
+                {
+                    return;
+                }
+                Model model = sorter.getModel();
+                int modelColumn = table.convertColumnIndexToModel(col);
+                String stringValue = String.valueOf(value);
+                // The filter is tested from a background thread so values are read without touching the store
+                sorter.setRowFilter(row ->
+                {
+                    Object rowValue = model.getRawValueAt(row, modelColumn);
+                    boolean match = value == null ? rowValue == null
+                            : Strings.CI.equals(rowValue == null ? ""
+                                    : rowValue.toString(), stringValue);
+                    return match == equals;
+                });
+            }
+
             private void addSeparator(int position)
             {
                 Separator separator = new JPopupMenu.Separator();
@@ -834,6 +902,12 @@ synchronized void addResult(final Model model, Map<String, Object> resultMetaDat
             {
                 resultTable.adjustColumns();
             }
+            else if (e.getType() == TableModelEvent.INSERT
+                    && resultTable.columnsAdjusted.get())
+            {
+                // Widen columns while rows streams in
+                resultTable.adjustColumnsToRows(e.getFirstRow(), e.getLastRow() + 1);
+            }
             else if (e.getFirstRow() == TableModelEvent.HEADER_ROW
                     && resultTable.columnsAdjusted.get())
             {
@@ -1057,6 +1131,7 @@ private class TableFindDialog extends FindDialog
         private int currentCol;
         private int currentRow;
         private boolean initialSearch = true;
+        private final String title;
 
         TableFindDialog()
         {
@@ -1069,38 +1144,26 @@ private class TableFindDialog extends FindDialog
             markAllCheckBox.setSelected(false);
             markAllCheckBox.setEnabled(false);
             wholeWordCheckBox.setEnabled(false);
-            upButton.setEnabled(false);
-            downButton.setEnabled(false);
 
             refreshUIFromContext();
+            title = getTitle();
             setLocationRelativeTo(getParent());
         }
 
-        void incrementSearchState()
+        void updateTitle()
         {
-            if (initialSearch)
+            if (search.isRunning())
             {
-                initialSearch = false;
-                return;
+                setTitle(title + " - Searching...");
             }
-            if (currentTable == null)
+            else if (pendingFind != null
+                    || !initialSearch)
             {
-                return;
+                setTitle(title + " - " + search.getHitCount() + " hits");
             }
-            currentCol++;
-            if (currentCol >= currentTable.table.getColumnCount())
+            else
             {
-                currentCol = 0;
-                currentRow++;
-                if (currentRow >= currentTable.table.getRowCount())
-                {
-                    currentRow = 0;
-
-                    int index = tables.indexOf(currentTable);
-                    index++;
-                    currentTable = index < tables.size() ? tables.get(index)
-                            : null;
-                }
+                setTitle(title);
             }
         }
 
@@ -1119,12 +1182,18 @@ public void setVisible(boolean visible)
                 {
                     if (tc.table.hasFocus())
                     {
+                        // Search positions are in model coordinates
+                        int selectedRow = tc.table.getSelectedRow();
+                        int selectedCol = tc.table.getSelectedColumn();
                         currentTable = tc;
-                        currentRow = tc.table.getSelectedRow();
-                        currentCol = tc.table.getSelectedColumn();
+                        currentRow = selectedRow >= 0 ? tc.table.convertRowIndexToModel(selectedRow)
+                                : 0;
+                        currentCol = selectedCol >= 0 ? tc.table.convertColumnIndexToModel(selectedCol)
+                                : 0;
                         break;
                     }
                 }
+                updateTitle();
             }
 
             super.setVisible(visible);
@@ -1137,5 +1206,11 @@ public void dispose()
         UIManager.removePropertyChangeListener(uiManagerChangeListener);
         findDialog.setVisible(false);
         findDialog.dispose();
+        search.clear();
+        // Release storage (spill files etc.)
+        for (TableComponent tc : tables)
+        {
+            ((Model) tc.table.getModel()).close();
+        }
     }
 }
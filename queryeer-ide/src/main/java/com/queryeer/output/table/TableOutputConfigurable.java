@@ -0,0 +1,260 @@
+package com.queryeer.output.table;
+
+import static java.util.Objects.requireNonNull;
+
+import java.awt.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.queryeer.api.component.Properties;
+import com.queryeer.api.component.PropertiesComponent;
+import com.queryeer.api.component.Property;
+import com.queryeer.api.extensions.IConfigurable;
+import com.queryeer.api.service.IConfig;
+
+/** Configurable for table output. Memory limits etc. */
+class TableOutputConfigurable implements IConfigurable
+{
+    private static final ObjectMapper MAPPER = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final String NAME = "com.queryeer.output.table.TableOutput";
+    private final List<Consumer<Boolean>> dirtyStateConsumers = new ArrayList<>();
+    private final IConfig config;
+    private PropertiesComponent component;
+    private TableOutputSettings settings;
+
+    TableOutputConfigurable(IConfig config)
+    {
+        this.config = requireNonNull(config, "config");
+        this.settings = loadSettings();
+    }
+
+    TableOutputSettings getSettings()
+    {
+        return settings;
+    }
+
+    @Override
+    public Component getComponent()
+    {
+        if (component == null)
+        {
+            component = new PropertiesComponent(TableOutputSettings.class, this::notifyDirty);
+            component.init(new TableOutputSettings(settings));
+        }
+        return component;
+    }
+
+    @Override
+    public String getTitle()
+    {
+        return "Output";
+    }
+
+    @Override
+    public String getLongTitle()
+    {
+        return "Settings for Table Output";
+    }
+
+    @Override
+    public String groupName()
+    {
+        return "Table";
+    }
+
+    @Override
+    public void addDirtyStateConsumer(Consumer<Boolean> consumer)
+    {
+        dirtyStateConsumers.add(consumer);
+    }
+
+    @Override
+    public void removeDirtyStateConsumer(Consumer<Boolean> consumer)
+    {
+        dirtyStateConsumers.remove(consumer);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean commitChanges()
+    {
+        if (component == null)
+        {
+            return false;
+        }
+        settings = new TableOutputSettings((TableOutputSettings) component.getTarget());
+        config.saveExtensionConfig(NAME, MAPPER.convertValue(settings, Map.class));
+        return true;
+    }
+
+    @Override
+    public void revertChanges()
+    {
+        if (component == null)
+        {
+            return;
+        }
+        component.init(new TableOutputSettings(settings));
+    }
+
+    private void notifyDirty(boolean dirty)
+    {
+        dirtyStateConsumers.forEach(c -> c.accept(dirty));
+    }
+
+    @SuppressWarnings("unchecked")
+    private TableOutputSettings loadSettings()
+    {
+        Map<String, Object> settings = config.loadExtensionConfig(NAME);
+
+        // No settings, create default and write to disk
+        if (settings.isEmpty())
+        {
+            TableOutputSettings result = new TableOutputSettings();
+            config.saveExtensionConfig(NAME, MAPPER.convertValue(result, Map.class));
+            return result;
+        }
+        else
+        {
+            return MAPPER.convertValue(settings, TableOutputSettings.class);
+        }
+    }
+
+    /** Table output settings */
+    @Properties(
+            properties = {
+                    @Property(
+                            propertyName = "spillToDisk",
+                            title = "Spill To Disk",
+                            description = "Move result rows to memory mapped temporary files when memory limits are exceeded",
+                            order = 0),
+                    @Property(
+                            propertyName = "resultMemoryLimitMB",
+                            title = "Result Memory Limit (MB)",
+                            description = "Max number of megabytes a single result keeps in memory before spilling to disk",
+                            order = 1),
+                    @Property(
+                            propertyName = "totalMemoryLimitMB",
+                            title = "Total Memory Limit (MB)",
+                            description = "Max number of megabytes all results keeps in memory before spilling to disk",
+                            order = 2),
+                    @Property(
+                            propertyName = "spillFolder",
+                            title = "Spill Folder",
+                            description = "Folder where spill files are created. Leave blank to use the system temp folder.",
+                            order = 3),
+                    @Property(
+                            propertyName = "dictionaryMaxSize",
+                            title = "String Dictionary Max Size",
+                            description = "Max number of distinct strings per column chunk that is dictionary encoded before the column switches to plain storage. 0 disables dictionary encoding.",
+                            order = 4),
+                    @Property(
+                            propertyName = "maxNotificationsPerSecond",
+                            title = "Max Table Updates Per Second",
+                            description = "Max number of times per second a table is notified about new rows while a query is running. Lower values leaves more time for painting when fetching large results.",
+                            order = 5),
+                    @Property(
+                            propertyName = "columnStatistics",
+                            title = "Column Statistics",
+                            description = "Collect statistics (null count, min/max, approximate distinct count, top values and histograms) of result columns while rows are fetched. Shown from the column header popup.",
+                            order = 6) })
+    static class TableOutputSettings
+    {
+        private boolean spillToDisk = true;
+        private int resultMemoryLimitMB = 256;
+        private int totalMemoryLimitMB = 1024;
+        private String spillFolder = "";
+        private int dictionaryMaxSize = 1024;
+        private int maxNotificationsPerSecond = RowChangeNotifier.DEFAULT_MAX_NOTIFICATIONS_PER_SECOND;
+        private boolean columnStatistics = true;
+
+        TableOutputSettings()
+        {
+        }
+
+        TableOutputSettings(TableOutputSettings source)
+        {
+            this.spillToDisk = source.spillToDisk;
+            this.resultMemoryLimitMB = source.resultMemoryLimitMB;
+            this.totalMemoryLimitMB = source.totalMemoryLimitMB;
+            this.spillFolder = source.spillFolder;
+            this.dictionaryMaxSize = source.dictionaryMaxSize;
+            this.maxNotificationsPerSecond = source.maxNotificationsPerSecond;
+            this.columnStatistics = source.columnStatistics;
+        }
+
+        public boolean isSpillToDisk()
+        {
+            return spillToDisk;
+        }
+
+        public void setSpillToDisk(boolean spillToDisk)
+        {
+            this.spillToDisk = spillToDisk;
+        }
+
+        public int getResultMemoryLimitMB()
+        {
+            return resultMemoryLimitMB;
+        }
+
+        public void setResultMemoryLimitMB(int resultMemoryLimitMB)
+        {
+            this.resultMemoryLimitMB = resultMemoryLimitMB;
+        }
+
+        public int getTotalMemoryLimitMB()
+        {
+            return totalMemoryLimitMB;
+        }
+
+        public void setTotalMemoryLimitMB(int totalMemoryLimitMB)
+        {
+            this.totalMemoryLimitMB = totalMemoryLimitMB;
+        }
+
+        public String getSpillFolder()
+        {
+            return spillFolder;
+        }
+
+        public void setSpillFolder(String spillFolder)
+        {
+            this.spillFolder = spillFolder;
+        }
+
+        public int getDictionaryMaxSize()
+        {
+            return dictionaryMaxSize;
+        }
+
+        public void setDictionaryMaxSize(int dictionaryMaxSize)
+        {
+            this.dictionaryMaxSize = dictionaryMaxSize;
+        }
+
+        public int getMaxNotificationsPerSecond()
+        {
+            return maxNotificationsPerSecond;
+        }
+
+        public void setMaxNotificationsPerSecond(int maxNotificationsPerSecond)
+        {
+            this.maxNotificationsPerSecond = maxNotificationsPerSecond;
+        }
+
+        public boolean isColumnStatistics()
+        {
+            return columnStatistics;
+        }
+
+        public void setColumnStatistics(boolean columnStatistics)
+        {
+            this.columnStatistics = columnStatistics;
+        }
+    }
+}
@@ -22,12 +22,15 @@ class TableOutputExtension implements IOutputExtension
     private final List<ITableContextMenuActionFactory> contextMenuActionFactories;
     private final TableActionsConfigurable tableActionsConfigurable;
     private final IDialogFactory dialogFactory;
+    private final TableOutputConfigurable tableOutputConfigurable;
 
-    TableOutputExtension(List<ITableContextMenuActionFactory> contextMenuActionFactories, TableActionsConfigurable tableActionsConfigurable, IDialogFactory dialogFactory)
+    TableOutputExtension(List<ITableContextMenuActionFactory> contextMenuActionFactories, TableActionsConfigurable tableActionsConfigurable, IDialogFactory dialogFactory,
+            TableOutputConfigurable tableOutputConfigurable)
     {
         this.contextMenuActionFactories = requireNonNull(contextMenuActionFactories, "contextMenuActionFactories");
         this.tableActionsConfigurable = requireNonNull(tableActionsConfigurable, "tableActionsConfigurable");
         this.dialogFactory = requireNonNull(dialogFactory, "dialogFactory");
+        this.tableOutputConfigurable = requireNonNull(tableOutputConfigurable, "tableOutputConfigurable");
     }
 
     @Override
@@ -64,6 +67,6 @@ public Class<? extends IOutputComponent> getResultOutputComponentClass()
     @Override
     public OutputWriter createOutputWriter(IQueryFile file)
     {
-        return new TableOutputWriter(file);
+        return new TableOutputWriter(file, tableOutputConfigurable.getSettings());
     }
 }
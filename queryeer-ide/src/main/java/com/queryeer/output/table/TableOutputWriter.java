@@ -7,14 +7,12 @@
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.function.Function;
 
 import javax.swing.SwingUtilities;
 
@@ -23,6 +21,7 @@
 
 import com.queryeer.api.IQueryFile;
 import com.queryeer.api.extensions.output.QueryeerOutputWriter;
+import com.queryeer.output.table.TableOutputConfigurable.TableOutputSettings;
 
 import se.kuseman.payloadbuilder.api.execution.EpochDateTime;
 import se.kuseman.payloadbuilder.api.execution.EpochDateTimeOffset;
@@ -33,12 +32,14 @@ class TableOutputWriter implements QueryeerOutputWriter
 {
     private final TableOutputComponent tableOutputComponent;
     private final IQueryFile queryFile;
+    private final TableOutputSettings settings;
     /** Current model */
     private Model model;
 
-    TableOutputWriter(IQueryFile queryFile)
+    TableOutputWriter(IQueryFile queryFile, TableOutputSettings settings)
     {
         this.queryFile = Objects.requireNonNull(queryFile, "queryFile");
+        this.settings = Objects.requireNonNull(settings, "settings");
         this.tableOutputComponent = queryFile.getOutputComponent(TableOutputComponent.class);
     }
 
@@ -50,13 +51,25 @@ class TableOutputWriter implements QueryeerOutputWriter
     @Override
     public void initResult(String[] columns, Map<String, Object> resultMetaData)
     {
-        this.model = new Model();
+        initResult(columns, null, resultMetaData);
+    }
+
+    @Override
+    public void initResult(String[] columns, Class<?>[] columnTypes, Map<String, Object> resultMetaData)
+    {
+        this.model = new Model(new ResultStore(settings), settings);
 
         List<String> allColumns = new ArrayList<>(asList(columns));
         // Insert the row id column first
         allColumns.add(0, "");
 
         this.model.setColumns(allColumns);
+        if (columnTypes != null)
+        {
+            Class<?>[] typeHints = new Class<?>[columnTypes.length + 1];
+            System.arraycopy(columnTypes, 0, typeHints, 1, columnTypes.length);
+            this.model.setColumnTypeHints(typeHints);
+        }
 
         // Need a sync call here else we will have races on fast queries where we append wrong models
         try
@@ -72,7 +85,6 @@ public void initResult(String[] columns, Map<String, Object> resultMetaData)
     @Override
     public void close()
     {
-        tableOutputComponent.internCache.clear();
         row.clear();
         SwingUtilities.invokeLater(() -> tableOutputComponent.resizeLastTablesColumns());
     }
@@ -138,17 +150,56 @@ public void writeValue(Object input)
         }
         else if (value instanceof Reader r)
         {
-            try (Reader reader = r)
-            {
-                value = IOUtils.toString(reader);
-            }
-            catch (IOException e)
+            value = readToString(r);
+        }
+
+        putValue(value);
+    }
+
+    @Override
+    public void writeBatch(String[] columns, Object[][] values, int rowCount)
+    {
+        model.addBatch(columns, values, rowCount, this::batchValue);
+        queryFile.incrementTotalRowCount(rowCount);
+    }
+
+    /** Convert a batch value in the same way as the row protocol does */
+    private Object batchValue(Object value)
+    {
+        if (value instanceof Iterator<?> it)
+        {
+            List<Object> list = new ArrayList<>();
+            while (it.hasNext())
             {
-                throw new RuntimeException("Error reading reader to string", e);
+                list.add(batchValue(it.next()));
             }
+            return list;
+        }
+        else if (value instanceof Reader r)
+        {
+            return readToString(r);
+        }
+        else if (value instanceof EpochDateTime datetime)
+        {
+            return datetime.getLocalDateTime();
+        }
+        else if (value instanceof EpochDateTimeOffset datetimeOffset)
+        {
+            return datetimeOffset.getZonedDateTime();
         }
+        return storedValue(value);
+    }
 
-        putValue(value);
+    private String readToString(Reader r)
+    {
+        try (Reader reader = r)
+        {
+            return IOUtils.toString(reader);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Error reading reader to string", e);
+        }
     }
 
     @Override
@@ -192,8 +243,7 @@ public void endArray()
     @SuppressWarnings("unchecked")
     private void putValue(Object v)
     {
-        // Intern the value
-        Object value = internValue(v);
+        Object value = storedValue(v);
         Object p = nestLevel == 0 ? row
                 : parent.peekFirst();
 
@@ -211,24 +261,12 @@ else if (p instanceof List list)
         }
     }
 
-    private Object internValue(Object value)
+    /** Convert value before it's stored. Strings are dictionary encoded per column by the model so they must be java strings. */
+    private Object storedValue(Object value)
     {
-        if (value == null)
+        if (value instanceof UTF8String str)
         {
-            return value;
-        }
-        if (!(value instanceof Map
-                || value instanceof Collection
-                || value.getClass()
-                        .isArray()))
-        {
-            // MutableObjectVector turns all String's into UTF8String so we miss the interning of these
-            // so instead do this transformation here.
-            if (value instanceof String str)
-            {
-                value = UTF8String.from(str);
-            }
-            return tableOutputComponent.internCache.computeIfAbsent(value, Function.identity());
+            return str.toString();
         }
         return value;
     }
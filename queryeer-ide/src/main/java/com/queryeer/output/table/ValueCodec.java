@@ -0,0 +1,435 @@
+package com.queryeer.output.table;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.queryeer.output.table.Model.QueryeerImage;
+
+import se.kuseman.payloadbuilder.api.execution.Decimal;
+import se.kuseman.payloadbuilder.api.execution.EpochDateTime;
+import se.kuseman.payloadbuilder.api.execution.EpochDateTimeOffset;
+import se.kuseman.payloadbuilder.api.execution.UTF8String;
+
+/**
+ * Binary codec for single values stored in {@link ColumnVector.ObjectVector}'s. Each value is written with a one byte tag followed by a type specific payload. Payloadbuilder types are written as their
+ * java counterparts which is what {@link Model#getValueAt(int, int)} returns anyway.
+ */
+class ValueCodec
+{
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte SHORT = 6;
+    private static final byte BYTE = 7;
+    private static final byte BOOLEAN = 8;
+    private static final byte BIG_DECIMAL = 9;
+    private static final byte BIG_INTEGER = 10;
+    private static final byte LOCAL_DATE_TIME = 11;
+    private static final byte LOCAL_DATE = 12;
+    private static final byte LOCAL_TIME = 13;
+    private static final byte TIMESTAMP = 14;
+    private static final byte OFFSET_DATE_TIME = 15;
+    private static final byte ZONED_DATE_TIME = 16;
+    private static final byte UUID_VALUE = 17;
+    private static final byte BYTES = 18;
+    private static final byte LIST = 19;
+    private static final byte MAP = 20;
+    private static final byte CHARACTER = 21;
+
+    /** Returns true if provided value can be written */
+    static boolean canWrite(Object value)
+    {
+        if (value == null)
+        {
+            return true;
+        }
+        else if (value instanceof QueryeerImage image)
+        {
+            return canWrite(image.getRawValue());
+        }
+        else if (value instanceof Collection<?> collection)
+        {
+            for (Object item : collection)
+            {
+                if (!canWrite(item))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        else if (value instanceof Map<?, ?> map)
+        {
+            for (Map.Entry<?, ?> e : map.entrySet())
+            {
+                if (!(e.getKey() instanceof String)
+                        || !canWrite(e.getValue()))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        return value instanceof String
+                || value instanceof UTF8String
+                || value instanceof Integer
+                || value instanceof Long
+                || value instanceof Double
+                || value instanceof Float
+                || value instanceof Short
+                || value instanceof Byte
+                || value instanceof Boolean
+                || value instanceof Character
+                || value instanceof BigDecimal
+                || value instanceof Decimal
+                || value instanceof BigInteger
+                || value instanceof LocalDateTime
+                || value instanceof EpochDateTime
+                || value instanceof LocalDate
+                || value instanceof LocalTime
+                || value instanceof Timestamp
+                || value instanceof OffsetDateTime
+                || value instanceof ZonedDateTime
+                || value instanceof EpochDateTimeOffset
+                || value instanceof UUID
+                || value instanceof byte[];
+    }
+
+    /** Return a rough estimate of heap bytes used by provided value */
+    static long estimateBytes(Object value)
+    {
+        if (value == null)
+        {
+            return 0;
+        }
+        else if (value instanceof String str)
+        {
+            return 40 + str.length();
+        }
+        else if (value instanceof byte[] bytes)
+        {
+            return 16 + bytes.length;
+        }
+        else if (value instanceof Collection<?> collection)
+        {
+            long bytes = 40;
+            for (Object item : collection)
+            {
+                bytes += 8 + estimateBytes(item);
+            }
+            return bytes;
+        }
+        else if (value instanceof Map<?, ?> map)
+        {
+            long bytes = 64;
+            for (Map.Entry<?, ?> e : map.entrySet())
+            {
+                bytes += 32 + estimateBytes(e.getKey()) + estimateBytes(e.getValue());
+            }
+            return bytes;
+        }
+        else if (value instanceof UTF8String str)
+        {
+            return 40 + str.toString()
+                    .length();
+        }
+        return 24;
+    }
+
+    /** Write provided value */
+    static void write(DataOutput out, Object value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeByte(NULL);
+        }
+        else if (value instanceof String str)
+        {
+            out.writeByte(STRING);
+            writeString(out, str);
+        }
+        else if (value instanceof UTF8String str)
+        {
+            out.writeByte(STRING);
+            writeString(out, str.toString());
+        }
+        else if (value instanceof Integer i)
+        {
+            out.writeByte(INT);
+            out.writeInt(i);
+        }
+        else if (value instanceof Long l)
+        {
+            out.writeByte(LONG);
+            out.writeLong(l);
+        }
+        else if (value instanceof Double d)
+        {
+            out.writeByte(DOUBLE);
+            out.writeDouble(d);
+        }
+        else if (value instanceof Float f)
+        {
+            out.writeByte(FLOAT);
+            out.writeFloat(f);
+        }
+        else if (value instanceof Short s)
+        {
+            out.writeByte(SHORT);
+            out.writeShort(s);
+        }
+        else if (value instanceof Byte b)
+        {
+            out.writeByte(BYTE);
+            out.writeByte(b);
+        }
+        else if (value instanceof Boolean b)
+        {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(b);
+        }
+        else if (value instanceof Character c)
+        {
+            out.writeByte(CHARACTER);
+            out.writeChar(c);
+        }
+        else if (value instanceof BigDecimal d)
+        {
+            writeBigDecimal(out, d);
+        }
+        else if (value instanceof Decimal d)
+        {
+            writeBigDecimal(out, d.asBigDecimal());
+        }
+        else if (value instanceof BigInteger i)
+        {
+            out.writeByte(BIG_INTEGER);
+            writeBytes(out, i.toByteArray());
+        }
+        else if (value instanceof LocalDateTime ldt)
+        {
+            writeLocalDateTime(out, ldt);
+        }
+        else if (value instanceof EpochDateTime d)
+        {
+            writeLocalDateTime(out, d.getLocalDateTime());
+        }
+        else if (value instanceof LocalDate d)
+        {
+            out.writeByte(LOCAL_DATE);
+            out.writeLong(d.toEpochDay());
+        }
+        else if (value instanceof LocalTime t)
+        {
+            out.writeByte(LOCAL_TIME);
+            out.writeLong(t.toNanoOfDay());
+        }
+        else if (value instanceof Timestamp ts)
+        {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(Math.floorDiv(ts.getTime(), 1000));
+            out.writeInt(ts.getNanos());
+        }
+        else if (value instanceof OffsetDateTime odt)
+        {
+            out.writeByte(OFFSET_DATE_TIME);
+            out.writeLong(odt.toEpochSecond());
+            out.writeInt(odt.getNano());
+            out.writeInt(odt.getOffset()
+                    .getTotalSeconds());
+        }
+        else if (value instanceof ZonedDateTime zdt)
+        {
+            writeZonedDateTime(out, zdt);
+        }
+        else if (value instanceof EpochDateTimeOffset d)
+        {
+            writeZonedDateTime(out, d.getZonedDateTime());
+        }
+        else if (value instanceof UUID uuid)
+        {
+            out.writeByte(UUID_VALUE);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+        else if (value instanceof byte[] bytes)
+        {
+            out.writeByte(BYTES);
+            writeBytes(out, bytes);
+        }
+        else if (value instanceof QueryeerImage image)
+        {
+            write(out, image.getRawValue());
+        }
+        else if (value instanceof Collection<?> collection)
+        {
+            out.writeByte(LIST);
+            out.writeInt(collection.size());
+            for (Object item : collection)
+            {
+                write(out, item);
+            }
+        }
+        else if (value instanceof Map<?, ?> map)
+        {
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> e : map.entrySet())
+            {
+                writeString(out, (String) e.getKey());
+                write(out, e.getValue());
+            }
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unsupported value type: " + value.getClass());
+        }
+    }
+
+    /** Read a value written with {@link #write(DataOutput, Object)} */
+    static Object read(ByteBuffer buffer)
+    {
+        byte tag = buffer.get();
+        switch (tag)
+        {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(buffer);
+            case INT:
+                return buffer.getInt();
+            case LONG:
+                return buffer.getLong();
+            case DOUBLE:
+                return buffer.getDouble();
+            case FLOAT:
+                return buffer.getFloat();
+            case SHORT:
+                return buffer.getShort();
+            case BYTE:
+                return buffer.get();
+            case BOOLEAN:
+                return buffer.get() != 0;
+            case CHARACTER:
+                return buffer.getChar();
+            case BIG_DECIMAL:
+                int scale = buffer.getInt();
+                return new BigDecimal(new BigInteger(readBytes(buffer)), scale);
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(buffer));
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(buffer.getLong());
+            case LOCAL_TIME:
+                return LocalTime.ofNanoOfDay(buffer.getLong());
+            case TIMESTAMP:
+                Timestamp ts = new Timestamp(buffer.getLong() * 1000);
+                ts.setNanos(buffer.getInt());
+                return ts;
+            case OFFSET_DATE_TIME:
+                long seconds = buffer.getLong();
+                int nanos = buffer.getInt();
+                ZoneOffset offset = ZoneOffset.ofTotalSeconds(buffer.getInt());
+                return OffsetDateTime.ofInstant(java.time.Instant.ofEpochSecond(seconds, nanos), offset);
+            case ZONED_DATE_TIME:
+                long zonedSeconds = buffer.getLong();
+                int zonedNanos = buffer.getInt();
+                ZoneId zone = ZoneId.of(readString(buffer));
+                return ZonedDateTime.ofInstant(java.time.Instant.ofEpochSecond(zonedSeconds, zonedNanos), zone);
+            case UUID_VALUE:
+                return new UUID(buffer.getLong(), buffer.getLong());
+            case BYTES:
+                return readBytes(buffer);
+            case LIST:
+                int size = buffer.getInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++)
+                {
+                    list.add(read(buffer));
+                }
+                return list;
+            case MAP:
+                int mapSize = buffer.getInt();
+                Map<String, Object> map = new LinkedHashMap<>(mapSize);
+                for (int i = 0; i < mapSize; i++)
+                {
+                    String key = readString(buffer);
+                    map.put(key, read(buffer));
+                }
+                return map;
+            default:
+                throw new IllegalArgumentException("Unknown value tag: " + tag);
+        }
+    }
+
+    private static void writeBigDecimal(DataOutput out, BigDecimal value) throws IOException
+    {
+        out.writeByte(BIG_DECIMAL);
+        out.writeInt(value.scale());
+        writeBytes(out, value.unscaledValue()
+                .toByteArray());
+    }
+
+    private static void writeLocalDateTime(DataOutput out, LocalDateTime value) throws IOException
+    {
+        out.writeByte(LOCAL_DATE_TIME);
+        out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(value.getNano());
+    }
+
+    private static void writeZonedDateTime(DataOutput out, ZonedDateTime value) throws IOException
+    {
+        out.writeByte(ZONED_DATE_TIME);
+        out.writeLong(value.toEpochSecond());
+        out.writeInt(value.getNano());
+        writeString(out, value.getZone()
+                .getId());
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException
+    {
+        writeBytes(out, value.getBytes(UTF_8));
+    }
+
+    private static String readString(ByteBuffer buffer)
+    {
+        return new String(readBytes(buffer), UTF_8);
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException
+    {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
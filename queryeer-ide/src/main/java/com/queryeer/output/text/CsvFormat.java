@@ -3,10 +3,12 @@
 import static java.util.Objects.requireNonNull;
 
 import java.io.Writer;
+import java.util.Map;
 
 import com.queryeer.api.IQueryFile;
 import com.queryeer.api.extensions.IConfigurable;
 import com.queryeer.api.extensions.output.IOutputFormatExtension;
+import com.queryeer.api.extensions.output.QueryeerOutputWriter;
 
 import se.kuseman.payloadbuilder.api.OutputWriter;
 import se.kuseman.payloadbuilder.core.CsvOutputWriter;
@@ -47,10 +49,11 @@ public IConfigurable getFileChooserConfigurableComponent()
     }
 
     /** CSV Output writer */
-    static class CsvTextOutputWriter extends CsvOutputWriter
+    static class CsvTextOutputWriter extends CsvOutputWriter implements QueryeerOutputWriter
     {
         private final IQueryFile file;
         private boolean header;
+        private boolean batch;
 
         CsvTextOutputWriter(Writer writer, IQueryFile file, CsvSettings settings)
         {
@@ -66,11 +69,34 @@ public void initResult(String[] columns)
             header = false;
         }
 
+        @Override
+        public void initResult(String[] columns, Map<String, Object> resultMetaData)
+        {
+            initResult(columns);
+        }
+
+        @Override
+        public void writeBatch(String[] columns, Object[][] values, int rowCount)
+        {
+            // CSV is written row by row but we can skip the per row counter updates
+            batch = true;
+            try
+            {
+                QueryeerOutputWriter.writeRows(this, columns, values, rowCount);
+            }
+            finally
+            {
+                batch = false;
+            }
+            file.incrementTotalRowCount(rowCount);
+        }
+
         @Override
         public void endRow()
         {
             super.endRow();
-            if (!header)
+            if (!header
+                    && !batch)
             {
                 file.incrementTotalRowCount();
             }
@@ -3,10 +3,12 @@
 import static java.util.Objects.requireNonNull;
 
 import java.io.Writer;
+import java.util.Map;
 
 import com.queryeer.api.IQueryFile;
 import com.queryeer.api.extensions.IConfigurable;
 import com.queryeer.api.extensions.output.IOutputFormatExtension;
+import com.queryeer.api.extensions.output.QueryeerOutputWriter;
 
 import se.kuseman.payloadbuilder.api.OutputWriter;
 import se.kuseman.payloadbuilder.core.JsonOutputWriter;
@@ -47,9 +49,10 @@ public IConfigurable getFileChooserConfigurableComponent()
     }
 
     /** Text Output writer for JSON */
-    static class JsonTextOutputWriter extends JsonOutputWriter
+    static class JsonTextOutputWriter extends JsonOutputWriter implements QueryeerOutputWriter
     {
         private IQueryFile file;
+        private boolean batch;
 
         JsonTextOutputWriter(Writer writer, IQueryFile file, JsonSettings settings)
         {
@@ -57,11 +60,36 @@ static class JsonTextOutputWriter extends JsonOutputWriter
             this.file = file;
         }
 
+        @Override
+        public void initResult(String[] columns, Map<String, Object> resultMetaData)
+        {
+            super.initResult(columns);
+        }
+
+        @Override
+        public void writeBatch(String[] columns, Object[][] values, int rowCount)
+        {
+            // JSON is written row by row but we can skip the per row counter updates
+            batch = true;
+            try
+            {
+                QueryeerOutputWriter.writeRows(this, columns, values, rowCount);
+            }
+            finally
+            {
+                batch = false;
+            }
+            file.incrementTotalRowCount(rowCount);
+        }
+
         @Override
         public void endRow()
         {
             super.endRow();
-            file.incrementTotalRowCount();
+            if (!batch)
+            {
+                file.incrementTotalRowCount();
+            }
         }
     }
 }
@@ -19,6 +19,8 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 
 import javax.swing.AbstractAction;
 
@@ -33,7 +35,7 @@
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
 import org.antlr.v4.runtime.Token;
-import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.TokenSource;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.apache.commons.lang3.StringUtils;
@@ -43,6 +45,8 @@
 import org.slf4j.LoggerFactory;
 
 import com.queryeer.api.editor.ITextEditorDocumentParser;
+import com.queryeer.api.editor.ParseCancellation;
+import com.queryeer.api.editor.ParserWarmup;
 import com.queryeer.api.event.ExecuteQueryEvent;
 import com.queryeer.api.event.ExecuteQueryEvent.OutputType;
 import com.queryeer.api.service.IEventBus;
@@ -74,6 +78,11 @@ class PLBDocumentParser implements ITextEditorDocumentParser
 
     private static final Set<Integer> NON_RESERVED_TOKENS;
     private static final Set<Integer> PREFERRED_RULES = asSet(PayloadBuilderQueryParser.RULE_tableSource, PayloadBuilderQueryParser.RULE_primary);
+    /** Guards candidate collection. The follow set cache of c3 is a static non synchronized map shared between all parsers */
+    private static final Object C3_LOCK = new Object();
+    private static final String WARMUP_QUERY = "/com/queryeer/payloadbuilder/WARMUP.sql";
+    /** Max number of token positions to collect completion candidates at during warm up */
+    private static final int MAX_WARMUP_POSITIONS = 100;
     private final QuerySession session;
     private final CompletionRegistry completionRegistry;
     private final IEventBus eventBus;
@@ -118,10 +127,54 @@ class PLBDocumentParser implements ITextEditorDocumentParser
         this.catalogsConfigurable = catalogsConfigurable;
     }
 
+    /**
+     * Start a background warm up of the grammar. Parses a bundled query and collects completion candidates at its tokens which fills the prediction and follow set caches that are shared between all
+     * parsers.
+     */
+    static void startWarmup()
+    {
+        ParserWarmup.submit("Payloadbuilder", PLBDocumentParser::warmUp);
+    }
+
+    private static int warmUp() throws IOException
+    {
+        PayloadBuilderQueryLexer lexer = new PayloadBuilderQueryLexer(CharStreams.fromStream(PLBDocumentParser.class.getResourceAsStream(WARMUP_QUERY)));
+        lexer.removeErrorListeners();
+        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+        PayloadBuilderQueryParser parser = new PayloadBuilderQueryParser(tokenStream);
+        parser.removeErrorListeners();
+        parser.query();
+
+        // Candidates are collected from the start of the query, same as for completions of a valid document
+        CodeCompletionCore core = new CodeCompletionCore(parser, PREFERRED_RULES, Set.of());
+        List<Token> tokens = tokenStream.getTokens();
+        return ParserWarmup.collectSample(tokens.size(), MAX_WARMUP_POSITIONS, i ->
+        {
+            Token token = tokens.get(i);
+            if (token.getChannel() != Token.DEFAULT_CHANNEL
+                    || token.getType() == Token.EOF)
+            {
+                return false;
+            }
+            synchronized (C3_LOCK)
+            {
+                core.collectCandidates(i, null);
+            }
+            return true;
+        });
+    }
+
     @Override
     public void parse(Reader documentReader)
+    {
+        parse(documentReader, () -> false);
+    }
+
+    @Override
+    public void parse(Reader documentReader, BooleanSupplier cancelled)
     {
         result.clear();
+        PayloadBuilderQueryParser previousParser = parser;
         try
         {
             CharStream charStream = CharStreams.fromReader(documentReader);
@@ -131,7 +184,7 @@ public void parse(Reader documentReader)
             ErrorListener errorListener = new ErrorListener(result);
             lexer.addErrorListener(errorListener);
 
-            TokenStream tokenStream = new CommonTokenStream(lexer);
+            CancellableTokenStream tokenStream = new CancellableTokenStream(lexer, cancelled);
 
             parser = new PayloadBuilderQueryParser(tokenStream);
 
@@ -149,6 +202,7 @@ protected Token singleTokenDeletion(Parser recognizer)
             });
 
             queryContext = parser.query();
+            tokenStream.done();
 
             new PayloadBuilderQueryParserBaseVisitor<Void>()
             {
@@ -232,6 +286,12 @@ else if (Strings.CI.equals(left, right))
 
             core = new CodeCompletionCore(parser, PREFERRED_RULES, Set.of());
         }
+        catch (CancellationException e)
+        {
+            // Keep the state of the last parse
+            parser = previousParser;
+            throw e;
+        }
         catch (IOException e)
         {
             core = null;
@@ -415,7 +475,11 @@ private Candidates getCandidates(int offset)
             context = closesParentRule(tree);
         }
 
-        CandidatesCollection c3Candiates = core.collectCandidates(tokenOffset.suggestTokenIndex, context);
+        CandidatesCollection c3Candiates;
+        synchronized (C3_LOCK)
+        {
+            c3Candiates = core.collectCandidates(tokenOffset.suggestTokenIndex, context);
+        }
         return new Candidates(tokenOffset.tree, c3Candiates, tokenOffset.textToMatch, tokenOffset.skipRules);
     }
 
@@ -815,4 +879,34 @@ else if (e instanceof LexerNoViableAltException)
         }
     }
 
+    /** Token stream that aborts lexing and parsing with the {@link ParseCancellation} of a parse session */
+    private static class CancellableTokenStream extends CommonTokenStream
+    {
+        private final ParseCancellation cancellation;
+
+        CancellableTokenStream(TokenSource tokenSource, BooleanSupplier cancelled)
+        {
+            super(tokenSource);
+            this.cancellation = new ParseCancellation(cancelled);
+        }
+
+        void done()
+        {
+            cancellation.done();
+        }
+
+        @Override
+        protected int fetch(int n)
+        {
+            cancellation.fetched();
+            return super.fetch(n);
+        }
+
+        @Override
+        public void consume()
+        {
+            cancellation.consumed();
+            super.consume();
+        }
+    }
 }
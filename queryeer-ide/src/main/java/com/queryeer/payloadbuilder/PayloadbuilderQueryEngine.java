@@ -83,6 +83,7 @@ class PayloadbuilderQueryEngine implements IQueryEngine
         this.completionRegistry = requireNonNull(completionRegistry, "completionRegistry");
         this.editorFactory = requireNonNull(editorFactory, "editorFactory");
         this.variablesConfigurable = requireNonNull(variablesConfigurable, "variablesConfigurable");
+        PLBDocumentParser.startWarmup();
     }
 
     @Override
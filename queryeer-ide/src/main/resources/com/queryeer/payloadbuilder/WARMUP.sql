@@ -0,0 +1,54 @@
+-- Representative Payloadbuilder queries parsed at startup to warm up the parser caches
+use sys.maxRows = 100
+
+set @id = 10
+
+select top 10 a.col1, a.col2 as name, b.col3, count(*) total
+from sys#tables a
+inner join sys#columns b
+  on b.table = a.name
+  and b.type <> 'int'
+left join sys#functions f
+  on f.name = a.name
+where a.col1 > @id
+and b.col3 in (1, 2, 3)
+and (a.col2 like 'abc%' or a.col2 is null)
+group by a.col1, a.col2, b.col3
+having count(*) > 1
+order by a.col1 desc, b.col3
+
+select x.id, x.name, y.value, case when y.value > 0 then 'positive' else 'negative' end sign
+from tableA x
+cross apply
+(
+  select value
+  from tableB y
+  where y.id = x.id
+) y
+outer apply tableC z with (batch_size = 100)
+  on z.id = x.id
+where not exists (select 1 from tableD d where d.id = x.id)
+order by x.id
+
+select *
+into #temp
+from
+(
+  select 1 id, 'one' name
+  union all
+  select 2 id, 'two' name
+) t
+
+select t.id, isnull(t.name, '') name, cast(t.id as string) idString, dateadd(day, 1, getdate()) tomorrow
+from #temp t
+where t.id between 1 and 10
+
+if @id > 5 then
+  print 'large'
+else
+  print 'small'
+end if
+
+describe select * from tableA
+
+show tables
@@ -1,11 +1,17 @@
 package com.queryeer;
 
+import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import com.queryeer.api.extensions.output.QueryeerOutputWriter;
+
 import se.kuseman.payloadbuilder.api.OutputWriter;
 
 /** Test of {@link ProxyOutputWriter} */
@@ -15,10 +21,15 @@
     void test_all_get_methods_are_declared()
     {
         // Make sure that the proxy output writer has overridden all interface methods
-        Method[] methods = OutputWriter.class.getDeclaredMethods();
+        List<Method> methods = new ArrayList<>(asList(OutputWriter.class.getDeclaredMethods()));
+        methods.addAll(asList(QueryeerOutputWriter.class.getDeclaredMethods()));
 
         for (Method method : methods)
         {
+            if (Modifier.isStatic(method.getModifiers()))
+            {
+                continue;
+            }
             try
             {
                 ProxyOutputWriter.class.getDeclaredMethod(method.getName(), method.getParameterTypes());
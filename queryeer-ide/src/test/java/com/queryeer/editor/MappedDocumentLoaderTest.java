@@ -0,0 +1,69 @@
+package com.queryeer.editor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link MappedDocumentLoader}. */
+class MappedDocumentLoaderTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    void test_content_is_loaded_in_chunks() throws Exception
+    {
+        String content = "select col1, col2\nfrom table\nwhere col1 > 10\n";
+        assertEquals(content, load(content.getBytes(StandardCharsets.UTF_8), 5));
+        assertEquals(content, load(content.getBytes(StandardCharsets.UTF_8), 1024));
+    }
+
+    @Test
+    void test_empty_file() throws Exception
+    {
+        assertEquals("", load(new byte[0], 4));
+    }
+
+    @Test
+    void test_line_separators_are_normalized() throws Exception
+    {
+        byte[] bytes = "a\r\nb\rc\r\n\r\nd\r".getBytes(StandardCharsets.UTF_8);
+        // Every chunk size to hit a CRLF split between chunks
+        for (int chunkSize = 2; chunkSize < bytes.length + 2; chunkSize++)
+        {
+            assertEquals("a\nb\nc\n\nd\n", load(bytes, chunkSize), "Chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void test_bom_is_skipped_and_multi_byte_chars_are_decoded() throws Exception
+    {
+        String content = "åäö €\n𝄞 end";
+        byte[] text = content.getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[text.length + 3];
+        bytes[0] = (byte) 0xEF;
+        bytes[1] = (byte) 0xBB;
+        bytes[2] = (byte) 0xBF;
+        System.arraycopy(text, 0, bytes, 3, text.length);
+        for (int chunkSize = 2; chunkSize < 8; chunkSize++)
+        {
+            assertEquals(content, load(bytes, chunkSize), "Chunk size " + chunkSize);
+        }
+    }
+
+    private String load(byte[] bytes, int chunkSize) throws Exception
+    {
+        Path file = Files.write(dir.resolve("file.sql"), bytes);
+        Document document = new PlainDocument();
+        MappedDocumentLoader.load(file, StandardCharsets.UTF_8, document, chunkSize);
+        return document.getText(0, document.getLength());
+    }
+}
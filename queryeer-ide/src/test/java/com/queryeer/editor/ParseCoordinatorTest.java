@@ -0,0 +1,121 @@
+package com.queryeer.editor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link ParseCoordinator}. */
+class ParseCoordinatorTest
+{
+    @Test
+    void test_only_latest_snapshot_is_parsed()
+    {
+        List<Runnable> workers = new ArrayList<>();
+        AtomicInteger generation = new AtomicInteger(1);
+        List<String> parsed = new ArrayList<>();
+        List<ParseCoordinator.Statistics> statistics = new ArrayList<>();
+        ParseCoordinator coordinator = new ParseCoordinator(workers::add, generation::get, statistics::add);
+
+        coordinator.submit(1, cancelled -> parsed.add("1"));
+        generation.set(2);
+        coordinator.submit(2, cancelled -> parsed.add("2"));
+
+        assertEquals(1, workers.size());
+        workers.get(0)
+                .run();
+
+        assertEquals(List.of("2"), parsed);
+        assertEquals(1, statistics.size());
+        assertEquals(1, statistics.get(0)
+                .parses());
+        assertEquals(1, statistics.get(0)
+                .superseded());
+        assertEquals(0, statistics.get(0)
+                .aborted());
+    }
+
+    @Test
+    void test_stale_snapshot_is_skipped()
+    {
+        List<Runnable> workers = new ArrayList<>();
+        AtomicInteger generation = new AtomicInteger(1);
+        List<String> parsed = new ArrayList<>();
+        ParseCoordinator coordinator = new ParseCoordinator(workers::add, generation::get, s ->
+        {
+        });
+
+        coordinator.submit(1, cancelled -> parsed.add("1"));
+        // Document changed before the worker started
+        generation.set(2);
+        workers.get(0)
+                .run();
+
+        assertEquals(List.of(), parsed);
+        assertEquals(1, coordinator.getStatistics()
+                .superseded());
+
+        // A new worker is scheduled on next submit
+        coordinator.submit(2, cancelled -> parsed.add("2"));
+        assertEquals(2, workers.size());
+        workers.get(1)
+                .run();
+        assertEquals(List.of("2"), parsed);
+    }
+
+    @Test
+    void test_running_parse_of_older_generation_is_aborted() throws InterruptedException
+    {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            AtomicInteger generation = new AtomicInteger(1);
+            BlockingQueue<ParseCoordinator.Statistics> statistics = new LinkedBlockingQueue<>();
+            ParseCoordinator coordinator = new ParseCoordinator(executor, generation::get, statistics::add);
+
+            CountDownLatch started = new CountDownLatch(1);
+            List<Boolean> interrupted = new ArrayList<>();
+            coordinator.submit(1, cancelled ->
+            {
+                started.countDown();
+                while (!cancelled.getAsBoolean())
+                {
+                    Thread.onSpinWait();
+                }
+                interrupted.add(Thread.currentThread()
+                        .isInterrupted());
+                throw new CancellationException();
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            List<Boolean> cancelledStates = new ArrayList<>();
+            generation.set(2);
+            coordinator.submit(2, cancelled -> cancelledStates.add(cancelled.getAsBoolean()));
+
+            ParseCoordinator.Statistics first = statistics.poll(5, TimeUnit.SECONDS);
+            ParseCoordinator.Statistics second = statistics.poll(5, TimeUnit.SECONDS);
+            assertEquals(1, first.aborted());
+            assertEquals(0, first.parses());
+            assertEquals(1, second.aborted());
+            assertEquals(1, second.parses());
+            // Abort is cooperative, the thread is never interrupted
+            assertEquals(List.of(false), interrupted);
+            assertEquals(List.of(false), cancelledStates);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
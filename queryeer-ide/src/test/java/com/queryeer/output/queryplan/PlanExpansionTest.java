@@ -0,0 +1,134 @@
+package com.queryeer.output.queryplan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.queryeer.api.extensions.output.queryplan.Node;
+import com.queryeer.api.extensions.output.queryplan.Node.NodeLink;
+
+/** Test of {@link PlanExpansion} */
+class PlanExpansionTest
+{
+    @Test
+    void test_small_plan_is_fully_expanded()
+    {
+        Node leaf1 = node("leaf1");
+        Node leaf2 = node("leaf2");
+        Node join = node("join", leaf1, leaf2);
+        Node root = node("root", join);
+
+        PlanExpansion expansion = new PlanExpansion(root);
+        expansion.expand(root, 200);
+
+        assertFalse(expansion.isCollapsed(root));
+        assertFalse(expansion.isCollapsed(join));
+        // Leafs are never collapsed
+        assertFalse(expansion.isCollapsed(leaf1));
+        assertEquals(3, expansion.getDescendantCount(root));
+        assertEquals(2, expansion.getDescendantCount(join));
+        assertEquals(0, expansion.getDescendantCount(leaf1));
+    }
+
+    @Test
+    void test_large_plan_is_expanded_breadth_first_to_limit()
+    {
+        // Root with 3 chains of 10 operators each
+        Node[] chains = new Node[3];
+        for (int i = 0; i < chains.length; i++)
+        {
+            chains[i] = chain("c" + i, 10);
+        }
+        Node root = node("root", chains);
+
+        PlanExpansion expansion = new PlanExpansion(root);
+        assertEquals(30, expansion.getDescendantCount(root));
+
+        // Root (3) and the first level of each chain (3) fits, the next level does not
+        expansion.expand(root, 7);
+        assertFalse(expansion.isCollapsed(root));
+        assertFalse(expansion.isCollapsed(chains[0]));
+        assertFalse(expansion.isCollapsed(chains[2]));
+        Node second = child(chains[0]);
+        assertFalse(expansion.isCollapsed(second));
+        assertTrue(expansion.isCollapsed(child(second)));
+        assertTrue(expansion.isCollapsed(child(child(chains[2]))));
+        assertEquals(7, expansion.getDescendantCount(child(second)));
+    }
+
+    @Test
+    void test_expand_collapsed_node()
+    {
+        Node chain = chain("c", 10);
+        Node root = node("root", chain);
+
+        PlanExpansion expansion = new PlanExpansion(root);
+        expansion.expand(root, 2);
+        Node collapsed = child(chain);
+        assertTrue(expansion.isCollapsed(collapsed));
+
+        // The requested node is expanded even if its children exceeds the limit
+        expansion.expand(collapsed, 0);
+        assertFalse(expansion.isCollapsed(collapsed));
+        assertTrue(expansion.isCollapsed(child(collapsed)));
+
+        expansion.expand(child(collapsed), 100);
+        Node current = root;
+        while (!current.children()
+                .isEmpty())
+        {
+            assertFalse(expansion.isCollapsed(current));
+            current = child(current);
+        }
+    }
+
+    @Test
+    void test_equal_nodes_are_tracked_by_identity()
+    {
+        // Two equal operators in different branches
+        Node left = node("scan", node("leaf"));
+        Node right = node("scan", node("leaf"));
+        Node root = node("root", left, right);
+        assertEquals(left, right);
+
+        PlanExpansion expansion = new PlanExpansion(root);
+        expansion.expand(root, 2);
+        expansion.expand(left, 1);
+
+        assertFalse(expansion.isCollapsed(left));
+        assertTrue(expansion.isCollapsed(right));
+    }
+
+    /** Create a chain of nodes with provided length */
+    private static Node chain(String name, int length)
+    {
+        Node node = node(name + (length - 1));
+        for (int i = length - 2; i >= 0; i--)
+        {
+            node = node(name + i, node);
+        }
+        return node;
+    }
+
+    private static Node child(Node node)
+    {
+        return node.children()
+                .get(0)
+                .node();
+    }
+
+    private static Node node(String label, Node... children)
+    {
+        List<NodeLink> links = new ArrayList<>();
+        for (Node child : children)
+        {
+            links.add(new NodeLink("", List.of(), child));
+        }
+        return new Node(label, "", List.of(), links);
+    }
+}
@@ -0,0 +1,246 @@
+package com.queryeer.output.table;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/** Test of {@link ColumnStatistics} */
+class ColumnStatisticsTest
+{
+    @Test
+    void test_numbers()
+    {
+        ColumnStatistics statistics = new ColumnStatistics();
+        for (int i = 0; i < 100_000; i++)
+        {
+            if (i % 10 == 0)
+            {
+                statistics.addNull();
+            }
+            else
+            {
+                statistics.add(i % 5_000);
+            }
+        }
+
+        Map<String, Object> map = statistics.toMap();
+        assertEquals(100_000L, map.get("Count"));
+        assertEquals(10_000L, map.get("Null Count"));
+        assertEquals(1L, map.get("Number Min"));
+        assertEquals(4_999L, map.get("Number Max"));
+        // 4500 distinct values, HLL with 4096 registers has ~1.6% standard error
+        long distinct = (long) map.get("Approx Distinct Count");
+        assertTrue(Math.abs(distinct - 4_500) < 4_500 * 0.05, "Distinct: " + distinct);
+        assertEquals(20, ((List<?>) map.get("Histogram")).size());
+    }
+
+    @Test
+    void test_strings()
+    {
+        ColumnStatistics statistics = new ColumnStatistics();
+        for (int i = 0; i < 50_000; i++)
+        {
+            // One heavy hitter, a few frequent and a long tail
+            String value;
+            if (i % 2 == 0)
+            {
+                value = "heavy";
+            }
+            else if (i % 5 == 0)
+            {
+                value = "frequent" + (i % 3);
+            }
+            else
+            {
+                value = "tail" + i;
+            }
+            statistics.add(value);
+        }
+
+        Map<String, Object> map = statistics.toMap();
+        assertEquals("frequent0", map.get("Min"));
+        assertEquals("tail9999", map.get("Max"));
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> top = (List<Map<String, Object>>) map.get("Top Values");
+        assertEquals(ColumnStatistics.TOP_K, top.size());
+        assertEquals("heavy", top.get(0)
+                .get("Value"));
+        assertTrue((long) top.get(0)
+                .get("Count") >= 25_000);
+
+        long distinct = (long) map.get("Approx Distinct Count");
+        long expected = 1 + 3 + 20_000;
+        assertTrue(Math.abs(distinct - expected) < expected * 0.05, "Distinct: " + distinct);
+    }
+
+    @Test
+    void test_integral_min_max_are_exact()
+    {
+        ColumnStatistics statistics = new ColumnStatistics();
+        // Not representable as doubles, would be rounded to the same value
+        statistics.add(Long.MAX_VALUE - 1);
+        statistics.add(Long.MAX_VALUE);
+        statistics.add((Object) ((1L << 53) + 1));
+        Map<String, Object> map = statistics.toMap();
+        assertEquals((1L << 53) + 1, map.get("Number Min"));
+        assertEquals(Long.MAX_VALUE, map.get("Number Max"));
+
+        // Mixed integral and floating point values
+        statistics.add(-0.5d);
+        map = statistics.toMap();
+        assertEquals(-0.5d, map.get("Number Min"));
+        assertEquals((double) Long.MAX_VALUE, map.get("Number Max"));
+    }
+
+    @Test
+    void test_decimals()
+    {
+        ColumnStatistics statistics = new ColumnStatistics();
+        statistics.add(new BigDecimal("1.10"));
+        statistics.add(new BigDecimal("1.1"));
+        statistics.add(new BigDecimal("123456789012345678901234567890.5"));
+        statistics.add(new BigDecimal("-0.25"));
+        Map<String, Object> map = statistics.toMap();
+        assertEquals(new BigDecimal("-0.25"), map.get("Number Min"));
+        assertEquals(new BigDecimal("123456789012345678901234567890.5"), map.get("Number Max"));
+        assertEquals(3L, map.get("Approx Distinct Count"));
+        assertFalse(map.containsKey("Min"));
+        assertFalse(((List<?>) map.get("Histogram")).isEmpty());
+
+        // Big integers are decimals if they don't fit a long
+        statistics.add(BigInteger.TWO.pow(100));
+        statistics.add((Object) BigInteger.valueOf(-5));
+        map = statistics.toMap();
+        assertEquals(new BigDecimal("-5"), map.get("Number Min"));
+        assertEquals(new BigDecimal(BigInteger.TWO.pow(100)), map.get("Number Max"));
+
+        statistics.add(0.5d);
+        map = statistics.toMap();
+        assertEquals(-5.0d, map.get("Number Min"));
+    }
+
+    @Test
+    void test_non_scalar_values_are_tracked_bounded()
+    {
+        ColumnStatistics statistics = new ColumnStatistics();
+        Map<String, Object> large = new HashMap<>();
+        for (int i = 0; i < 1_000; i++)
+        {
+            large.put("key" + i, "value" + i);
+        }
+        for (int i = 0; i < 3; i++)
+        {
+            statistics.add(new HashMap<>(large));
+        }
+        statistics.add(List.of(1, 2));
+        statistics.add("x".repeat(10_000));
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> top = (List<Map<String, Object>>) statistics.toMap()
+                .get("Top Values");
+        assertEquals(3, top.size());
+        assertEquals(3L, top.get(0)
+                .get("Count"));
+        assertTrue(((String) top.get(0)
+                .get("Value")).length() <= 100);
+    }
+
+    @Test
+    void test_bounded_value()
+    {
+        ColumnStatistics.SpaceSaving topValues = new ColumnStatistics.SpaceSaving(10);
+        // Equal by hash and abbreviated form, the value itself is not kept
+        topValues.add(new ColumnStatistics.BoundedValue(1, "{a=1, ...}"));
+        topValues.add(new ColumnStatistics.BoundedValue(1, "{a=1, ...}"));
+        topValues.add(new ColumnStatistics.BoundedValue(2, "{a=1, ...}"));
+        List<ColumnStatistics.SpaceSaving.Entry> top = topValues.top(10);
+        assertEquals(2, top.size());
+        assertEquals(2, top.get(0)
+                .count());
+        assertEquals("{a=1, ...}", top.get(0)
+                .value()
+                .toString());
+    }
+
+    @Test
+    void test_space_saving_replaces_least_frequent()
+    {
+        ColumnStatistics.SpaceSaving topValues = new ColumnStatistics.SpaceSaving(3);
+        for (String value : List.of("a", "a", "a", "b", "b", "c"))
+        {
+            topValues.add(value);
+        }
+        // "c" is the least frequent and is replaced, "d" inherits its count as error
+        topValues.add("d");
+        assertEquals(List.of(new ColumnStatistics.SpaceSaving.Entry("a", 3, 0), new ColumnStatistics.SpaceSaving.Entry("b", 2, 0), new ColumnStatistics.SpaceSaving.Entry("d", 2, 1)),
+                topValues.top(3));
+
+        topValues.add("d");
+        topValues.add("d");
+        // "b" is now the least frequent
+        topValues.add("e");
+        assertEquals(List.of(new ColumnStatistics.SpaceSaving.Entry("d", 4, 1), new ColumnStatistics.SpaceSaving.Entry("a", 3, 0), new ColumnStatistics.SpaceSaving.Entry("e", 3, 2)),
+                topValues.top(3));
+    }
+
+    @Test
+    void test_histogram()
+    {
+        ColumnStatistics.StreamingHistogram histogram = new ColumnStatistics.StreamingHistogram(5);
+        for (int i = 0; i < 1_000; i++)
+        {
+            histogram.add(i % 2 == 0 ? 10
+                    : 1000 + i % 3);
+        }
+        assertTrue(histogram.size() <= 5);
+        long total = 0;
+        for (long count : histogram.getCounts())
+        {
+            total += count;
+        }
+        assertEquals(1_000, total);
+        assertEquals(10.0d, histogram.getCentroids()[0]);
+    }
+
+    @Test
+    void test_result_statistics() throws Exception
+    {
+        ResultStore store = new ResultStore();
+        ResultStatistics resultStatistics = new ResultStatistics(store);
+        for (int i = 0; i < 10_000; i++)
+        {
+            store.append(1, i);
+            if (i >= 5_000)
+            {
+                store.append(2, "value" + (i % 3));
+            }
+            store.endRow();
+            resultStatistics.update();
+        }
+        long start = System.currentTimeMillis();
+        while (resultStatistics.getProcessedRows() < 10_000
+                && System.currentTimeMillis() - start < 10_000)
+        {
+            Thread.sleep(10);
+        }
+
+        Map<String, Object> map = resultStatistics.getStatistics(1);
+        assertEquals(10_000L, map.get("Count"));
+        assertEquals(9_999L, map.get("Number Max"));
+
+        map = resultStatistics.getStatistics(2);
+        assertEquals(5_000L, map.get("Null Count"));
+        assertEquals(3L, map.get("Approx Distinct Count"));
+        resultStatistics.close();
+        store.close();
+    }
+}
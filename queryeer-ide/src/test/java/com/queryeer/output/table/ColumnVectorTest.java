@@ -0,0 +1,111 @@
+package com.queryeer.output.table;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+/** Test of {@link ColumnVector} */
+class ColumnVectorTest
+{
+    @Test
+    void test_typed_vectors()
+    {
+        assertInstanceOf(ColumnVector.IntVector.class, ColumnVector.of(Integer.class));
+        assertInstanceOf(ColumnVector.LongVector.class, ColumnVector.of(Long.class));
+        assertInstanceOf(ColumnVector.DoubleVector.class, ColumnVector.of(Double.class));
+        assertInstanceOf(ColumnVector.BooleanVector.class, ColumnVector.of(Boolean.class));
+        assertInstanceOf(ColumnVector.DateTimeVector.class, ColumnVector.of(LocalDateTime.class));
+        assertInstanceOf(ColumnVector.ObjectVector.class, ColumnVector.of(String.class));
+        assertInstanceOf(ColumnVector.ObjectVector.class, ColumnVector.of(null));
+
+        ColumnVector vector = ColumnVector.of(Integer.class);
+        vector.appendNulls(2);
+        assertTrue(vector.isAllNull());
+        for (int i = 0; i < 100; i++)
+        {
+            vector.append(i);
+        }
+        vector.append(null);
+        assertFalse(vector.isAllNull());
+        assertEquals(103, vector.size());
+        assertNull(vector.get(0));
+        assertNull(vector.get(1));
+        assertEquals(0, vector.get(2));
+        assertEquals(99, vector.get(101));
+        assertNull(vector.get(102));
+        assertFalse(vector.accepts(10L));
+    }
+
+    @Test
+    void test_date_time_vector_keeps_type_and_precision()
+    {
+        LocalDateTime ldt = LocalDateTime.parse("2010-10-10T10:10:10.123456789");
+        ColumnVector vector = ColumnVector.of(LocalDateTime.class);
+        vector.append(ldt);
+        assertEquals(ldt, vector.get(0));
+        assertFalse(vector.accepts(Timestamp.valueOf(ldt)));
+
+        Timestamp ts = Timestamp.valueOf("1960-01-01 10:10:10.987654321");
+        vector = ColumnVector.of(Timestamp.class);
+        vector.append(ts);
+        assertEquals(ts, vector.get(0));
+    }
+
+    @Test
+    void test_promote()
+    {
+        ColumnVector vector = ColumnVector.of(Boolean.class);
+        vector.append(true);
+        vector.append(null);
+        vector.append(false);
+
+        ColumnVector.ObjectVector objectVector = vector.promote();
+        objectVector.append("hello");
+        assertEquals(4, objectVector.size());
+        assertEquals(true, objectVector.get(0));
+        assertNull(objectVector.get(1));
+        assertEquals(false, objectVector.get(2));
+        assertEquals("hello", objectVector.get(3));
+        assertEquals(String.class, objectVector.getType());
+
+        objectVector.append(10);
+        assertEquals(Object.class, objectVector.getType());
+    }
+
+    @Test
+    void test_dictionary_vector() throws IOException
+    {
+        ColumnVector.DictionaryVector vector = new ColumnVector.DictionaryVector(2);
+        vector.append("a");
+        vector.append(null);
+        vector.append("b");
+        vector.append("a");
+        assertFalse(vector.accepts("c"));
+        assertTrue(vector.accepts("b"));
+        assertTrue(vector.isFull());
+        assertEquals(2, vector.getDictionarySize());
+        assertEquals(1, vector.getHits());
+        assertEquals(3, vector.getLookups());
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        vector.write(new DataOutputStream(bos));
+        ColumnVector read = ColumnVector.read(ByteBuffer.wrap(bos.toByteArray()));
+        assertInstanceOf(ColumnVector.DictionaryVector.class, read);
+        assertEquals(4, read.size());
+        assertEquals("a", read.get(0));
+        assertNull(read.get(1));
+        assertEquals("b", read.get(2));
+        assertEquals("a", read.get(3));
+    }
+}
@@ -0,0 +1,162 @@
+package com.queryeer.output.table;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import javax.swing.RowSorter.SortKey;
+import javax.swing.SortOrder;
+
+import org.junit.jupiter.api.Test;
+
+/** Test of {@link ResultRowSorter} */
+class ResultRowSorterTest
+{
+    @Test
+    void test_sort()
+    {
+        ResultStore store = new ResultStore();
+        Object[][] rows = new Object[][] {
+                { 3, "b", 1.5D },
+                { 1, null, -2.0D },
+                { 2, "a", null },
+                { null, "B", 1.5D },
+                { 1, "a", 0.0D }
+        };
+        for (Object[] row : rows)
+        {
+            for (int i = 0; i < row.length; i++)
+            {
+                store.append(i + 1, row[i]);
+            }
+            store.endRow();
+        }
+
+        // Nulls first
+        assertArrayEquals(new int[] { 3, 1, 4, 2, 0 }, sort(store, null, new SortKey(1, SortOrder.ASCENDING)));
+        // Nulls last, stable
+        assertArrayEquals(new int[] { 0, 2, 1, 4, 3 }, sort(store, null, new SortKey(1, SortOrder.DESCENDING)));
+        // Collated strings
+        assertArrayEquals(new int[] { 1, 2, 4, 0, 3 }, sort(store, null, new SortKey(2, SortOrder.ASCENDING)));
+        // Multiple keys
+        assertArrayEquals(new int[] { 2, 1, 4, 0, 3 }, sort(store, null, new SortKey(3, SortOrder.ASCENDING), new SortKey(0, SortOrder.ASCENDING)));
+        assertArrayEquals(new int[] { 2, 1, 4, 3, 0 }, sort(store, null, new SortKey(3, SortOrder.ASCENDING), new SortKey(0, SortOrder.DESCENDING)));
+        // Filter
+        assertArrayEquals(new int[] { 2, 4 }, sort(store, new int[] { 2, 4 }, new SortKey(3, SortOrder.ASCENDING)));
+        store.close();
+    }
+
+    @Test
+    void test_sort_large()
+    {
+        ResultStore store = new ResultStore();
+        int rowCount = 50_000;
+        for (int i = 0; i < rowCount; i++)
+        {
+            store.append(1, (long) (rowCount - i));
+            store.append(2, "value" + (i % 7));
+            store.endRow();
+        }
+
+        int[] expected = IntStream.range(0, rowCount)
+                .map(i -> rowCount - 1 - i)
+                .toArray();
+        assertArrayEquals(expected, sort(store, null, new SortKey(1, SortOrder.ASCENDING)));
+
+        // Low cardinality string column is stable within equal values
+        int[] result = sort(store, null, new SortKey(2, SortOrder.ASCENDING));
+        assertArrayEquals(new int[] { 0, 7, 14 }, new int[] { result[0], result[1], result[2] });
+        store.close();
+    }
+
+    @Test
+    void test_merge_appended_rows()
+    {
+        ResultStore store = new ResultStore();
+        Random random = new Random(42);
+        int rowCount = 10_000;
+        for (int i = 0; i < rowCount; i++)
+        {
+            store.append(1, random.nextInt(10) == 0 ? null
+                    : (long) random.nextInt(100));
+            store.append(2, random.nextInt(10) == 0 ? null
+                    : "value" + random.nextInt(20));
+            store.append(3, random.nextInt(10) == 0 ? null
+                    : random.nextDouble() - 0.5D);
+            store.endRow();
+        }
+
+        List<List<SortKey>> keyLists = List.of(List.of(new SortKey(1, SortOrder.ASCENDING)), List.of(new SortKey(1, SortOrder.DESCENDING)), List.of(new SortKey(2, SortOrder.ASCENDING)),
+                List.of(new SortKey(3, SortOrder.DESCENDING)), List.of(new SortKey(2, SortOrder.DESCENDING), new SortKey(1, SortOrder.ASCENDING)),
+                List.of(new SortKey(1, SortOrder.ASCENDING), new SortKey(0, SortOrder.DESCENDING)));
+        IntPredicate filter = row -> row % 3 != 0;
+        for (List<SortKey> keys : keyLists)
+        {
+            assertTrue(ResultRowSorter.canMerge(store, keys));
+            for (int split : new int[] { 0, 1, 5_000, 9_999 })
+            {
+                for (IntPredicate f : Arrays.asList(null, filter))
+                {
+                    int[] view = ResultRowSorter.sort(store, 0, split, keys, f, () -> false, p ->
+                    {
+                    });
+                    int[] appended = ResultRowSorter.sort(store, split, rowCount, keys, f, () -> false, p ->
+                    {
+                    });
+                    int[] expected = ResultRowSorter.sort(store, rowCount, keys, f, () -> false, p ->
+                    {
+                    });
+                    assertArrayEquals(expected, ResultRowSorter.merge(store, view, appended, keys, () -> false), keys + " split " + split);
+                }
+            }
+        }
+        store.close();
+    }
+
+    @Test
+    void test_merge_not_possible_for_mixed_types()
+    {
+        ResultStore store = new ResultStore();
+        store.append(1, 1);
+        store.endRow();
+        store.append(1, "a");
+        store.endRow();
+        assertFalse(ResultRowSorter.canMerge(store, List.of(new SortKey(1, SortOrder.ASCENDING))));
+        // Row number column is always mergeable
+        assertTrue(ResultRowSorter.canMerge(store, List.of(new SortKey(0, SortOrder.ASCENDING))));
+        store.close();
+    }
+
+    @Test
+    void test_cancel()
+    {
+        ResultStore store = new ResultStore();
+        for (int i = 0; i < 10; i++)
+        {
+            store.append(1, i);
+            store.endRow();
+        }
+        assertThrows(CancellationException.class, () -> ResultRowSorter.sort(store, 10, List.of(new SortKey(1, SortOrder.ASCENDING)), null, () -> true, p ->
+        {
+        }));
+        store.close();
+    }
+
+    private int[] sort(ResultStore store, int[] includedRows, SortKey... keys)
+    {
+        return ResultRowSorter.sort(store, store.getRowCount(), List.of(keys), includedRows == null ? null
+                : row -> IntStream.of(includedRows)
+                        .anyMatch(r -> r == row),
+                () -> false, p ->
+                {
+                });
+    }
+}
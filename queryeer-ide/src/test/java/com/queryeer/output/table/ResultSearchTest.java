@@ -0,0 +1,130 @@
+package com.queryeer.output.table;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import javax.swing.RowFilter;
+import javax.swing.RowSorter.SortKey;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableRowSorter;
+
+import org.junit.jupiter.api.Test;
+
+/** Test of {@link ResultSearch} */
+class ResultSearchTest
+{
+    @Test
+    void test_scan()
+    {
+        ResultStore store = new ResultStore();
+        int rowCount = 10_000;
+        for (int i = 0; i < rowCount; i++)
+        {
+            store.append(1, i);
+            // Dictionary encoded
+            store.append(2, "value" + (i % 10));
+            store.append(3, i % 2 == 0 ? null
+                    : "text" + i);
+            store.endRow();
+        }
+
+        Predicate<String> matcher = new ResultSearch.Query("5", false, false).matcher();
+        long[] hits = ResultSearch.scan(store, 0, rowCount, 4, matcher, () -> false);
+        assertArrayEquals(new long[] { ResultSearch.pack(5, 1), ResultSearch.pack(5, 2), ResultSearch.pack(5, 3) }, Arrays.copyOf(hits, 3));
+        for (int i = 1; i < hits.length; i++)
+        {
+            assertTrue(hits[i - 1] < hits[i]);
+        }
+
+        // Incremental scan of the last rows
+        hits = ResultSearch.scan(store, 9_990, rowCount, 4, new ResultSearch.Query("VALUE3", false, false).matcher(), () -> false);
+        assertArrayEquals(new long[] { ResultSearch.pack(9_993, 2) }, hits);
+
+        // Match case
+        hits = ResultSearch.scan(store, 0, rowCount, 4, new ResultSearch.Query("VALUE3", true, false).matcher(), () -> false);
+        assertEquals(0, hits.length);
+
+        // Regex
+        hits = ResultSearch.scan(store, 0, rowCount, 4, new ResultSearch.Query("^text99\\d\\d$", false, true).matcher(), () -> false);
+        assertEquals(50, hits.length);
+
+        assertThrows(CancellationException.class, () -> ResultSearch.scan(store, 0, rowCount, 4, matcher, () -> true));
+        store.close();
+    }
+
+    @Test
+    void test_query_matcher()
+    {
+        assertTrue(new ResultSearch.Query("abc", false, false).matcher()
+                .test("xxABCxx"));
+        assertFalse(new ResultSearch.Query("abc", true, false).matcher()
+                .test("xxABCxx"));
+        assertTrue(new ResultSearch.Query("a.c", false, true).matcher()
+                .test("xxABCxx"));
+    }
+
+    @Test
+    void test_find_in_view_order() throws Exception
+    {
+        Model model = new Model();
+        model.setColumns(new ArrayList<>(List.of("", "col")));
+        Object[][] values = new Object[][] { { "a0", "b1", "a2", "b3", "a4" } };
+        model.addBatch(new String[] { "col" }, values, 5, v -> v);
+
+        CountDownLatch scanned = new CountDownLatch(1);
+        ResultSearch search = new ResultSearch(() -> List.of(model), scanned::countDown);
+        SwingUtilities.invokeAndWait(() -> search.search(new ResultSearch.Query("a", false, false)));
+        assertTrue(scanned.await(5, TimeUnit.SECONDS));
+        assertEquals(3, search.getHitCount());
+
+        // Unsorted, model order
+        List<TableRowSorter<Model>> sorters = List.of(new TableRowSorter<>(model));
+        assertHit(search.find(List.of(model), sorters, null, 0, 0, true, true), 0, 0, 1);
+        assertHit(search.find(List.of(model), sorters, model, 0, 1, true, false), 2, 2, 2);
+
+        // Sorted descending by row number, hits are traversed in view order
+        sorters.get(0)
+                .setSortKeys(List.of(new SortKey(0, SortOrder.DESCENDING)));
+        assertHit(search.find(List.of(model), sorters, null, 0, 0, true, true), 4, 0, 1);
+        assertHit(search.find(List.of(model), sorters, model, 0, 1, true, false), 2, 2, 2);
+        assertHit(search.find(List.of(model), sorters, model, 2, 1, true, false), 0, 4, 3);
+        assertNull(search.find(List.of(model), sorters, model, 4, 1, true, false));
+        assertHit(search.find(List.of(model), sorters, model, 4, 1, false, false), 2, 2, 2);
+
+        // Filtered out rows are skipped
+        sorters.get(0)
+                .setRowFilter(new RowFilter<Model, Integer>()
+                {
+                    @Override
+                    public boolean include(Entry<? extends Model, ? extends Integer> entry)
+                    {
+                        return entry.getIdentifier() != 2;
+                    }
+                });
+        assertHit(search.find(List.of(model), sorters, model, 0, 1, true, false), 0, 3, 2);
+        assertEquals(2, search.find(List.of(model), sorters, null, 0, 0, true, true)
+                .count());
+        search.clear();
+    }
+
+    private static void assertHit(ResultSearch.Hit hit, int row, int viewRow, int index)
+    {
+        assertEquals(row, hit.row());
+        assertEquals(viewRow, hit.viewRow());
+        assertEquals(1, hit.column());
+        assertEquals(index, hit.index());
+    }
+}
@@ -0,0 +1,152 @@
+package com.queryeer.output.table;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.queryeer.output.table.ResultStore.DictionaryStats;
+import com.queryeer.output.table.TableOutputConfigurable.TableOutputSettings;
+
+/** Test of {@link ResultStore} */
+class ResultStoreTest
+{
+    @Test
+    void test_spill_to_disk()
+    {
+        TableOutputSettings settings = new TableOutputSettings();
+        settings.setResultMemoryLimitMB(1);
+        ResultStore store = new ResultStore(settings);
+        LocalDateTime now = LocalDateTime.parse("2020-01-01T10:00:00.123456");
+        int rows = 100_000;
+        try
+        {
+            for (int i = 0; i < rows; i++)
+            {
+                store.append(1, i);
+                store.append(2, i % 3 == 0 ? null
+                        : "value" + i);
+                store.append(3, now.plusSeconds(i));
+                // Mixed column
+                store.append(4, i % 2 == 0 ? new BigDecimal(i)
+                        : List.of(i, Map.of("key", "value")));
+                store.endRow();
+            }
+
+            assertTrue(store.getSpilledBytes() > 0);
+            assertEquals(rows, store.getRowCount());
+            assertEquals(Integer.class, store.getType(1));
+            assertEquals(String.class, store.getType(2));
+            assertEquals(LocalDateTime.class, store.getType(3));
+            assertEquals(Object.class, store.getType(4));
+
+            for (int i = rows - 1; i >= 0; i--)
+            {
+                assertEquals(i, store.get(i, 1));
+                if (i % 3 == 0)
+                {
+                    assertNull(store.get(i, 2));
+                }
+                else
+                {
+                    assertEquals("value" + i, store.get(i, 2));
+                }
+                assertEquals(now.plusSeconds(i), store.get(i, 3));
+                assertEquals(i % 2 == 0 ? new BigDecimal(i)
+                        : List.of(i, Map.of("key", "value")), store.get(i, 4));
+            }
+        }
+        finally
+        {
+            store.close();
+        }
+        // Closed store don't return any spilled values
+        assertNull(store.get(0, 1));
+    }
+
+    @Test
+    void test_no_spill()
+    {
+        TableOutputSettings settings = new TableOutputSettings();
+        settings.setResultMemoryLimitMB(1);
+        settings.setSpillToDisk(false);
+        ResultStore store = new ResultStore(settings);
+        for (int i = 0; i < 50_000; i++)
+        {
+            store.append(1, (long) i);
+            store.endRow();
+        }
+        assertEquals(0, store.getSpilledBytes());
+        assertEquals(49_999L, store.get(49_999, 1));
+        store.close();
+    }
+
+    @Test
+    void test_rows_with_missing_columns()
+    {
+        ResultStore store = new ResultStore();
+        for (int i = 0; i < 10_000; i++)
+        {
+            // Every other row lacks column 2 and column 3 only appears after half the rows
+            store.append(1, i);
+            if (i % 2 == 0)
+            {
+                store.append(2, "value" + i);
+            }
+            if (i >= 5_000)
+            {
+                store.append(3, (double) i);
+            }
+            store.endRow();
+        }
+
+        assertEquals(10_000, store.getRowCount());
+        for (int i = 0; i < 10_000; i++)
+        {
+            assertEquals(i, store.get(i, 1));
+            assertEquals(i % 2 == 0 ? "value" + i
+                    : null, store.get(i, 2));
+            assertEquals(i >= 5_000 ? (double) i
+                    : null, store.get(i, 3));
+        }
+        store.close();
+    }
+
+    @Test
+    void test_dictionary_encoding()
+    {
+        ResultStore store = new ResultStore();
+        int rows = 10_000;
+        for (int i = 0; i < rows; i++)
+        {
+            // Low cardinality
+            store.append(1, "value" + (i % 10));
+            // High cardinality
+            store.append(2, "id" + i);
+            store.endRow();
+        }
+
+        DictionaryStats stats = store.getDictionaryStats(1);
+        assertFalse(stats.disabled());
+        assertTrue(stats.hitRatio() > 0.99);
+
+        stats = store.getDictionaryStats(2);
+        assertTrue(stats.disabled());
+
+        for (int i = 0; i < rows; i++)
+        {
+            assertEquals("value" + (i % 10), store.get(i, 1));
+            assertEquals("id" + i, store.get(i, 2));
+        }
+        assertEquals(String.class, store.getType(1));
+        assertEquals(String.class, store.getType(2));
+        store.close();
+    }
+}
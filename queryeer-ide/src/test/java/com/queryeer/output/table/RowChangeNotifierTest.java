@@ -0,0 +1,162 @@
+package com.queryeer.output.table;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/** Test of {@link RowChangeNotifier} */
+class RowChangeNotifierTest
+{
+    private static final long INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 30;
+
+    private final ManualDispatcher dispatcher = new ManualDispatcher();
+    private final List<int[]> events = new ArrayList<>();
+    /** Clock time of each event */
+    private final List<Long> eventTimes = new ArrayList<>();
+    private long clock = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    void test_coalesce()
+    {
+        RowChangeNotifier notifier = notifier();
+
+        int rowCount = 200_000;
+        for (int i = 1; i <= rowCount; i++)
+        {
+            // One row per micro second
+            clock += 1000;
+            notifier.rowsAppended(i);
+            dispatcher.runDue();
+        }
+        notifier.flush(rowCount);
+        dispatcher.runDue();
+
+        // 0.2 seconds of rows with max 30 notifications per second
+        assertEquals(7, events.size());
+        assertEquals(events.size(), notifier.getPublishCount());
+        assertEquals(rowCount + 1, notifier.getRequestCount());
+        // Last event is the flush which ignores the interval
+        for (int i = 1; i < eventTimes.size() - 1; i++)
+        {
+            assertTrue(eventTimes.get(i) - eventTimes.get(i - 1) >= INTERVAL_NANOS, "Events should be at least one interval apart");
+        }
+
+        // Events should be contiguous and cover all rows
+        int expectedFirst = 0;
+        for (int[] event : events)
+        {
+            assertEquals(expectedFirst, event[0]);
+            assertTrue(event[1] >= event[0]);
+            expectedFirst = event[1] + 1;
+        }
+        assertEquals(rowCount, expectedFirst);
+    }
+
+    @Test
+    void test_rows_within_interval_are_published_once_interval_has_passed()
+    {
+        RowChangeNotifier notifier = notifier();
+
+        // First append is published right away
+        notifier.rowsAppended(1);
+        dispatcher.runDue();
+        assertEquals(1, events.size());
+
+        clock += 1000;
+        notifier.rowsAppended(2);
+        notifier.rowsAppended(3);
+        notifier.rowsAppended(4);
+        // A single delayed publish is pending
+        assertEquals(1, dispatcher.tasks.size());
+        dispatcher.runDue();
+        assertEquals(1, events.size());
+
+        clock += INTERVAL_NANOS;
+        dispatcher.runDue();
+        assertEquals(2, events.size());
+        assertArrayEquals(new int[] { 1, 3 }, events.get(1));
+        assertEquals(0, dispatcher.tasks.size());
+    }
+
+    @Test
+    void test_flush_ignores_interval()
+    {
+        RowChangeNotifier notifier = notifier();
+        notifier.rowsAppended(1);
+        dispatcher.runDue();
+
+        notifier.flush(5);
+        dispatcher.runDue();
+        assertEquals(2, events.size());
+        assertArrayEquals(new int[] { 1, 4 }, events.get(1));
+
+        // Flush on dispatch thread publishes directly
+        dispatcher.dispatchThread = true;
+        notifier.flush(6);
+        assertEquals(3, events.size());
+        assertArrayEquals(new int[] { 5, 5 }, events.get(2));
+
+        // Nothing new to publish
+        notifier.flush(6);
+        assertEquals(3, events.size());
+    }
+
+    private RowChangeNotifier notifier()
+    {
+        return new RowChangeNotifier((firstRow, lastRow) ->
+        {
+            events.add(new int[] { firstRow, lastRow });
+            eventTimes.add(clock);
+        }, 30, () -> clock, dispatcher);
+    }
+
+    /** Dispatcher that runs tasks on the test thread when the simulated clock has passed their due time */
+    private class ManualDispatcher implements RowChangeNotifier.Dispatcher
+    {
+        private final List<Task> tasks = new ArrayList<>();
+        private boolean dispatchThread;
+
+        @Override
+        public void dispatch(Runnable task, long delayNanos)
+        {
+            tasks.add(new Task(task, clock + Math.max(0, delayNanos)));
+        }
+
+        @Override
+        public boolean isDispatchThread()
+        {
+            return dispatchThread;
+        }
+
+        /** Run all due tasks including tasks that are dispatched by the tasks that run */
+        void runDue()
+        {
+            boolean ran = true;
+            while (ran)
+            {
+                ran = false;
+                for (int i = 0; i < tasks.size(); i++)
+                {
+                    Task task = tasks.get(i);
+                    if (task.due <= clock)
+                    {
+                        tasks.remove(i);
+                        task.runnable.run();
+                        ran = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private record Task(Runnable runnable, long due)
+    {
+    }
+}
@@ -0,0 +1,58 @@
+package com.queryeer.output.table;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/** Test of {@link TableColumnAdjuster} */
+class TableColumnAdjusterTest
+{
+    @Test
+    void test_sample_rows()
+    {
+        assertArrayEquals(new int[0], TableColumnAdjuster.sampleRows(10, 10));
+        assertArrayEquals(IntStream.range(5, 15)
+                .toArray(), TableColumnAdjuster.sampleRows(5, 15));
+
+        int size = TableColumnAdjuster.SAMPLE_SIZE;
+        int[] rows = TableColumnAdjuster.sampleRows(1_000, 2_000_000);
+        assertEquals(size * 3, rows.length);
+        assertEquals(1_000, rows[0]);
+        assertEquals(1_999_999, rows[rows.length - 1]);
+        for (int i = size; i < size * 2; i++)
+        {
+            assertTrue(rows[i] >= 1_000 + size
+                    && rows[i] < 2_000_000 - size);
+        }
+    }
+
+    @Test
+    void test_width_key()
+    {
+        assertEquals("value", TableColumnAdjuster.widthKey("value"));
+        assertEquals(10L, TableColumnAdjuster.widthKey(10L));
+        assertEquals(TableColumnAdjuster.widthKey(null), TableColumnAdjuster.widthKey(null));
+
+        // Large values are not retained by the cache
+        String large = "x".repeat(10_000);
+        Object key = TableColumnAdjuster.widthKey(large);
+        assertNotSame(large, key);
+        assertEquals(key, TableColumnAdjuster.widthKey(new String(large)));
+        assertNotEquals(key, TableColumnAdjuster.widthKey(large + "y"));
+
+        Map<String, Object> map = new HashMap<>(Map.of("key", List.of(1, 2, 3)));
+        key = TableColumnAdjuster.widthKey(map);
+        assertNotSame(map, key);
+        assertEquals(key, TableColumnAdjuster.widthKey(new HashMap<>(map)));
+        assertNotEquals(key, TableColumnAdjuster.widthKey(List.of(1, 2, 3)));
+    }
+}